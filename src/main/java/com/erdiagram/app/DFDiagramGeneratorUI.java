@@ -39,8 +39,11 @@ import java.io.File;
 import java.io.IOException;
 import java.io.FileWriter;
 import java.io.BufferedWriter;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.Optional;
 
@@ -58,6 +61,8 @@ public class DFDiagramGeneratorUI {
     private DFDElement selectedElement;
     private final Map<Node, DFDElement> nodeToElementMap = new HashMap<>();
     private final Map<DFDElement, Group> elementToNodeMap = new HashMap<>();
+    // Drawn data flows by their source and target elements, to move them along with a dragged element
+    private final Map<DFDElement, Set<DFDDataFlow>> flowsByElement = new HashMap<>();
     
     // Dragging variables
     private double dragStartX;
@@ -721,6 +726,7 @@ public class DFDiagramGeneratorUI {
         canvas.getChildren().clear();
         nodeToElementMap.clear();
         elementToNodeMap.clear();
+        flowsByElement.clear();
         
         // Recreate grid lines
         for (int i = 0; i < 2000; i += 50) {
@@ -853,6 +859,7 @@ public class DFDiagramGeneratorUI {
         selectedElement = null;
         nodeToElementMap.clear();
         elementToNodeMap.clear();
+        flowsByElement.clear();
         
         // Reset the canvas
         canvas.getChildren().clear();
@@ -1108,107 +1115,12 @@ public class DFDiagramGeneratorUI {
         Group targetNode = elementToNodeMap.get(target);
         
         if (sourceNode != null && targetNode != null) {
-            // Calculate center points
-            double startX = sourceNode.getLayoutX();
-            double startY = sourceNode.getLayoutY();
-            double endX = targetNode.getLayoutX();
-            double endY = targetNode.getLayoutY();
-            
-            // Calculate direction vector
-            double dx = endX - startX;
-            double dy = endY - startY;
-            double length = Math.sqrt(dx * dx + dy * dy);
-            
-            // Normalize
-            double ndx = dx / length;
-            double ndy = dy / length;
-            
-            // Calculate boundary points based on element type
-            double sourceRadius = 0, targetRadius = 0;
-            
-            // Determine source element size
-            if (source instanceof DFDProcess) {
-                sourceRadius = 50; // Process circle radius
-            } else if (source instanceof DFDDataStore) {
-                // For data store, adjust based on angle to get elliptical boundary
-                double angle = Math.atan2(dy, dx);
-                double xr = 100; // Half width
-                double yr = 20;  // Half height
-                double r = (xr * yr) / Math.sqrt(yr * yr * Math.cos(angle) * Math.cos(angle) + 
-                            xr * xr * Math.sin(angle) * Math.sin(angle));
-                sourceRadius = r;
-            } else if (source instanceof DFDExternalEntity) {
-                // For external entity, adjust based on angle to get rectangular boundary
-                double angle = Math.abs(Math.atan2(dy, dx));
-                if (angle < Math.PI/4) {
-                    sourceRadius = 75; // Half width
-                } else if (angle < 3*Math.PI/4) {
-                    sourceRadius = 40; // Half height
-                } else {
-                    sourceRadius = 75; // Half width
-                }
-            }
-            
-            // Determine target element size
-            if (target instanceof DFDProcess) {
-                targetRadius = 50; // Process circle radius
-            } else if (target instanceof DFDDataStore) {
-                // For data store, adjust based on angle to get elliptical boundary
-                double angle = Math.atan2(-dy, -dx); // Reverse direction for target
-                double xr = 100; // Half width
-                double yr = 20;  // Half height
-                double r = (xr * yr) / Math.sqrt(yr * yr * Math.cos(angle) * Math.cos(angle) + 
-                            xr * xr * Math.sin(angle) * Math.sin(angle));
-                targetRadius = r;
-            } else if (target instanceof DFDExternalEntity) {
-                // For external entity, adjust based on angle to get rectangular boundary
-                double angle = Math.abs(Math.atan2(-dy, -dx)); // Reverse direction for target
-                if (angle < Math.PI/4) {
-                    targetRadius = 75; // Half width
-                } else if (angle < 3*Math.PI/4) {
-                    targetRadius = 40; // Half height
-                } else {
-                    targetRadius = 75; // Half width
-                }
-            }
-            
-            // Adjust start and end points to be at the boundaries
-            double adjustedStartX = startX + ndx * sourceRadius;
-            double adjustedStartY = startY + ndy * sourceRadius;
-            double adjustedEndX = endX - ndx * targetRadius;
-            double adjustedEndY = endY - ndy * targetRadius;
-            
-            // Make sure arrowhead isn't too close to the line start
-            if (Math.sqrt(Math.pow(adjustedEndX - adjustedStartX, 2) + 
-                          Math.pow(adjustedEndY - adjustedStartY, 2)) < 20) {
-                // If too close, just use a small line
-                adjustedStartX = startX + ndx * (sourceRadius * 0.8);
-                adjustedStartY = startY + ndy * (sourceRadius * 0.8);
-                adjustedEndX = endX - ndx * (targetRadius * 0.8);
-                adjustedEndY = endY - ndy * (targetRadius * 0.8);
-            }
-            
             // Draw line
-            Line line = new Line(adjustedStartX, adjustedStartY, adjustedEndX, adjustedEndY);
+            Line line = new Line();
             line.getStyleClass().add("dfd-data-flow");
             
-            // Draw arrow head
-            double arrowLength = 15;
-            double arrowWidth = 7;
-            
-            // Calculate perpendicular vector for arrow
-            double perpX = -ndy;
-            double perpY = ndx;
-            
             // Create arrowhead
             Polygon arrowHead = new Polygon();
-            arrowHead.getPoints().addAll(
-                adjustedEndX, adjustedEndY,
-                adjustedEndX - arrowLength * ndx + arrowWidth * perpX, 
-                adjustedEndY - arrowLength * ndy + arrowWidth * perpY,
-                adjustedEndX - arrowLength * ndx - arrowWidth * perpX, 
-                adjustedEndY - arrowLength * ndy - arrowWidth * perpY
-            );
             arrowHead.getStyleClass().add("dfd-data-flow-arrow");
             arrowHead.setFill(Color.BLACK);
             
@@ -1216,14 +1128,6 @@ public class DFDiagramGeneratorUI {
             Label label = new Label(flow.getName());
             label.getStyleClass().add("dfd-label");
             
-            // Position label at the middle of the line
-            double midX = (adjustedStartX + adjustedEndX) / 2.0;
-            double midY = (adjustedStartY + adjustedEndY) / 2.0;
-            
-            // Offset label slightly perpendicular to the line
-            label.setLayoutX(midX + 10 * perpX);
-            label.setLayoutY(midY + 10 * perpY);
-            
             // Add label background for better readability
             Rectangle labelBg = new Rectangle();
             labelBg.setFill(Color.WHITE);
@@ -1235,7 +1139,10 @@ public class DFDiagramGeneratorUI {
             labelBg.xProperty().bind(label.layoutXProperty().subtract(2));
             labelBg.yProperty().bind(label.layoutYProperty().subtract(2));
             
-            // Add elements to group
+            // Place the shapes between the two elements
+            layoutDataFlow(flow, line, arrowHead, label);
+            
+            // Add elements to group; updateConnectedDataFlows relies on this order
             group.getChildren().addAll(line, arrowHead, labelBg, label);
             
             // Add selection effect
@@ -1244,6 +1151,8 @@ public class DFDiagramGeneratorUI {
             // Track this element
             nodeToElementMap.put(group, flow);
             elementToNodeMap.put(flow, group);
+            flowsByElement.computeIfAbsent(source, element -> new LinkedHashSet<>()).add(flow);
+            flowsByElement.computeIfAbsent(target, element -> new LinkedHashSet<>()).add(flow);
             
             canvas.getChildren().add(group);
         }
@@ -1251,6 +1160,127 @@ public class DFDiagramGeneratorUI {
         return group;
     }
     
+    /**
+     * Positions the line, arrowhead and label of a data flow between the
+     * current positions of its source and target elements.
+     */
+    private void layoutDataFlow(DFDDataFlow flow, Line line, Polygon arrowHead, Label label) {
+        DFDElement source = flow.getSource();
+        DFDElement target = flow.getTarget();
+        Group sourceNode = elementToNodeMap.get(source);
+        Group targetNode = elementToNodeMap.get(target);
+        
+        // Calculate center points
+        double startX = sourceNode.getLayoutX();
+        double startY = sourceNode.getLayoutY();
+        double endX = targetNode.getLayoutX();
+        double endY = targetNode.getLayoutY();
+        
+        // Calculate direction vector
+        double dx = endX - startX;
+        double dy = endY - startY;
+        double length = Math.sqrt(dx * dx + dy * dy);
+        
+        // Normalize
+        double ndx = dx / length;
+        double ndy = dy / length;
+        
+        // Calculate boundary points based on element type
+        double sourceRadius = 0, targetRadius = 0;
+        
+        // Determine source element size
+        if (source instanceof DFDProcess) {
+            sourceRadius = 50; // Process circle radius
+        } else if (source instanceof DFDDataStore) {
+            // For data store, adjust based on angle to get elliptical boundary
+            double angle = Math.atan2(dy, dx);
+            double xr = 100; // Half width
+            double yr = 20;  // Half height
+            double r = (xr * yr) / Math.sqrt(yr * yr * Math.cos(angle) * Math.cos(angle) + 
+                        xr * xr * Math.sin(angle) * Math.sin(angle));
+            sourceRadius = r;
+        } else if (source instanceof DFDExternalEntity) {
+            // For external entity, adjust based on angle to get rectangular boundary
+            double angle = Math.abs(Math.atan2(dy, dx));
+            if (angle < Math.PI/4) {
+                sourceRadius = 75; // Half width
+            } else if (angle < 3*Math.PI/4) {
+                sourceRadius = 40; // Half height
+            } else {
+                sourceRadius = 75; // Half width
+            }
+        }
+        
+        // Determine target element size
+        if (target instanceof DFDProcess) {
+            targetRadius = 50; // Process circle radius
+        } else if (target instanceof DFDDataStore) {
+            // For data store, adjust based on angle to get elliptical boundary
+            double angle = Math.atan2(-dy, -dx); // Reverse direction for target
+            double xr = 100; // Half width
+            double yr = 20;  // Half height
+            double r = (xr * yr) / Math.sqrt(yr * yr * Math.cos(angle) * Math.cos(angle) + 
+                        xr * xr * Math.sin(angle) * Math.sin(angle));
+            targetRadius = r;
+        } else if (target instanceof DFDExternalEntity) {
+            // For external entity, adjust based on angle to get rectangular boundary
+            double angle = Math.abs(Math.atan2(-dy, -dx)); // Reverse direction for target
+            if (angle < Math.PI/4) {
+                targetRadius = 75; // Half width
+            } else if (angle < 3*Math.PI/4) {
+                targetRadius = 40; // Half height
+            } else {
+                targetRadius = 75; // Half width
+            }
+        }
+        
+        // Adjust start and end points to be at the boundaries
+        double adjustedStartX = startX + ndx * sourceRadius;
+        double adjustedStartY = startY + ndy * sourceRadius;
+        double adjustedEndX = endX - ndx * targetRadius;
+        double adjustedEndY = endY - ndy * targetRadius;
+        
+        // Make sure arrowhead isn't too close to the line start
+        if (Math.sqrt(Math.pow(adjustedEndX - adjustedStartX, 2) + 
+                      Math.pow(adjustedEndY - adjustedStartY, 2)) < 20) {
+            // If too close, just use a small line
+            adjustedStartX = startX + ndx * (sourceRadius * 0.8);
+            adjustedStartY = startY + ndy * (sourceRadius * 0.8);
+            adjustedEndX = endX - ndx * (targetRadius * 0.8);
+            adjustedEndY = endY - ndy * (targetRadius * 0.8);
+        }
+        
+        // Update line
+        line.setStartX(adjustedStartX);
+        line.setStartY(adjustedStartY);
+        line.setEndX(adjustedEndX);
+        line.setEndY(adjustedEndY);
+        
+        // Update arrow head
+        double arrowLength = 15;
+        double arrowWidth = 7;
+        
+        // Calculate perpendicular vector for arrow
+        double perpX = -ndy;
+        double perpY = ndx;
+        
+        arrowHead.getPoints().setAll(
+            adjustedEndX, adjustedEndY,
+            adjustedEndX - arrowLength * ndx + arrowWidth * perpX, 
+            adjustedEndY - arrowLength * ndy + arrowWidth * perpY,
+            adjustedEndX - arrowLength * ndx - arrowWidth * perpX, 
+            adjustedEndY - arrowLength * ndy - arrowWidth * perpY
+        );
+        
+        // Position label at the middle of the line
+        double midX = (adjustedStartX + adjustedEndX) / 2.0;
+        double midY = (adjustedStartY + adjustedEndY) / 2.0;
+        
+        // Offset label slightly perpendicular to the line
+        label.setLayoutX(midX + 10 * perpX);
+        label.setLayoutY(midY + 10 * perpY);
+    }
+    
     private void setupElementInteraction(Group group, DFDElement element) {
         // Add selection effect
         group.setOnMouseClicked(e -> {
@@ -1317,19 +1347,13 @@ public class DFDiagramGeneratorUI {
     }
     
     private void updateConnectedDataFlows(DFDElement element) {
-        // Redraw any data flows connected to this element
-        for (DFDDataFlow flow : diagram.getDataFlows()) {
-            if (flow.getSource() == element || flow.getTarget() == element) {
-                // Remove old visualization
-                Group oldGroup = elementToNodeMap.get(flow);
-                if (oldGroup != null) {
-                    canvas.getChildren().remove(oldGroup);
-                    nodeToElementMap.remove(oldGroup);
-                }
-                
-                // Draw new visualization
-                Group newGroup = drawDataFlow(flow);
-                elementToNodeMap.put(flow, newGroup);
+        // Move the shapes of the data flows connected to this element in place
+        for (DFDDataFlow flow : flowsByElement.getOrDefault(element, Collections.emptySet())) {
+            Group group = elementToNodeMap.get(flow);
+            if (group != null) {
+                // Children as added by drawDataFlow: line, arrowhead, label background, label
+                layoutDataFlow(flow, (Line) group.getChildren().get(0), (Polygon) group.getChildren().get(1),
+                        (Label) group.getChildren().get(3));
             }
         }
     }
@@ -1542,6 +1566,7 @@ public class DFDiagramGeneratorUI {
         canvas.getChildren().clear();
         nodeToElementMap.clear();
         elementToNodeMap.clear();
+        flowsByElement.clear();
         
         // Recreate grid lines
         for (int i = 0; i < 2000; i += 50) {
@@ -1710,6 +1735,7 @@ public class DFDiagramGeneratorUI {
                 elementToNodeMap.remove(flow);
             }
         }
+        flowsByElement.clear();
         
         // Redraw all data flows
         for (DFDDataFlow flow : diagram.getDataFlows()) {
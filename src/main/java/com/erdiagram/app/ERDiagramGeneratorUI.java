@@ -1,8 +1,20 @@
 package com.erdiagram.app;
 
 import com.erdiagram.app.model.ERDiagram;
+import com.erdiagram.app.model.SchemaDelta;
+import com.erdiagram.app.parser.DatabaseSchemaReader;
+import com.erdiagram.app.parser.IncrementalSQLSession;
+import com.erdiagram.app.parser.ParseCache;
 import com.erdiagram.app.parser.SQLParser;
+import com.erdiagram.app.parser.SQLStatementSource;
+import com.erdiagram.app.parser.SchemaReconciler;
+import com.erdiagram.app.ui.BackgroundJobRunner;
+import com.erdiagram.app.ui.CodeEditor;
 import com.erdiagram.app.ui.DiagramView;
+import com.erdiagram.app.ui.FileChangeWatcher;
+import com.erdiagram.app.ui.PagedFileView;
+import javafx.animation.PauseTransition;
+import javafx.geometry.Bounds;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.*;
@@ -16,7 +28,9 @@ import javafx.scene.shape.Rectangle;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.scene.text.Text;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
+import javafx.util.Duration;
 import javafx.embed.swing.SwingFXUtils;
 
 import javax.imageio.ImageIO;
@@ -24,21 +38,63 @@ import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Main UI component for the ER Diagram Generator application.
  */
 public class ERDiagramGeneratorUI {
+    // Scripts larger than this are parsed from disk instead of being loaded into the editor
+    private static final long LARGE_FILE_THRESHOLD = 32 * 1024 * 1024;
+    // The table a CREATE TABLE or ALTER TABLE statement is about; the name may be quoted or schema-qualified
+    private static final Pattern TABLE_STATEMENT = Pattern.compile(
+            "(?i)\\b(?:CREATE|ALTER)\\s+(?:(?:GLOBAL|LOCAL)\\s+)?(?:TEMP(?:ORARY)?\\s+)?TABLE\\s+"
+            + "(?:IF\\s+(?:NOT\\s+)?EXISTS\\s+)?(?:ONLY\\s+)?((?:[`\"\\[]?[\\w$]+[`\"\\]]?\\.)*[`\"\\[]?[\\w$]+[`\"\\]]?)");
+    // How far above the caret the statement it is in is looked for
+    private static final int MAX_STATEMENT_LINES = 5000;
+    
     private BorderPane root;
-    private TextArea sqlTextArea;
+    private CodeEditor sqlEditor;
     private DiagramView diagramView;
+    private ScrollPane diagramScrollPane;
     private SQLParser sqlParser;
     private ERDiagram currentDiagram;
     private ToggleButton darkModeToggle;
+    private IncrementalSQLSession parseSession;
+    private CheckBox livePreviewCheckBox;
+    private PauseTransition livePreviewDelay;
+    private Label statusLabel;
+    private StackPane editorContainer;
+    private PagedFileView largeFileView;
+    // Parser and session are only used on this runner's worker thread
+    private BackgroundJobRunner parseJobs;
+    // Chosen on the FX thread; each job applies the value it was submitted with
+    private boolean mysqlEscapes;
+    // Reloads the script or migrations folder that was opened when it changes on disk
+    private FileChangeWatcher fileWatcher;
+    private Path watchedPath;
+    // The script as last read from disk, and the editor revision it was shown at
+    private String loadedSqlText;
+    private int loadedSqlRevision;
+    // Follows the caret to the table it is in, shortly after it stops moving
+    private PauseTransition caretDelay;
+    private String caretTable;
+    // Set while a migrations folder is shown; only used on the worker thread
+    private SchemaReconciler migrationSchema;
     
     public ERDiagramGeneratorUI() {
         this.sqlParser = new SQLParser();
+        this.sqlParser.setParallelism(Runtime.getRuntime().availableProcessors());
+        this.sqlParser.setParseCache(new ParseCache(ParseCache.defaultDirectory(), ParseCache.DEFAULT_MAX_BYTES));
+        this.parseSession = new IncrementalSQLSession(sqlParser);
+        this.parseJobs = new BackgroundJobRunner("er-parser");
+        this.fileWatcher = new FileChangeWatcher("er-file-watcher", this::reloadWatchedFiles);
         initializeUI();
     }
     
@@ -56,6 +112,7 @@ public class ERDiagramGeneratorUI {
         // Center section - Diagram View
         diagramView = new DiagramView();
         ScrollPane scrollPane = new ScrollPane(diagramView);
+        diagramScrollPane = scrollPane;
         scrollPane.setPannable(true);
         scrollPane.setFitToWidth(true);
         scrollPane.setFitToHeight(true);
@@ -65,20 +122,86 @@ public class ERDiagramGeneratorUI {
         
         root.setCenter(scrollPane);
         
-        // Add animation timer to update relationship lines during entity dragging
-        javafx.animation.AnimationTimer timer = new javafx.animation.AnimationTimer() {
-            @Override
-            public void handle(long now) {
-                diagramView.updateRelationshipLines();
-            }
-        };
-        timer.start();
+        // Only tables near the viewport have nodes; skeleton tables load their columns as they come into view
+        diagramView.localToSceneTransformProperty().addListener((obs, oldTransform, newTransform) ->
+                updateVisibleArea());
+        scrollPane.viewportBoundsProperty().addListener((obs, oldBounds, newBounds) ->
+                updateVisibleArea());
         
         // Add bottom status bar
         HBox statusBar = createStatusBar();
         root.setBottom(statusBar);
     }
     
+    /**
+     * Highlights the table whose statement the caret is in and scrolls it into view.
+     */
+    private void showCaretTable() {
+        String table = findTableAt(sqlEditor.getCaretLine());
+        if (Objects.equals(table, caretTable)) {
+            return;
+        }
+        caretTable = table;
+        
+        Bounds bounds = diagramView.highlightEntity(table);
+        if (bounds != null) {
+            centerOn(bounds);
+        }
+    }
+    
+    /**
+     * @return The table of the CREATE TABLE or ALTER TABLE statement a line is in, or null
+     */
+    private String findTableAt(int caretLine) {
+        for (int i = caretLine; i >= 0 && i > caretLine - MAX_STATEMENT_LINES; i--) {
+            String line = sqlEditor.getLine(i);
+            Matcher matcher = TABLE_STATEMENT.matcher(line);
+            String table = null;
+            int start = -1;
+            while (matcher.find()) {
+                table = matcher.group(1);
+                start = matcher.start();
+            }
+            
+            // A statement ending above the caret, after the last table statement on its line
+            int end = line.lastIndexOf(';');
+            if (i < caretLine && end > start) {
+                return null;
+            }
+            if (table != null) {
+                return table;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Scrolls the diagram so the given area of the view is in the middle of the viewport.
+     */
+    private void centerOn(Bounds bounds) {
+        Bounds target = diagramView.localToParent(bounds);
+        Bounds content = diagramView.getBoundsInParent();
+        Bounds viewport = diagramScrollPane.getViewportBounds();
+        double x = (target.getMinX() + target.getMaxX()) / 2 - content.getMinX();
+        double y = (target.getMinY() + target.getMaxY()) / 2 - content.getMinY();
+        if (content.getWidth() > viewport.getWidth()) {
+            diagramScrollPane.setHvalue(Math.max(0, Math.min(1,
+                    (x - viewport.getWidth() / 2) / (content.getWidth() - viewport.getWidth()))));
+        }
+        if (content.getHeight() > viewport.getHeight()) {
+            diagramScrollPane.setVvalue(Math.max(0, Math.min(1,
+                    (y - viewport.getHeight() / 2) / (content.getHeight() - viewport.getHeight()))));
+        }
+    }
+    
+    private void updateVisibleArea() {
+        if (diagramScrollPane.getScene() == null) {
+            return;
+        }
+        Bounds viewport = diagramScrollPane.localToScene(diagramScrollPane.getLayoutBounds());
+        diagramView.setVisibleArea(diagramView.sceneToLocal(viewport));
+    }
+    
     private HBox createTopBar() {
         HBox topBar = new HBox(15);
         topBar.setPadding(new Insets(15));
@@ -101,6 +224,12 @@ public class ERDiagramGeneratorUI {
         Button loadSqlButton = createStyledButton("Load SQL", "📂");
         loadSqlButton.setOnAction(e -> loadSqlFile());
         
+        Button loadMigrationsButton = createStyledButton("Load Migrations", "🗂");
+        loadMigrationsButton.setOnAction(e -> loadMigrationsDirectory());
+        
+        Button connectButton = createStyledButton("Connect DB", "🔌");
+        connectButton.setOnAction(e -> connectToDatabase());
+        
         Button exportButton = createStyledButton("Export Image", "📷");
         exportButton.setOnAction(e -> exportDiagramAsImage());
         
@@ -116,6 +245,16 @@ public class ERDiagramGeneratorUI {
         Button resetZoomButton = createStyledButton("Reset Zoom", "↺");
         resetZoomButton.setOnAction(e -> diagramView.resetZoom());
         
+        // Painting the diagram instead of building nodes keeps overviews of huge schemas fast
+        ToggleButton canvasModeToggle = new ToggleButton("🖌 Canvas Mode");
+        canvasModeToggle.setTooltip(new Tooltip("Paint the diagram onto a canvas instead of building nodes"));
+        canvasModeToggle.setStyle("-fx-background-color: rgba(255,255,255,0.2); -fx-text-fill: white; -fx-background-radius: 4;");
+        canvasModeToggle.selectedProperty().addListener((obs, wasSelected, selected) -> {
+            canvasModeToggle.setStyle("-fx-background-color: rgba(255,255,255," + (selected ? "0.45" : "0.2")
+                    + "); -fx-text-fill: white; -fx-background-radius: 4;");
+            diagramView.setRenderMode(selected ? DiagramView.RenderMode.CANVAS : DiagramView.RenderMode.NODES);
+        });
+        
         // Add Home button
         Button homeButton = createStyledButton("Home", "🏠");
         homeButton.setOnAction(e -> returnToHome());
@@ -133,6 +272,8 @@ public class ERDiagramGeneratorUI {
         
         toolbar.getItems().addAll(
                 loadSqlButton, 
+                loadMigrationsButton,
+                connectButton,
                 exportButton, 
                 separator1,
                 autoLayoutButton, 
@@ -140,6 +281,7 @@ public class ERDiagramGeneratorUI {
                 zoomInButton, 
                 zoomOutButton, 
                 resetZoomButton,
+                canvasModeToggle,
                 new Separator(javafx.geometry.Orientation.VERTICAL),
                 homeButton,
                 new Separator(javafx.geometry.Orientation.VERTICAL),
@@ -181,12 +323,24 @@ public class ERDiagramGeneratorUI {
         Label sqlLabel = new Label("SQL Input");
         sqlLabel.setFont(Font.font("Arial", FontWeight.BOLD, 16));
         
-        // SQL input with syntax highlighting (TextArea for now)
-        sqlTextArea = new TextArea();
-        sqlTextArea.setPrefHeight(400);
-        sqlTextArea.setWrapText(true);
-        sqlTextArea.setPromptText("Enter SQL CREATE TABLE statements here...");
-        sqlTextArea.setStyle("-fx-font-family: 'Consolas', 'Courier New', monospace; -fx-font-size: 14px;");
+        // SQL input with syntax highlighting; only the lines in view are drawn
+        sqlEditor = new CodeEditor(CodeEditor.Language.SQL);
+        sqlEditor.setPrefHeight(400);
+        sqlEditor.setPromptText("Enter SQL CREATE TABLE statements here...");
+        
+        // Re-parse shortly after typing stops when live preview is on
+        livePreviewDelay = new PauseTransition(Duration.millis(400));
+        livePreviewDelay.setOnFinished(e -> refreshLivePreview());
+        sqlEditor.revisionProperty().addListener((obs, oldRevision, newRevision) -> {
+            if (livePreviewCheckBox.isSelected()) {
+                livePreviewDelay.playFromStart();
+            }
+        });
+        
+        // Show the table the caret is in on the diagram
+        caretDelay = new PauseTransition(Duration.millis(150));
+        caretDelay.setOnFinished(e -> showCaretTable());
+        sqlEditor.caretLineProperty().addListener((obs, oldLine, newLine) -> caretDelay.playFromStart());
         
         // Button container
         HBox buttonBox = new HBox(10);
@@ -201,7 +355,30 @@ public class ERDiagramGeneratorUI {
         exampleButton.setStyle("-fx-background-color: #7f8c8d; -fx-text-fill: white;");
         exampleButton.setOnAction(e -> loadExampleSQL());
         
-        buttonBox.getChildren().addAll(generateButton, exampleButton);
+        livePreviewCheckBox = new CheckBox("Live Preview");
+        livePreviewCheckBox.setTooltip(new Tooltip("Update the diagram while typing"));
+        livePreviewCheckBox.setOnAction(e -> {
+            if (livePreviewCheckBox.isSelected()) {
+                refreshLivePreview();
+            }
+        });
+        
+        CheckBox mysqlEscapesCheckBox = new CheckBox("MySQL Escapes");
+        mysqlEscapesCheckBox.setTooltip(new Tooltip("Read backslashes in quoted strings as escape characters"));
+        mysqlEscapesCheckBox.setOnAction(e -> {
+            mysqlEscapes = mysqlEscapesCheckBox.isSelected();
+            if (livePreviewCheckBox.isSelected()) {
+                refreshLivePreview();
+            }
+        });
+        
+        Button cancelButton = new Button("Cancel");
+        cancelButton.setTooltip(new Tooltip("Stop the running parse"));
+        cancelButton.disableProperty().bind(parseJobs.runningProperty().not());
+        cancelButton.setOnAction(e -> parseJobs.cancel());
+        
+        buttonBox.getChildren().addAll(generateButton, exampleButton, cancelButton, livePreviewCheckBox,
+                mysqlEscapesCheckBox);
         
         // Create tabbed instructions and legend
         TabPane tabPane = new TabPane();
@@ -217,8 +394,11 @@ public class ERDiagramGeneratorUI {
         
         tabPane.getTabs().addAll(instructionsTab, legendTab);
         
+        // The editor is swapped for a paged view while a large file is open
+        editorContainer = new StackPane(sqlEditor);
+        
         // Add all components to the left panel
-        leftPanel.getChildren().addAll(sqlLabel, sqlTextArea, buttonBox, tabPane);
+        leftPanel.getChildren().addAll(sqlLabel, editorContainer, buttonBox, tabPane);
         
         return leftPanel;
     }
@@ -306,9 +486,16 @@ public class ERDiagramGeneratorUI {
         statusBar.setAlignment(Pos.CENTER_LEFT);
         statusBar.setStyle("-fx-background-color: #f4f4f4; -fx-border-color: #ddd; -fx-border-width: 1 0 0 0;");
         
-        Label statusLabel = new Label("Ready");
+        statusLabel = new Label("Ready");
         statusLabel.setTextFill(Color.DARKGRAY);
         
+        // Progress of background parses
+        parseJobs.messageProperty().addListener((obs, oldMessage, newMessage) -> {
+            if (newMessage != null && !newMessage.isEmpty()) {
+                statusLabel.setText(newMessage);
+            }
+        });
+        
         Region spacer = new Region();
         HBox.setHgrow(spacer, Priority.ALWAYS);
         
@@ -322,41 +509,318 @@ public class ERDiagramGeneratorUI {
     }
     
     private void generateDiagram() {
-        String sqlText = sqlTextArea.getText().trim();
+        if (largeFileView != null) {
+            parseLargeFile(largeFileView.getPath());
+            return;
+        }
+        
+        String sqlText = sqlEditor.getText().trim();
         
         if (sqlText.isEmpty()) {
             showAlert("Error", "Please enter SQL CREATE TABLE statements.");
             return;
         }
         
+        parseJobs.submit(withDialect(progress -> updateSession(sqlText, progress)), this::showParsedDiagram, e -> {
+            statusLabel.setText("Failed to parse SQL");
+            showAlert("Error", "Failed to parse SQL: " + e.getMessage());
+        });
+    }
+    
+    private void refreshLivePreview() {
+        if (largeFileView != null) {
+            return;
+        }
+        
+        String sqlText = sqlEditor.getText();
+        
+        // Half-typed statements are expected while editing
+        parseJobs.submit(withDialect(progress -> updateSession(sqlText, progress)), this::showParsedDiagram,
+                e -> statusLabel.setText("Live preview: " + e.getMessage()));
+    }
+    
+    /**
+     * Wraps a parse job so that it applies the SQL dialect chosen when it was
+     * submitted. The parser is only touched on the worker thread, so a running
+     * parse never sees the setting change half-way.
+     */
+    private <T> BackgroundJobRunner.Job<T> withDialect(BackgroundJobRunner.Job<T> job) {
+        boolean backslashEscapes = mysqlEscapes;
+        return progress -> {
+            sqlParser.setBackslashEscapes(backslashEscapes);
+            return job.run(progress);
+        };
+    }
+    
+    /**
+     * Brings the session up to date with the script. Runs on the worker thread.
+     */
+    private ParseResult updateSession(String sqlText, Consumer<String> progress) {
+        progress.accept("Parsing...");
+        ERDiagram previous = parseSession.getDiagram();
+        parseSession.setProgressListener(count -> progress.accept("Parsing statement " + count + "..."));
         try {
-            currentDiagram = sqlParser.parseSQL(sqlText);
+            SchemaDelta delta = parseSession.update(sqlText);
+            ERDiagram diagram = parseSession.getDiagram();
+            return new ParseResult(previous, diagram, delta, diagram.getEntities().size() + " tables, "
+                    + parseSession.getReparsedCount() + " statements re-parsed (" + delta + ")");
+        } finally {
+            parseSession.setProgressListener(null);
+        }
+    }
+    
+    /**
+     * Shows a parsed diagram in one step, patching the view when it still shows
+     * the diagram the parse started from.
+     */
+    private void showParsedDiagram(ParseResult result) {
+        currentDiagram = result.diagram;
+        
+        if (result.delta != null && result.previous != null && diagramView.getDiagram() == result.previous) {
+            diagramView.applyDelta(currentDiagram, result.delta);
+        } else {
             diagramView.setDiagram(currentDiagram);
-        } catch (Exception e) {
-            showAlert("Error", "Failed to parse SQL: " + e.getMessage());
-            e.printStackTrace();
         }
+        updateVisibleArea();
+        
+        statusLabel.setText(result.status);
     }
     
     private void loadSqlFile() {
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Open SQL File");
         fileChooser.getExtensionFilters().addAll(
-                new FileChooser.ExtensionFilter("SQL Files", "*.sql"),
+                new FileChooser.ExtensionFilter("SQL Files", "*.sql", "*.sql.gz", "*.zip"),
                 new FileChooser.ExtensionFilter("All Files", "*.*"));
         
         File file = fileChooser.showOpenDialog(root.getScene().getWindow());
         
         if (file != null) {
+            Path path = file.toPath();
+            
             try {
+                if (SQLStatementSource.isCompressed(path) || Files.size(path) > LARGE_FILE_THRESHOLD) {
+                    openLargeFile(path);
+                    return;
+                }
+                
                 String content = new String(Files.readAllBytes(Paths.get(file.getPath())));
-                sqlTextArea.setText(content);
+                if (largeFileView != null) {
+                    closeLargeFile();
+                }
+                sqlEditor.setText(content);
+                watch(path, null);
+                loadedSqlText = content;
+                loadedSqlRevision = sqlEditor.revisionProperty().get();
             } catch (IOException e) {
                 showAlert("Error", "Failed to load SQL file: " + e.getMessage());
             }
         }
     }
     
+    /**
+     * Shows a large or compressed script in a paged, read-only view and parses
+     * it from disk in the background, so its text is never held by a control.
+     */
+    private void openLargeFile(Path path) throws IOException {
+        PagedFileView view = new PagedFileView(path, !SQLStatementSource.isCompressed(path));
+        view.setOnClose(this::closeLargeFile);
+        
+        largeFileView = view;
+        livePreviewDelay.stop();
+        editorContainer.getChildren().setAll(view);
+        watch(path, null);
+        
+        parseLargeFile(path);
+    }
+    
+    private void closeLargeFile() {
+        parseJobs.cancel();
+        stopWatching();
+        largeFileView = null;
+        editorContainer.getChildren().setAll(sqlEditor);
+        statusLabel.setText("Ready");
+    }
+    
+    private void parseLargeFile(Path path) {
+        parseJobs.submit(withDialect(progress -> {
+            progress.accept("Parsing " + path.getFileName() + " from disk...");
+            sqlParser.setProgressListener(count -> progress.accept(
+                    "Parsing " + path.getFileName() + ": " + count + " statements..."));
+            try {
+                // Names and keys first; columns are parsed as tables are expanded
+                ERDiagram diagram = sqlParser.parseSQLFileSkeleton(path);
+                return new ParseResult(diagram, diagram.getEntities().size() + " tables from " + path.getFileName());
+            } finally {
+                sqlParser.setProgressListener(null);
+            }
+        }), this::showParsedDiagram, e -> {
+            statusLabel.setText("Failed to parse " + path.getFileName());
+            showAlert("Error", "Failed to parse SQL file: " + e.getMessage());
+        });
+    }
+    
+    private void loadMigrationsDirectory() {
+        DirectoryChooser directoryChooser = new DirectoryChooser();
+        directoryChooser.setTitle("Open Migrations Folder");
+        
+        File directory = directoryChooser.showDialog(root.getScene().getWindow());
+        
+        if (directory != null) {
+            Path path = directory.toPath();
+            watch(path, new SchemaReconciler());
+            parseMigrations(path, true);
+        }
+    }
+    
+    /**
+     * @param showErrors false for reloads, whose errors only go to the status bar
+     */
+    private void parseMigrations(Path path, boolean showErrors) {
+        SchemaReconciler schema = migrationSchema;
+        parseJobs.submit(withDialect(progress -> {
+            progress.accept("Reading migrations from " + path.getFileName() + "...");
+            sqlParser.getParseCache().resetStatistics();
+            ERDiagram diagram = sqlParser.parseMigrations(path);
+            String status = diagram.getEntities().size() + " tables from "
+                    + sqlParser.getMigrationCount() + " migrations ("
+                    + sqlParser.getParsedMigrationCount() + " read from disk, "
+                    + sqlParser.getParseCache().getStatistics() + ")";
+            if (schema == null) {
+                return new ParseResult(diagram, status);
+            }
+            ERDiagram previous = schema.getDiagram();
+            SchemaDelta delta = schema.update(diagram);
+            return new ParseResult(previous, schema.getDiagram(), delta, status);
+        }), this::showParsedDiagram, e -> {
+            statusLabel.setText("Failed to load migrations");
+            if (showErrors) {
+                showAlert("Error", "Failed to load migrations: " + e.getMessage());
+            }
+        });
+    }
+    
+    /**
+     * Watches a script or migrations folder that was just opened.
+     * @param schema The reconciler for a migrations folder, or null for a script
+     */
+    private void watch(Path path, SchemaReconciler schema) {
+        watchedPath = path;
+        loadedSqlText = null;
+        migrationSchema = schema;
+        try {
+            if (schema != null) {
+                fileWatcher.watch(path, file -> file.getFileName().toString().toLowerCase().endsWith(".sql"));
+            } else {
+                fileWatcher.watch(path);
+            }
+        } catch (IOException e) {
+            // Still shown, just not reloaded on changes
+            stopWatching();
+        }
+    }
+    
+    private void stopWatching() {
+        fileWatcher.stop();
+        watchedPath = null;
+        loadedSqlText = null;
+        migrationSchema = null;
+    }
+    
+    /**
+     * Brings the diagram up to date after the watched files changed on disk.
+     * Only the affected parts of the view are patched.
+     */
+    private void reloadWatchedFiles(Set<Path> changes) {
+        if (watchedPath == null) {
+            return;
+        }
+        
+        if (migrationSchema != null) {
+            parseMigrations(watchedPath, false);
+        } else if (largeFileView != null) {
+            // The paged view indexes lines once, so it is opened afresh
+            try {
+                openLargeFile(watchedPath);
+            } catch (IOException e) {
+                statusLabel.setText("Failed to reload " + watchedPath.getFileName() + ": " + e.getMessage());
+            }
+        } else {
+            reloadSqlFile();
+        }
+    }
+    
+    private void reloadSqlFile() {
+        if (sqlEditor.revisionProperty().get() != loadedSqlRevision) {
+            statusLabel.setText(watchedPath.getFileName() + " changed on disk; the editor has unsaved edits");
+            return;
+        }
+        
+        String content;
+        try {
+            content = new String(Files.readAllBytes(watchedPath));
+        } catch (IOException e) {
+            // Deleted, or being replaced; the next event reloads it
+            statusLabel.setText("Failed to reload " + watchedPath.getFileName() + ": " + e.getMessage());
+            return;
+        }
+        if (content.equals(loadedSqlText)) {
+            return;
+        }
+        
+        loadedSqlText = content;
+        sqlEditor.setText(content);
+        loadedSqlRevision = sqlEditor.revisionProperty().get();
+        // Only the statements that changed are parsed again
+        livePreviewDelay.stop();
+        refreshLivePreview();
+    }
+    
+    /**
+     * Reads the schema of a live database through its JDBC driver, which must be on the classpath.
+     */
+    private void connectToDatabase() {
+        TextField urlField = new TextField();
+        urlField.setPromptText("jdbc:postgresql://localhost/mydb");
+        urlField.setPrefColumnCount(30);
+        TextField userField = new TextField();
+        PasswordField passwordField = new PasswordField();
+        TextField schemaField = new TextField();
+        schemaField.setPromptText("All schemas");
+        
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(10);
+        grid.addRow(0, new Label("JDBC URL:"), urlField);
+        grid.addRow(1, new Label("User:"), userField);
+        grid.addRow(2, new Label("Password:"), passwordField);
+        grid.addRow(3, new Label("Schema:"), schemaField);
+        
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle("Connect to Database");
+        dialog.getDialogPane().setContent(grid);
+        dialog.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+        
+        if (dialog.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK || urlField.getText().trim().isEmpty()) {
+            return;
+        }
+        
+        String url = urlField.getText().trim();
+        String schema = schemaField.getText().trim().isEmpty() ? null : schemaField.getText().trim();
+        DatabaseSchemaReader reader = new DatabaseSchemaReader(url, userField.getText(), passwordField.getText());
+        stopWatching();
+        
+        parseJobs.submit(progress -> {
+            progress.accept("Reading schema from " + url + "...");
+            reader.setProgressListener(count -> progress.accept("Reading keys: " + count + " tables..."));
+            ERDiagram diagram = reader.read(null, schema);
+            return new ParseResult(diagram, diagram.getEntities().size() + " tables from " + url);
+        }, this::showParsedDiagram, e -> {
+            statusLabel.setText("Failed to read the database schema");
+            showAlert("Error", "Failed to read the database schema: " + e.getMessage());
+        });
+    }
+    
     private void exportDiagramAsImage() {
         if (currentDiagram == null || currentDiagram.getEntities().isEmpty()) {
             showAlert("Error", "No diagram to export. Please generate a diagram first.");
@@ -376,8 +840,11 @@ public class ERDiagramGeneratorUI {
                 javafx.scene.SnapshotParameters params = new javafx.scene.SnapshotParameters();
                 params.setFill(Color.WHITE);
                 
-                // Create a snapshot of the current visible area of the diagram
+                // Create a snapshot of the whole diagram, with a node for every table while it is taken
+                diagramView.setVisibleArea(diagramView.getLayoutBounds());
+                diagramView.layout();
                 javafx.scene.image.WritableImage snapshot = diagramView.snapshot(params, null);
+                updateVisibleArea();
                 
                 // Convert to a format that can be saved
                 BufferedImage bufferedImage = SwingFXUtils.fromFXImage(snapshot, null);
@@ -438,7 +905,11 @@ public class ERDiagramGeneratorUI {
                 "    FOREIGN KEY (category_id) REFERENCES Categories(category_id)\n" +
                 ");";
         
-        sqlTextArea.setText(exampleSQL);
+        if (largeFileView != null) {
+            closeLargeFile();
+        }
+        stopWatching();
+        sqlEditor.setText(exampleSQL);
     }
     
     private void showAlert(String title, String message) {
@@ -450,6 +921,9 @@ public class ERDiagramGeneratorUI {
     }
     
     private void returnToHome() {
+        parseJobs.shutdown();
+        fileWatcher.stop();
+        
         // Get the current stage
         javafx.stage.Stage stage = (javafx.stage.Stage) root.getScene().getWindow();
         
@@ -468,4 +942,26 @@ public class ERDiagramGeneratorUI {
     public BorderPane getRoot() {
         return root;
     }
+    
+    /**
+     * A diagram produced on the worker thread, ready to be shown.
+     */
+    private static class ParseResult {
+        // The diagram the session held before the update; null for full parses
+        final ERDiagram previous;
+        final ERDiagram diagram;
+        final SchemaDelta delta;
+        final String status;
+        
+        ParseResult(ERDiagram diagram, String status) {
+            this(null, diagram, null, status);
+        }
+        
+        ParseResult(ERDiagram previous, ERDiagram diagram, SchemaDelta delta, String status) {
+            this.previous = previous;
+            this.diagram = diagram;
+            this.delta = delta;
+            this.status = status;
+        }
+    }
 } 
\ No newline at end of file
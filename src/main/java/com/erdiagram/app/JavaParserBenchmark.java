@@ -0,0 +1,260 @@
+package com.erdiagram.app;
+
+import com.erdiagram.app.model.UMLAttribute;
+import com.erdiagram.app.model.UMLClass;
+import com.erdiagram.app.model.UMLDiagram;
+import com.erdiagram.app.model.UMLMethod;
+import com.erdiagram.app.model.UMLParameter;
+import com.erdiagram.app.model.UMLRelationship;
+import com.erdiagram.app.parser.JavaParser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the Java parser with the regular expressions it replaced on a
+ * generated source file.
+ *
+ * Each run parses the same file repeatedly for at least a second and counts
+ * the time per parse, so that the new parser's short parses are not lost in
+ * timer and GC noise. The median and best times of a few runs after warming
+ * up are printed along with the speedup over the regular expressions and the
+ * number of classes each one found. Run it with
+ * {@code mvn javafx:run -Djavafx.mainClass=com.erdiagram.app.JavaParserBenchmark};
+ * the number of lines, 5000 by default, can be given as the first argument.
+ */
+public class JavaParserBenchmark {
+    private static final int DEFAULT_LINE_COUNT = 5000;
+    private static final long MIN_RUN_NANOS = 1_000_000_000L;
+    private static final int WARMUP_RUNS = 2;
+    private static final int MEASURED_RUNS = 5;
+
+    public static void main(String[] args) {
+        int lineCount = args.length == 0 ? DEFAULT_LINE_COUNT : Integer.parseInt(args[0]);
+        String source = generateSource(lineCount);
+
+        System.out.printf("%d lines, %.1f KB of Java%n", lineCount, source.length() / 1e3);
+        System.out.printf("%-20s %12s %12s %10s %10s%n", "parser", "median ms", "best ms", "speedup", "classes");
+
+        double regexMedian = run("regular expressions", source, code -> new RegexJavaParser().parseJavaCode(code), 0);
+        run("JavaParser", source, code -> new JavaParser().parseJavaCode(code), regexMedian);
+    }
+
+    private static double run(String name, String source, Function<String, UMLDiagram> parser, double baseline) {
+        long[] times = new long[MEASURED_RUNS];
+        int classes = 0;
+        for (int run = -WARMUP_RUNS; run < MEASURED_RUNS; run++) {
+            int parses = 0;
+            long start = System.nanoTime();
+            long time;
+            do {
+                classes = parser.apply(source).getClasses().size();
+                parses++;
+                time = System.nanoTime() - start;
+            } while (time < MIN_RUN_NANOS);
+            if (run >= 0) {
+                times[run] = time / parses;
+            }
+        }
+
+        Arrays.sort(times);
+        double median = times[MEASURED_RUNS / 2] / 1e6;
+        System.out.printf("%-20s %12.2f %12.2f %9.1fx %10d%n", name, median, times[0] / 1e6,
+                baseline == 0 ? 1 : baseline / median, classes);
+        return median;
+    }
+
+    /**
+     * Generates classes with generic fields and methods whose bodies hold
+     * braces in strings and comments, until the file has the given number of
+     * lines.
+     */
+    private static String generateSource(int lineCount) {
+        StringBuilder java = new StringBuilder("package com.example;\n\nimport java.util.*;\n");
+        int lines = 3;
+        for (int c = 0; lines < lineCount; c++) {
+            java.append("\npublic class C").append(c).append(" extends Base implements Runnable {\n");
+            for (int f = 0; f < 8; f++) {
+                java.append("    private Map<String, Integer> f").append(f).append(" = new HashMap<>();\n");
+            }
+            for (int m = 0; m < 6; m++) {
+                java.append("    public int m").append(m).append("(int x, String y) {\n")
+                        .append("        String s = \"{ } ;\"; // comment {\n")
+                        .append("        if (x > 0) { return x * ").append(m).append("; }\n")
+                        .append("        return y.length();\n")
+                        .append("    }\n");
+            }
+            java.append("    public void run() {}\n}\n");
+            lines += 2 + 8 + 6 * 5 + 2;
+        }
+        return java.toString();
+    }
+
+    /**
+     * The regular expression parser that JavaParser used before its tokenizer,
+     * including compiling a pattern per class to find the class body.
+     */
+    private static class RegexJavaParser {
+        private static final Pattern CLASS_PATTERN = Pattern.compile(
+                "(?:public|private|protected)?\\s+(?:abstract\\s+)?(class|interface|enum)\\s+(\\w+)(?:\\s+extends\\s+(\\w+))?(?:\\s+implements\\s+([\\w,\\s]+))?\\s*\\{",
+                Pattern.MULTILINE);
+
+        private static final Pattern FIELD_PATTERN = Pattern.compile(
+                "\\s+(?:(public|private|protected|)\\s+)?(?:(static|final|)\\s+)?(?:(static|final|)\\s+)?(\\w+(?:<[\\w<>\\[\\],\\s]*>)?)\\s+(\\w+)(?:\\s*=\\s*[^;]+)?;",
+                Pattern.MULTILINE);
+
+        private static final Pattern METHOD_PATTERN = Pattern.compile(
+                "\\s+(?:(public|private|protected)\\s+)?(?:(static|abstract|final)\\s+)?(?:(static|abstract|final)\\s+)?(\\w+(?:<[\\w<>\\[\\],\\s]*>)?)\\s+(\\w+)\\s*\\(([^)]*)\\)\\s*(?:\\{|;)",
+                Pattern.MULTILINE);
+
+        private static final Pattern PARAMETER_PATTERN = Pattern.compile(
+                "(\\w+(?:<[\\w<>\\[\\],\\s]*>)?)\\s+(\\w+)(?:\\s*,\\s*)?",
+                Pattern.MULTILINE);
+
+        private static final Pattern PACKAGE_PATTERN = Pattern.compile(
+                "package\\s+([\\w.]+);",
+                Pattern.MULTILINE);
+
+        private static final String[] COMMON_TYPES = {"String", "Integer", "Boolean", "Double", "Float", "Long",
+                "Short", "Byte", "Object", "List", "Map", "Set", "Collection", "ArrayList", "HashMap", "HashSet"};
+
+        private final UMLDiagram diagram = new UMLDiagram();
+        private final Map<String, UMLClass> classMap = new HashMap<>();
+        private final List<String[]> inheritanceRelationships = new ArrayList<>();
+        private final List<String[]> implementationRelationships = new ArrayList<>();
+
+        UMLDiagram parseJavaCode(String javaCode) {
+            Matcher packageMatcher = PACKAGE_PATTERN.matcher(javaCode);
+            String packageName = packageMatcher.find() ? packageMatcher.group(1) : "";
+
+            Matcher classMatcher = CLASS_PATTERN.matcher(javaCode);
+            while (classMatcher.find()) {
+                String className = classMatcher.group(2);
+                UMLClass umlClass = new UMLClass(className, classMatcher.group(1));
+                umlClass.setPackageName(packageName);
+                diagram.addClass(umlClass);
+                classMap.put(className, umlClass);
+                umlClass.setX(100 + diagram.getClasses().size() * 50);
+                umlClass.setY(100 + diagram.getClasses().size() * 50);
+
+                if (classMatcher.group(3) != null) {
+                    inheritanceRelationships.add(new String[]{className, classMatcher.group(3)});
+                }
+                if (classMatcher.group(4) != null) {
+                    for (String interfaceName : classMatcher.group(4).split(",")) {
+                        implementationRelationships.add(new String[]{className, interfaceName.trim()});
+                    }
+                }
+            }
+
+            for (UMLClass umlClass : diagram.getClasses()) {
+                String classPattern = "(?:public|private|protected)?\\s+(?:abstract\\s+)?(?:class|interface|enum)\\s+"
+                        + umlClass.getName() + "(?:\\s+extends\\s+\\w+)?(?:\\s+implements\\s+[\\w,\\s]+)?\\s*\\{([^}]+)\\}";
+                Matcher m = Pattern.compile(classPattern, Pattern.DOTALL).matcher(javaCode);
+                if (m.find()) {
+                    parseClassBody(umlClass, m.group(1));
+                }
+            }
+
+            resolveRelationships();
+            return diagram;
+        }
+
+        private void parseClassBody(UMLClass umlClass, String classBody) {
+            Matcher fieldMatcher = FIELD_PATTERN.matcher(classBody);
+            while (fieldMatcher.find()) {
+                String visibility = fieldMatcher.group(1);
+                if (visibility == null || visibility.isEmpty()) {
+                    visibility = "package";
+                }
+                boolean isStatic = "static".equals(fieldMatcher.group(2)) || "static".equals(fieldMatcher.group(3));
+                boolean isFinal = "final".equals(fieldMatcher.group(2)) || "final".equals(fieldMatcher.group(3));
+                umlClass.addAttribute(new UMLAttribute(fieldMatcher.group(5), fieldMatcher.group(4), visibility,
+                        isStatic, isFinal));
+            }
+
+            Matcher methodMatcher = METHOD_PATTERN.matcher(classBody);
+            while (methodMatcher.find()) {
+                String name = methodMatcher.group(5);
+                if (name.equals(umlClass.getName())) {
+                    continue;
+                }
+                String visibility = methodMatcher.group(1);
+                if (visibility == null || visibility.isEmpty()) {
+                    visibility = "package";
+                }
+                UMLMethod method = new UMLMethod(name, methodMatcher.group(4), visibility);
+                method.setStatic("static".equals(methodMatcher.group(2)) || "static".equals(methodMatcher.group(3)));
+                method.setAbstract("abstract".equals(methodMatcher.group(2))
+                        || "abstract".equals(methodMatcher.group(3)));
+
+                String parametersList = methodMatcher.group(6);
+                if (parametersList != null && !parametersList.trim().isEmpty()) {
+                    Matcher paramMatcher = PARAMETER_PATTERN.matcher(parametersList);
+                    while (paramMatcher.find()) {
+                        method.addParameter(new UMLParameter(paramMatcher.group(2), paramMatcher.group(1)));
+                    }
+                }
+                umlClass.addMethod(method);
+            }
+        }
+
+        private void resolveRelationships() {
+            for (String[] inheritance : inheritanceRelationships) {
+                UMLClass parentClass = classMap.get(inheritance[1]);
+                if (parentClass == null) {
+                    parentClass = new UMLClass(inheritance[1]);
+                    diagram.addClass(parentClass);
+                    classMap.put(inheritance[1], parentClass);
+                }
+                diagram.addRelationship(new UMLRelationship(classMap.get(inheritance[0]), parentClass,
+                        UMLRelationship.INHERITANCE));
+            }
+
+            for (String[] implementation : implementationRelationships) {
+                UMLClass interfaceClass = classMap.get(implementation[1]);
+                if (interfaceClass == null) {
+                    interfaceClass = new UMLClass(implementation[1], "interface");
+                    diagram.addClass(interfaceClass);
+                    classMap.put(implementation[1], interfaceClass);
+                }
+                diagram.addRelationship(new UMLRelationship(classMap.get(implementation[0]), interfaceClass,
+                        UMLRelationship.IMPLEMENTATION));
+            }
+
+            for (UMLClass umlClass : diagram.getClasses()) {
+                for (UMLAttribute attribute : umlClass.getAttributes()) {
+                    if (isPrimitiveOrCommonType(attribute.getType())) {
+                        continue;
+                    }
+                    UMLClass targetClass = classMap.get(attribute.getType());
+                    if (targetClass != null) {
+                        UMLRelationship relationship = new UMLRelationship(umlClass, targetClass,
+                                UMLRelationship.COMPOSITION);
+                        relationship.setTargetLabel("1");
+                        diagram.addRelationship(relationship);
+                    }
+                }
+            }
+        }
+
+        private static boolean isPrimitiveOrCommonType(String type) {
+            if (type.equals("int") || type.equals("boolean") || type.equals("double") || type.equals("float")
+                    || type.equals("long") || type.equals("short") || type.equals("byte") || type.equals("char")) {
+                return true;
+            }
+            for (String commonType : COMMON_TYPES) {
+                if (type.contains(commonType)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.erdiagram.app;
+
+import com.erdiagram.app.model.ERDiagram;
+import com.erdiagram.app.parser.SQLParser;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compares the time to parse a generated schema script serially and with
+ * several parse workers.
+ *
+ * Each parallelism parses the same script a few times after warming up, and
+ * the median and best times are printed along with the speedup over the serial
+ * parse. Run it with
+ * {@code mvn javafx:run -Djavafx.mainClass=com.erdiagram.app.ParseBenchmark};
+ * the number of tables, 6000 by default, can be given as the first argument.
+ */
+public class ParseBenchmark {
+    private static final int DEFAULT_TABLE_COUNT = 6000;
+    private static final int[] PARALLELISM = {1, 2, 4, 8};
+    private static final int WARMUP_RUNS = 2;
+    private static final int MEASURED_RUNS = 5;
+
+    public static void main(String[] args) {
+        int tableCount = args.length == 0 ? DEFAULT_TABLE_COUNT : Integer.parseInt(args[0]);
+        String script = generateScript(tableCount);
+
+        System.out.printf("%d tables, %.1f MB of DDL, %d processors%n", tableCount,
+                script.length() / 1e6, Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-12s %12s %12s %10s%n", "parallelism", "median ms", "best ms", "speedup");
+
+        double serialMedian = 0;
+        for (int parallelism : PARALLELISM) {
+            SQLParser parser = new SQLParser();
+            parser.setParallelism(parallelism);
+
+            long[] times = new long[MEASURED_RUNS];
+            for (int run = -WARMUP_RUNS; run < MEASURED_RUNS; run++) {
+                long start = System.nanoTime();
+                ERDiagram diagram = parser.parseSQL(script);
+                long time = System.nanoTime() - start;
+                if (diagram.getEntities().size() != tableCount) {
+                    throw new IllegalStateException("Parsed " + diagram.getEntities().size()
+                            + " tables instead of " + tableCount);
+                }
+                if (run >= 0) {
+                    times[run] = time;
+                }
+            }
+
+            Arrays.sort(times);
+            double median = times[MEASURED_RUNS / 2] / 1e6;
+            if (parallelism == 1) {
+                serialMedian = median;
+            }
+            System.out.printf("%-12d %12.1f %12.1f %9.2fx%n", parallelism, median, times[0] / 1e6,
+                    serialMedian / median);
+        }
+    }
+
+    /**
+     * Generates tables with a handful of columns, most of them referencing two
+     * earlier tables, some inline and some through ALTER TABLE.
+     */
+    private static String generateScript(int tableCount) {
+        Random random = new Random(42);
+        StringBuilder sql = new StringBuilder(tableCount * 400);
+        StringBuilder alters = new StringBuilder();
+        for (int i = 0; i < tableCount; i++) {
+            String table = "table_" + i;
+            sql.append("CREATE TABLE ").append(table).append(" (\n")
+                    .append("    id BIGINT NOT NULL PRIMARY KEY,\n")
+                    .append("    name VARCHAR(255) NOT NULL,\n")
+                    .append("    description TEXT,\n")
+                    .append("    amount DECIMAL(12,2) DEFAULT 0,\n")
+                    .append("    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP");
+            for (int j = 0; j < 2 && i > 0; j++) {
+                String target = "table_" + random.nextInt(i);
+                String column = target + "_id";
+                sql.append(",\n    ").append(column).append(" BIGINT");
+                if (j == 0) {
+                    sql.append(",\n    FOREIGN KEY (").append(column).append(") REFERENCES ")
+                            .append(target).append("(id)");
+                } else {
+                    alters.append("ALTER TABLE ").append(table).append(" ADD CONSTRAINT fk_").append(table)
+                            .append(" FOREIGN KEY (").append(column).append(") REFERENCES ")
+                            .append(target).append("(id);\n");
+                }
+            }
+            sql.append("\n);\n\n");
+        }
+        return sql.append(alters).toString();
+    }
+}
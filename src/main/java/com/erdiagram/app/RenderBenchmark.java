@@ -0,0 +1,217 @@
+package com.erdiagram.app;
+
+import com.erdiagram.app.model.Attribute;
+import com.erdiagram.app.model.ERDiagram;
+import com.erdiagram.app.model.Entity;
+import com.erdiagram.app.model.Relationship;
+import com.erdiagram.app.ui.DiagramView;
+import javafx.animation.AnimationTimer;
+import javafx.animation.PauseTransition;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.geometry.Bounds;
+import javafx.scene.Scene;
+import javafx.scene.control.ScrollPane;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the frame times of the node and canvas render modes of the ER
+ * diagram view on a generated schema.
+ *
+ * Each mode runs the same scripted pan, zoom and zoomed-out pan, one step per
+ * frame, and the time between frames and the time spent in CSS and layout are
+ * printed as percentiles. Frames are not synced to the display, so the times
+ * show the work per frame rather than the refresh rate. Run it with
+ * {@code mvn javafx:run -Djavafx.mainClass=com.erdiagram.app.RenderBenchmark};
+ * the number of tables, 10000 by default, can be given as the first argument.
+ */
+public class RenderBenchmark extends Application {
+    private static final int DEFAULT_TABLE_COUNT = 10000;
+    private static final int WARMUP_FRAMES = 60;
+    private static final int MEASURED_FRAMES = 300;
+    private static final String[] PHASES = {"pan", "zoom", "overview pan"};
+
+    private DiagramView diagramView;
+    private ScrollPane scrollPane;
+    private Scene scene;
+
+    private int modeIndex;
+    private int phaseIndex;
+    private int frame;
+    private long lastFrame;
+    private long layoutStart;
+    private long layoutTime;
+    private final long[] frameTimes = new long[MEASURED_FRAMES];
+    private final long[] layoutTimes = new long[MEASURED_FRAMES];
+    private double zoomStep;
+    private double scale;
+
+    public static void main(String[] args) {
+        // Let pulses run as fast as the work allows
+        System.setProperty("javafx.animation.fullspeed", "true");
+        System.setProperty("prism.vsync", "false");
+        launch(args);
+    }
+
+    @Override
+    public void start(Stage stage) {
+        List<String> args = getParameters().getRaw();
+        int tableCount = args.isEmpty() ? DEFAULT_TABLE_COUNT : Integer.parseInt(args.get(0));
+
+        diagramView = new DiagramView();
+        scrollPane = new ScrollPane(diagramView);
+        scene = new Scene(scrollPane, 1400, 900);
+        scene.getStylesheets().add(getClass().getResource("/styles.css").toExternalForm());
+
+        // Same wiring as the ER diagram generator
+        diagramView.localToSceneTransformProperty().addListener((obs, oldTransform, newTransform) ->
+                updateVisibleArea());
+        scrollPane.viewportBoundsProperty().addListener((obs, oldBounds, newBounds) ->
+                updateVisibleArea());
+        scene.addPreLayoutPulseListener(() -> layoutStart = System.nanoTime());
+        scene.addPostLayoutPulseListener(() -> layoutTime += System.nanoTime() - layoutStart);
+
+        stage.setTitle("Render Benchmark");
+        stage.setScene(scene);
+        stage.show();
+
+        diagramView.setDiagram(generateDiagram(tableCount));
+        System.out.printf("%d tables, %d measured frames per phase%n", tableCount, MEASURED_FRAMES);
+        System.out.printf("%-8s %-14s %28s %28s%n", "mode", "phase",
+                "frame p50 / p95 / p99 ms", "layout p50 / p95 / p99 ms");
+
+        // Give the first layout time to settle
+        PauseTransition delay = new PauseTransition(Duration.seconds(1));
+        delay.setOnFinished(e -> {
+            startPhase();
+            new AnimationTimer() {
+                @Override
+                public void handle(long now) {
+                    step(now, this);
+                }
+            }.start();
+        });
+        delay.play();
+    }
+
+    private void updateVisibleArea() {
+        Bounds viewport = scrollPane.localToScene(scrollPane.getLayoutBounds());
+        diagramView.setVisibleArea(diagramView.sceneToLocal(viewport));
+    }
+
+    /**
+     * Generates tables with a few columns each, most of them referencing two earlier tables.
+     */
+    private static ERDiagram generateDiagram(int tableCount) {
+        Random random = new Random(42);
+        ERDiagram diagram = new ERDiagram("benchmark");
+        List<Entity> entities = new ArrayList<>();
+        for (int i = 0; i < tableCount; i++) {
+            Entity entity = new Entity("table_" + i);
+            Attribute id = new Attribute("id", "BIGINT");
+            id.setPrimaryKey(true);
+            id.setNullable(false);
+            entity.addAttribute(id);
+            entity.addAttribute(new Attribute("name", "VARCHAR(255)"));
+            entity.addAttribute(new Attribute("created_at", "TIMESTAMP"));
+            entity.addAttribute(new Attribute("status", "INT"));
+
+            for (int j = 0; j < 2 && i > 0; j++) {
+                Entity target = entities.get(random.nextInt(i));
+                Attribute foreignKey = new Attribute(target.getName() + "_id", "BIGINT");
+                foreignKey.setForeignKey(true);
+                foreignKey.setReferencedTable(target.getName());
+                foreignKey.setReferencedColumn("id");
+                entity.addAttribute(foreignKey);
+
+                Relationship relationship = new Relationship(entity, target, Relationship.RelationshipType.MANY_TO_ONE);
+                relationship.setSourceAttribute(foreignKey);
+                relationship.setTargetAttribute(target.getAttributes().get(0));
+                diagram.addRelationship(relationship);
+            }
+            entities.add(entity);
+            diagram.addEntity(entity);
+        }
+        diagram.autoLayout();
+        return diagram;
+    }
+
+    private void startPhase() {
+        diagramView.setRenderMode(DiagramView.RenderMode.values()[modeIndex]);
+        diagramView.resetZoom();
+        scale = 1.0;
+        zoomStep = -0.1;
+        if (PHASES[phaseIndex].equals("overview pan")) {
+            diagramView.zoom(-0.7);
+            scale = 0.3;
+        }
+        scrollPane.setHvalue(0);
+        scrollPane.setVvalue(0.5);
+        frame = 0;
+        lastFrame = 0;
+    }
+
+    private void step(long now, AnimationTimer timer) {
+        int measured = frame - WARMUP_FRAMES;
+        if (measured >= 0 && lastFrame != 0) {
+            frameTimes[measured] = now - lastFrame;
+            layoutTimes[measured] = layoutTime;
+        }
+        lastFrame = now;
+        layoutTime = 0;
+
+        if (measured + 1 >= MEASURED_FRAMES) {
+            report();
+            if (++phaseIndex == PHASES.length) {
+                phaseIndex = 0;
+                modeIndex++;
+            }
+            if (modeIndex == DiagramView.RenderMode.values().length) {
+                timer.stop();
+                Platform.exit();
+                return;
+            }
+            startPhase();
+            return;
+        }
+
+        // One step of the script
+        double progress = (double) frame / (WARMUP_FRAMES + MEASURED_FRAMES);
+        switch (PHASES[phaseIndex]) {
+            case "zoom":
+                // Between 20% and 120%, a step per frame
+                if (scale + zoomStep < 0.15 || scale + zoomStep > 1.25) {
+                    zoomStep = -zoomStep;
+                }
+                scale += zoomStep;
+                diagramView.zoom(zoomStep);
+                break;
+            default:
+                scrollPane.setHvalue(progress);
+                scrollPane.setVvalue(0.5 + 0.3 * Math.sin(progress * 4 * Math.PI));
+                break;
+        }
+        frame++;
+    }
+
+    private void report() {
+        long[] frames = frameTimes.clone();
+        long[] layouts = layoutTimes.clone();
+        Arrays.sort(frames);
+        Arrays.sort(layouts);
+        System.out.printf("%-8s %-14s %8.2f / %6.2f / %6.2f %11.2f / %6.2f / %6.2f%n",
+                DiagramView.RenderMode.values()[modeIndex], PHASES[phaseIndex],
+                percentile(frames, 0.5), percentile(frames, 0.95), percentile(frames, 0.99),
+                percentile(layouts, 0.5), percentile(layouts, 0.95), percentile(layouts, 0.99));
+    }
+
+    private static double percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))] / 1e6;
+    }
+}
@@ -1,8 +1,17 @@
 package com.erdiagram.app;
 
 import com.erdiagram.app.model.UMLDiagram;
+import com.erdiagram.app.model.UMLDiagramDelta;
+import com.erdiagram.app.parser.BytecodeDiagramReader;
 import com.erdiagram.app.parser.JavaParser;
+import com.erdiagram.app.parser.JavaSourceTreeParser;
+import com.erdiagram.app.parser.ParseCache;
+import com.erdiagram.app.ui.BackgroundJobRunner;
+import com.erdiagram.app.ui.CodeEditor;
+import com.erdiagram.app.ui.FileChangeWatcher;
 import com.erdiagram.app.ui.UMLDiagramView;
+import javafx.animation.PauseTransition;
+import javafx.geometry.Bounds;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.*;
@@ -11,7 +20,9 @@ import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.scene.text.Text;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
+import javafx.util.Duration;
 import javafx.embed.swing.SwingFXUtils;
 
 import javax.imageio.ImageIO;
@@ -19,20 +30,47 @@ import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Main UI component for the UML Diagram Generator.
  */
 public class UMLDiagramGeneratorUI {
+    // A class, interface, enum or record declaration and its name
+    private static final Pattern TYPE_DECLARATION = Pattern.compile(
+            "\\b(?:class|interface|enum|record)\\s+([A-Za-z_$][\\w$]*)");
+    // How far above the caret the declaration it is in is looked for
+    private static final int MAX_DECLARATION_LINES = 5000;
+    
     private BorderPane root;
-    private TextArea javaTextArea;
+    private CodeEditor javaEditor;
     private UMLDiagramView diagramView;
+    private ScrollPane diagramScrollPane;
     private JavaParser javaParser;
+    private JavaSourceTreeParser sourceTreeParser;
+    private BytecodeDiagramReader bytecodeReader;
     private UMLDiagram currentDiagram;
+    private Label statusLabel;
+    // The parser is only used on this runner's worker thread
+    private BackgroundJobRunner parseJobs;
+    // Reloads the source folder that was opened when its files change on disk
+    private FileChangeWatcher sourceWatcher;
+    // Follows the caret to the class it is in, shortly after it stops moving
+    private PauseTransition caretDelay;
+    private String caretClass;
     
     public UMLDiagramGeneratorUI() {
         this.javaParser = new JavaParser();
+        this.sourceTreeParser = new JavaSourceTreeParser();
+        this.sourceTreeParser.setParseCache(new ParseCache(ParseCache.defaultDirectory(), ParseCache.DEFAULT_MAX_BYTES));
+        this.bytecodeReader = new BytecodeDiagramReader();
+        this.parseJobs = new BackgroundJobRunner("uml-parser");
+        this.sourceWatcher = new FileChangeWatcher("uml-file-watcher", this::reloadSourceFolder);
         initializeUI();
     }
     
@@ -50,6 +88,7 @@ public class UMLDiagramGeneratorUI {
         // Center section - Diagram View
         diagramView = new UMLDiagramView();
         ScrollPane scrollPane = new ScrollPane(diagramView);
+        diagramScrollPane = scrollPane;
         scrollPane.setPannable(true);
         scrollPane.setFitToWidth(true);
         scrollPane.setFitToHeight(true);
@@ -59,20 +98,63 @@ public class UMLDiagramGeneratorUI {
         
         root.setCenter(scrollPane);
         
-        // Add animation timer to update relationship lines during class dragging
-        javafx.animation.AnimationTimer timer = new javafx.animation.AnimationTimer() {
-            @Override
-            public void handle(long now) {
-                diagramView.updateRelationshipLines();
-            }
-        };
-        timer.start();
-        
         // Add bottom status bar
         HBox statusBar = createStatusBar();
         root.setBottom(statusBar);
     }
     
+    /**
+     * Highlights the class whose declaration the caret is in and scrolls it into view.
+     */
+    private void showCaretClass() {
+        String className = findClassAt(javaEditor.getCaretLine());
+        if (Objects.equals(className, caretClass)) {
+            return;
+        }
+        caretClass = className;
+        
+        Bounds bounds = diagramView.highlightClass(className);
+        if (bounds != null) {
+            centerOn(bounds);
+        }
+    }
+    
+    /**
+     * @return The name in the nearest type declaration at or above a line, or null
+     */
+    private String findClassAt(int caretLine) {
+        for (int i = caretLine; i >= 0 && i > caretLine - MAX_DECLARATION_LINES; i--) {
+            Matcher matcher = TYPE_DECLARATION.matcher(javaEditor.getLine(i));
+            String className = null;
+            while (matcher.find()) {
+                className = matcher.group(1);
+            }
+            if (className != null) {
+                return className;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Scrolls the diagram so the given area of the view is in the middle of the viewport.
+     */
+    private void centerOn(Bounds bounds) {
+        Bounds target = diagramView.localToParent(bounds);
+        Bounds content = diagramView.getBoundsInParent();
+        Bounds viewport = diagramScrollPane.getViewportBounds();
+        double x = (target.getMinX() + target.getMaxX()) / 2 - content.getMinX();
+        double y = (target.getMinY() + target.getMaxY()) / 2 - content.getMinY();
+        if (content.getWidth() > viewport.getWidth()) {
+            diagramScrollPane.setHvalue(Math.max(0, Math.min(1,
+                    (x - viewport.getWidth() / 2) / (content.getWidth() - viewport.getWidth()))));
+        }
+        if (content.getHeight() > viewport.getHeight()) {
+            diagramScrollPane.setVvalue(Math.max(0, Math.min(1,
+                    (y - viewport.getHeight() / 2) / (content.getHeight() - viewport.getHeight()))));
+        }
+    }
+    
     private HBox createTopBar() {
         HBox topBar = new HBox(15);
         topBar.setPadding(new Insets(15));
@@ -95,6 +177,19 @@ public class UMLDiagramGeneratorUI {
         Button loadJavaButton = createStyledButton("Load Java", "📂");
         loadJavaButton.setOnAction(e -> loadJavaFile());
         
+        Button loadFolderButton = createStyledButton("Load Source Folder", "🗂");
+        loadFolderButton.setOnAction(e -> loadSourceFolder());
+        
+        // Compiled classes come from a JAR or from a folder such as target/classes
+        MenuItem loadJarItem = new MenuItem("JAR or Class File...");
+        loadJarItem.setOnAction(e -> loadCompiledClasses(false));
+        MenuItem loadClassesFolderItem = new MenuItem("Classes Folder...");
+        loadClassesFolderItem.setOnAction(e -> loadCompiledClasses(true));
+        ContextMenu compiledMenu = new ContextMenu(loadJarItem, loadClassesFolderItem);
+        
+        Button loadCompiledButton = createStyledButton("Load Compiled", "☕");
+        loadCompiledButton.setOnAction(e -> compiledMenu.show(loadCompiledButton, javafx.geometry.Side.BOTTOM, 0, 0));
+        
         Button exportButton = createStyledButton("Export Image", "📷");
         exportButton.setOnAction(e -> exportDiagramAsImage());
         
@@ -121,6 +216,8 @@ public class UMLDiagramGeneratorUI {
         
         toolbar.getItems().addAll(
                 loadJavaButton, 
+                loadFolderButton,
+                loadCompiledButton,
                 exportButton, 
                 separator1,
                 autoLayoutButton, 
@@ -167,12 +264,15 @@ public class UMLDiagramGeneratorUI {
         Label javaLabel = new Label("Java Input");
         javaLabel.setFont(Font.font("Arial", FontWeight.BOLD, 16));
         
-        // Java input with syntax highlighting (TextArea for now)
-        javaTextArea = new TextArea();
-        javaTextArea.setPrefHeight(400);
-        javaTextArea.setWrapText(true);
-        javaTextArea.setPromptText("Enter Java class definitions here...");
-        javaTextArea.setStyle("-fx-font-family: 'Consolas', 'Courier New', monospace; -fx-font-size: 14px;");
+        // Java input with syntax highlighting; only the lines in view are drawn
+        javaEditor = new CodeEditor(CodeEditor.Language.JAVA);
+        javaEditor.setPrefHeight(400);
+        javaEditor.setPromptText("Enter Java class definitions here...");
+        
+        // Show the class the caret is in on the diagram
+        caretDelay = new PauseTransition(Duration.millis(150));
+        caretDelay.setOnFinished(e -> showCaretClass());
+        javaEditor.caretLineProperty().addListener((obs, oldLine, newLine) -> caretDelay.playFromStart());
         
         // Button container
         HBox buttonBox = new HBox(10);
@@ -187,7 +287,12 @@ public class UMLDiagramGeneratorUI {
         exampleButton.setStyle("-fx-background-color: #7f8c8d; -fx-text-fill: white;");
         exampleButton.setOnAction(e -> loadExampleJava());
         
-        buttonBox.getChildren().addAll(generateButton, exampleButton);
+        Button cancelButton = new Button("Cancel");
+        cancelButton.setTooltip(new Tooltip("Stop the running parse"));
+        cancelButton.disableProperty().bind(parseJobs.runningProperty().not());
+        cancelButton.setOnAction(e -> parseJobs.cancel());
+        
+        buttonBox.getChildren().addAll(generateButton, exampleButton, cancelButton);
         
         // Create tabbed instructions and legend
         TabPane tabPane = new TabPane();
@@ -202,7 +307,7 @@ public class UMLDiagramGeneratorUI {
         
         tabPane.getTabs().addAll(instructionsTab, legendTab);
         
-        leftPanel.getChildren().addAll(javaLabel, javaTextArea, buttonBox, tabPane);
+        leftPanel.getChildren().addAll(javaLabel, javaEditor, buttonBox, tabPane);
         
         return leftPanel;
     }
@@ -241,6 +346,12 @@ public class UMLDiagramGeneratorUI {
         Text loadingText = new Text("• Load a Java file using the 'Load Java' button");
         loadingText.setFont(Font.font("Arial", FontWeight.NORMAL, 12));
         
+        Text folderText = new Text("• Load a whole source tree with 'Load Source Folder'");
+        folderText.setFont(Font.font("Arial", FontWeight.NORMAL, 12));
+        
+        Text compiledText = new Text("• Read a JAR or compiled classes with 'Load Compiled'");
+        compiledText.setFont(Font.font("Arial", FontWeight.NORMAL, 12));
+        
         Text exampleText = new Text("• Try an example with the 'Load Example' button");
         exampleText.setFont(Font.font("Arial", FontWeight.NORMAL, 12));
         
@@ -256,7 +367,7 @@ public class UMLDiagramGeneratorUI {
         Text homeText = new Text("• Return to the home screen with the 'Home' button");
         homeText.setFont(Font.font("Arial", FontWeight.NORMAL, 12));
         
-        features.getChildren().addAll(featuresTitle, loadingText, exampleText, exportText, layoutText, zoomText, homeText);
+        features.getChildren().addAll(featuresTitle, loadingText, folderText, compiledText, exampleText, exportText, layoutText, zoomText, homeText);
         
         // Tips
         VBox tips = new VBox(6);
@@ -378,35 +489,49 @@ public class UMLDiagramGeneratorUI {
         statusBar.setAlignment(Pos.CENTER_LEFT);
         statusBar.setStyle("-fx-background-color: #f5f5f5; -fx-border-color: #ddd; -fx-border-width: 1 0 0 0;");
         
-        Label statusLabel = new Label("Ready");
+        statusLabel = new Label("Ready");
         statusLabel.setTextFill(Color.web("#555"));
         
+        // Progress of background parses
+        parseJobs.messageProperty().addListener((obs, oldMessage, newMessage) -> {
+            if (newMessage != null && !newMessage.isEmpty()) {
+                statusLabel.setText(newMessage);
+            }
+        });
+        
         statusBar.getChildren().add(statusLabel);
         
         return statusBar;
     }
     
     private void generateDiagram() {
-        String javaCode = javaTextArea.getText();
+        String javaCode = javaEditor.getText();
         if (javaCode.isEmpty()) {
             showAlert("Empty Input", "Please enter some Java code.");
             return;
         }
         
-        try {
-            // Parse the Java code
-            currentDiagram = javaParser.parseJavaCode(javaCode);
-            
-            // Display the diagram
+        // Parse the Java code off the FX thread
+        sourceWatcher.stop();
+        parseJobs.submit(progress -> {
+            progress.accept("Parsing...");
+            javaParser.setProgressListener(count -> progress.accept("Parsing class " + (count + 1) + "..."));
+            try {
+                return javaParser.parseJavaCode(javaCode);
+            } finally {
+                javaParser.setProgressListener(null);
+            }
+        }, diagram -> {
+            // Display the diagram and apply auto layout
+            currentDiagram = diagram;
             diagramView.setDiagram(currentDiagram);
-            
-            // Apply auto layout
             diagramView.applyAutoLayout();
-            
-        } catch (Exception e) {
+            statusLabel.setText(currentDiagram.getClasses().size() + " classes, "
+                    + currentDiagram.getRelationships().size() + " relationships");
+        }, e -> {
+            statusLabel.setText("Failed to parse Java code");
             showAlert("Parsing Error", "Error parsing Java code: " + e.getMessage());
-            e.printStackTrace();
-        }
+        });
     }
     
     private void loadJavaFile() {
@@ -418,13 +543,131 @@ public class UMLDiagramGeneratorUI {
         if (selectedFile != null) {
             try {
                 String content = new String(Files.readAllBytes(Paths.get(selectedFile.getPath())));
-                javaTextArea.setText(content);
+                javaEditor.setText(content);
             } catch (IOException e) {
                 showAlert("File Error", "Error reading file: " + e.getMessage());
             }
         }
     }
     
+    private void loadSourceFolder() {
+        DirectoryChooser directoryChooser = new DirectoryChooser();
+        directoryChooser.setTitle("Open Source Folder");
+        
+        File directory = directoryChooser.showDialog(root.getScene().getWindow());
+        if (directory == null) {
+            return;
+        }
+        
+        Path path = directory.toPath();
+        sourceWatcher.stop();
+        parseJobs.submit(progress -> {
+            progress.accept("Reading Java files under " + path.getFileName() + "...");
+            sourceTreeParser.setProgressListener(count -> progress.accept("Parsed " + count + " files..."));
+            sourceTreeParser.getParseCache().resetStatistics();
+            try {
+                return sourceTreeParser.parse(path);
+            } finally {
+                sourceTreeParser.setProgressListener(null);
+            }
+        }, diagram -> {
+            currentDiagram = diagram;
+            diagramView.setDiagram(currentDiagram);
+            diagramView.applyAutoLayout();
+            javaEditor.clear();
+            String status = currentDiagram.getClasses().size() + " classes from "
+                    + sourceTreeParser.getFileCount() + " files in " + path.getFileName();
+            if (sourceTreeParser.getDuplicateCount() > 0) {
+                status += " (" + sourceTreeParser.getDuplicateCount() + " duplicate classes skipped)";
+            }
+            status += ", " + sourceTreeParser.getParseCache().getStatistics();
+            statusLabel.setText(status);
+            try {
+                sourceWatcher.watch(path, file -> file.getFileName().toString().endsWith(".java"));
+            } catch (IOException e) {
+                // Still shown, just not reloaded on changes
+                sourceWatcher.stop();
+            }
+        }, e -> {
+            statusLabel.setText("Failed to read " + path.getFileName());
+            showAlert("File Error", "Error reading source folder: " + e.getMessage());
+        });
+    }
+    
+    /**
+     * Brings the diagram up to date after files of the source folder changed
+     * on disk, parsing only those files and patching only the affected nodes.
+     */
+    private void reloadSourceFolder(Set<Path> changes) {
+        parseJobs.submit(progress -> {
+            progress.accept("Updating " + changes.size() + " changed files...");
+            sourceTreeParser.setProgressListener(count -> progress.accept("Parsed " + count + " changed files..."));
+            sourceTreeParser.getParseCache().resetStatistics();
+            try {
+                UMLDiagram previous = sourceTreeParser.getDiagram();
+                UMLDiagramDelta delta = sourceTreeParser.update(changes);
+                UMLDiagram diagram = sourceTreeParser.getDiagram();
+                return new TreeUpdate(previous, diagram, delta, diagram.getClasses().size() + " classes, "
+                        + sourceTreeParser.getReparsedCount() + " files re-parsed (" + delta + ")");
+            } finally {
+                sourceTreeParser.setProgressListener(null);
+            }
+        }, update -> {
+            currentDiagram = update.diagram;
+            if (diagramView.getDiagram() == update.previous) {
+                diagramView.applyDelta(currentDiagram, update.delta);
+            } else {
+                diagramView.setDiagram(currentDiagram);
+            }
+            statusLabel.setText(update.status);
+        }, e -> statusLabel.setText("Failed to update the source folder: " + e.getMessage()));
+    }
+    
+    /**
+     * Reads classes from bytecode, without their sources.
+     * @param folder true to pick a folder of class files, false for a JAR or class file
+     */
+    private void loadCompiledClasses(boolean folder) {
+        File selected;
+        if (folder) {
+            DirectoryChooser directoryChooser = new DirectoryChooser();
+            directoryChooser.setTitle("Open Classes Folder");
+            selected = directoryChooser.showDialog(root.getScene().getWindow());
+        } else {
+            FileChooser fileChooser = new FileChooser();
+            fileChooser.setTitle("Open JAR or Class File");
+            fileChooser.getExtensionFilters().addAll(
+                    new FileChooser.ExtensionFilter("Java Archives and Classes", "*.jar", "*.zip", "*.class"),
+                    new FileChooser.ExtensionFilter("All Files", "*.*"));
+            selected = fileChooser.showOpenDialog(root.getScene().getWindow());
+        }
+        if (selected == null) {
+            return;
+        }
+        
+        Path path = selected.toPath();
+        sourceWatcher.stop();
+        parseJobs.submit(progress -> {
+            progress.accept("Reading classes from " + path.getFileName() + "...");
+            bytecodeReader.setProgressListener(count -> progress.accept("Read " + count + " class files..."));
+            try {
+                return bytecodeReader.read(path);
+            } finally {
+                bytecodeReader.setProgressListener(null);
+            }
+        }, diagram -> {
+            currentDiagram = diagram;
+            diagramView.setDiagram(currentDiagram);
+            diagramView.applyAutoLayout();
+            javaEditor.clear();
+            statusLabel.setText(currentDiagram.getClasses().size() + " classes from "
+                    + bytecodeReader.getClassFileCount() + " class files in " + path.getFileName());
+        }, e -> {
+            statusLabel.setText("Failed to read " + path.getFileName());
+            showAlert("File Error", "Error reading compiled classes: " + e.getMessage());
+        });
+    }
+    
     private void exportDiagramAsImage() {
         if (currentDiagram == null || currentDiagram.getClasses().isEmpty()) {
             showAlert("No Diagram", "There is no diagram to export.");
@@ -574,7 +817,7 @@ public class UMLDiagramGeneratorUI {
                 "    int compareTo(T other);\n" +
                 "}";
         
-        javaTextArea.setText(exampleCode);
+        javaEditor.setText(exampleCode);
     }
     
     private void showAlert(String title, String message) {
@@ -586,6 +829,9 @@ public class UMLDiagramGeneratorUI {
     }
     
     private void returnToHome() {
+        parseJobs.shutdown();
+        sourceWatcher.stop();
+        
         // Get the current stage
         javafx.stage.Stage stage = (javafx.stage.Stage) root.getScene().getWindow();
         
@@ -604,4 +850,22 @@ public class UMLDiagramGeneratorUI {
     public BorderPane getRoot() {
         return root;
     }
-} 
\ No newline at end of file
+    
+    /**
+     * The outcome of a source folder update, produced on the worker thread.
+     */
+    private static class TreeUpdate {
+        // The diagram the parser held before the update
+        final UMLDiagram previous;
+        final UMLDiagram diagram;
+        final UMLDiagramDelta delta;
+        final String status;
+        
+        TreeUpdate(UMLDiagram previous, UMLDiagram diagram, UMLDiagramDelta delta, String status) {
+            this.previous = previous;
+            this.diagram = diagram;
+            this.delta = delta;
+            this.status = status;
+        }
+    }
+}
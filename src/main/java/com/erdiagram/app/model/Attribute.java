@@ -11,6 +11,7 @@ public class Attribute {
     private String referencedTable;
     private String referencedColumn;
     private boolean isNullable;
+    private Entity owner;
     
     public Attribute(String name, String dataType) {
         this.name = name;
@@ -28,12 +29,19 @@ public class Attribute {
         return dataType;
     }
     
+    void setDataType(String dataType) {
+        this.dataType = dataType;
+    }
+    
     public boolean isPrimaryKey() {
         return isPrimaryKey;
     }
     
     public void setPrimaryKey(boolean primaryKey) {
-        isPrimaryKey = primaryKey;
+        if (isPrimaryKey != primaryKey) {
+            isPrimaryKey = primaryKey;
+            notifyOwner();
+        }
     }
     
     public boolean isForeignKey() {
@@ -41,7 +49,10 @@ public class Attribute {
     }
     
     public void setForeignKey(boolean foreignKey) {
-        isForeignKey = foreignKey;
+        if (isForeignKey != foreignKey) {
+            isForeignKey = foreignKey;
+            notifyOwner();
+        }
     }
     
     public String getReferencedTable() {
@@ -68,6 +79,17 @@ public class Attribute {
         isNullable = nullable;
     }
     
+    void setOwner(Entity owner) {
+        this.owner = owner;
+    }
+    
+    private void notifyOwner() {
+        // Lets the entity drop its cached key views
+        if (owner != null) {
+            owner.keysChanged();
+        }
+    }
+    
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -81,6 +81,19 @@ public class ERDiagram {
         }
     }
     
+    /**
+     * Lays out newly added entities in grid rows below the existing entities,
+     * leaving everything else where it is.
+     * 
+     * @param newEntities Entities of this diagram that have no position yet
+     */
+    public void layoutBelow(List<Entity> newEntities) {
+        GridLayout.layoutBelow(entities, newEntities, 300, Entity::getY, (entity, x, y) -> {
+            entity.setX(x);
+            entity.setY(y);
+        });
+    }
+    
     /**
      * Clears all entities and relationships.
      */
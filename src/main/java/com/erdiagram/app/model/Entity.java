@@ -1,20 +1,39 @@
 package com.erdiagram.app.model;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
 
 /**
  * Represents a database table as an entity in the ER diagram.
  */
 public class Entity {
+    private static final int MIN_INDEX_CAPACITY = 16;
+
     private String name;
     private List<Attribute> attributes;
+    private List<Attribute> attributesView;
     private double x;
     private double y;
 
+    // Open-addressing table of attributes keyed by case-insensitive name
+    private Attribute[] attributeIndex;
+
+    // Cached key views, rebuilt lazily after a key flag changes
+    private List<Attribute> primaryKeys;
+    private List<Attribute> foreignKeys;
+
+    // Supplies the full column list of a skeleton entity; null once loaded
+    private Supplier<List<Attribute>> attributeLoader;
+
     public Entity(String name) {
         this.name = name;
         this.attributes = new ArrayList<>();
+        this.attributesView = Collections.unmodifiableList(attributes);
+        this.attributeIndex = new Attribute[MIN_INDEX_CAPACITY];
         this.x = 0;
         this.y = 0;
     }
@@ -23,34 +42,200 @@ public class Entity {
         return name;
     }
 
+    /**
+     * @return A read-only view of the attributes in declaration order
+     */
     public List<Attribute> getAttributes() {
-        return attributes;
+        return attributesView;
     }
 
     public void addAttribute(Attribute attribute) {
         attributes.add(attribute);
+        attribute.setOwner(this);
+
+        if (attributes.size() * 2 > attributeIndex.length) {
+            rebuildIndex(attributeIndex.length * 2);
+        } else {
+            insertIntoIndex(attribute);
+        }
+
+        keysChanged();
     }
 
+    /**
+     * Looks up an attribute by name, ignoring case. The lookup does not allocate.
+     *
+     * @param columnName The column name to find
+     * @return The first attribute declared with that name, or null if there is none
+     */
+    public Attribute getAttribute(String columnName) {
+        if (columnName == null) {
+            return null;
+        }
+
+        int mask = attributeIndex.length - 1;
+        for (int slot = caseInsensitiveHash(columnName) & mask; ; slot = (slot + 1) & mask) {
+            Attribute candidate = attributeIndex[slot];
+            if (candidate == null) {
+                return null;
+            }
+            if (candidate.getName().equalsIgnoreCase(columnName)) {
+                return candidate;
+            }
+        }
+    }
+
+    /**
+     * @return A cached, read-only list of the primary key attributes
+     */
     public List<Attribute> getPrimaryKeys() {
-        List<Attribute> primaryKeys = new ArrayList<>();
-        for (Attribute attribute : attributes) {
-            if (attribute.isPrimaryKey()) {
-                primaryKeys.add(attribute);
+        if (primaryKeys == null) {
+            List<Attribute> keys = new ArrayList<>();
+            for (Attribute attribute : attributes) {
+                if (attribute.isPrimaryKey()) {
+                    keys.add(attribute);
+                }
             }
+            primaryKeys = Collections.unmodifiableList(keys);
         }
         return primaryKeys;
     }
 
+    /**
+     * @return A cached, read-only list of the foreign key attributes
+     */
     public List<Attribute> getForeignKeys() {
-        List<Attribute> foreignKeys = new ArrayList<>();
-        for (Attribute attribute : attributes) {
-            if (attribute.isForeignKey()) {
-                foreignKeys.add(attribute);
+        if (foreignKeys == null) {
+            List<Attribute> keys = new ArrayList<>();
+            for (Attribute attribute : attributes) {
+                if (attribute.isForeignKey()) {
+                    keys.add(attribute);
+                }
             }
+            foreignKeys = Collections.unmodifiableList(keys);
         }
         return foreignKeys;
     }
 
+    /**
+     * Marks this entity as a skeleton whose attributes are only its key columns
+     * until {@link #loadAttributes()} is called.
+     *
+     * @param attributeLoader Supplies the full column list in declaration order
+     */
+    public void setAttributeLoader(Supplier<List<Attribute>> attributeLoader) {
+        this.attributeLoader = attributeLoader;
+    }
+
+    /**
+     * @return true if this is a skeleton entity whose full column list has not been loaded yet
+     */
+    public boolean hasUnloadedAttributes() {
+        return attributeLoader != null;
+    }
+
+    /**
+     * @return The loader of a skeleton entity's full column list, or null once
+     *         it is loaded. It may be run on another thread, and its result
+     *         handed to {@link #setLoadedAttributes(List)}.
+     */
+    public Supplier<List<Attribute>> getAttributeLoader() {
+        return attributeLoader;
+    }
+
+    /**
+     * Loads the full column list of a skeleton entity on the calling thread.
+     * Does nothing if the attributes are already loaded.
+     */
+    public void loadAttributes() {
+        if (attributeLoader == null) {
+            return;
+        }
+        setLoadedAttributes(attributeLoader.get());
+    }
+
+    /**
+     * Takes the full column list of a skeleton entity. Key columns that are
+     * already present keep their identity and key flags, so relationships that
+     * point at them stay valid, and take their data type from the loaded column.
+     *
+     * @param loaded The columns supplied by the {@link #getAttributeLoader() loader}
+     */
+    public void setLoadedAttributes(List<Attribute> loaded) {
+        attributeLoader = null;
+
+        List<Attribute> merged = new ArrayList<>(loaded.size() + attributes.size());
+        Set<Attribute> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Attribute attribute : loaded) {
+            Attribute existing = getAttribute(attribute.getName());
+            if (existing == null) {
+                merged.add(attribute);
+            } else if (kept.add(existing)) {
+                existing.setDataType(attribute.getDataType());
+                if (!attribute.isNullable()) {
+                    existing.setNullable(false);
+                }
+                merged.add(existing);
+            }
+        }
+        // Key columns the loaded definition does not declare, such as ones added later by ALTER TABLE
+        for (Attribute attribute : attributes) {
+            if (!kept.contains(attribute)) {
+                merged.add(attribute);
+            }
+        }
+
+        attributes.clear();
+        for (Attribute attribute : merged) {
+            attributes.add(attribute);
+            attribute.setOwner(this);
+        }
+        rebuildIndex(Math.max(MIN_INDEX_CAPACITY, Integer.highestOneBit(attributes.size() * 2) * 2));
+        keysChanged();
+    }
+
+    /**
+     * Called by attributes of this entity when their key flags change.
+     */
+    void keysChanged() {
+        primaryKeys = null;
+        foreignKeys = null;
+    }
+
+    private void rebuildIndex(int capacity) {
+        attributeIndex = new Attribute[capacity];
+        for (Attribute attribute : attributes) {
+            insertIntoIndex(attribute);
+        }
+    }
+
+    private void insertIntoIndex(Attribute attribute) {
+        int mask = attributeIndex.length - 1;
+        for (int slot = caseInsensitiveHash(attribute.getName()) & mask; ; slot = (slot + 1) & mask) {
+            Attribute existing = attributeIndex[slot];
+            if (existing == null) {
+                attributeIndex[slot] = attribute;
+                return;
+            }
+            if (existing.getName().equalsIgnoreCase(attribute.getName())) {
+                // Keep the first declaration, like a linear scan would
+                return;
+            }
+        }
+    }
+
+    /**
+     * Hash consistent with {@link String#equalsIgnoreCase(String)}.
+     */
+    private static int caseInsensitiveHash(String s) {
+        int hash = 0;
+        for (int i = 0; i < s.length(); i++) {
+            hash = 31 * hash + Character.toLowerCase(Character.toUpperCase(s.charAt(i)));
+        }
+        // Spread the bits so that power-of-two masking uses the high bits too
+        return hash ^ (hash >>> 16);
+    }
+
     public double getX() {
         return x;
     }
@@ -71,4 +256,4 @@ public class Entity {
     public String toString() {
         return name;
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,53 @@
+package com.erdiagram.app.model;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Grid placement shared by the ER and UML diagrams.
+ */
+final class GridLayout {
+    private static final double CELL_WIDTH = 250;
+    private static final double START_X = 50;
+    private static final double START_Y = 50;
+
+    interface Placer<T> {
+        void place(T item, double x, double y);
+    }
+
+    private GridLayout() {
+    }
+
+    /**
+     * Lays out new items in grid rows below the other items of the diagram,
+     * leaving those where they are.
+     *
+     * @param items All items of the diagram, including the new ones
+     * @param newItems The items that have no position yet
+     * @param cellHeight The height of a grid row
+     */
+    static <T> void layoutBelow(List<T> items, List<T> newItems, double cellHeight,
+                                ToDoubleFunction<T> y, Placer<T> placer) {
+        if (newItems.isEmpty()) {
+            return;
+        }
+
+        double startY = START_Y;
+        Set<T> pending = Collections.newSetFromMap(new IdentityHashMap<>());
+        pending.addAll(newItems);
+        for (T item : items) {
+            if (!pending.contains(item)) {
+                startY = Math.max(startY, y.applyAsDouble(item) + cellHeight);
+            }
+        }
+
+        int cols = (int) Math.ceil(Math.sqrt(items.size()));
+
+        for (int i = 0; i < newItems.size(); i++) {
+            placer.place(newItems.get(i), START_X + (i % cols) * CELL_WIDTH, startY + (i / cols) * cellHeight);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.erdiagram.app.model;
+
+/**
+ * Pairs the instance that left a diagram with the one that replaced it, as
+ * reported by {@link SchemaDelta} and {@link UMLDiagramDelta}.
+ */
+public class Replacement<T> {
+    private final T previous;
+    private final T current;
+
+    public Replacement(T previous, T current) {
+        this.previous = previous;
+        this.current = current;
+    }
+
+    public T getPrevious() {
+        return previous;
+    }
+
+    public T getCurrent() {
+        return current;
+    }
+}
@@ -0,0 +1,65 @@
+package com.erdiagram.app.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Structural difference between two successive versions of an ER diagram.
+ *
+ * Entities and relationships that did not change keep their identity, so a
+ * view only has to patch what is listed here.
+ */
+public class SchemaDelta {
+    private final List<Entity> addedEntities = new ArrayList<>();
+    private final List<Entity> removedEntities = new ArrayList<>();
+    private final List<Replacement<Entity>> changedEntities = new ArrayList<>();
+    private final List<Relationship> addedRelationships = new ArrayList<>();
+    private final List<Relationship> removedRelationships = new ArrayList<>();
+    private final List<Replacement<Relationship>> changedRelationships = new ArrayList<>();
+
+    public List<Entity> getAddedEntities() {
+        return addedEntities;
+    }
+
+    public List<Entity> getRemovedEntities() {
+        return removedEntities;
+    }
+
+    /**
+     * @return Entities whose definition changed; the previous instance is no longer in the diagram
+     */
+    public List<Replacement<Entity>> getChangedEntities() {
+        return changedEntities;
+    }
+
+    public List<Relationship> getAddedRelationships() {
+        return addedRelationships;
+    }
+
+    public List<Relationship> getRemovedRelationships() {
+        return removedRelationships;
+    }
+
+    /**
+     * @return Relationships that now connect replaced entities or changed type
+     */
+    public List<Replacement<Relationship>> getChangedRelationships() {
+        return changedRelationships;
+    }
+
+    /**
+     * @return true if the parse produced exactly the same structure as before
+     */
+    public boolean isEmpty() {
+        return addedEntities.isEmpty() && removedEntities.isEmpty() && changedEntities.isEmpty()
+                && addedRelationships.isEmpty() && removedRelationships.isEmpty()
+                && changedRelationships.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "+" + addedEntities.size() + " -" + removedEntities.size() + " ~" + changedEntities.size()
+                + " entities, +" + addedRelationships.size() + " -" + removedRelationships.size()
+                + " ~" + changedRelationships.size() + " relationships";
+    }
+}
@@ -85,6 +85,19 @@ public class UMLDiagram {
         return result;
     }
     
+    /**
+     * Lays out newly added classes in grid rows below the existing classes,
+     * leaving everything else where it is.
+     * 
+     * @param newClasses Classes of this diagram that have no position yet
+     */
+    public void layoutBelow(List<UMLClass> newClasses) {
+        GridLayout.layoutBelow(classes, newClasses, 250, UMLClass::getY, (umlClass, x, y) -> {
+            umlClass.setX(x);
+            umlClass.setY(y);
+        });
+    }
+    
     /**
      * Clear all classes and relationships from the diagram
      */
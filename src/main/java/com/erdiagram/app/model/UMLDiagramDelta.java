@@ -0,0 +1,65 @@
+package com.erdiagram.app.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Structural difference between two successive versions of a UML diagram.
+ *
+ * Classes and relationships that did not change keep their identity, so a
+ * view only has to patch what is listed here.
+ */
+public class UMLDiagramDelta {
+    private final List<UMLClass> addedClasses = new ArrayList<>();
+    private final List<UMLClass> removedClasses = new ArrayList<>();
+    private final List<Replacement<UMLClass>> changedClasses = new ArrayList<>();
+    private final List<UMLRelationship> addedRelationships = new ArrayList<>();
+    private final List<UMLRelationship> removedRelationships = new ArrayList<>();
+    private final List<Replacement<UMLRelationship>> changedRelationships = new ArrayList<>();
+
+    public List<UMLClass> getAddedClasses() {
+        return addedClasses;
+    }
+
+    public List<UMLClass> getRemovedClasses() {
+        return removedClasses;
+    }
+
+    /**
+     * @return Classes whose declaration changed; the previous instance is no longer in the diagram
+     */
+    public List<Replacement<UMLClass>> getChangedClasses() {
+        return changedClasses;
+    }
+
+    public List<UMLRelationship> getAddedRelationships() {
+        return addedRelationships;
+    }
+
+    public List<UMLRelationship> getRemovedRelationships() {
+        return removedRelationships;
+    }
+
+    /**
+     * @return Relationships that now connect replaced classes
+     */
+    public List<Replacement<UMLRelationship>> getChangedRelationships() {
+        return changedRelationships;
+    }
+
+    /**
+     * @return true if the parse produced exactly the same structure as before
+     */
+    public boolean isEmpty() {
+        return addedClasses.isEmpty() && removedClasses.isEmpty() && changedClasses.isEmpty()
+                && addedRelationships.isEmpty() && removedRelationships.isEmpty()
+                && changedRelationships.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "+" + addedClasses.size() + " -" + removedClasses.size() + " ~" + changedClasses.size()
+                + " classes, +" + addedRelationships.size() + " -" + removedRelationships.size()
+                + " ~" + changedRelationships.size() + " relationships";
+    }
+}
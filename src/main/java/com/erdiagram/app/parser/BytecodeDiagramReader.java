@@ -0,0 +1,407 @@
+package com.erdiagram.app.parser;
+
+import com.erdiagram.app.model.UMLClass;
+import com.erdiagram.app.model.UMLDiagram;
+import com.erdiagram.app.model.UMLRelationship;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Builds a UML diagram from compiled classes: a JAR, a single class file or a
+ * directory such as {@code target/classes}. No source code is needed.
+ *
+ * A JAR is memory-mapped and its central directory read directly, so every
+ * entry can be inflated and decoded by {@link ClassFileReader} on its own
+ * worker without sharing a stream. Archives that need ZIP64 fall back to
+ * {@link ZipFile}. Entries under META-INF, such as the extra versions in a
+ * multi-release JAR, are skipped.
+ */
+public class BytecodeDiagramReader {
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int CENTRAL_DIRECTORY_ENTRY = 0x02014b50;
+    private static final int LOCAL_FILE_HEADER = 0x04034b50;
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private IntConsumer progressListener;
+    private int classFileCount;
+    private int duplicateCount;
+
+    /**
+     * @param parallelism The number of decoding workers, at least 1
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets a listener that receives the number of class files decoded so far.
+     * It is called on the worker threads.
+     * @param progressListener The listener, or null for none
+     */
+    public void setProgressListener(IntConsumer progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Reads a JAR or ZIP file, a class file, or every class file under a directory.
+     * @throws InterruptedIOException If the calling thread is interrupted
+     */
+    public UMLDiagram read(Path path) throws IOException {
+        List<Callable<ByteBuffer>> classFiles = new ArrayList<>();
+        MappedByteBuffer archive = null;
+
+        if (Files.isDirectory(path)) {
+            listClassFiles(path, classFiles);
+        } else if (path.getFileName().toString().endsWith(".class")) {
+            classFiles.add(() -> ByteBuffer.wrap(Files.readAllBytes(path)));
+        } else {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                if (channel.size() < Integer.MAX_VALUE) {
+                    archive = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                    archive.order(ByteOrder.LITTLE_ENDIAN);
+                }
+            }
+            if (archive == null || !listArchiveEntries(archive, classFiles)) {
+                listZipFileEntries(path, classFiles);
+            }
+        }
+
+        List<ClassFileReader.DecodedClass> decoded = decodeAll(classFiles);
+        classFileCount = classFiles.size();
+        return buildDiagram(decoded);
+    }
+
+    private static void listClassFiles(Path directory, List<Callable<ByteBuffer>> classFiles) throws IOException {
+        List<Path> files = new ArrayList<>();
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && file.getFileName().toString().endsWith(".class")) {
+                    files.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        Collections.sort(files);
+
+        for (Path file : files) {
+            classFiles.add(() -> ByteBuffer.wrap(Files.readAllBytes(file)));
+        }
+    }
+
+    /**
+     * Lists the class entries of a mapped archive from its central directory.
+     * @return false if the archive uses ZIP64 or cannot be read this way
+     */
+    private static boolean listArchiveEntries(ByteBuffer archive, List<Callable<ByteBuffer>> classFiles) {
+        int end = findEndOfCentralDirectory(archive);
+        if (end < 0) {
+            return false;
+        }
+
+        int entryCount = archive.getShort(end + 10) & 0xFFFF;
+        long directoryOffset = archive.getInt(end + 16) & 0xFFFFFFFFL;
+        if (entryCount == 0xFFFF || directoryOffset == 0xFFFFFFFFL || directoryOffset >= archive.limit()) {
+            return false;
+        }
+
+        int pos = (int) directoryOffset;
+        for (int i = 0; i < entryCount; i++) {
+            if (pos + 46 > archive.limit() || archive.getInt(pos) != CENTRAL_DIRECTORY_ENTRY) {
+                return false;
+            }
+            int flags = archive.getShort(pos + 8) & 0xFFFF;
+            int method = archive.getShort(pos + 10) & 0xFFFF;
+            long compressedSize = archive.getInt(pos + 20) & 0xFFFFFFFFL;
+            long size = archive.getInt(pos + 24) & 0xFFFFFFFFL;
+            int nameLength = archive.getShort(pos + 28) & 0xFFFF;
+            int extraLength = archive.getShort(pos + 30) & 0xFFFF;
+            int commentLength = archive.getShort(pos + 32) & 0xFFFF;
+            long headerOffset = archive.getInt(pos + 42) & 0xFFFFFFFFL;
+            String name = readName(archive, pos + 46, nameLength);
+            pos += 46 + nameLength + extraLength + commentLength;
+
+            if (!isClassEntry(name)) {
+                continue;
+            }
+            if (compressedSize == 0xFFFFFFFFL || size == 0xFFFFFFFFL || headerOffset == 0xFFFFFFFFL) {
+                return false;
+            }
+            // Encrypted entries cannot be read
+            if ((flags & 1) != 0 || method != STORED && method != DEFLATED) {
+                continue;
+            }
+
+            classFiles.add(() -> readArchiveEntry(archive, (int) headerOffset, method,
+                    (int) compressedSize, (int) size));
+        }
+        return true;
+    }
+
+    private static int findEndOfCentralDirectory(ByteBuffer archive) {
+        // The record is at least 22 bytes and may be followed by a comment of up to 64 KB
+        int last = archive.limit() - 22;
+        int first = Math.max(0, last - 0xFFFF);
+        for (int pos = last; pos >= first; pos--) {
+            if (archive.getInt(pos) == END_OF_CENTRAL_DIRECTORY) {
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    private static ByteBuffer readArchiveEntry(ByteBuffer archive, int headerOffset, int method,
+                                               int compressedSize, int size) throws IOException {
+        if (archive.getInt(headerOffset) != LOCAL_FILE_HEADER) {
+            throw new IOException("Corrupt archive entry at offset " + headerOffset);
+        }
+        int nameLength = archive.getShort(headerOffset + 26) & 0xFFFF;
+        int extraLength = archive.getShort(headerOffset + 28) & 0xFFFF;
+        int dataOffset = headerOffset + 30 + nameLength + extraLength;
+
+        // A view of the entry's bytes; the shared buffer's position is never moved
+        ByteBuffer data = archive.duplicate();
+        data.position(dataOffset).limit(dataOffset + compressedSize);
+        data = data.slice().order(ByteOrder.BIG_ENDIAN);
+
+        if (method == STORED) {
+            return data;
+        }
+
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(data);
+            ByteBuffer output = ByteBuffer.allocate(size);
+            while (output.hasRemaining() && !inflater.finished()) {
+                if (inflater.inflate(output) == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+            }
+            output.flip();
+            return output;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt archive entry at offset " + headerOffset, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void listZipFileEntries(Path path, List<Callable<ByteBuffer>> classFiles) throws IOException {
+        // Entries are read up front, as ZipFile streams cannot be used by several threads at once
+        try (ZipFile zipFile = new ZipFile(path.toFile())) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (!entry.isDirectory() && isClassEntry(entry.getName())) {
+                    try (InputStream in = zipFile.getInputStream(entry)) {
+                        ByteBuffer bytes = ByteBuffer.wrap(in.readAllBytes());
+                        classFiles.add(() -> bytes);
+                    }
+                }
+            }
+        }
+    }
+
+    private static String readName(ByteBuffer archive, int offset, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = archive.get(offset + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isClassEntry(String name) {
+        return name.endsWith(".class") && !name.startsWith("META-INF/");
+    }
+
+    private List<ClassFileReader.DecodedClass> decodeAll(List<Callable<ByteBuffer>> classFiles) throws IOException {
+        AtomicInteger decoded = new AtomicInteger();
+
+        if (parallelism == 1 || classFiles.size() < 2) {
+            List<ClassFileReader.DecodedClass> results = new ArrayList<>(classFiles.size());
+            for (Callable<ByteBuffer> classFile : classFiles) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Class file reading was cancelled");
+                }
+                results.add(decode(classFile, decoded));
+            }
+            return results;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, classFiles.size()));
+        try {
+            List<Future<ClassFileReader.DecodedClass>> pending = new ArrayList<>(classFiles.size());
+            for (Callable<ByteBuffer> classFile : classFiles) {
+                pending.add(pool.submit(() -> decode(classFile, decoded)));
+            }
+
+            List<ClassFileReader.DecodedClass> results = new ArrayList<>(classFiles.size());
+            for (Future<ClassFileReader.DecodedClass> future : pending) {
+                results.add(await(future));
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private ClassFileReader.DecodedClass decode(Callable<ByteBuffer> classFile, AtomicInteger decoded)
+            throws IOException {
+        ByteBuffer bytes;
+        try {
+            bytes = classFile.call();
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Failed to read class file", e);
+        }
+
+        ClassFileReader.DecodedClass result = ClassFileReader.read(bytes);
+
+        int count = decoded.incrementAndGet();
+        if (progressListener != null) {
+            progressListener.accept(count);
+        }
+        return result;
+    }
+
+    private static ClassFileReader.DecodedClass await(Future<ClassFileReader.DecodedClass> future)
+            throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Class file reading was interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Class file reading failed", cause);
+        }
+    }
+
+    private UMLDiagram buildDiagram(List<ClassFileReader.DecodedClass> decodedClasses) {
+        UMLDiagram diagram = new UMLDiagram();
+        Map<String, UMLClass> classMap = new HashMap<>();
+        List<ClassFileReader.DecodedClass> added = new ArrayList<>();
+        int duplicates = 0;
+
+        for (ClassFileReader.DecodedClass decoded : decodedClasses) {
+            if (decoded == null) {
+                continue;
+            }
+            if (classMap.putIfAbsent(decoded.qualifiedName, decoded.umlClass) != null) {
+                duplicates++;
+                continue;
+            }
+            UMLClass umlClass = decoded.umlClass;
+            diagram.addClass(umlClass);
+            added.add(decoded);
+
+            // Set initial positions
+            umlClass.setX(100 + diagram.getClasses().size() * 50);
+            umlClass.setY(100 + diagram.getClasses().size() * 50);
+        }
+        duplicateCount = duplicates;
+
+        // Every name in a class file is qualified, so references resolve with one lookup
+        for (ClassFileReader.DecodedClass decoded : added) {
+            if (decoded.superName != null) {
+                UMLClass parentClass = findOrStub(diagram, classMap, decoded.superName, "class");
+                diagram.addRelationship(new UMLRelationship(decoded.umlClass, parentClass, UMLRelationship.INHERITANCE));
+            }
+            for (String interfaceName : decoded.interfaceNames) {
+                UMLClass interfaceClass = findOrStub(diagram, classMap, interfaceName, "interface");
+                diagram.addRelationship(new UMLRelationship(decoded.umlClass, interfaceClass, UMLRelationship.IMPLEMENTATION));
+            }
+        }
+
+        for (ClassFileReader.DecodedClass decoded : added) {
+            for (List<String[]> references : decoded.fieldReferences) {
+                UMLClass previousTarget = null;
+                for (String[] reference : references) {
+                    UMLClass targetClass = classMap.get(reference[0]);
+                    if (targetClass == null || targetClass == previousTarget) {
+                        continue;
+                    }
+                    previousTarget = targetClass;
+
+                    UMLRelationship relationship = new UMLRelationship(decoded.umlClass, targetClass, UMLRelationship.COMPOSITION);
+                    relationship.setTargetLabel(reference[1]);
+                    diagram.addRelationship(relationship);
+                }
+            }
+        }
+
+        return diagram;
+    }
+
+    /**
+     * Finds a supertype, creating a stub for it if it is not one of the classes read.
+     */
+    private static UMLClass findOrStub(UMLDiagram diagram, Map<String, UMLClass> classMap,
+                                       String qualifiedName, String type) {
+        UMLClass umlClass = classMap.get(qualifiedName);
+        if (umlClass == null) {
+            int lastDot = qualifiedName.lastIndexOf('.');
+            umlClass = new UMLClass(qualifiedName.substring(lastDot + 1), type);
+            umlClass.setPackageName(lastDot < 0 ? "" : qualifiedName.substring(0, lastDot));
+            diagram.addClass(umlClass);
+            classMap.put(qualifiedName, umlClass);
+        }
+        return umlClass;
+    }
+
+    /**
+     * @return The number of class files read by the last call
+     */
+    public int getClassFileCount() {
+        return classFileCount;
+    }
+
+    /**
+     * @return The number of classes skipped by the last call because a class with
+     *         the same name was read earlier
+     */
+    public int getDuplicateCount() {
+        return duplicateCount;
+    }
+}
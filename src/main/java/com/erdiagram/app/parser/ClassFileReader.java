@@ -0,0 +1,498 @@
+package com.erdiagram.app.parser;
+
+import com.erdiagram.app.model.UMLAttribute;
+import com.erdiagram.app.model.UMLClass;
+import com.erdiagram.app.model.UMLMethod;
+import com.erdiagram.app.model.UMLParameter;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal reader for compiled {@code .class} files, used by {@link BytecodeDiagramReader}.
+ *
+ * Only what a class diagram needs is decoded: the class name, supertypes,
+ * fields and methods, with generic types taken from their Signature
+ * attributes and parameter names from MethodParameters when the class was
+ * compiled with {@code -parameters}. Method bodies and every other attribute
+ * are skipped by length. Constant pool strings are decoded on first use.
+ */
+class ClassFileReader {
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_PRIVATE = 0x0002;
+    private static final int ACC_PROTECTED = 0x0004;
+    private static final int ACC_STATIC = 0x0008;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_BRIDGE = 0x0040;
+    private static final int ACC_VARARGS = 0x0080;
+    private static final int ACC_INTERFACE = 0x0200;
+    private static final int ACC_ABSTRACT = 0x0400;
+    private static final int ACC_SYNTHETIC = 0x1000;
+    private static final int ACC_ANNOTATION = 0x2000;
+    private static final int ACC_ENUM = 0x4000;
+    private static final int ACC_MODULE = 0x8000;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_DOUBLE = 6;
+
+    /**
+     * The declarations of one class file. Type names are qualified, with nested
+     * types separated by dots.
+     */
+    static class DecodedClass {
+        final UMLClass umlClass;
+        final String qualifiedName;
+        String superName;
+        final List<String> interfaceNames = new ArrayList<>();
+        // For each field, pairs of a class type it names and its multiplicity, "1" or "*"
+        final List<List<String[]>> fieldReferences = new ArrayList<>();
+
+        DecodedClass(UMLClass umlClass, String qualifiedName) {
+            this.umlClass = umlClass;
+            this.qualifiedName = qualifiedName;
+        }
+    }
+
+    private final ByteBuffer buffer;
+    private int[] constantOffsets;
+    private String[] constantStrings;
+
+    private ClassFileReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Decodes a class file.
+     * @param buffer The file contents, from position 0 to the limit
+     * @return The class, or null for module and package descriptors and for
+     *         synthetic, anonymous and local classes
+     * @throws IOException If the data is not a valid class file
+     */
+    static DecodedClass read(ByteBuffer buffer) throws IOException {
+        try {
+            return new ClassFileReader(buffer).read();
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Invalid class file", e);
+        }
+    }
+
+    private DecodedClass read() throws IOException {
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a class file");
+        }
+        buffer.position(8);
+        readConstantPool();
+
+        int access = u2();
+        String binaryName = className(u2());
+        int superIndex = u2();
+
+        if ((access & (ACC_MODULE | ACC_SYNTHETIC)) != 0 || binaryName.endsWith("package-info")
+                || isAnonymousOrLocal(binaryName)) {
+            return null;
+        }
+
+        String qualifiedName = binaryName.replace('/', '.').replace('$', '.');
+        int lastSlash = binaryName.lastIndexOf('/');
+        String packageName = lastSlash < 0 ? "" : binaryName.substring(0, lastSlash).replace('/', '.');
+        String simpleName = qualifiedName.substring(qualifiedName.lastIndexOf('.') + 1);
+
+        UMLClass umlClass = new UMLClass(simpleName, classType(access));
+        umlClass.setPackageName(packageName);
+        DecodedClass decoded = new DecodedClass(umlClass, qualifiedName);
+
+        if (superIndex != 0) {
+            String superName = className(superIndex);
+            // Implicit supertypes are not shown
+            if (!superName.equals("java/lang/Object") && !superName.equals("java/lang/Enum")
+                    && !superName.equals("java/lang/Record")) {
+                decoded.superName = superName.replace('/', '.').replace('$', '.');
+            }
+        }
+
+        int interfaceCount = u2();
+        for (int i = 0; i < interfaceCount; i++) {
+            String interfaceName = className(u2());
+            if (!interfaceName.equals("java/lang/annotation/Annotation")) {
+                decoded.interfaceNames.add(interfaceName.replace('/', '.').replace('$', '.'));
+            }
+        }
+
+        boolean isInterface = (access & ACC_INTERFACE) != 0;
+        readFields(decoded);
+        readMethods(decoded, isInterface, (access & ACC_ENUM) != 0);
+        return decoded;
+    }
+
+    private static String classType(int access) {
+        if ((access & (ACC_INTERFACE | ACC_ANNOTATION)) != 0) {
+            return "interface";
+        }
+        if ((access & ACC_ENUM) != 0) {
+            return "enum";
+        }
+        return (access & ACC_ABSTRACT) != 0 ? "abstract class" : "class";
+    }
+
+    /**
+     * @return true for names such as Outer$1 or Outer$1Local
+     */
+    private static boolean isAnonymousOrLocal(String binaryName) {
+        int dollar = binaryName.indexOf('$', binaryName.lastIndexOf('/') + 1);
+        while (dollar >= 0 && dollar + 1 < binaryName.length()) {
+            char c = binaryName.charAt(dollar + 1);
+            if (c >= '0' && c <= '9') {
+                return true;
+            }
+            dollar = binaryName.indexOf('$', dollar + 1);
+        }
+        return false;
+    }
+
+    private void readFields(DecodedClass decoded) {
+        int fieldCount = u2();
+        for (int i = 0; i < fieldCount; i++) {
+            int access = u2();
+            String name = utf8(u2());
+            String descriptor = utf8(u2());
+            String signature = readSignatureAttribute(null);
+
+            // Enum constants and compiler-generated fields are not shown
+            if ((access & (ACC_SYNTHETIC | ACC_ENUM)) != 0) {
+                continue;
+            }
+
+            TypeSignature type = new TypeSignature(signature != null ? signature : descriptor);
+            List<String[]> references = new ArrayList<>();
+            String typeText = type.readType(references, "1");
+            if (!references.isEmpty()) {
+                decoded.fieldReferences.add(references);
+            }
+            decoded.umlClass.addAttribute(new UMLAttribute(name, typeText, visibility(access, false),
+                    (access & ACC_STATIC) != 0, (access & ACC_FINAL) != 0));
+        }
+    }
+
+    private void readMethods(DecodedClass decoded, boolean isInterface, boolean isEnum) {
+        int methodCount = u2();
+        for (int i = 0; i < methodCount; i++) {
+            int access = u2();
+            String name = utf8(u2());
+            String descriptor = utf8(u2());
+            List<String> parameterNames = new ArrayList<>();
+            String signature = readSignatureAttribute(parameterNames);
+
+            // Constructors, initializers and compiler-generated methods are not shown
+            if ((access & (ACC_SYNTHETIC | ACC_BRIDGE)) != 0 || name.startsWith("<")
+                    || isEnum && isEnumHelper(name, descriptor)) {
+                continue;
+            }
+
+            TypeSignature type = new TypeSignature(signature != null ? signature : descriptor);
+            type.skipTypeParameters();
+            type.expect('(');
+            List<String> parameterTypes = new ArrayList<>();
+            while (!type.at(')')) {
+                parameterTypes.add(type.readType(null, null));
+            }
+            type.expect(')');
+            String returnType = type.readType(null, null);
+
+            int last = parameterTypes.size() - 1;
+            if ((access & ACC_VARARGS) != 0 && last >= 0 && parameterTypes.get(last).endsWith("[]")) {
+                String arrayType = parameterTypes.get(last);
+                parameterTypes.set(last, arrayType.substring(0, arrayType.length() - 2) + "...");
+            }
+
+            UMLMethod method = new UMLMethod(name, returnType, visibility(access, isInterface));
+            method.setStatic((access & ACC_STATIC) != 0);
+            method.setAbstract((access & ACC_ABSTRACT) != 0);
+            for (int p = 0; p < parameterTypes.size(); p++) {
+                // Generic signatures can leave out synthetic parameters, so names are matched from the end
+                int nameIndex = parameterNames.size() - parameterTypes.size() + p;
+                String parameterName = nameIndex >= 0 && parameterNames.get(nameIndex) != null
+                        ? parameterNames.get(nameIndex) : "arg" + p;
+                method.addParameter(new UMLParameter(parameterName, parameterTypes.get(p)));
+            }
+            decoded.umlClass.addMethod(method);
+        }
+    }
+
+    private static boolean isEnumHelper(String name, String descriptor) {
+        return name.equals("values") && descriptor.startsWith("()[")
+                || name.equals("valueOf") && descriptor.startsWith("(Ljava/lang/String;)");
+    }
+
+    private static String visibility(int access, boolean inInterface) {
+        if ((access & ACC_PUBLIC) != 0) {
+            return "public";
+        }
+        if ((access & ACC_PROTECTED) != 0) {
+            return "protected";
+        }
+        if ((access & ACC_PRIVATE) != 0) {
+            return "private";
+        }
+        return inInterface ? "public" : "package";
+    }
+
+    /**
+     * Reads the attributes of a field or method, skipping all but Signature and MethodParameters.
+     * @param parameterNames Receives the parameter names, or null to ignore them
+     * @return The generic signature, or null if there is none
+     */
+    private String readSignatureAttribute(List<String> parameterNames) {
+        String signature = null;
+        int attributeCount = u2();
+        for (int i = 0; i < attributeCount; i++) {
+            String attributeName = utf8(u2());
+            int length = buffer.getInt();
+            int end = buffer.position() + length;
+
+            if (attributeName.equals("Signature")) {
+                signature = utf8(u2());
+            } else if (parameterNames != null && attributeName.equals("MethodParameters")) {
+                int count = buffer.get() & 0xFF;
+                for (int p = 0; p < count; p++) {
+                    int nameIndex = u2();
+                    u2();
+                    parameterNames.add(nameIndex == 0 ? null : utf8(nameIndex));
+                }
+            }
+            buffer.position(end);
+        }
+        return signature;
+    }
+
+    private void readConstantPool() {
+        int count = u2();
+        constantOffsets = new int[count];
+        constantStrings = new String[count];
+
+        for (int i = 1; i < count; i++) {
+            constantOffsets[i] = buffer.position();
+            int tag = buffer.get() & 0xFF;
+            switch (tag) {
+                case CONSTANT_UTF8:
+                    buffer.position(buffer.position() + 2 + u2());
+                    break;
+                case 7: case 8: case 16: case 19: case 20:
+                    // Class, String, MethodType, Module, Package
+                    buffer.position(buffer.position() + 2);
+                    break;
+                case 15:
+                    // MethodHandle
+                    buffer.position(buffer.position() + 3);
+                    break;
+                case 3: case 4: case 9: case 10: case 11: case 12: case 17: case 18:
+                    // Integer, Float, field and method refs, NameAndType, Dynamic, InvokeDynamic
+                    buffer.position(buffer.position() + 4);
+                    break;
+                case CONSTANT_LONG:
+                case CONSTANT_DOUBLE:
+                    // Eight-byte constants take two slots
+                    buffer.position(buffer.position() + 8);
+                    i++;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown constant pool tag " + tag);
+            }
+        }
+    }
+
+    private String className(int index) {
+        // A Class entry points to the Utf8 entry holding its name
+        return utf8(buffer.getShort(constantOffsets[index] + 1) & 0xFFFF);
+    }
+
+    private String utf8(int index) {
+        String value = constantStrings[index];
+        if (value == null) {
+            int offset = constantOffsets[index];
+            if (buffer.get(offset) != CONSTANT_UTF8) {
+                throw new IllegalArgumentException("Constant " + index + " is not a string");
+            }
+            value = decodeModifiedUtf8(offset + 3, buffer.getShort(offset + 1) & 0xFFFF);
+            constantStrings[index] = value;
+        }
+        return value;
+    }
+
+    private String decodeModifiedUtf8(int offset, int length) {
+        char[] chars = new char[length];
+        int count = 0;
+        int end = offset + length;
+        while (offset < end) {
+            int b = buffer.get(offset++) & 0xFF;
+            if (b < 0x80) {
+                chars[count++] = (char) b;
+            } else if ((b & 0xE0) == 0xC0) {
+                chars[count++] = (char) (((b & 0x1F) << 6) | (buffer.get(offset++) & 0x3F));
+            } else {
+                int b2 = buffer.get(offset++) & 0x3F;
+                int b3 = buffer.get(offset++) & 0x3F;
+                chars[count++] = (char) (((b & 0x0F) << 12) | (b2 << 6) | b3);
+            }
+        }
+        return new String(chars, 0, count);
+    }
+
+    private int u2() {
+        return buffer.getShort() & 0xFFFF;
+    }
+
+    /**
+     * Reads field and method descriptors and generic signatures, such as
+     * {@code Ljava/util/List<Lcom/example/Course;>;}, into Java type text.
+     */
+    private static class TypeSignature {
+        private final String text;
+        private int pos;
+
+        TypeSignature(String text) {
+            this.text = text;
+        }
+
+        boolean at(char c) {
+            return pos < text.length() && text.charAt(pos) == c;
+        }
+
+        void expect(char c) {
+            if (!at(c)) {
+                throw new IllegalArgumentException("Malformed signature: " + text);
+            }
+            pos++;
+        }
+
+        /**
+         * Skips the type parameters of a generic method, such as {@code <T:Ljava/lang/Object;>}.
+         */
+        void skipTypeParameters() {
+            if (!at('<')) {
+                return;
+            }
+            pos++;
+            while (!at('>')) {
+                int colon = text.indexOf(':', pos);
+                if (colon < 0) {
+                    throw new IllegalArgumentException("Malformed signature: " + text);
+                }
+                pos = colon;
+                // Class bound, which may be empty, then interface bounds
+                while (at(':')) {
+                    pos++;
+                    if (!at(':') && !at('>')) {
+                        readType(null, null);
+                    }
+                }
+            }
+            pos++;
+        }
+
+        /**
+         * Reads one type.
+         * @param references Receives the class types named, with their multiplicity; may be null
+         * @param multiplicity "1" for a field's own type, "*" inside arrays and type arguments
+         * @return The type as it would be written in Java, with simple class names
+         */
+        String readType(List<String[]> references, String multiplicity) {
+            char c = text.charAt(pos++);
+            switch (c) {
+                case 'B': return "byte";
+                case 'C': return "char";
+                case 'D': return "double";
+                case 'F': return "float";
+                case 'I': return "int";
+                case 'J': return "long";
+                case 'S': return "short";
+                case 'Z': return "boolean";
+                case 'V': return "void";
+                case '[':
+                    return readType(references, "*") + "[]";
+                case 'T': {
+                    int end = text.indexOf(';', pos);
+                    String variable = text.substring(pos, end);
+                    pos = end + 1;
+                    return variable;
+                }
+                case 'L':
+                    return readClassType(references, multiplicity);
+                default:
+                    throw new IllegalArgumentException("Malformed signature: " + text);
+            }
+        }
+
+        private String readClassType(List<String[]> references, String multiplicity) {
+            StringBuilder display = new StringBuilder();
+            StringBuilder qualified = new StringBuilder();
+            int segmentStart = pos;
+
+            while (true) {
+                char c = text.charAt(pos);
+                if (c == ';' || c == '<' || c == '.') {
+                    String segment = text.substring(segmentStart, pos);
+                    if (qualified.length() > 0) {
+                        qualified.append('.');
+                    }
+                    qualified.append(segment.replace('/', '.').replace('$', '.'));
+                    if (display.length() > 0) {
+                        display.append('.');
+                    }
+                    display.append(segment.substring(segment.lastIndexOf('/') + 1).replace('$', '.'));
+
+                    if (c == '<') {
+                        pos++;
+                        display.append('<');
+                        boolean first = true;
+                        while (!at('>')) {
+                            if (!first) {
+                                display.append(", ");
+                            }
+                            first = false;
+                            display.append(readTypeArgument(references));
+                        }
+                        pos++;
+                        display.append('>');
+                        c = text.charAt(pos);
+                    }
+                    pos++;
+                    if (c == ';') {
+                        break;
+                    }
+                    // An inner class of a parameterized type: Outer<T>.Inner
+                    segmentStart = pos;
+                } else {
+                    pos++;
+                }
+            }
+
+            if (references != null) {
+                references.add(new String[]{qualified.toString(), multiplicity});
+            }
+            return display.toString();
+        }
+
+        private String readTypeArgument(List<String[]> references) {
+            char c = text.charAt(pos);
+            if (c == '*') {
+                pos++;
+                return "?";
+            }
+            if (c == '+') {
+                pos++;
+                return "? extends " + readType(references, "*");
+            }
+            if (c == '-') {
+                pos++;
+                return "? super " + readType(references, "*");
+            }
+            return readType(references, "*");
+        }
+    }
+}
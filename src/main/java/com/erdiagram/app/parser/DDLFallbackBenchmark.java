@@ -0,0 +1,157 @@
+package com.erdiagram.app.parser;
+
+import com.erdiagram.app.model.Attribute;
+import com.erdiagram.app.model.Entity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the fallback CREATE TABLE parser with the regular expressions it
+ * replaced on the statements of a generated MySQL dump.
+ *
+ * Both parsers are called directly, without trying JSqlParser first, and each
+ * one parses every statement a few times after warming up. The median and best
+ * times are printed along with the speedup over the regular expressions and
+ * the number of columns each one found per table. Run it with
+ * {@code mvn javafx:run -Djavafx.mainClass=com.erdiagram.app.parser.DDLFallbackBenchmark};
+ * the number of tables, 5000 by default, can be given as the first argument.
+ */
+public class DDLFallbackBenchmark {
+    private static final int DEFAULT_TABLE_COUNT = 5000;
+    private static final int COLUMN_COUNT = 20;
+    // Each run is short, so it takes a few more of them to compile the parsers fully
+    private static final int WARMUP_RUNS = 10;
+    private static final int MEASURED_RUNS = 5;
+
+    public static void main(String[] args) {
+        int tableCount = args.length == 0 ? DEFAULT_TABLE_COUNT : Integer.parseInt(args[0]);
+        List<String> statements = generateStatements(tableCount);
+
+        System.out.printf("%d tables with %d columns each%n", tableCount, COLUMN_COUNT + 1);
+        System.out.printf("%-20s %12s %12s %10s %10s%n", "parser", "median ms", "best ms", "speedup", "columns");
+
+        DDLFallbackParser fallbackParser = new DDLFallbackParser();
+        double regexMedian = run("regular expressions", statements, (sql, index) -> parseWithRegex(sql), 0);
+        run("DDLFallbackParser", statements, fallbackParser::parse, regexMedian);
+    }
+
+    private static double run(String name, List<String> statements,
+                              BiFunction<String, Integer, ParsedTable> parser, double baseline) {
+        long[] times = new long[MEASURED_RUNS];
+        int columns = 0;
+        for (int run = -WARMUP_RUNS; run < MEASURED_RUNS; run++) {
+            columns = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < statements.size(); i++) {
+                columns += parser.apply(statements.get(i), i + 1).entity.getAttributes().size();
+            }
+            long time = System.nanoTime() - start;
+            if (run >= 0) {
+                times[run] = time;
+            }
+        }
+
+        Arrays.sort(times);
+        double median = times[MEASURED_RUNS / 2] / 1e6;
+        System.out.printf("%-20s %12.1f %12.1f %9.2fx %10d%n", name, median, times[0] / 1e6,
+                baseline == 0 ? 1 : baseline / median, columns / statements.size());
+        return median;
+    }
+
+    /**
+     * Generates mysqldump-style tables with an id, varchar columns, a key and
+     * a named foreign key to the previous table.
+     */
+    private static List<String> generateStatements(int tableCount) {
+        List<String> statements = new ArrayList<>(tableCount);
+        for (int i = 0; i < tableCount; i++) {
+            StringBuilder sql = new StringBuilder("CREATE TABLE `t").append(i).append("` (\n")
+                    .append("  `id` int(11) NOT NULL AUTO_INCREMENT,\n");
+            for (int j = 0; j < COLUMN_COUNT; j++) {
+                sql.append("  `c").append(j).append("` varchar(255) COLLATE utf8mb4_bin DEFAULT NULL,\n");
+            }
+            sql.append("  PRIMARY KEY (`id`),\n")
+                    .append("  KEY `k_c1` (`c1`),\n")
+                    .append("  CONSTRAINT `fk_t").append(i).append("` FOREIGN KEY (`c1`) REFERENCES `t")
+                    .append(Math.max(0, i - 1)).append("` (`id`)\n")
+                    .append(") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+            statements.add(sql.toString());
+        }
+        return statements;
+    }
+
+    /**
+     * The regular expression fallback that SQLParser used before
+     * DDLFallbackParser, including compiling its patterns on every call.
+     */
+    private static ParsedTable parseWithRegex(String createTableSql) {
+        Pattern tablePattern = Pattern.compile("CREATE\\s+TABLE\\s+(?:`|\")?([\\w_]+)(?:`|\")?",
+                Pattern.CASE_INSENSITIVE);
+        Matcher tableMatcher = tablePattern.matcher(createTableSql);
+        if (!tableMatcher.find()) {
+            return null;
+        }
+
+        String tableName = tableMatcher.group(1);
+        Entity entity = new Entity(tableName);
+        ParsedTable result = new ParsedTable(entity);
+
+        Pattern columnPattern = Pattern.compile("([\\w_]+)\\s+([\\w\\s()\\d,]+)(?:\\s+(?:NOT\\s+NULL|PRIMARY\\s+KEY))*",
+                Pattern.CASE_INSENSITIVE);
+        Matcher columnMatcher = columnPattern.matcher(createTableSql);
+        while (columnMatcher.find()) {
+            Attribute attribute = new Attribute(columnMatcher.group(1), columnMatcher.group(2).trim());
+            if (columnMatcher.group().toUpperCase().contains("NOT NULL")) {
+                attribute.setNullable(false);
+            }
+            if (columnMatcher.group().toUpperCase().contains("PRIMARY KEY")) {
+                attribute.setPrimaryKey(true);
+                attribute.setNullable(false);
+            }
+            entity.addAttribute(attribute);
+        }
+
+        Pattern primaryKeyPattern = Pattern.compile("PRIMARY\\s+KEY\\s+\\(([^)]+)\\)", Pattern.CASE_INSENSITIVE);
+        Matcher primaryKeyMatcher = primaryKeyPattern.matcher(createTableSql);
+        if (primaryKeyMatcher.find()) {
+            for (String primaryKey : primaryKeyMatcher.group(1).split(",")) {
+                String pkColumn = primaryKey.trim().replaceAll("[`\"']", "");
+                for (Attribute attr : entity.getAttributes()) {
+                    if (attr.getName().equalsIgnoreCase(pkColumn)) {
+                        attr.setPrimaryKey(true);
+                        attr.setNullable(false);
+                    }
+                }
+            }
+        }
+
+        Pattern foreignKeyPattern = Pattern.compile(
+                "FOREIGN\\s+KEY\\s+\\(([^)]+)\\)\\s+REFERENCES\\s+([\\w_]+)\\s*(?:\\(([^)]+)\\))?",
+                Pattern.CASE_INSENSITIVE);
+        Matcher foreignKeyMatcher = foreignKeyPattern.matcher(createTableSql);
+        while (foreignKeyMatcher.find()) {
+            String[] fkColumns = foreignKeyMatcher.group(1).split(",");
+            String refTable = foreignKeyMatcher.group(2).trim().replaceAll("[`\"']", "");
+            String[] refColumns = foreignKeyMatcher.group(3) != null
+                    ? foreignKeyMatcher.group(3).split(",") : new String[0];
+            for (int i = 0; i < fkColumns.length; i++) {
+                String fkColumn = fkColumns[i].trim().replaceAll("[`\"']", "");
+                String refColumn = i < refColumns.length ? refColumns[i].trim().replaceAll("[`\"']", "") : null;
+                result.foreignKeys.add(new ForeignKeyInfo(tableName, fkColumn, refTable, refColumn));
+                for (Attribute attr : entity.getAttributes()) {
+                    if (attr.getName().equalsIgnoreCase(fkColumn)) {
+                        attr.setForeignKey(true);
+                        attr.setReferencedTable(refTable);
+                        attr.setReferencedColumn(refColumn);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+}
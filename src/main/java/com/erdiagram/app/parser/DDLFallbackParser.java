@@ -0,0 +1,674 @@
+package com.erdiagram.app.parser;
+
+import com.erdiagram.app.model.Attribute;
+import com.erdiagram.app.model.Entity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hand-written parser for CREATE TABLE statements that JSqlParser rejects, and
+ * for ALTER TABLE and DROP TABLE statements.
+ *
+ * It walks the statement once with {@link SQLTokenizer}, tolerates vendor
+ * extensions (table options, partitions, generated columns, index clauses) by
+ * skipping what it does not understand, and never throws. Anything that could
+ * not be mapped onto the model is reported as a {@link SQLDiagnostic}.
+ */
+class DDLFallbackParser {
+    private static final String[] TABLE_MODIFIERS = {
+            "OR", "REPLACE", "TEMPORARY", "TEMP", "GLOBAL", "LOCAL", "UNLOGGED", "EXTERNAL", "TRANSIENT"};
+
+    private static final String[] INDEX_KEYWORDS = {
+            "KEY", "INDEX", "UNIQUE", "CHECK", "FULLTEXT", "SPATIAL", "EXCLUDE", "LIKE", "PERIOD"};
+
+    // Keywords that end a column's data type wherever they appear
+    private static final String[] COLUMN_CONSTRAINT_KEYWORDS = {
+            "NOT", "NULL", "PRIMARY", "DEFAULT", "REFERENCES", "UNIQUE", "CHECK", "CONSTRAINT", "GENERATED",
+            "AUTO_INCREMENT", "AUTOINCREMENT", "COLLATE", "COMMENT", "IDENTITY"};
+
+    // Keywords that end a data type only after its first word ("CHARACTER VARYING" is a type)
+    private static final String[] TRAILING_TYPE_KEYWORDS = {"CHARACTER", "CHARSET", "ON", "AS"};
+
+    private volatile boolean backslashEscapes;
+
+    /**
+     * Sets whether backslashes escape characters in every string, as in MySQL.
+     * Off by default; {@code E'...'} strings always use them.
+     */
+    void setBackslashEscapes(boolean backslashEscapes) {
+        this.backslashEscapes = backslashEscapes;
+    }
+
+    /**
+     * Parses a CREATE TABLE statement.
+     *
+     * @param sql The statement text, without the terminating semicolon
+     * @param statementIndex The 1-based position of the statement, used in diagnostics
+     * @return The parsed table, or null if the statement is not a CREATE TABLE
+     */
+    ParsedTable parse(String sql, int statementIndex) {
+        return parse(sql, statementIndex, false);
+    }
+
+    /**
+     * Parses only the name and key constraints of a CREATE TABLE statement.
+     * The entity holds just the key columns, without data types; other columns
+     * are skipped without building anything for them.
+     *
+     * @param sql The statement text, without the terminating semicolon
+     * @param statementIndex The 1-based position of the statement, used in diagnostics
+     * @return The table skeleton, or null if the statement is not a CREATE TABLE
+     */
+    ParsedTable parseSkeleton(String sql, int statementIndex) {
+        return parse(sql, statementIndex, true);
+    }
+
+    private ParsedTable parse(String sql, int statementIndex, boolean skeleton) {
+        SQLTokenizer t = new SQLTokenizer(sql, backslashEscapes);
+        t.next();
+
+        if (!t.isWord("CREATE")) {
+            return null;
+        }
+
+        t.next();
+        while (t.isAnyWord(TABLE_MODIFIERS)) {
+            t.next();
+        }
+        if (!t.isWord("TABLE")) {
+            return null;
+        }
+        t.next();
+
+        skipIfExists(t, true);
+
+        String tableName = readQualifiedName(t);
+        if (tableName == null) {
+            ParsedTable result = new ParsedTable(null);
+            result.diagnostics.add(new SQLDiagnostic(statementIndex, null, SQLDiagnostic.Severity.ERROR,
+                    "CREATE TABLE statement has no table name"));
+            return result;
+        }
+
+        Entity entity = new Entity(tableName);
+        ParsedTable result = new ParsedTable(entity);
+
+        if (!t.isSymbol('(')) {
+            result.diagnostics.add(new SQLDiagnostic(statementIndex, tableName, SQLDiagnostic.Severity.WARNING,
+                    "No column list found; the table is shown without columns"));
+            return result;
+        }
+        t.next();
+
+        TableConstraints constraints = new TableConstraints();
+
+        while (!t.isEOF() && !t.isSymbol(')')) {
+            parseTableElement(t, result, constraints, statementIndex, skeleton);
+            if (t.isSymbol(',')) {
+                t.next();
+            }
+        }
+
+        if (t.isEOF()) {
+            result.diagnostics.add(new SQLDiagnostic(statementIndex, tableName, SQLDiagnostic.Severity.WARNING,
+                    "Column list is not terminated; the statement may be truncated"));
+        }
+
+        if (skeleton) {
+            addKeyColumns(entity, constraints);
+        }
+        applyConstraints(result, constraints, statementIndex);
+
+        return result;
+    }
+
+    private void parseTableElement(SQLTokenizer t, ParsedTable result, TableConstraints constraints,
+                                   int statementIndex, boolean skeleton) {
+        String constraintName = null;
+        if (t.isWord("CONSTRAINT")) {
+            t.next();
+            if (t.isIdentifier() && !t.isWord("PRIMARY") && !t.isWord("FOREIGN")
+                    && !t.isAnyWord(INDEX_KEYWORDS)) {
+                constraintName = t.text();
+                t.next();
+            }
+        }
+
+        if (t.isWord("PRIMARY")) {
+            t.next();
+            skipUntilGroup(t);
+            constraints.primaryKeys.addAll(readColumnList(t));
+        } else if (t.isWord("FOREIGN")) {
+            t.next();
+            parseForeignKey(t, result, constraintName, constraints.foreignKeys, statementIndex);
+        } else if (t.isAnyWord(INDEX_KEYWORDS)) {
+            // Indexes, checks and other table-level clauses do not affect the diagram
+        } else if (t.isIdentifier() && skeleton) {
+            skimColumn(t, result.entity.getName(), constraints);
+        } else if (t.isIdentifier()) {
+            result.entity.addAttribute(parseColumn(t, result.entity.getName(), constraints));
+        } else {
+            result.diagnostics.add(new SQLDiagnostic(statementIndex, result.entity.getName(),
+                    SQLDiagnostic.Severity.WARNING, "Skipped unexpected token '" + t.text() + "' in column list"));
+        }
+
+        skipToElementEnd(t);
+    }
+
+    /**
+     * Parses the remainder of a {@code FOREIGN KEY (cols) REFERENCES table (cols)}
+     * clause, starting after the {@code FOREIGN} keyword.
+     */
+    private void parseForeignKey(SQLTokenizer t, ParsedTable result, String constraintName,
+                                 List<ForeignKeyInfo> foreignKeys, int statementIndex) {
+        String tableName = result.getTableName();
+        skipUntilGroup(t);
+        List<String> columns = readColumnList(t);
+
+        if (!t.isWord("REFERENCES")) {
+            result.diagnostics.add(new SQLDiagnostic(statementIndex, tableName,
+                    SQLDiagnostic.Severity.WARNING, "FOREIGN KEY without a REFERENCES clause is ignored"));
+            return;
+        }
+
+        t.next();
+        String refTable = readQualifiedName(t);
+        if (refTable == null) {
+            result.diagnostics.add(new SQLDiagnostic(statementIndex, tableName,
+                    SQLDiagnostic.Severity.WARNING, "FOREIGN KEY without a referenced table is ignored"));
+            return;
+        }
+        List<String> refColumns = t.isSymbol('(') ? readColumnList(t) : new ArrayList<>();
+
+        for (int i = 0; i < columns.size(); i++) {
+            String refColumn = (i < refColumns.size()) ? refColumns.get(i) : null;
+            foreignKeys.add(new ForeignKeyInfo(tableName, columns.get(i), refTable, refColumn, constraintName));
+        }
+    }
+
+    private Attribute parseColumn(SQLTokenizer t, String tableName, TableConstraints constraints) {
+        String columnName = t.text();
+        t.next();
+
+        // Data type: everything up to the first column constraint
+        StringBuilder dataType = new StringBuilder();
+        while (!t.isEOF() && !t.isSymbol(',') && !t.isSymbol(')')) {
+            if (t.isAnyWord(COLUMN_CONSTRAINT_KEYWORDS)
+                    || (dataType.length() > 0 && t.isAnyWord(TRAILING_TYPE_KEYWORDS))) {
+                break;
+            }
+
+            if (t.isSymbol('(') || isArrayBracket(t)) {
+                appendGroup(t, dataType);
+            } else {
+                if (dataType.length() > 0) {
+                    dataType.append(' ');
+                }
+                dataType.append(t.text());
+                t.next();
+            }
+        }
+
+        Attribute attribute = new Attribute(columnName, dataType.toString());
+
+        // Column constraints
+        while (!t.isEOF() && !t.isSymbol(',') && !t.isSymbol(')')) {
+            if (t.isWord("NOT")) {
+                t.next();
+                if (t.isWord("NULL")) {
+                    attribute.setNullable(false);
+                    t.next();
+                }
+            } else if (t.isWord("PRIMARY")) {
+                t.next();
+                if (t.isWord("KEY")) {
+                    constraints.primaryKeys.add(columnName);
+                    t.next();
+                }
+            } else if (t.isWord("REFERENCES")) {
+                t.next();
+                String refTable = readQualifiedName(t);
+                String refColumn = null;
+                if (t.isSymbol('(')) {
+                    List<String> refColumns = readColumnList(t);
+                    refColumn = refColumns.isEmpty() ? null : refColumns.get(0);
+                }
+                if (refTable != null) {
+                    constraints.foreignKeys.add(new ForeignKeyInfo(tableName, columnName, refTable, refColumn));
+                }
+            } else if (t.isSymbol('(')) {
+                skipGroup(t);
+            } else {
+                t.next();
+            }
+        }
+
+        return attribute;
+    }
+
+    /**
+     * Records the inline key constraints of a column definition and skips the rest of it.
+     */
+    private void skimColumn(SQLTokenizer t, String tableName, TableConstraints constraints) {
+        String columnName = t.text();
+        t.next();
+
+        while (!t.isEOF() && !t.isSymbol(',') && !t.isSymbol(')')) {
+            if (t.isWord("PRIMARY")) {
+                t.next();
+                if (t.isWord("KEY")) {
+                    constraints.primaryKeys.add(columnName);
+                    t.next();
+                }
+            } else if (t.isWord("REFERENCES")) {
+                t.next();
+                String refTable = readQualifiedName(t);
+                String refColumn = null;
+                if (t.isSymbol('(')) {
+                    List<String> refColumns = readColumnList(t);
+                    refColumn = refColumns.isEmpty() ? null : refColumns.get(0);
+                }
+                if (refTable != null) {
+                    constraints.foreignKeys.add(new ForeignKeyInfo(tableName, columnName, refTable, refColumn));
+                }
+            } else if (t.isSymbol('(')) {
+                skipGroup(t);
+            } else {
+                t.next();
+            }
+        }
+    }
+
+    /**
+     * Adds the columns named by the key constraints to a skeleton entity.
+     */
+    private static void addKeyColumns(Entity entity, TableConstraints constraints) {
+        for (String pkColumn : constraints.primaryKeys) {
+            if (entity.getAttribute(pkColumn) == null) {
+                entity.addAttribute(new Attribute(pkColumn, ""));
+            }
+        }
+        for (ForeignKeyInfo fkInfo : constraints.foreignKeys) {
+            if (entity.getAttribute(fkInfo.column) == null) {
+                entity.addAttribute(new Attribute(fkInfo.column, ""));
+            }
+        }
+    }
+
+    /**
+     * Parses an ALTER TABLE statement. Added keys and columns, dropped columns and
+     * constraints, and renames are collected; other actions are skipped.
+     *
+     * @param sql The statement text, without the terminating semicolon
+     * @param statementIndex The 1-based position of the statement, used in diagnostics
+     * @return The alteration, or null if the statement is not an ALTER TABLE
+     */
+    ParsedTable parseAlterTable(String sql, int statementIndex) {
+        SQLTokenizer t = new SQLTokenizer(sql, backslashEscapes);
+        t.next();
+
+        if (!t.isWord("ALTER")) {
+            return null;
+        }
+        t.next();
+        if (!t.isWord("TABLE")) {
+            return null;
+        }
+        t.next();
+
+        skipIfExists(t, false);
+        if (t.isWord("ONLY")) {
+            t.next();
+        }
+
+        String tableName = readQualifiedName(t);
+        ParsedTable result = ParsedTable.alteration(tableName);
+        if (tableName == null) {
+            result.diagnostics.add(new SQLDiagnostic(statementIndex, null, SQLDiagnostic.Severity.ERROR,
+                    "ALTER TABLE statement has no table name"));
+            return result;
+        }
+
+        while (!t.isEOF()) {
+            parseAlterAction(t, result, statementIndex);
+            skipToActionEnd(t);
+            if (t.isSymbol(',')) {
+                t.next();
+            }
+        }
+
+        return result;
+    }
+
+    private void parseAlterAction(SQLTokenizer t, ParsedTable result, int statementIndex) {
+        // SQL Server: ALTER TABLE t WITH CHECK ADD CONSTRAINT ...
+        if (t.isWord("WITH")) {
+            t.next();
+            t.next();
+        }
+
+        if (t.isWord("ADD")) {
+            t.next();
+            parseAddAction(t, result, statementIndex);
+        } else if (t.isWord("DROP")) {
+            t.next();
+            parseDropAction(t, result);
+        } else if (t.isWord("RENAME")) {
+            t.next();
+            parseRenameAction(t, result);
+        }
+    }
+
+    private void parseAddAction(SQLTokenizer t, ParsedTable result, int statementIndex) {
+        String constraintName = null;
+        if (t.isWord("CONSTRAINT")) {
+            t.next();
+            if (t.isIdentifier() && !t.isWord("PRIMARY") && !t.isWord("FOREIGN")) {
+                constraintName = t.text();
+                t.next();
+            }
+        }
+
+        if (t.isWord("PRIMARY")) {
+            t.next();
+            skipUntilGroup(t);
+            result.primaryKeyColumns.addAll(readColumnList(t));
+        } else if (t.isWord("FOREIGN")) {
+            t.next();
+            parseForeignKey(t, result, constraintName, result.foreignKeys, statementIndex);
+        } else if (constraintName == null && !t.isAnyWord(INDEX_KEYWORDS) && !t.isWord("CONSTRAINT")) {
+            if (t.isWord("COLUMN")) {
+                t.next();
+            }
+            skipIfExists(t, true);
+            if (t.isIdentifier()) {
+                TableConstraints constraints = new TableConstraints();
+                result.addedColumns.add(parseColumn(t, result.alteredTable, constraints));
+                result.primaryKeyColumns.addAll(constraints.primaryKeys);
+                result.foreignKeys.addAll(constraints.foreignKeys);
+            }
+        }
+    }
+
+    private void parseDropAction(SQLTokenizer t, ParsedTable result) {
+        if (t.isWord("CONSTRAINT") || t.isWord("FOREIGN")) {
+            // MySQL: DROP FOREIGN KEY name
+            t.next();
+            if (t.isWord("KEY")) {
+                t.next();
+            }
+            skipIfExists(t, false);
+            if (t.isIdentifier()) {
+                result.droppedConstraints.add(t.text());
+                t.next();
+            }
+        } else if (t.isAnyWord(INDEX_KEYWORDS) || t.isWord("PRIMARY")) {
+            // Indexes do not affect the diagram
+        } else {
+            if (t.isWord("COLUMN")) {
+                t.next();
+            }
+            skipIfExists(t, false);
+            if (t.isIdentifier()) {
+                result.droppedColumns.add(t.text());
+                t.next();
+            }
+        }
+    }
+
+    private void parseRenameAction(SQLTokenizer t, ParsedTable result) {
+        if (t.isWord("TO") || t.isWord("AS")) {
+            t.next();
+            result.renamedTo = readQualifiedName(t);
+            return;
+        }
+
+        if (t.isWord("CONSTRAINT") || t.isAnyWord(INDEX_KEYWORDS)) {
+            return;
+        }
+        if (t.isWord("COLUMN")) {
+            t.next();
+        }
+        if (!t.isIdentifier()) {
+            return;
+        }
+
+        String oldName = t.text();
+        t.next();
+        if (t.isWord("TO")) {
+            t.next();
+            if (t.isIdentifier()) {
+                result.renamedColumns.put(oldName, t.text());
+                t.next();
+            }
+        }
+    }
+
+    /**
+     * Parses a DROP TABLE statement and collects the names of the dropped tables.
+     *
+     * @param sql The statement text, without the terminating semicolon
+     * @return The drop, or null if the statement is not a DROP TABLE
+     */
+    ParsedTable parseDropTable(String sql) {
+        SQLTokenizer t = new SQLTokenizer(sql, backslashEscapes);
+        t.next();
+
+        if (!t.isWord("DROP")) {
+            return null;
+        }
+        t.next();
+        while (t.isWord("TEMPORARY")) {
+            t.next();
+        }
+        if (!t.isWord("TABLE")) {
+            return null;
+        }
+        t.next();
+        skipIfExists(t, false);
+
+        ParsedTable result = ParsedTable.alteration(null);
+        while (t.isIdentifier()) {
+            result.droppedTables.add(readQualifiedName(t));
+            if (!t.isSymbol(',')) {
+                break;
+            }
+            t.next();
+        }
+        return result;
+    }
+
+    /**
+     * Skips an {@code IF EXISTS} or, when {@code notExists} is set, an
+     * {@code IF NOT EXISTS} clause.
+     */
+    private static void skipIfExists(SQLTokenizer t, boolean notExists) {
+        if (!t.isWord("IF")) {
+            return;
+        }
+        t.next();
+        if (notExists && t.isWord("NOT")) {
+            t.next();
+        }
+        if (t.isWord("EXISTS")) {
+            t.next();
+        }
+    }
+
+    /**
+     * Marks key columns once every column of the table is known, so constraints
+     * may appear before the columns they refer to.
+     */
+    private void applyConstraints(ParsedTable result, TableConstraints constraints, int statementIndex) {
+        Entity entity = result.entity;
+
+        for (String pkColumn : constraints.primaryKeys) {
+            Attribute attr = entity.getAttribute(pkColumn);
+            if (attr == null) {
+                result.diagnostics.add(new SQLDiagnostic(statementIndex, entity.getName(),
+                        SQLDiagnostic.Severity.WARNING, "PRIMARY KEY refers to unknown column " + pkColumn));
+                continue;
+            }
+            attr.setPrimaryKey(true);
+            attr.setNullable(false);
+        }
+
+        for (ForeignKeyInfo fkInfo : constraints.foreignKeys) {
+            Attribute attr = entity.getAttribute(fkInfo.column);
+            if (attr == null) {
+                result.diagnostics.add(new SQLDiagnostic(statementIndex, entity.getName(),
+                        SQLDiagnostic.Severity.WARNING, "FOREIGN KEY refers to unknown column " + fkInfo.column));
+            } else {
+                attr.setForeignKey(true);
+                attr.setReferencedTable(fkInfo.refTable);
+                attr.setReferencedColumn(fkInfo.refColumn);
+            }
+            result.foreignKeys.add(fkInfo);
+        }
+    }
+
+    /**
+     * Reads a possibly schema-qualified name and returns its last part.
+     */
+    static String readQualifiedName(SQLTokenizer t) {
+        if (!t.isIdentifier()) {
+            return null;
+        }
+
+        String name = t.text();
+        t.next();
+
+        while (t.isSymbol('.')) {
+            t.next();
+            if (!t.isIdentifier()) {
+                break;
+            }
+            name = t.text();
+            t.next();
+        }
+        return name;
+    }
+
+    /**
+     * Reads a parenthesised column list such as {@code (a, b(10) DESC)} and
+     * returns the column names. The tokenizer is left after the closing parenthesis.
+     */
+    static List<String> readColumnList(SQLTokenizer t) {
+        List<String> columns = new ArrayList<>();
+        if (!t.isSymbol('(')) {
+            return columns;
+        }
+        t.next();
+
+        boolean expectName = true;
+        while (!t.isEOF() && !t.isSymbol(')')) {
+            if (t.isSymbol(',')) {
+                expectName = true;
+                t.next();
+            } else if (t.isSymbol('(')) {
+                skipGroup(t);
+            } else {
+                if (expectName && t.isIdentifier()) {
+                    columns.add(t.text());
+                }
+                expectName = false;
+                t.next();
+            }
+        }
+
+        if (t.isSymbol(')')) {
+            t.next();
+        }
+        return columns;
+    }
+
+    /**
+     * Skips a balanced parenthesised group, leaving the tokenizer after it.
+     */
+    static void skipGroup(SQLTokenizer t) {
+        int depth = 0;
+        do {
+            if (t.isSymbol('(')) {
+                depth++;
+            } else if (t.isSymbol(')')) {
+                depth--;
+            }
+            t.next();
+        } while (depth > 0 && !t.isEOF());
+    }
+
+    /**
+     * Skips optional words such as {@code KEY}, an index name or {@code USING BTREE}
+     * up to the column list of a key clause.
+     */
+    private static void skipUntilGroup(SQLTokenizer t) {
+        while (!t.isEOF() && !t.isSymbol('(') && !t.isSymbol(',') && !t.isSymbol(')')) {
+            t.next();
+        }
+    }
+
+    /**
+     * Skips to the comma or closing parenthesis that ends the current table element.
+     */
+    private static void skipToElementEnd(SQLTokenizer t) {
+        while (!t.isEOF() && !t.isSymbol(',') && !t.isSymbol(')')) {
+            if (t.isSymbol('(')) {
+                skipGroup(t);
+            } else {
+                t.next();
+            }
+        }
+    }
+
+    /**
+     * Skips to the comma that ends the current ALTER TABLE action.
+     */
+    private static void skipToActionEnd(SQLTokenizer t) {
+        while (!t.isEOF() && !t.isSymbol(',')) {
+            if (t.isSymbol('(')) {
+                skipGroup(t);
+            } else {
+                t.next();
+            }
+        }
+    }
+
+    private static boolean isArrayBracket(SQLTokenizer t) {
+        // "[]" is read as an empty bracket-quoted identifier
+        return t.type() == SQLTokenizer.QUOTED && t.source().charAt(t.tokenStart()) == '[';
+    }
+
+    /**
+     * Appends a parenthesised or bracketed group verbatim without inner whitespace,
+     * e.g. {@code DECIMAL(10, 2)} becomes {@code DECIMAL(10,2)}.
+     */
+    private static void appendGroup(SQLTokenizer t, StringBuilder out) {
+        String source = t.source();
+
+        if (isArrayBracket(t)) {
+            out.append(source, t.tokenStart(), t.tokenEnd());
+            t.next();
+            return;
+        }
+
+        int depth = 0;
+        do {
+            if (t.isSymbol('(')) {
+                depth++;
+            } else if (t.isSymbol(')')) {
+                depth--;
+            }
+            out.append(source, t.tokenStart(), t.tokenEnd());
+            t.next();
+        } while (depth > 0 && !t.isEOF());
+    }
+
+    /**
+     * Key constraints collected while walking the column list.
+     */
+    private static class TableConstraints {
+        final List<String> primaryKeys = new ArrayList<>();
+        final List<ForeignKeyInfo> foreignKeys = new ArrayList<>();
+    }
+}
@@ -0,0 +1,530 @@
+package com.erdiagram.app.parser;
+
+import com.erdiagram.app.model.Attribute;
+import com.erdiagram.app.model.ERDiagram;
+import com.erdiagram.app.model.Entity;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Builds an ER diagram from the metadata of a live database instead of a DDL script.
+ *
+ * Tables, columns, primary keys and imported (foreign) keys are read through
+ * {@link DatabaseMetaData}, so any JDBC driver on the classpath works. Columns
+ * are fetched with one catalog query per schema. Keys are fetched the same way
+ * on databases whose drivers accept a null table name, and otherwise table by
+ * table in batches spread over a small pool of connections.
+ */
+public class DatabaseSchemaReader {
+    private static final int KEY_BATCH_SIZE = 64;
+
+    // Drivers known to return the keys of every table in a schema when the table name is null
+    private static final Set<String> BULK_KEY_PRODUCTS = new HashSet<>(Collections.singletonList("PostgreSQL"));
+
+    private static final Set<String> TABLE_TYPES = new HashSet<>(Arrays.asList("TABLE", "BASE TABLE"));
+
+    // Catalog and schema names of the database's own tables, read only when asked for by name
+    private static final Set<String> SYSTEM_SCHEMAS = new HashSet<>(Arrays.asList(
+            "INFORMATION_SCHEMA", "PG_CATALOG", "PG_TOAST", "MYSQL", "PERFORMANCE_SCHEMA", "SYS"));
+
+    /**
+     * Opens connections to the database being read.
+     */
+    public interface ConnectionFactory {
+        Connection open() throws SQLException;
+    }
+
+    private final ConnectionFactory connectionFactory;
+    private final SQLParser sqlParser = new SQLParser();
+    private int poolSize = 4;
+    private IntConsumer progressListener;
+    private List<SQLDiagnostic> diagnostics = new ArrayList<>();
+
+    public DatabaseSchemaReader(ConnectionFactory connectionFactory) {
+        this.connectionFactory = connectionFactory;
+    }
+
+    /**
+     * Reads through {@link DriverManager}, for example {@code jdbc:h2:mem:test}.
+     */
+    public DatabaseSchemaReader(String url, String user, String password) {
+        this(() -> DriverManager.getConnection(url, user, password));
+    }
+
+    /**
+     * Sets the number of connections used to fetch metadata in parallel.
+     * @param poolSize The number of connections, at least 1
+     */
+    public void setPoolSize(int poolSize) {
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1: " + poolSize);
+        }
+        this.poolSize = poolSize;
+    }
+
+    /**
+     * Sets a listener that receives the number of tables whose keys have been read.
+     * It may be called from the pool threads.
+     * @param progressListener The listener, or null for none
+     */
+    public void setProgressListener(IntConsumer progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Reads all tables visible to the connection.
+     */
+    public ERDiagram read() throws SQLException {
+        return read(null, null);
+    }
+
+    /**
+     * Reads the tables of the matching schemas.
+     *
+     * Table names are qualified with their schema when the tables come from
+     * more than one schema. System schemas such as INFORMATION_SCHEMA and
+     * pg_catalog are skipped unless the catalog or schema pattern names them.
+     *
+     * @param catalog The catalog, or null for all
+     * @param schemaPattern A schema name pattern as used by {@link DatabaseMetaData}, or null for all
+     * @return The constructed ERDiagram
+     * @throws SQLException If the metadata cannot be read
+     * @throws CancellationException If the calling thread is interrupted
+     */
+    public ERDiagram read(String catalog, String schemaPattern) throws SQLException {
+        diagnostics = new ArrayList<>();
+        // Every connection is closed at the end, including any still borrowed by a cancelled task
+        List<Connection> opened = new ArrayList<>();
+        BlockingQueue<Connection> pool = new ArrayBlockingQueue<>(poolSize);
+        ExecutorService executor = null;
+
+        try {
+            Connection first = connectionFactory.open();
+            opened.add(first);
+            pool.add(first);
+            DatabaseMetaData meta = first.getMetaData();
+
+            Map<String, TableInfo> tables = listTables(meta, catalog, schemaPattern);
+            Map<Schema, List<TableInfo>> schemas = new LinkedHashMap<>();
+            for (TableInfo table : tables.values()) {
+                schemas.computeIfAbsent(table.schema, k -> new ArrayList<>()).add(table);
+            }
+
+            boolean bulkKeys = BULK_KEY_PRODUCTS.contains(meta.getDatabaseProductName());
+            String escape = meta.getSearchStringEscape();
+
+            int connections = Math.min(poolSize, Math.max(1, tables.size() / KEY_BATCH_SIZE + schemas.size()));
+            for (int i = 1; i < connections; i++) {
+                Connection connection = connectionFactory.open();
+                opened.add(connection);
+                pool.add(connection);
+            }
+            executor = Executors.newFixedThreadPool(connections, runnable -> {
+                Thread thread = new Thread(runnable, "schema-reader");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+            AtomicInteger tablesRead = new AtomicInteger();
+            List<Future<?>> pending = new ArrayList<>();
+
+            for (Map.Entry<Schema, List<TableInfo>> entry : schemas.entrySet()) {
+                Schema schema = entry.getKey();
+                pending.add(executor.submit(withConnection(pool,
+                        connection -> readColumns(connection.getMetaData(), schema, escape, tables))));
+
+                if (bulkKeys) {
+                    pending.add(executor.submit(withConnection(pool, connection -> {
+                        checkInterrupted();
+                        readKeys(connection.getMetaData(), schema, null, tables);
+                        reportProgress(tablesRead.addAndGet(entry.getValue().size()));
+                    })));
+                    continue;
+                }
+
+                List<TableInfo> schemaTables = entry.getValue();
+                for (int start = 0; start < schemaTables.size(); start += KEY_BATCH_SIZE) {
+                    List<TableInfo> batch = schemaTables.subList(
+                            start, Math.min(schemaTables.size(), start + KEY_BATCH_SIZE));
+                    pending.add(executor.submit(withConnection(pool, connection -> {
+                        DatabaseMetaData batchMeta = connection.getMetaData();
+                        for (TableInfo table : batch) {
+                            checkInterrupted();
+                            readKeys(batchMeta, schema, table.name, tables);
+                            reportProgress(tablesRead.incrementAndGet());
+                        }
+                    })));
+                }
+            }
+
+            for (Future<?> future : pending) {
+                await(future);
+            }
+
+            return buildDiagram(tables.values(), schemas.size() > 1);
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+            closeAll(opened);
+        }
+    }
+
+    /**
+     * @return The warnings of the last read, such as keys that refer to tables outside of it
+     */
+    public List<SQLDiagnostic> getDiagnostics() {
+        return diagnostics;
+    }
+
+    private static Map<String, TableInfo> listTables(DatabaseMetaData meta, String catalog, String schemaPattern)
+            throws SQLException {
+        List<String> types = new ArrayList<>();
+        try (ResultSet rs = meta.getTableTypes()) {
+            while (rs.next()) {
+                String type = rs.getString("TABLE_TYPE");
+                if (type != null && TABLE_TYPES.contains(type.trim().toUpperCase())) {
+                    types.add(type);
+                }
+            }
+        }
+
+        Map<String, TableInfo> tables = new LinkedHashMap<>();
+        if (types.isEmpty()) {
+            return tables;
+        }
+
+        try (ResultSet rs = meta.getTables(catalog, schemaPattern, "%", types.toArray(new String[0]))) {
+            while (rs.next()) {
+                Schema schema = new Schema(rs.getString("TABLE_CAT"), rs.getString("TABLE_SCHEM"));
+                if (catalog == null && isSystemSchema(schema.catalog)
+                        || schemaPattern == null && isSystemSchema(schema.schema)) {
+                    continue;
+                }
+                TableInfo table = new TableInfo(schema, rs.getString("TABLE_NAME"));
+                tables.put(table.key(), table);
+            }
+        }
+        return tables;
+    }
+
+    private static boolean isSystemSchema(String name) {
+        return name != null && (SYSTEM_SCHEMAS.contains(name.toUpperCase())
+                || name.regionMatches(true, 0, "pg_temp_", 0, 8)
+                || name.regionMatches(true, 0, "pg_toast_temp_", 0, 14));
+    }
+
+    private static void readColumns(DatabaseMetaData meta, Schema schema, String escape,
+                                    Map<String, TableInfo> tables) throws SQLException {
+        try (ResultSet rs = meta.getColumns(schema.catalog, escapePattern(schema.schema, escape), "%", "%")) {
+            while (rs.next()) {
+                TableInfo table = tables.get(TableInfo.key(schema, rs.getString("TABLE_NAME")));
+                // Views and other objects matched by the pattern are skipped
+                if (table == null) {
+                    continue;
+                }
+
+                Attribute attribute = new Attribute(rs.getString("COLUMN_NAME"), dataType(rs));
+                attribute.setNullable(rs.getInt("NULLABLE") != DatabaseMetaData.columnNoNulls);
+                table.columns.add(attribute);
+            }
+        }
+    }
+
+    /**
+     * Reads the primary and imported keys of one table, or of the whole schema if the table is null.
+     */
+    private static void readKeys(DatabaseMetaData meta, Schema schema, String tableName,
+                                 Map<String, TableInfo> tables) throws SQLException {
+        try (ResultSet rs = meta.getPrimaryKeys(schema.catalog, schema.schema, tableName)) {
+            while (rs.next()) {
+                TableInfo table = tables.get(TableInfo.key(schema, rs.getString("TABLE_NAME")));
+                if (table != null) {
+                    table.primaryKeys.add(new KeyColumn(rs.getShort("KEY_SEQ"), rs.getString("COLUMN_NAME")));
+                }
+            }
+        }
+
+        // A whole schema's keys take a while; stop between the two queries if cancelled
+        checkInterrupted();
+        try (ResultSet rs = meta.getImportedKeys(schema.catalog, schema.schema, tableName)) {
+            while (rs.next()) {
+                TableInfo table = tables.get(TableInfo.key(schema, rs.getString("FKTABLE_NAME")));
+                if (table != null) {
+                    Schema refSchema = new Schema(rs.getString("PKTABLE_CAT"), rs.getString("PKTABLE_SCHEM"));
+                    table.foreignKeys.add(new ImportedKey(rs.getString("FKCOLUMN_NAME"),
+                            refSchema, rs.getString("PKTABLE_NAME"), rs.getString("PKCOLUMN_NAME"),
+                            rs.getString("FK_NAME")));
+                }
+            }
+        }
+    }
+
+    private ERDiagram buildDiagram(Iterable<TableInfo> tables, boolean qualifyNames) {
+        ERDiagram diagram = new ERDiagram("ER Diagram");
+        DeferredConstraints constraints = new DeferredConstraints();
+        Set<String> readTables = new HashSet<>();
+
+        for (TableInfo table : tables) {
+            readTables.add(table.key());
+        }
+
+        for (TableInfo table : tables) {
+            String tableName = table.displayName(qualifyNames);
+            Entity entity = new Entity(tableName);
+            for (Attribute attribute : table.columns) {
+                entity.addAttribute(attribute);
+            }
+            diagram.addEntity(entity);
+
+            if (!table.primaryKeys.isEmpty()) {
+                table.primaryKeys.sort((a, b) -> Integer.compare(a.sequence, b.sequence));
+                List<String> columns = new ArrayList<>();
+                for (KeyColumn keyColumn : table.primaryKeys) {
+                    columns.add(keyColumn.column);
+                }
+                constraints.primaryKeys.put(tableName, columns);
+            }
+
+            List<ForeignKeyInfo> foreignKeys = new ArrayList<>();
+            for (ImportedKey key : table.foreignKeys) {
+                if (!readTables.contains(TableInfo.key(key.refSchema, key.refTable))) {
+                    diagnostics.add(new SQLDiagnostic(0, tableName, SQLDiagnostic.Severity.WARNING,
+                            "Foreign key " + key.constraintName + " refers to " + key.refTable
+                                    + ", which was not read"));
+                    continue;
+                }
+
+                String refName = qualifyNames ? key.refSchema.qualify(key.refTable) : key.refTable;
+                foreignKeys.add(new ForeignKeyInfo(tableName, key.column, refName, key.refColumn, key.constraintName));
+
+                Attribute attr = entity.getAttribute(key.column);
+                if (attr != null) {
+                    attr.setForeignKey(true);
+                    attr.setReferencedTable(refName);
+                    attr.setReferencedColumn(key.refColumn);
+                }
+            }
+            if (!foreignKeys.isEmpty()) {
+                constraints.foreignKeys.put(tableName, foreignKeys);
+            }
+        }
+
+        sqlParser.resolveConstraints(diagram, constraints);
+        diagram.autoLayout();
+        return diagram;
+    }
+
+    private static String dataType(ResultSet rs) throws SQLException {
+        String typeName = rs.getString("TYPE_NAME");
+        int size = rs.getInt("COLUMN_SIZE");
+        boolean hasSize = !rs.wasNull() && size > 0;
+
+        switch (rs.getInt("DATA_TYPE")) {
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+                return hasSize ? typeName + "(" + size + ")" : typeName;
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                if (!hasSize) {
+                    return typeName;
+                }
+                int scale = rs.getInt("DECIMAL_DIGITS");
+                return scale > 0 ? typeName + "(" + size + "," + scale + ")" : typeName + "(" + size + ")";
+            default:
+                return typeName;
+        }
+    }
+
+    /**
+     * Escapes a schema name for use as a pattern, so that {@code _} and {@code %} match themselves.
+     */
+    private static String escapePattern(String name, String escape) {
+        if (name == null || escape == null || escape.isEmpty()) {
+            return name;
+        }
+        StringBuilder sb = new StringBuilder(name.length() + 4);
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '_' || c == '%' || escape.indexOf(c) >= 0) {
+                sb.append(escape);
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    private void reportProgress(int tablesRead) {
+        IntConsumer listener = progressListener;
+        if (listener != null) {
+            listener.accept(tablesRead);
+        }
+    }
+
+    private static void checkInterrupted() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Schema read was cancelled");
+        }
+    }
+
+    private interface MetadataTask {
+        void run(Connection connection) throws SQLException;
+    }
+
+    /**
+     * Wraps a task so that it borrows a connection from the pool while it runs.
+     */
+    private static Callable<Void> withConnection(BlockingQueue<Connection> pool,
+                                                 MetadataTask task) {
+        return () -> {
+            Connection connection = pool.take();
+            try {
+                task.run(connection);
+            } finally {
+                pool.add(connection);
+            }
+            return null;
+        };
+    }
+
+    private static void await(Future<?> future) throws SQLException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Schema read was cancelled");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new SQLException("Reading the schema failed", cause);
+        }
+    }
+
+    private static void closeAll(List<Connection> connections) {
+        for (Connection connection : connections) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                // Nothing more to read from it
+            }
+        }
+    }
+
+    /**
+     * A catalog and schema pair; either may be null on databases without them.
+     */
+    private static class Schema {
+        final String catalog;
+        final String schema;
+
+        Schema(String catalog, String schema) {
+            this.catalog = catalog;
+            this.schema = schema;
+        }
+
+        String qualify(String tableName) {
+            String qualifier = schema != null ? schema : catalog;
+            return qualifier == null ? tableName : qualifier + "." + tableName;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Schema)) {
+                return false;
+            }
+            Schema other = (Schema) o;
+            return Objects.equals(catalog, other.catalog) && Objects.equals(schema, other.schema);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(catalog, schema);
+        }
+    }
+
+    /**
+     * Metadata of one table, filled in by the pool threads. Each list is only
+     * written by the single task that reads its part of the table.
+     */
+    private static class TableInfo {
+        final Schema schema;
+        final String name;
+        final List<Attribute> columns = new ArrayList<>();
+        final List<KeyColumn> primaryKeys = new ArrayList<>();
+        final List<ImportedKey> foreignKeys = new ArrayList<>();
+
+        TableInfo(Schema schema, String name) {
+            this.schema = schema;
+            this.name = name;
+        }
+
+        String key() {
+            return key(schema, name);
+        }
+
+        static String key(Schema schema, String name) {
+            return schema.catalog + "\u0000" + schema.schema + "\u0000" + name;
+        }
+
+        String displayName(boolean qualified) {
+            return qualified ? schema.qualify(name) : name;
+        }
+    }
+
+    private static class KeyColumn {
+        final int sequence;
+        final String column;
+
+        KeyColumn(int sequence, String column) {
+            this.sequence = sequence;
+            this.column = column;
+        }
+    }
+
+    private static class ImportedKey {
+        final String column;
+        final Schema refSchema;
+        final String refTable;
+        final String refColumn;
+        final String constraintName;
+
+        ImportedKey(String column, Schema refSchema, String refTable, String refColumn, String constraintName) {
+            this.column = column;
+            this.refSchema = refSchema;
+            this.refTable = refTable;
+            this.refColumn = refColumn;
+            this.constraintName = constraintName;
+        }
+    }
+}
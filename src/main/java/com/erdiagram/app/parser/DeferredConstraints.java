@@ -0,0 +1,30 @@
+package com.erdiagram.app.parser;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Key constraints collected while statements stream by, grouped by the name of
+ * the table that declares them. They are resolved against the finished diagram
+ * in one pass, so an ALTER TABLE may refer to tables defined anywhere in the script.
+ */
+class DeferredConstraints {
+    final Map<String, List<ForeignKeyInfo>> foreignKeys = new LinkedHashMap<>();
+    final Map<String, List<String>> primaryKeys = new LinkedHashMap<>();
+
+    void add(ParsedTable parsedTable) {
+        String tableName = parsedTable.getTableName();
+        if (tableName == null) {
+            return;
+        }
+
+        if (!parsedTable.foreignKeys.isEmpty()) {
+            foreignKeys.computeIfAbsent(tableName, k -> new ArrayList<>()).addAll(parsedTable.foreignKeys);
+        }
+        if (!parsedTable.primaryKeyColumns.isEmpty()) {
+            primaryKeys.computeIfAbsent(tableName, k -> new ArrayList<>()).addAll(parsedTable.primaryKeyColumns);
+        }
+    }
+}
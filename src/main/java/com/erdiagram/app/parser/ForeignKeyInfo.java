@@ -0,0 +1,25 @@
+package com.erdiagram.app.parser;
+
+/**
+ * Helper class to store foreign key information for relationship creation.
+ */
+class ForeignKeyInfo {
+    String sourceTable;
+    String column;
+    String refTable;
+    String refColumn;
+    String constraintName;
+    
+    public ForeignKeyInfo(String sourceTable, String column, String refTable, String refColumn) {
+        this(sourceTable, column, refTable, refColumn, null);
+    }
+    
+    public ForeignKeyInfo(String sourceTable, String column, String refTable, String refColumn,
+                          String constraintName) {
+        this.sourceTable = sourceTable;
+        this.column = column;
+        this.refTable = refTable;
+        this.refColumn = refColumn;
+        this.constraintName = constraintName;
+    }
+}
@@ -0,0 +1,294 @@
+package com.erdiagram.app.parser;
+
+import com.erdiagram.app.model.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.function.IntConsumer;
+
+/**
+ * Keeps an ER diagram in sync with a SQL script that is edited over time.
+ *
+ * Every statement's parse result is cached under a 64-bit hash of its text.
+ * On {@link #update(String)} only statements whose text changed are parsed
+ * again, a new diagram is built from cached and fresh results, and the
+ * structural difference to the previous version is returned. Unchanged
+ * entities and relationships keep their identity and position.
+ *
+ * Keys added by ALTER TABLE statements are applied to the entities of the
+ * tables they alter. When the set of ALTER TABLE statements changes, those
+ * tables are parsed again so that removed keys do not linger.
+ *
+ * An update may run on a background thread: it never modifies the diagram
+ * returned by the previous update, and the session only moves to the new
+ * state once the update completes. If the thread is interrupted, the update
+ * stops with a {@link CancellationException} and the session is unchanged.
+ */
+public class IncrementalSQLSession {
+    // Marks statements that were parsed before and do not define a table
+    private static final ParsedTable NOT_A_TABLE = new ParsedTable(null);
+    private static final int PROGRESS_INTERVAL = 256;
+
+    private final SQLParser sqlParser;
+    private ERDiagram diagram;
+    private Map<Long, ParsedTable> statementCache = new HashMap<>();
+    private Map<String, Relationship> relationshipsByKey = new HashMap<>();
+    private Set<String> previousAlteredTables = new HashSet<>();
+    private long alterationsHash;
+    private boolean backslashEscapes;
+    private List<SQLDiagnostic> diagnostics = new ArrayList<>();
+    private int reparsedCount;
+    private IntConsumer progressListener;
+
+    public IncrementalSQLSession() {
+        this(new SQLParser());
+    }
+
+    public IncrementalSQLSession(SQLParser sqlParser) {
+        this.sqlParser = sqlParser;
+        this.diagram = new ERDiagram("ER Diagram");
+    }
+
+    /**
+     * Sets a listener that receives the number of statements processed so far
+     * during an update. It is called on the updating thread.
+     * @param progressListener The listener, or null for none
+     */
+    public void setProgressListener(IntConsumer progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Re-parses the changed statements of the script and builds the next diagram.
+     *
+     * @param sqlText The full, current script
+     * @return What changed from the previous diagram to the one now returned by {@link #getDiagram()}
+     * @throws CancellationException If the calling thread is interrupted
+     */
+    public SchemaDelta update(String sqlText) {
+        List<String> statements = new ArrayList<>();
+        try (SQLStatementSource source = sqlParser.configure(SQLStatementSource.fromString(sqlText))) {
+            String statementStr;
+            while ((statementStr = source.nextStatement()) != null) {
+                statements.add(statementStr);
+            }
+        } catch (IOException e) {
+            // In-memory sources never perform I/O
+            throw new UncheckedIOException(e);
+        }
+
+        // The same text can read differently in the other dialect
+        boolean escapes = sqlParser.isBackslashEscapes();
+        Map<Long, ParsedTable> cache = escapes == backslashEscapes ? statementCache : Collections.emptyMap();
+        Set<ParsedTable> used = Collections.newSetFromMap(new IdentityHashMap<>());
+        int reparsed = 0;
+
+        // ALTER TABLE statements are resolved first so that the tables they alter are known
+        long[] hashes = new long[statements.size()];
+        ParsedTable[] results = new ParsedTable[statements.size()];
+        Set<String> alteredTables = new HashSet<>();
+        long alterations = 0xcbf29ce484222325L;
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = statementHash(statements.get(i));
+            if (SQLParser.startsWithKeyword(statements.get(i), "ALTER")) {
+                alterations = (alterations ^ hashes[i]) * 0x100000001b3L;
+                results[i] = cachedResult(cache, hashes[i], used, Collections.emptySet());
+                if (results[i] == null) {
+                    results[i] = parse(statements.get(i), i + 1, used);
+                    reparsed++;
+                }
+                if (results[i].alteredTable != null) {
+                    alteredTables.add(results[i].alteredTable.toLowerCase());
+                }
+            }
+        }
+
+        // Keys from ALTER TABLE are marked on the cached entities, so when the
+        // alterations change, every table they touch or touched is parsed afresh
+        Set<String> staleTables = Collections.emptySet();
+        if (alterations != alterationsHash) {
+            staleTables = new HashSet<>(previousAlteredTables);
+            staleTables.addAll(alteredTables);
+        }
+
+        Map<Long, ParsedTable> nextCache = new HashMap<>();
+        List<ParsedTable> tables = new ArrayList<>();
+        List<SQLDiagnostic> nextDiagnostics = new ArrayList<>();
+
+        for (int i = 0; i < hashes.length; i++) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("SQL update was cancelled");
+            }
+            if (progressListener != null && i % PROGRESS_INTERVAL == 0) {
+                progressListener.accept(i);
+            }
+
+            ParsedTable parsed = results[i];
+            if (parsed == null) {
+                parsed = cachedResult(cache, hashes[i], used, staleTables);
+                if (parsed == null) {
+                    parsed = parse(statements.get(i), i + 1, used);
+                    reparsed++;
+                }
+            }
+
+            if (parsed != NOT_A_TABLE) {
+                tables.add(parsed);
+                addDiagnostics(nextDiagnostics, parsed, i + 1);
+            }
+            nextCache.put(hashes[i], parsed);
+        }
+
+        ERDiagram nextDiagram = new ERDiagram(diagram.getName());
+        SchemaDelta delta = buildDiagram(nextDiagram, tables);
+        Map<String, Relationship> nextRelationships = SchemaReconciler.reconcileRelationships(
+                nextDiagram, relationshipsByKey, delta);
+
+        // Commit: the session only changes once the update has completed
+        diagram = nextDiagram;
+        relationshipsByKey = nextRelationships;
+        statementCache = nextCache;
+        alterationsHash = alterations;
+        backslashEscapes = escapes;
+        previousAlteredTables = alteredTables;
+        diagnostics = nextDiagnostics;
+        reparsedCount = reparsed;
+
+        return delta;
+    }
+
+    /**
+     * @return The cached result for the statement, or null if it must be parsed
+     */
+    private ParsedTable cachedResult(Map<Long, ParsedTable> cache, long hash, Set<ParsedTable> used,
+                                     Set<String> staleTables) {
+        ParsedTable parsed = cache.get(hash);
+
+        // A duplicated statement needs its own entity instance
+        if (parsed == null || used.contains(parsed)) {
+            return null;
+        }
+        if (parsed.entity != null && staleTables.contains(parsed.entity.getName().toLowerCase())) {
+            return null;
+        }
+
+        if (parsed != NOT_A_TABLE) {
+            used.add(parsed);
+        }
+        return parsed;
+    }
+
+    private ParsedTable parse(String statementStr, int statementIndex, Set<ParsedTable> used) {
+        ParsedTable parsed = sqlParser.parseStatement(statementStr, statementIndex);
+        if (parsed == null) {
+            return NOT_A_TABLE;
+        }
+        used.add(parsed);
+        return parsed;
+    }
+
+    private SchemaDelta buildDiagram(ERDiagram nextDiagram, List<ParsedTable> tables) {
+        SchemaDelta delta = new SchemaDelta();
+        boolean firstBuild = diagram.getEntities().isEmpty();
+
+        Map<String, Entity> previousByName = new HashMap<>();
+        Set<Entity> previousEntities = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Entity entity : diagram.getEntities()) {
+            previousByName.put(entity.getName().toLowerCase(), entity);
+            previousEntities.add(entity);
+        }
+
+        DeferredConstraints constraints = new DeferredConstraints();
+        Set<Entity> currentEntities = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<Entity> replacedEntities = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        for (ParsedTable parsed : tables) {
+            constraints.add(parsed);
+            if (parsed.entity == null) {
+                continue;
+            }
+
+            Entity entity = parsed.entity;
+            nextDiagram.addEntity(entity);
+            currentEntities.add(entity);
+
+            if (previousEntities.contains(entity)) {
+                continue;
+            }
+
+            Entity previous = previousByName.get(entity.getName().toLowerCase());
+            if (previous != null && !replacedEntities.contains(previous)) {
+                // Same table, new definition: keep it where the user left it
+                entity.setX(previous.getX());
+                entity.setY(previous.getY());
+                replacedEntities.add(previous);
+                delta.getChangedEntities().add(new Replacement<>(previous, entity));
+            } else {
+                delta.getAddedEntities().add(entity);
+            }
+        }
+
+        for (Entity previous : previousEntities) {
+            if (!currentEntities.contains(previous) && !replacedEntities.contains(previous)) {
+                delta.getRemovedEntities().add(previous);
+            }
+        }
+
+        if (firstBuild) {
+            nextDiagram.autoLayout();
+        } else {
+            nextDiagram.layoutBelow(delta.getAddedEntities());
+        }
+
+        sqlParser.resolveConstraints(nextDiagram, constraints);
+        return delta;
+    }
+
+    private static void addDiagnostics(List<SQLDiagnostic> diagnostics, ParsedTable parsed, int statementIndex) {
+        for (SQLDiagnostic diagnostic : parsed.diagnostics) {
+            if (diagnostic.getStatementIndex() == statementIndex) {
+                diagnostics.add(diagnostic);
+            } else {
+                // The statement moved since it was cached
+                diagnostics.add(new SQLDiagnostic(statementIndex, diagnostic.getTableName(),
+                        diagnostic.getSeverity(), diagnostic.getMessage()));
+            }
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the statement text.
+     */
+    private static long statementHash(String text) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * @return The diagram of the most recent update. Each update builds a new
+     *         instance that shares its unchanged entities and relationships with the previous one
+     */
+    public ERDiagram getDiagram() {
+        return diagram;
+    }
+
+    /**
+     * @return The diagnostics of the most recent update, in statement order
+     */
+    public List<SQLDiagnostic> getDiagnostics() {
+        return diagnostics;
+    }
+
+    /**
+     * @return The number of statements that had to be parsed in the most recent update
+     */
+    public int getReparsedCount() {
+        return reparsedCount;
+    }
+}
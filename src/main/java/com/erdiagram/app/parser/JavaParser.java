@@ -2,203 +2,866 @@ package com.erdiagram.app.parser;
 
 import com.erdiagram.app.model.*;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CancellationException;
+import java.util.function.IntConsumer;
 
 /**
  * Parser for Java code to generate UML class diagrams.
+ *
+ * The source is read in a single pass with {@link JavaTokenizer}. Brace depth
+ * is tracked as declarations are read, so nested and local types, generic
+ * signatures and multi-line declarations are handled, and method bodies,
+ * initializers, comments and string literals are skipped without being
+ * examined. Each class, field and method is added to the diagram as soon as
+ * its declaration has been read.
  */
 public class JavaParser {
     
-    private static final Pattern CLASS_PATTERN = Pattern.compile(
-            "(?:public|private|protected)?\\s+(?:abstract\\s+)?(class|interface|enum)\\s+(\\w+)(?:\\s+extends\\s+(\\w+))?(?:\\s+implements\\s+([\\w,\\s]+))?\\s*\\{",
-            Pattern.MULTILINE);
-    
-    private static final Pattern FIELD_PATTERN = Pattern.compile(
-            "\\s+(?:(public|private|protected|)\\s+)?(?:(static|final|)\\s+)?(?:(static|final|)\\s+)?(\\w+(?:<[\\w<>\\[\\],\\s]*>)?)\\s+(\\w+)(?:\\s*=\\s*[^;]+)?;",
-            Pattern.MULTILINE);
-    
-    private static final Pattern METHOD_PATTERN = Pattern.compile(
-            "\\s+(?:(public|private|protected)\\s+)?(?:(static|abstract|final)\\s+)?(?:(static|abstract|final)\\s+)?(\\w+(?:<[\\w<>\\[\\],\\s]*>)?)\\s+(\\w+)\\s*\\(([^)]*)\\)\\s*(?:\\{|;)",
-            Pattern.MULTILINE);
+    /**
+     * Stores the declarations of one file, as read by {@link #readDeclarations(String)},
+     * in a {@link ParseCache}.
+     */
+    static final ParseCache.Codec<JavaParser> CACHE_CODEC = new ParseCache.Codec<JavaParser>() {
+        @Override
+        public void write(DataOutput out, JavaParser parser) throws IOException {
+            parser.writeDeclarations(out);
+        }
+        
+        @Override
+        public JavaParser read(DataInput in) throws IOException {
+            JavaParser parser = new JavaParser();
+            parser.readDeclarations(in);
+            return parser;
+        }
+    };
     
-    private static final Pattern PARAMETER_PATTERN = Pattern.compile(
-            "(\\w+(?:<[\\w<>\\[\\],\\s]*>)?)\\s+(\\w+)(?:\\s*,\\s*)?",
-            Pattern.MULTILINE);
+    private static final String[] TYPE_KEYWORDS = {"class", "interface", "enum", "record"};
     
-    private static final Pattern PACKAGE_PATTERN = Pattern.compile(
-            "package\\s+([\\w.]+);",
-            Pattern.MULTILINE);
+    private static final String[] MODIFIERS = {
+            "public", "protected", "private", "static", "final", "abstract", "default", "synchronized",
+            "native", "transient", "volatile", "strictfp", "sealed"};
     
     private UMLDiagram diagram;
-    private Map<String, UMLClass> classMap;
+    private JavaSymbolTable symbols;
+    private IntConsumer progressListener;
+    // Package and imports of the file being read
+    private JavaSymbolTable.CompilationUnit unit;
     
     public JavaParser() {
         diagram = new UMLDiagram();
-        classMap = new HashMap<>();
+        symbols = new JavaSymbolTable();
+    }
+    
+    /**
+     * Sets a listener that receives the number of classes processed so far.
+     * It is called on the parsing thread.
+     * @param progressListener The listener, or null for none
+     */
+    public void setProgressListener(IntConsumer progressListener) {
+        this.progressListener = progressListener;
     }
     
     /**
-     * Parse Java source code and build a UML diagram
+     * Parse Java source code and build a UML diagram.
+     * Every call returns a new diagram, so a diagram that is on display is never
+     * modified by a parse running on another thread.
+     * @throws CancellationException If the calling thread is interrupted
      */
     public UMLDiagram parseJavaCode(String javaCode) {
-        // Clear any existing data
-        diagram.clear();
-        classMap.clear();
-        
-        // Extract package name
-        String packageName = parsePackageName(javaCode);
-        
-        // First pass: Find and create all classes
-        Matcher classMatcher = CLASS_PATTERN.matcher(javaCode);
-        while (classMatcher.find()) {
-            String type = classMatcher.group(1); // class, interface, enum
-            String className = classMatcher.group(2);
-            String extendsClass = classMatcher.group(3); // may be null
-            String implementsInterfaces = classMatcher.group(4); // may be null
+        reset();
+        readDeclarations(javaCode);
+        
+        // Second pass: Resolve inheritance and implementation relationships
+        resolveRelationships();
+        
+        return diagram;
+    }
+    
+    /**
+     * Starts a new diagram, dropping the classes and relationships read so far.
+     */
+    void reset() {
+        diagram = new UMLDiagram();
+        symbols.clear();
+        inheritanceRelationships.clear();
+        implementationRelationships.clear();
+    }
+    
+    /**
+     * Reads the classes of one compilation unit into the current diagram.
+     * Relationships are only recorded; {@link #resolve()} creates them.
+     * @throws CancellationException If the calling thread is interrupted
+     */
+    void readDeclarations(String javaCode) {
+        unit = new JavaSymbolTable.CompilationUnit();
+        
+        // Single pass: read classes with their fields and methods
+        JavaTokenizer t = new JavaTokenizer(javaCode);
+        t.next();
+        while (!t.isEOF()) {
+            if (t.isWord("package")) {
+                t.next();
+                unit.packageName = readQualifiedName(t);
+                skipStatement(t);
+            } else if (t.isWord("import")) {
+                readImport(t);
+            } else {
+                Modifiers modifiers = readModifiers(t);
+                if (isTypeDeclaration(t, modifiers)) {
+                    parseTypeDeclaration(t, modifiers, null);
+                } else if (t.isSymbol('{')) {
+                    skipGroup(t, '{', '}');
+                } else {
+                    t.next();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Records an import declaration, starting at its keyword. Static imports
+     * name members rather than types and are skipped.
+     */
+    private void readImport(JavaTokenizer t) {
+        t.next();
+        if (t.isWord("static")) {
+            skipStatement(t);
+            return;
+        }
+        
+        String name = readQualifiedName(t);
+        if (t.isSymbol('*') && name.endsWith(".")) {
+            unit.onDemandImports.add(name.substring(0, name.length() - 1));
+        } else if (!name.isEmpty() && !name.endsWith(".")) {
+            unit.singleTypeImports.put(name.substring(name.lastIndexOf('.') + 1), name);
+        }
+        skipStatement(t);
+    }
+    
+    private void writeDeclarations(DataOutput out) throws IOException {
+        ParseCache.writeString(out, unit.packageName);
+        out.writeInt(unit.singleTypeImports.size());
+        for (Map.Entry<String, String> imported : unit.singleTypeImports.entrySet()) {
+            ParseCache.writeString(out, imported.getKey());
+            ParseCache.writeString(out, imported.getValue());
+        }
+        out.writeInt(unit.onDemandImports.size());
+        for (String imported : unit.onDemandImports) {
+            ParseCache.writeString(out, imported);
+        }
+        
+        out.writeInt(diagram.getClasses().size());
+        for (UMLClass umlClass : diagram.getClasses()) {
+            ParseCache.writeString(out, symbols.getQualifiedName(umlClass));
+            ParseCache.writeString(out, umlClass.getName());
+            ParseCache.writeString(out, umlClass.getType());
             
-            UMLClass umlClass = new UMLClass(className, type);
-            umlClass.setPackageName(packageName);
+            out.writeInt(umlClass.getAttributes().size());
+            for (UMLAttribute attribute : umlClass.getAttributes()) {
+                ParseCache.writeString(out, attribute.getName());
+                ParseCache.writeString(out, attribute.getType());
+                ParseCache.writeString(out, attribute.getVisibility());
+                out.writeBoolean(attribute.isStatic());
+                out.writeBoolean(attribute.isFinal());
+            }
             
-            // Add the class to our diagram and map
-            diagram.addClass(umlClass);
-            classMap.put(className, umlClass);
+            out.writeInt(umlClass.getMethods().size());
+            for (UMLMethod method : umlClass.getMethods()) {
+                ParseCache.writeString(out, method.getName());
+                ParseCache.writeString(out, method.getReturnType());
+                ParseCache.writeString(out, method.getVisibility());
+                out.writeBoolean(method.isStatic());
+                out.writeBoolean(method.isAbstract());
+                out.writeInt(method.getParameters().size());
+                for (UMLParameter parameter : method.getParameters()) {
+                    ParseCache.writeString(out, parameter.getName());
+                    ParseCache.writeString(out, parameter.getType());
+                }
+            }
+        }
+        
+        writePairs(out, inheritanceRelationships);
+        writePairs(out, implementationRelationships);
+    }
+    
+    private void readDeclarations(DataInput in) throws IOException {
+        unit = new JavaSymbolTable.CompilationUnit();
+        unit.packageName = ParseCache.readString(in);
+        int importCount = in.readInt();
+        for (int i = 0; i < importCount; i++) {
+            unit.singleTypeImports.put(ParseCache.readString(in), ParseCache.readString(in));
+        }
+        int onDemandCount = in.readInt();
+        for (int i = 0; i < onDemandCount; i++) {
+            unit.onDemandImports.add(ParseCache.readString(in));
+        }
+        
+        int classCount = in.readInt();
+        for (int i = 0; i < classCount; i++) {
+            String qualifiedName = ParseCache.readString(in);
+            UMLClass umlClass = new UMLClass(ParseCache.readString(in), ParseCache.readString(in));
+            umlClass.setPackageName(unit.packageName);
+            
+            int attributeCount = in.readInt();
+            for (int a = 0; a < attributeCount; a++) {
+                umlClass.addAttribute(new UMLAttribute(ParseCache.readString(in), ParseCache.readString(in),
+                        ParseCache.readString(in), in.readBoolean(), in.readBoolean()));
+            }
+            
+            int methodCount = in.readInt();
+            for (int m = 0; m < methodCount; m++) {
+                UMLMethod method = new UMLMethod(ParseCache.readString(in), ParseCache.readString(in),
+                        ParseCache.readString(in));
+                method.setStatic(in.readBoolean());
+                method.setAbstract(in.readBoolean());
+                int parameterCount = in.readInt();
+                for (int p = 0; p < parameterCount; p++) {
+                    method.addParameter(new UMLParameter(ParseCache.readString(in), ParseCache.readString(in)));
+                }
+                umlClass.addMethod(method);
+            }
             
-            // Set initial positions
+            diagram.addClass(umlClass);
+            symbols.add(umlClass, qualifiedName, unit);
             umlClass.setX(100 + diagram.getClasses().size() * 50);
             umlClass.setY(100 + diagram.getClasses().size() * 50);
+        }
+        
+        readPairs(in, inheritanceRelationships);
+        readPairs(in, implementationRelationships);
+    }
+    
+    private static void writePairs(DataOutput out, List<String[]> pairs) throws IOException {
+        out.writeInt(pairs.size());
+        for (String[] pair : pairs) {
+            ParseCache.writeString(out, pair[0]);
+            ParseCache.writeString(out, pair[1]);
+        }
+    }
+    
+    private static void readPairs(DataInput in, List<String[]> pairs) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            pairs.add(new String[]{ParseCache.readString(in), ParseCache.readString(in)});
+        }
+    }
+    
+    /**
+     * Adds the classes and unresolved relationships read by another parser.
+     * A class whose qualified name is already known is skipped.
+     * @return The number of classes skipped as duplicates
+     */
+    int merge(JavaParser other) {
+        int duplicates = 0;
+        for (UMLClass umlClass : other.diagram.getClasses()) {
+            if (symbols.addFrom(other.symbols, umlClass)) {
+                diagram.addClass(umlClass);
+            } else {
+                duplicates++;
+            }
+        }
+        inheritanceRelationships.addAll(other.inheritanceRelationships);
+        implementationRelationships.addAll(other.implementationRelationships);
+        return duplicates;
+    }
+    
+    /**
+     * @return The qualified name the class was registered under, or its simple name for types of other files
+     */
+    String getQualifiedName(UMLClass umlClass) {
+        return symbols.getQualifiedName(umlClass);
+    }
+    
+    /**
+     * Creates the relationships recorded so far and returns the diagram.
+     */
+    UMLDiagram resolve() {
+        resolveRelationships();
+        return diagram;
+    }
+    
+    /**
+     * Parses a class, interface, enum, record or annotation type, starting at its keyword.
+     * @param outerName The qualified name of the enclosing type, or null for a top-level type
+     */
+    private void parseTypeDeclaration(JavaTokenizer t, Modifiers modifiers, String outerName) {
+        String kind = t.text();
+        t.next();
+        if (!t.isIdentifier()) {
+            return;
+        }
+        
+        String className = t.text();
+        t.next();
+        
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Java parsing was cancelled");
+        }
+        if (progressListener != null) {
+            progressListener.accept(diagram.getClasses().size());
+        }
+        
+        String type;
+        if (kind.equals("class")) {
+            type = modifiers.isAbstract ? "abstract class" : "class";
+        } else if (kind.equals("record")) {
+            type = "class";
+        } else {
+            type = kind;
+        }
+        
+        UMLClass umlClass = new UMLClass(className, type);
+        umlClass.setPackageName(unit.packageName);
+        
+        // Add the class to our diagram and map
+        diagram.addClass(umlClass);
+        if (outerName != null) {
+            symbols.add(umlClass, outerName + "." + className, unit);
+        } else if (!unit.packageName.isEmpty()) {
+            symbols.add(umlClass, unit.packageName + "." + className, unit);
+        } else {
+            symbols.add(umlClass, className, unit);
+        }
+        
+        // Set initial positions
+        umlClass.setX(100 + diagram.getClasses().size() * 50);
+        umlClass.setY(100 + diagram.getClasses().size() * 50);
+        
+        if (t.isSymbol('<')) {
+            skipGroup(t, '<', '>');
+        }
+        
+        // Record components are the record's fields
+        if (kind.equals("record") && t.isSymbol('(')) {
+            for (UMLParameter component : readParameters(t)) {
+                umlClass.addAttribute(new UMLAttribute(component.getName(), component.getType(),
+                        "private", false, true));
+            }
+        }
+        
+        // Store the relationship information for later resolution
+        // (we might not have parsed the parent class yet)
+        while (!t.isEOF() && !t.isSymbol('{') && !t.isSymbol(';')) {
+            if (t.isWord("extends")) {
+                t.next();
+                for (String parent : readTypeNameList(t)) {
+                    inheritanceRelationships.add(new String[]{symbols.getQualifiedName(umlClass), parent});
+                }
+            } else if (t.isWord("implements")) {
+                t.next();
+                for (String interfaceName : readTypeNameList(t)) {
+                    implementationRelationships.add(new String[]{symbols.getQualifiedName(umlClass), interfaceName});
+                }
+            } else {
+                // permits clauses and anything else in the header
+                t.next();
+            }
+        }
+        
+        if (t.isSymbol('{')) {
+            t.next();
+            parseTypeBody(t, umlClass, kind);
+        }
+    }
+    
+    /**
+     * Reads the members of a type body, starting after its opening brace and
+     * ending after its closing brace.
+     */
+    private void parseTypeBody(JavaTokenizer t, UMLClass umlClass, String kind) {
+        boolean isInterface = kind.equals("interface");
+        
+        if (kind.equals("enum")) {
+            skipEnumConstants(t);
+        }
+        
+        while (!t.isEOF() && !t.isSymbol('}')) {
+            if (t.isSymbol(';')) {
+                t.next();
+                continue;
+            }
+            
+            Modifiers modifiers = readModifiers(t);
+            
+            if (t.isSymbol('{')) {
+                // Instance or static initializer
+                skipGroup(t, '{', '}');
+            } else if (isTypeDeclaration(t, modifiers)) {
+                parseTypeDeclaration(t, modifiers, symbols.getQualifiedName(umlClass));
+            } else {
+                parseMember(t, umlClass, modifiers, isInterface);
+            }
+        }
+        
+        if (t.isSymbol('}')) {
+            t.next();
+        }
+    }
+    
+    /**
+     * Parses a field, method or constructor declaration after its modifiers.
+     */
+    private void parseMember(JavaTokenizer t, UMLClass umlClass, Modifiers modifiers, boolean inInterface) {
+        // Type parameters of a generic method
+        if (t.isSymbol('<')) {
+            skipGroup(t, '<', '>');
+        }
+        
+        if (!t.isIdentifier()) {
+            // Not a declaration; skip the token so parsing always advances
+            t.next();
+            return;
+        }
+        
+        String type = readType(t);
+        
+        // Constructors are not shown in the diagram
+        if (t.isSymbol('(')) {
+            skipGroup(t, '(', ')');
+            skipMethodRest(t);
+            return;
+        }
+        
+        if (!t.isIdentifier()) {
+            skipStatement(t);
+            return;
+        }
+        
+        String visibility = modifiers.visibility;
+        // Set default visibility if not specified
+        if (visibility == null) {
+            visibility = inInterface ? "public" : "package";
+        }
+        
+        String name = t.text();
+        t.next();
+        
+        if (t.isSymbol('(')) {
+            UMLMethod method = new UMLMethod(name, type, visibility);
+            method.setStatic(modifiers.isStatic);
+            for (UMLParameter parameter : readParameters(t)) {
+                method.addParameter(parameter);
+            }
             
-            // Add inheritance relationship if extends is specified
-            if (extendsClass != null) {
-                // Store the relationship information for later resolution
-                // (we might not have parsed the parent class yet)
-                inheritanceRelationships.add(new String[]{className, extendsClass});
+            boolean hasBody = skipMethodRest(t);
+            method.setAbstract(modifiers.isAbstract
+                    || (inInterface && !hasBody && !modifiers.isStatic && !modifiers.isDefault));
+            umlClass.addMethod(method);
+            return;
+        }
+        
+        // Interface fields are implicitly static and final
+        boolean isStatic = modifiers.isStatic || inInterface;
+        boolean isFinal = modifiers.isFinal || inInterface;
+        
+        // One or more declarators: int a, b[] = {1}, c;
+        while (true) {
+            String fieldType = type;
+            while (t.isSymbol('[')) {
+                skipGroup(t, '[', ']');
+                fieldType += "[]";
             }
+            umlClass.addAttribute(new UMLAttribute(name, fieldType, visibility, isStatic, isFinal));
             
-            // Add implementation relationships if implements is specified
-            if (implementsInterfaces != null) {
-                String[] interfaces = implementsInterfaces.split(",");
-                for (String interfaceName : interfaces) {
-                    interfaceName = interfaceName.trim();
-                    implementationRelationships.add(new String[]{className, interfaceName});
+            if (t.isSymbol('=')) {
+                skipInitializer(t);
+            }
+            if (!t.isSymbol(',')) {
+                break;
+            }
+            t.next();
+            if (!t.isIdentifier()) {
+                break;
+            }
+            name = t.text();
+            t.next();
+        }
+        
+        if (t.isSymbol(';')) {
+            t.next();
+        }
+    }
+    
+    /**
+     * Skips the constants at the start of an enum body, up to the semicolon that
+     * ends them or the closing brace of the enum.
+     */
+    private void skipEnumConstants(JavaTokenizer t) {
+        while (!t.isEOF() && !t.isSymbol(';') && !t.isSymbol('}')) {
+            if (t.isSymbol('(')) {
+                skipGroup(t, '(', ')');
+            } else if (t.isSymbol('{')) {
+                skipGroup(t, '{', '}');
+            } else {
+                t.next();
+            }
+        }
+        if (t.isSymbol(';')) {
+            t.next();
+        }
+    }
+    
+    private Modifiers readModifiers(JavaTokenizer t) {
+        Modifiers modifiers = new Modifiers();
+        
+        while (!t.isEOF()) {
+            if (t.isWord("public") || t.isWord("protected") || t.isWord("private")) {
+                modifiers.visibility = t.text();
+            } else if (t.isWord("static")) {
+                modifiers.isStatic = true;
+            } else if (t.isWord("final")) {
+                modifiers.isFinal = true;
+            } else if (t.isWord("abstract")) {
+                modifiers.isAbstract = true;
+            } else if (t.isWord("default")) {
+                modifiers.isDefault = true;
+            } else if (t.isWord("non")) {
+                // non-sealed
+                t.next();
+                if (t.isSymbol('-')) {
+                    t.next();
+                }
+            } else if (t.isSymbol('@')) {
+                int annotationStart = t.tokenStart();
+                t.next();
+                if (t.isWord("interface")) {
+                    // An annotation type declaration, not an annotation
+                    t.reset(annotationStart);
+                    modifiers.annotationType = true;
+                    return modifiers;
+                }
+                readQualifiedName(t);
+                if (t.isSymbol('(')) {
+                    skipGroup(t, '(', ')');
                 }
+                continue;
+            } else if (!t.isAnyWord(MODIFIERS)) {
+                return modifiers;
             }
+            t.next();
+        }
+        return modifiers;
+    }
+    
+    /**
+     * @return true if the current token starts a type declaration; moves past the
+     *         {@code @} of an annotation type declaration
+     */
+    private boolean isTypeDeclaration(JavaTokenizer t, Modifiers modifiers) {
+        if (modifiers.annotationType) {
+            t.next();
+            return true;
+        }
+        if (!t.isAnyWord(TYPE_KEYWORDS)) {
+            return false;
+        }
+        if (!t.isWord("record")) {
+            return true;
         }
         
-        // Second pass: Find and add fields and methods
-        for (UMLClass umlClass : diagram.getClasses()) {
-            // Extract the class definition and body
-            String classPattern = "(?:public|private|protected)?\\s+(?:abstract\\s+)?(?:class|interface|enum)\\s+" + 
-                    umlClass.getName() + "(?:\\s+extends\\s+\\w+)?(?:\\s+implements\\s+[\\w,\\s]+)?\\s*\\{([^}]+)\\}";
-            Pattern p = Pattern.compile(classPattern, Pattern.DOTALL);
-            Matcher m = p.matcher(javaCode);
-            
-            if (m.find()) {
-                String classBody = m.group(1);
-                
-                // Parse fields
-                Matcher fieldMatcher = FIELD_PATTERN.matcher(classBody);
-                while (fieldMatcher.find()) {
-                    String visibility = fieldMatcher.group(1);
-                    String modifier1 = fieldMatcher.group(2); // static or final
-                    String modifier2 = fieldMatcher.group(3); // static or final (the other one if both specified)
-                    String type = fieldMatcher.group(4);
-                    String name = fieldMatcher.group(5);
-                    
-                    // Set default visibility if not specified
-                    if (visibility == null || visibility.isEmpty()) {
-                        visibility = "package";
+        // "record" is only a keyword in a declaration such as record Point(int x, int y)
+        int recordStart = t.tokenStart();
+        t.next();
+        boolean declaration = false;
+        if (t.isIdentifier()) {
+            t.next();
+            declaration = t.isSymbol('(') || t.isSymbol('<');
+        }
+        t.reset(recordStart);
+        return declaration;
+    }
+    
+    /**
+     * Reads a parenthesised parameter list, starting at the opening parenthesis.
+     */
+    private List<UMLParameter> readParameters(JavaTokenizer t) {
+        List<UMLParameter> parameters = new ArrayList<>();
+        t.next();
+        
+        while (!t.isEOF() && !t.isSymbol(')')) {
+            readModifiers(t);
+            if (t.isIdentifier()) {
+                String type = readType(t);
+                if (t.isIdentifier()) {
+                    String name = t.text();
+                    t.next();
+                    while (t.isSymbol('[')) {
+                        skipGroup(t, '[', ']');
+                        type += "[]";
                     }
-                    
-                    // Determine if static and/or final
-                    boolean isStatic = "static".equals(modifier1) || "static".equals(modifier2);
-                    boolean isFinal = "final".equals(modifier1) || "final".equals(modifier2);
-                    
-                    UMLAttribute attribute = new UMLAttribute(name, type, visibility, isStatic, isFinal);
-                    umlClass.addAttribute(attribute);
+                    parameters.add(new UMLParameter(name, type));
                 }
-                
-                // Parse methods
-                Matcher methodMatcher = METHOD_PATTERN.matcher(classBody);
-                while (methodMatcher.find()) {
-                    String visibility = methodMatcher.group(1);
-                    String modifier1 = methodMatcher.group(2); // static, abstract, or final
-                    String modifier2 = methodMatcher.group(3); // another modifier if specified
-                    String returnType = methodMatcher.group(4);
-                    String name = methodMatcher.group(5);
-                    String parametersList = methodMatcher.group(6);
-                    
-                    // Skip constructors (same name as class)
-                    if (name.equals(umlClass.getName())) {
-                        continue;
-                    }
-                    
-                    // Set default visibility if not specified
-                    if (visibility == null || visibility.isEmpty()) {
-                        visibility = "package";
-                    }
-                    
-                    // Determine if static and/or abstract
-                    boolean isStatic = "static".equals(modifier1) || "static".equals(modifier2);
-                    boolean isAbstract = "abstract".equals(modifier1) || "abstract".equals(modifier2);
-                    
-                    UMLMethod method = new UMLMethod(name, returnType, visibility);
-                    method.setStatic(isStatic);
-                    method.setAbstract(isAbstract);
-                    
-                    // Parse parameters
-                    if (parametersList != null && !parametersList.trim().isEmpty()) {
-                        Matcher paramMatcher = PARAMETER_PATTERN.matcher(parametersList);
-                        while (paramMatcher.find()) {
-                            String paramType = paramMatcher.group(1);
-                            String paramName = paramMatcher.group(2);
-                            
-                            UMLParameter parameter = new UMLParameter(paramName, paramType);
-                            method.addParameter(parameter);
-                        }
-                    }
-                    
-                    umlClass.addMethod(method);
+            }
+            
+            // Move to the next parameter
+            while (!t.isEOF() && !t.isSymbol(',') && !t.isSymbol(')')) {
+                if (t.isSymbol('(')) {
+                    skipGroup(t, '(', ')');
+                } else {
+                    t.next();
                 }
             }
+            if (t.isSymbol(',')) {
+                t.next();
+            }
         }
         
-        // Third pass: Resolve inheritance and implementation relationships
-        resolveRelationships();
+        if (t.isSymbol(')')) {
+            t.next();
+        }
+        return parameters;
+    }
+    
+    /**
+     * Skips what follows a method's parameter list: array dimensions, a throws
+     * clause, an annotation default, and the body or terminating semicolon.
+     * @return true if the method has a body
+     */
+    private boolean skipMethodRest(JavaTokenizer t) {
+        while (!t.isEOF()) {
+            if (t.isSymbol('{')) {
+                skipGroup(t, '{', '}');
+                return true;
+            }
+            if (t.isSymbol(';')) {
+                t.next();
+                return false;
+            }
+            if (t.isSymbol('}')) {
+                // Malformed declaration; leave the enclosing body's brace alone
+                return false;
+            }
+            if (t.isSymbol('(')) {
+                skipGroup(t, '(', ')');
+            } else {
+                t.next();
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Skips a field initializer, up to the comma or semicolon that ends it.
+     * Commas inside brackets, braces or type arguments do not count.
+     *
+     * A {@code <} opens type arguments only after a type name, as in
+     * {@code new HashMap<K, V>()}, or after a dot, as in {@code Map.<K, V>of()};
+     * after a variable or constant it is a comparison. Type arguments never contain the
+     * {@code ?} and {@code :} of a conditional, so those close any left open.
+     */
+    private void skipInitializer(JavaTokenizer t) {
+        t.next();
+        int angleDepth = 0;
+        boolean afterTypeName = false;
         
-        return diagram;
+        while (!t.isEOF() && !t.isSymbol(';') && !t.isSymbol('}')) {
+            boolean typeName = false;
+            if (t.isSymbol('(')) {
+                skipGroup(t, '(', ')');
+                continue;
+            } else if (t.isSymbol('{')) {
+                skipGroup(t, '{', '}');
+                continue;
+            } else if (t.isSymbol('[')) {
+                skipGroup(t, '[', ']');
+                continue;
+            } else if (t.isSymbol(',') && angleDepth == 0) {
+                return;
+            } else if (t.isSymbol('<') && afterTypeName) {
+                angleDepth++;
+            } else if (t.isSymbol('>') && angleDepth > 0) {
+                angleDepth--;
+            } else if (t.isSymbol('?') || t.isSymbol(':')) {
+                angleDepth = 0;
+            } else if (t.isSymbol('.')) {
+                typeName = true;
+            } else if (t.isIdentifier()) {
+                typeName = isTypeName(t.text());
+            }
+            afterTypeName = typeName;
+            t.next();
+        }
+    }
+    
+    /**
+     * @return true for names written like classes, such as {@code HashMap};
+     *         constants such as {@code MAX} and variables do not count
+     */
+    private static boolean isTypeName(String name) {
+        if (!Character.isUpperCase(name.charAt(0))) {
+            return false;
+        }
+        for (int i = 1; i < name.length(); i++) {
+            if (Character.isLowerCase(name.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Reads a type such as {@code Map<String, List<Integer>>}, {@code int[]} or
+     * {@code String...} and returns its text.
+     */
+    private String readType(JavaTokenizer t) {
+        StringBuilder type = new StringBuilder(t.text());
+        t.next();
+        
+        while (true) {
+            if (t.isSymbol('<')) {
+                appendTypeArguments(t, type);
+            }
+            if (!t.isSymbol('.')) {
+                break;
+            }
+            t.next();
+            if (t.isSymbol('.')) {
+                skipVarargs(t);
+                return type.append("...").toString();
+            }
+            if (!t.isIdentifier()) {
+                break;
+            }
+            // Qualified or nested type name
+            type.append('.').append(t.text());
+            t.next();
+        }
+        
+        while (t.isSymbol('[')) {
+            skipGroup(t, '[', ']');
+            type.append("[]");
+        }
+        if (t.isSymbol('.')) {
+            skipVarargs(t);
+            type.append("...");
+        }
+        return type.toString();
+    }
+    
+    private static void skipVarargs(JavaTokenizer t) {
+        while (t.isSymbol('.')) {
+            t.next();
+        }
     }
     
-    private String parsePackageName(String javaCode) {
-        Matcher matcher = PACKAGE_PATTERN.matcher(javaCode);
-        if (matcher.find()) {
-            return matcher.group(1);
+    /**
+     * Appends a type argument list, starting at its opening angle bracket, in the
+     * form {@code <String, ? extends Number>}.
+     */
+    private static void appendTypeArguments(JavaTokenizer t, StringBuilder type) {
+        int depth = 0;
+        boolean spaceAfter = false;
+        
+        while (!t.isEOF()) {
+            if (t.isSymbol('<')) {
+                depth++;
+            } else if (t.isSymbol('>')) {
+                depth--;
+            } else if (t.isSymbol(';') || t.isSymbol('{') || t.isSymbol('(')) {
+                // Not a type argument list after all
+                return;
+            }
+            
+            boolean word = t.isIdentifier() || t.isSymbol('?');
+            if (t.isSymbol('&') || word && spaceAfter) {
+                type.append(' ');
+            }
+            type.append(t.text());
+            spaceAfter = word || t.isSymbol(',') || t.isSymbol('&');
+            t.next();
+            
+            if (depth == 0) {
+                return;
+            }
         }
-        return "";
     }
     
+    /**
+     * Reads a comma-separated list of types, as in an extends or implements
+     * clause, and returns their names without type arguments.
+     */
+    private List<String> readTypeNameList(JavaTokenizer t) {
+        List<String> names = new ArrayList<>();
+        while (t.isIdentifier() && !t.isWord("implements") && !t.isWord("extends") && !t.isWord("permits")) {
+            String name = readType(t);
+            int arguments = name.indexOf('<');
+            if (arguments >= 0) {
+                name = name.substring(0, arguments);
+            }
+            names.add(name);
+            
+            if (!t.isSymbol(',')) {
+                break;
+            }
+            t.next();
+        }
+        return names;
+    }
+    
+    private static String readQualifiedName(JavaTokenizer t) {
+        StringBuilder name = new StringBuilder();
+        while (t.isIdentifier()) {
+            name.append(t.text());
+            t.next();
+            if (!t.isSymbol('.')) {
+                break;
+            }
+            name.append('.');
+            t.next();
+        }
+        return name.toString();
+    }
+    
+    /**
+     * Skips to just past the next semicolon, or up to an unmatched closing brace.
+     */
+    private static void skipStatement(JavaTokenizer t) {
+        while (!t.isEOF() && !t.isSymbol(';') && !t.isSymbol('}')) {
+            if (t.isSymbol('{')) {
+                skipGroup(t, '{', '}');
+            } else {
+                t.next();
+            }
+        }
+        if (t.isSymbol(';')) {
+            t.next();
+        }
+    }
+    
+    /**
+     * Skips a bracketed group, starting at its opening symbol and ending after
+     * the matching closing one.
+     */
+    private static void skipGroup(JavaTokenizer t, char open, char close) {
+        int depth = 0;
+        while (!t.isEOF()) {
+            if (t.isSymbol(open)) {
+                depth++;
+            } else if (t.isSymbol(close)) {
+                depth--;
+            }
+            t.next();
+            if (depth == 0) {
+                return;
+            }
+        }
+    }
+    
+    // Pairs of a class's qualified name and the name of the type it extends or implements
     private List<String[]> inheritanceRelationships = new ArrayList<>();
     private List<String[]> implementationRelationships = new ArrayList<>();
     
     private void resolveRelationships() {
         // Resolve inheritance relationships
         for (String[] inheritance : inheritanceRelationships) {
-            String childClassName = inheritance[0];
-            String parentClassName = inheritance[1];
-            
-            UMLClass childClass = classMap.get(childClassName);
-            UMLClass parentClass = classMap.get(parentClassName);
-            
-            // If parent class doesn't exist in our map, create a stub for it
-            if (parentClass == null) {
-                parentClass = new UMLClass(parentClassName);
-                diagram.addClass(parentClass);
-                classMap.put(parentClassName, parentClass);
-            }
+            UMLClass childClass = symbols.get(inheritance[0]);
+            UMLClass parentClass = resolveOrStub(inheritance[1], childClass, "class");
             
             // Create inheritance relationship
             UMLRelationship relationship = new UMLRelationship(childClass, parentClass, UMLRelationship.INHERITANCE);
@@ -207,18 +870,8 @@ public class JavaParser {
         
         // Resolve implementation relationships
         for (String[] implementation : implementationRelationships) {
-            String className = implementation[0];
-            String interfaceName = implementation[1];
-            
-            UMLClass implementingClass = classMap.get(className);
-            UMLClass interfaceClass = classMap.get(interfaceName);
-            
-            // If interface class doesn't exist in our map, create a stub for it
-            if (interfaceClass == null) {
-                interfaceClass = new UMLClass(interfaceName, "interface");
-                diagram.addClass(interfaceClass);
-                classMap.put(interfaceName, interfaceClass);
-            }
+            UMLClass implementingClass = symbols.get(implementation[0]);
+            UMLClass interfaceClass = resolveOrStub(implementation[1], implementingClass, "interface");
             
             // Create implementation relationship
             UMLRelationship relationship = new UMLRelationship(implementingClass, interfaceClass, UMLRelationship.IMPLEMENTATION);
@@ -226,22 +879,29 @@ public class JavaParser {
         }
         
         // Add associations based on field types
+        List<String> typeNames = new ArrayList<>();
         for (UMLClass umlClass : diagram.getClasses()) {
             for (UMLAttribute attribute : umlClass.getAttributes()) {
                 String attributeType = attribute.getType();
                 
-                // Skip primitive types and common types like String, Integer, etc.
-                if (isPrimitiveOrCommonType(attributeType)) {
-                    continue;
-                }
+                // Course is one; Course[] and the Course in List<Course> are many
+                typeNames.clear();
+                collectTypeNames(attributeType, typeNames);
+                boolean isArray = attributeType.endsWith("[]") || attributeType.endsWith("...");
                 
-                // Check if the attribute type is one of our classes
-                UMLClass targetClass = classMap.get(attributeType);
-                if (targetClass != null) {
+                UMLClass previousTarget = null;
+                for (int i = 0; i < typeNames.size(); i++) {
+                    // Primitives, String, collections and other library types resolve to nothing
+                    UMLClass targetClass = symbols.resolve(typeNames.get(i), umlClass);
+                    if (targetClass == null || targetClass == previousTarget) {
+                        continue;
+                    }
+                    previousTarget = targetClass;
+                    
                     // Determine if it's an aggregation or composition (simplified)
                     // Using composition as default for simplicity
                     UMLRelationship relationship = new UMLRelationship(umlClass, targetClass, UMLRelationship.COMPOSITION);
-                    relationship.setTargetLabel("1");
+                    relationship.setTargetLabel(i == 0 && !isArray ? "1" : "*");
                     
                     diagram.addRelationship(relationship);
                 }
@@ -249,23 +909,59 @@ public class JavaParser {
         }
     }
     
-    private boolean isPrimitiveOrCommonType(String type) {
-        String[] commonTypes = {"String", "Integer", "Boolean", "Double", "Float", "Long", "Short", "Byte",
-                                "Object", "List", "Map", "Set", "Collection", "ArrayList", "HashMap", "HashSet"};
-        
-        // Check if primitive
-        if (type.equals("int") || type.equals("boolean") || type.equals("double") || type.equals("float") ||
-            type.equals("long") || type.equals("short") || type.equals("byte") || type.equals("char")) {
-            return true;
+    /**
+     * Resolves a supertype, creating a stub for it if it is not a known class.
+     */
+    private UMLClass resolveOrStub(String name, UMLClass from, String type) {
+        UMLClass umlClass = symbols.resolve(name, from);
+        if (umlClass == null) {
+            // Stubs are shared by name, so every subclass of an unknown type points to one box
+            umlClass = symbols.get(name);
         }
-        
-        // Check if common class
-        for (String commonType : commonTypes) {
-            if (type.contains(commonType)) {
-                return true;
+        if (umlClass == null) {
+            umlClass = new UMLClass(name.substring(name.lastIndexOf('.') + 1), type);
+            diagram.addClass(umlClass);
+            symbols.add(umlClass, name, null);
+        }
+        return umlClass;
+    }
+    
+    /**
+     * Collects the type names in a field type: the type itself first, then the
+     * names in its type arguments. {@code Map<String, ? extends Course>} gives
+     * Map, String and Course.
+     */
+    private static void collectTypeNames(String type, List<String> names) {
+        int length = type.length();
+        int i = 0;
+        while (i < length) {
+            if (!Character.isJavaIdentifierStart(type.charAt(i))) {
+                i++;
+                continue;
+            }
+            
+            int start = i;
+            while (i < length && (Character.isJavaIdentifierPart(type.charAt(i))
+                    || type.charAt(i) == '.' && i + 1 < length && Character.isJavaIdentifierStart(type.charAt(i + 1)))) {
+                i++;
+            }
+            
+            String name = type.substring(start, i);
+            if (!name.equals("extends") && !name.equals("super")) {
+                names.add(name);
             }
         }
-        
-        return false;
     }
-} 
\ No newline at end of file
+    
+    /**
+     * Modifiers and annotations read before a declaration.
+     */
+    private static class Modifiers {
+        String visibility;
+        boolean isStatic;
+        boolean isFinal;
+        boolean isAbstract;
+        boolean isDefault;
+        boolean annotationType;
+    }
+}
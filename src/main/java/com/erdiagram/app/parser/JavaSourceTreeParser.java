@@ -0,0 +1,441 @@
+package com.erdiagram.app.parser;
+
+import com.erdiagram.app.model.Replacement;
+import com.erdiagram.app.model.UMLClass;
+import com.erdiagram.app.model.UMLDiagram;
+import com.erdiagram.app.model.UMLDiagramDelta;
+import com.erdiagram.app.model.UMLRelationship;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Builds one UML diagram from every {@code .java} file under one or more source roots.
+ *
+ * Files are parsed in parallel on a work-stealing pool, each by its own
+ * {@link JavaParser}. A worker reads a file, keeps only the declarations found
+ * in it and lets the source text go, so memory grows with the number of
+ * classes rather than the size of the tree. The results are merged in path
+ * order, keyed by qualified class name, and relationships are resolved once
+ * across all files. With a {@link ParseCache} set, unchanged files are not
+ * parsed again, even after a restart.
+ *
+ * The declarations of every file are kept, so that {@link #update(Collection)}
+ * only parses the files that changed since. Classes and relationships that
+ * come out the same keep their identity and position across updates.
+ */
+public class JavaSourceTreeParser {
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private IntConsumer progressListener;
+    private ParseCache parseCache;
+    private int fileCount;
+    private int duplicateCount;
+    private int reparsedCount;
+
+    // The declarations of each file by path, in merge order
+    private Map<Path, JavaParser> units = new TreeMap<>();
+    private UMLDiagram diagram;
+    private Map<String, UMLClass> classesByName = new HashMap<>();
+    private Map<String, UMLRelationship> relationshipsByKey = new HashMap<>();
+    // Changes reported to an update that did not complete
+    private final Set<Path> pendingChanges = new LinkedHashSet<>();
+
+    /**
+     * @param parallelism The number of parse workers, at least 1
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets a listener that receives the number of files parsed so far.
+     * It is called on the worker threads.
+     * @param progressListener The listener, or null for none
+     */
+    public void setProgressListener(IntConsumer progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Sets a cache for the declarations of each file.
+     * @param parseCache The cache, or null to always parse
+     */
+    public void setParseCache(ParseCache parseCache) {
+        this.parseCache = parseCache;
+    }
+
+    public ParseCache getParseCache() {
+        return parseCache;
+    }
+
+    public UMLDiagram parse(Path root) throws IOException {
+        return parse(Collections.singletonList(root));
+    }
+
+    /**
+     * Parses every Java file under the roots, for example the source folders of
+     * several modules or the directory that contains them.
+     * @throws InterruptedIOException If the calling thread is interrupted
+     */
+    public UMLDiagram parse(List<Path> roots) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path root : roots) {
+            listJavaFiles(root, files);
+        }
+        Collections.sort(files);
+
+        List<JavaParser> parsed = parseFiles(files);
+        Map<Path, JavaParser> nextUnits = new TreeMap<>();
+        for (int i = 0; i < files.size(); i++) {
+            nextUnits.put(files.get(i), parsed.get(i));
+        }
+
+        // A fresh parse shares nothing with what was shown before
+        classesByName = new HashMap<>();
+        relationshipsByKey = new HashMap<>();
+        build(nextUnits, new UMLDiagramDelta(), true);
+        pendingChanges.clear();
+        reparsedCount = files.size();
+        return diagram;
+    }
+
+    /**
+     * Brings the diagram of the last parse up to date with changed files and
+     * folders, parsing only those. A folder is read again as a whole; a path
+     * that no longer exists removes whatever was read from it. If the update is
+     * interrupted, its paths are carried over to the next one.
+     *
+     * @param changedPaths Files and folders under the parsed roots that were created, modified or deleted
+     * @return What changed from the previous diagram to the one now returned by {@link #getDiagram()}
+     * @throws IllegalStateException If nothing has been parsed yet
+     * @throws InterruptedIOException If the calling thread is interrupted
+     */
+    public UMLDiagramDelta update(Collection<Path> changedPaths) throws IOException {
+        if (diagram == null) {
+            throw new IllegalStateException("No source tree has been parsed yet");
+        }
+        pendingChanges.addAll(changedPaths);
+
+        Map<Path, JavaParser> nextUnits = new TreeMap<>(units);
+        Set<Path> stale = new LinkedHashSet<>();
+        for (Path path : pendingChanges) {
+            if (Files.isDirectory(path)) {
+                // A new folder, or a rescan after the watcher lost track
+                nextUnits.keySet().removeIf(file -> file.startsWith(path));
+                List<Path> files = new ArrayList<>();
+                listJavaFiles(path, files);
+                stale.addAll(files);
+            } else if (Files.isRegularFile(path)) {
+                if (isJavaFile(path)) {
+                    stale.add(path);
+                }
+            } else {
+                // A deleted file, or every file of a deleted folder
+                nextUnits.keySet().removeIf(file -> file.startsWith(path));
+            }
+        }
+
+        List<Path> files = new ArrayList<>(stale);
+        List<JavaParser> parsed = parseFiles(files);
+        for (int i = 0; i < files.size(); i++) {
+            nextUnits.put(files.get(i), parsed.get(i));
+        }
+
+        UMLDiagramDelta delta = new UMLDiagramDelta();
+        build(nextUnits, delta, false);
+        pendingChanges.clear();
+        reparsedCount = files.size();
+        return delta;
+    }
+
+    /**
+     * Merges the declarations of all files, resolves relationships and commits
+     * the result as the current diagram.
+     */
+    private void build(Map<Path, JavaParser> nextUnits, UMLDiagramDelta delta, boolean firstBuild) {
+        JavaParser merged = new JavaParser();
+        int duplicates = 0;
+        for (JavaParser unit : nextUnits.values()) {
+            duplicates += merged.merge(unit);
+        }
+        UMLDiagram nextDiagram = merged.resolve();
+
+        Map<UMLClass, String> names = reconcileClasses(merged, nextDiagram, delta);
+        if (!firstBuild) {
+            nextDiagram.layoutBelow(delta.getAddedClasses());
+        }
+        Map<String, UMLRelationship> nextRelationships = reconcileRelationships(nextDiagram, names, delta);
+
+        // Commit: only a build that completed replaces the current state
+        units = nextUnits;
+        diagram = nextDiagram;
+        relationshipsByKey = nextRelationships;
+        fileCount = nextUnits.size();
+        duplicateCount = duplicates;
+        if (parseCache != null) {
+            parseCache.trim();
+        }
+    }
+
+    /**
+     * Swaps classes that were declared the same way before back to their
+     * previous instances and records the rest in the delta. Classes of files
+     * that were not parsed again already are the previous instances.
+     * @return The qualified name of every class of the new diagram
+     */
+    private Map<UMLClass, String> reconcileClasses(JavaParser merged, UMLDiagram nextDiagram, UMLDiagramDelta delta) {
+        Map<String, UMLClass> previousByName = new HashMap<>(classesByName);
+        Map<String, UMLClass> currentByName = new HashMap<>();
+        Map<UMLClass, UMLClass> reused = new IdentityHashMap<>();
+        Map<UMLClass, String> names = new IdentityHashMap<>();
+        List<UMLClass> classes = nextDiagram.getClasses();
+
+        for (int i = 0; i < classes.size(); i++) {
+            UMLClass umlClass = classes.get(i);
+            String name = merged.getQualifiedName(umlClass);
+            UMLClass previous = previousByName.remove(name);
+
+            if (previous == null) {
+                delta.getAddedClasses().add(umlClass);
+            } else if (previous != umlClass && isSameDeclaration(previous, umlClass)) {
+                reused.put(umlClass, previous);
+                umlClass = previous;
+                classes.set(i, previous);
+            } else if (previous != umlClass) {
+                // Same class, new declaration: keep it where the user left it
+                umlClass.setX(previous.getX());
+                umlClass.setY(previous.getY());
+                delta.getChangedClasses().add(new Replacement<>(previous, umlClass));
+            }
+
+            currentByName.put(name, umlClass);
+            names.put(umlClass, name);
+        }
+        delta.getRemovedClasses().addAll(previousByName.values());
+
+        if (!reused.isEmpty()) {
+            for (UMLRelationship relationship : nextDiagram.getRelationships()) {
+                relationship.setSource(reused.getOrDefault(relationship.getSource(), relationship.getSource()));
+                relationship.setTarget(reused.getOrDefault(relationship.getTarget(), relationship.getTarget()));
+            }
+        }
+
+        classesByName = currentByName;
+        return names;
+    }
+
+    private static boolean isSameDeclaration(UMLClass a, UMLClass b) {
+        if (!a.getName().equals(b.getName()) || !a.getType().equals(b.getType())
+                || a.getAttributes().size() != b.getAttributes().size()
+                || a.getMethods().size() != b.getMethods().size()) {
+            return false;
+        }
+        // Compared as shown in the diagram
+        for (int i = 0; i < a.getAttributes().size(); i++) {
+            if (!a.getAttributes().get(i).toString().equals(b.getAttributes().get(i).toString())) {
+                return false;
+            }
+        }
+        for (int i = 0; i < a.getMethods().size(); i++) {
+            if (!a.getMethods().get(i).toString().equals(b.getMethods().get(i).toString())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Swaps unchanged relationships back to their previous instances and records
+     * the rest in the delta.
+     * @return The relationships of the new diagram by key
+     */
+    private Map<String, UMLRelationship> reconcileRelationships(UMLDiagram nextDiagram, Map<UMLClass, String> names,
+                                                                UMLDiagramDelta delta) {
+        Map<String, UMLRelationship> previousByKey = new HashMap<>(relationshipsByKey);
+        Map<String, UMLRelationship> currentByKey = new HashMap<>();
+        List<UMLRelationship> relationships = nextDiagram.getRelationships();
+
+        for (int i = 0; i < relationships.size(); i++) {
+            UMLRelationship relationship = relationships.get(i);
+            String key = relationshipKey(relationship, names, currentByKey);
+            UMLRelationship previous = previousByKey.remove(key);
+
+            if (previous == null) {
+                delta.getAddedRelationships().add(relationship);
+            } else if (previous.getSource() == relationship.getSource()
+                    && previous.getTarget() == relationship.getTarget()) {
+                relationship = previous;
+                relationships.set(i, previous);
+            } else {
+                delta.getChangedRelationships().add(new Replacement<>(previous, relationship));
+            }
+
+            currentByKey.put(key, relationship);
+        }
+
+        delta.getRemovedRelationships().addAll(previousByKey.values());
+        return currentByKey;
+    }
+
+    private static String relationshipKey(UMLRelationship relationship, Map<UMLClass, String> names,
+                                          Map<String, UMLRelationship> taken) {
+        String base = names.get(relationship.getSource()) + " -" + relationship.getType() + "-> "
+                + names.get(relationship.getTarget()) + " " + relationship.getSourceLabel()
+                + ":" + relationship.getTargetLabel();
+
+        // Disambiguate several fields of the same type
+        String key = base;
+        for (int n = 2; taken.containsKey(key); n++) {
+            key = base + "#" + n;
+        }
+        return key;
+    }
+
+    private static void listJavaFiles(Path root, List<Path> files) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                // Skip .git, .idea and other hidden folders
+                Path name = dir.getFileName();
+                if (!dir.equals(root) && name != null && name.toString().startsWith(".")) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && isJavaFile(file)) {
+                    files.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static boolean isJavaFile(Path file) {
+        return file.getFileName().toString().endsWith(".java");
+    }
+
+    private List<JavaParser> parseFiles(List<Path> files) throws IOException {
+        AtomicInteger parsed = new AtomicInteger();
+
+        if (parallelism == 1 || files.size() < 2) {
+            List<JavaParser> results = new ArrayList<>(files.size());
+            for (Path file : files) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Java parsing was cancelled");
+                }
+                results.add(parseFile(file, parsed));
+            }
+            return results;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, files.size()));
+        try {
+            List<Future<JavaParser>> pending = new ArrayList<>(files.size());
+            for (Path file : files) {
+                pending.add(pool.submit(() -> parseFile(file, parsed)));
+            }
+
+            List<JavaParser> results = new ArrayList<>(files.size());
+            for (Future<JavaParser> future : pending) {
+                results.add(await(future));
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private JavaParser parseFile(Path file, AtomicInteger parsed) throws IOException {
+        JavaParser parser = parseCache == null ? readFile(file)
+                : parseCache.get("java", file, JavaParser.CACHE_CODEC, JavaSourceTreeParser::readFile);
+
+        int count = parsed.incrementAndGet();
+        if (progressListener != null) {
+            progressListener.accept(count);
+        }
+        return parser;
+    }
+
+    private static JavaParser readFile(Path file) throws IOException {
+        // Decoded leniently: a stray byte in a comment should not fail the whole tree
+        String source = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+
+        JavaParser parser = new JavaParser();
+        parser.readDeclarations(source);
+        return parser;
+    }
+
+    private static JavaParser await(Future<JavaParser> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Java parsing was interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Java parsing failed", cause);
+        }
+    }
+
+    /**
+     * @return The diagram of the last parse or update, or null if nothing has been parsed
+     */
+    public UMLDiagram getDiagram() {
+        return diagram;
+    }
+
+    /**
+     * @return The number of Java files read by the last parse
+     */
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    /**
+     * @return The number of Java files that had to be parsed in the last parse or update
+     */
+    public int getReparsedCount() {
+        return reparsedCount;
+    }
+
+    /**
+     * @return The number of classes skipped by the last parse because a class with
+     *         the same qualified name was found in an earlier file
+     */
+    public int getDuplicateCount() {
+        return duplicateCount;
+    }
+}
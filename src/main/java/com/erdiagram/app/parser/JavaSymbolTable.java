@@ -0,0 +1,131 @@
+package com.erdiagram.app.parser;
+
+import com.erdiagram.app.model.UMLClass;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The classes read by {@link JavaParser}, by qualified name, together with the
+ * package and imports of the file each one was declared in.
+ *
+ * A type name used inside a class is resolved the way the compiler does it:
+ * member types of the class and its enclosing classes first, then single-type
+ * imports, then the class's own package, then on-demand imports. Each step is
+ * one hash lookup, so resolving a reference does not depend on the number of
+ * classes. Names that resolve to nothing, such as {@code String} or library
+ * types, are simply not project classes.
+ */
+class JavaSymbolTable {
+
+    /**
+     * Package and import declarations of one source file.
+     */
+    static class CompilationUnit {
+        String packageName = "";
+        // Simple name to qualified name, from imports such as java.util.List
+        final Map<String, String> singleTypeImports = new HashMap<>();
+        // Packages or types imported with .*
+        final List<String> onDemandImports = new ArrayList<>();
+    }
+
+    private final Map<String, UMLClass> classes = new HashMap<>();
+    private final Map<UMLClass, String> qualifiedNames = new IdentityHashMap<>();
+    private final Map<UMLClass, CompilationUnit> units = new IdentityHashMap<>();
+
+    /**
+     * Registers a class.
+     * @param unit The file it was declared in, or null for a stub created for an unknown type
+     * @return false if a class with the same qualified name is already registered
+     */
+    boolean add(UMLClass umlClass, String qualifiedName, CompilationUnit unit) {
+        if (classes.putIfAbsent(qualifiedName, umlClass) != null) {
+            return false;
+        }
+        qualifiedNames.put(umlClass, qualifiedName);
+        if (unit != null) {
+            units.put(umlClass, unit);
+        }
+        return true;
+    }
+
+    /**
+     * Registers a class from another table under the same name and file.
+     * @return false if a class with the same qualified name is already registered
+     */
+    boolean addFrom(JavaSymbolTable other, UMLClass umlClass) {
+        return add(umlClass, other.getQualifiedName(umlClass), other.units.get(umlClass));
+    }
+
+    UMLClass get(String qualifiedName) {
+        return classes.get(qualifiedName);
+    }
+
+    String getQualifiedName(UMLClass umlClass) {
+        return qualifiedNames.getOrDefault(umlClass, umlClass.getName());
+    }
+
+    void clear() {
+        classes.clear();
+        qualifiedNames.clear();
+        units.clear();
+    }
+
+    /**
+     * Resolves a type name, simple or qualified, as written inside a class.
+     * @return The class it names, or null if it is not a known class
+     */
+    UMLClass resolve(String name, UMLClass from) {
+        int dot = name.indexOf('.');
+        if (dot >= 0) {
+            UMLClass umlClass = classes.get(name);
+            if (umlClass != null) {
+                return umlClass;
+            }
+            // A member type reached through a name in scope, as in Map.Entry
+            UMLClass outer = resolve(name.substring(0, dot), from);
+            return outer == null ? null : classes.get(getQualifiedName(outer) + name.substring(dot));
+        }
+
+        CompilationUnit unit = units.get(from);
+        if (unit == null) {
+            // Stubs have no file, so only the name itself can match
+            return classes.get(name);
+        }
+
+        // Member types of the class and of each enclosing class
+        String scope = getQualifiedName(from);
+        while (scope.length() > unit.packageName.length()) {
+            UMLClass member = classes.get(scope + "." + name);
+            if (member != null) {
+                return member;
+            }
+            int lastDot = scope.lastIndexOf('.');
+            if (lastDot < 0) {
+                break;
+            }
+            scope = scope.substring(0, lastDot);
+        }
+
+        String imported = unit.singleTypeImports.get(name);
+        if (imported != null) {
+            return classes.get(imported);
+        }
+
+        UMLClass sibling = classes.get(unit.packageName.isEmpty() ? name : unit.packageName + "." + name);
+        if (sibling != null) {
+            return sibling;
+        }
+
+        for (String prefix : unit.onDemandImports) {
+            UMLClass umlClass = classes.get(prefix + "." + name);
+            if (umlClass != null) {
+                return umlClass;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,180 @@
+package com.erdiagram.app.parser;
+
+/**
+ * Minimal hand-written Java tokenizer used by {@link JavaParser}.
+ *
+ * The tokenizer walks the source once. Comments and whitespace are skipped,
+ * and string, text block and character literals are consumed whole, so braces
+ * and semicolons inside them are never mistaken for structure. It never
+ * throws: an unterminated literal or comment simply ends at the end of the
+ * text. Token text is only materialised when {@link #text()} is called, so
+ * keyword checks do not allocate.
+ */
+class JavaTokenizer {
+    static final int EOF = 0;
+    static final int WORD = 1;
+    static final int LITERAL = 2;
+    static final int SYMBOL = 3;
+
+    private final String source;
+    private final int length;
+    private int pos;
+
+    private int type = EOF;
+    private int start;
+    private int end;
+
+    JavaTokenizer(String source) {
+        this.source = source;
+        this.length = source.length();
+    }
+
+    /**
+     * Advances to the next token.
+     * @return false once the end of the text has been reached
+     */
+    boolean next() {
+        skipWhitespaceAndComments();
+        start = pos;
+
+        if (pos >= length) {
+            type = EOF;
+            end = pos;
+            return false;
+        }
+
+        char c = source.charAt(pos);
+
+        if (Character.isJavaIdentifierStart(c)) {
+            type = WORD;
+            pos++;
+            while (pos < length && Character.isJavaIdentifierPart(source.charAt(pos))) {
+                pos++;
+            }
+        } else if (c == '"') {
+            type = LITERAL;
+            if (source.startsWith("\"\"\"", pos)) {
+                int close = source.indexOf("\"\"\"", pos + 3);
+                // Skip escaped quotes at the end of a text block
+                while (close > 0 && source.charAt(close - 1) == '\\') {
+                    close = source.indexOf("\"\"\"", close + 1);
+                }
+                pos = close < 0 ? length : close + 3;
+            } else {
+                skipQuoted('"');
+            }
+        } else if (c == '\'') {
+            type = LITERAL;
+            skipQuoted('\'');
+        } else if (c >= '0' && c <= '9' || c == '.' && pos + 1 < length && isDigit(source.charAt(pos + 1))) {
+            type = LITERAL;
+            pos++;
+            while (pos < length && (Character.isJavaIdentifierPart(source.charAt(pos)) || source.charAt(pos) == '.')) {
+                pos++;
+            }
+        } else {
+            type = SYMBOL;
+            pos++;
+        }
+
+        end = pos;
+        return true;
+    }
+
+    private void skipQuoted(char quote) {
+        pos++;
+        while (pos < length) {
+            char ch = source.charAt(pos);
+            if (ch == '\\') {
+                pos += 2;
+            } else if (ch == quote || ch == '\n') {
+                // A line break ends an unterminated literal
+                pos++;
+                break;
+            } else {
+                pos++;
+            }
+        }
+        pos = Math.min(pos, length);
+    }
+
+    private void skipWhitespaceAndComments() {
+        while (pos < length) {
+            char c = source.charAt(pos);
+            if (Character.isWhitespace(c)) {
+                pos++;
+            } else if (c == '/' && pos + 1 < length && source.charAt(pos + 1) == '/') {
+                int newline = source.indexOf('\n', pos + 2);
+                pos = newline < 0 ? length : newline + 1;
+            } else if (c == '/' && pos + 1 < length && source.charAt(pos + 1) == '*') {
+                int close = source.indexOf("*/", pos + 2);
+                pos = close < 0 ? length : close + 2;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    int type() {
+        return type;
+    }
+
+    boolean isEOF() {
+        return type == EOF;
+    }
+
+    /**
+     * @return true if the current token is a word equal to the keyword
+     */
+    boolean isWord(String keyword) {
+        return type == WORD && end - start == keyword.length()
+                && source.startsWith(keyword, start);
+    }
+
+    /**
+     * @return true if the current token is a word matching any of the keywords
+     */
+    boolean isAnyWord(String[] keywords) {
+        if (type != WORD) {
+            return false;
+        }
+        for (String keyword : keywords) {
+            if (isWord(keyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean isSymbol(char symbol) {
+        return type == SYMBOL && source.charAt(start) == symbol;
+    }
+
+    boolean isIdentifier() {
+        return type == WORD;
+    }
+
+    String text() {
+        return source.substring(start, end);
+    }
+
+    /**
+     * @return The offset of the first character of the current token
+     */
+    int tokenStart() {
+        return start;
+    }
+
+    /**
+     * Moves back to a token seen earlier, for lookahead.
+     * @param tokenStart An offset returned by {@link #tokenStart()}
+     */
+    void reset(int tokenStart) {
+        pos = tokenStart;
+        next();
+    }
+}
@@ -0,0 +1,138 @@
+package com.erdiagram.app.parser;
+
+import java.nio.file.Path;
+
+/**
+ * A Flyway-style migration script, named {@code V<version>__<description>.sql}
+ * for versioned or {@code R__<description>.sql} for repeatable migrations.
+ *
+ * Versions compare numerically part by part, so {@code V1_10} follows
+ * {@code V1_9} and {@code V2} equals {@code V2.0}. Repeatable migrations sort
+ * after all versioned ones, by description.
+ */
+class MigrationFile implements Comparable<MigrationFile> {
+    private static final String SEPARATOR = "__";
+    private static final String SUFFIX = ".sql";
+
+    final Path path;
+    final String fileName;
+    final long size;
+    final long lastModified;
+
+    // Null for repeatable migrations
+    private final long[] version;
+    private final String description;
+
+    private MigrationFile(Path path, String fileName, long size, long lastModified,
+                          long[] version, String description) {
+        this.path = path;
+        this.fileName = fileName;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.version = version;
+        this.description = description;
+    }
+
+    /**
+     * @return The migration, or null if the file name does not follow the naming scheme
+     */
+    static MigrationFile of(Path path, long size, long lastModified) {
+        String fileName = path.getFileName().toString();
+        int separator = fileName.indexOf(SEPARATOR);
+
+        if (separator < 1 || fileName.length() < SUFFIX.length()
+                || !fileName.regionMatches(true, fileName.length() - SUFFIX.length(), SUFFIX, 0, SUFFIX.length())) {
+            return null;
+        }
+
+        String description = fileName.substring(separator + SEPARATOR.length(), fileName.length() - SUFFIX.length());
+        char prefix = fileName.charAt(0);
+
+        if (prefix == 'R' && separator == 1) {
+            return new MigrationFile(path, fileName, size, lastModified, null, description);
+        }
+        if (prefix != 'V') {
+            return null;
+        }
+
+        long[] version = parseVersion(fileName, 1, separator);
+        return version == null ? null : new MigrationFile(path, fileName, size, lastModified, version, description);
+    }
+
+    /**
+     * Parses a version such as {@code 1_2} or {@code 1.2.3}; null if it is not numeric.
+     */
+    private static long[] parseVersion(String text, int start, int end) {
+        if (start >= end) {
+            return null;
+        }
+
+        int parts = 1;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '.' || c == '_') {
+                parts++;
+            } else if (c < '0' || c > '9') {
+                return null;
+            }
+        }
+
+        long[] version = new long[parts];
+        int part = 0;
+        boolean digits = false;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '.' || c == '_') {
+                if (!digits) {
+                    return null;
+                }
+                part++;
+                digits = false;
+            } else {
+                version[part] = version[part] * 10 + (c - '0');
+                digits = true;
+            }
+        }
+        return digits ? version : null;
+    }
+
+    boolean isRepeatable() {
+        return version == null;
+    }
+
+    /**
+     * @return true if both files carry the same version, such as {@code V2} and {@code V2_0}
+     */
+    boolean hasSameVersion(MigrationFile other) {
+        return version != null && other.version != null && compareVersions(version, other.version) == 0;
+    }
+
+    @Override
+    public int compareTo(MigrationFile other) {
+        if (version == null || other.version == null) {
+            if (version != other.version) {
+                return version == null ? 1 : -1;
+            }
+            return description.compareTo(other.description);
+        }
+
+        int result = compareVersions(version, other.version);
+        return result != 0 ? result : fileName.compareTo(other.fileName);
+    }
+
+    private static int compareVersions(long[] a, long[] b) {
+        for (int i = 0; i < Math.max(a.length, b.length); i++) {
+            long partA = i < a.length ? a[i] : 0;
+            long partB = i < b.length ? b[i] : 0;
+            if (partA != partB) {
+                return Long.compare(partA, partB);
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        return fileName;
+    }
+}
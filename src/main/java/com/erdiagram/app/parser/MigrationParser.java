@@ -0,0 +1,269 @@
+package com.erdiagram.app.parser;
+
+import com.erdiagram.app.model.ERDiagram;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Builds a diagram from a directory of Flyway-style migration scripts.
+ *
+ * Files are parsed in parallel, each on its own, and their results are cached
+ * by path, size and modification time. The statements are then applied to a
+ * {@link SchemaEvolution} in version order. When one migration is added, only
+ * that file is read on the next run. With a {@link ParseCache} on the SQL
+ * parser, results also survive a restart.
+ */
+class MigrationParser {
+    private final SQLParser sqlParser;
+    private final DDLFallbackParser fallbackParser = new DDLFallbackParser();
+    private Map<Path, ParsedMigration> cache = new HashMap<>();
+    private boolean cacheBackslashEscapes;
+    private int migrationCount;
+    private int parsedCount;
+
+    MigrationParser(SQLParser sqlParser) {
+        this.sqlParser = sqlParser;
+    }
+
+    ERDiagram parse(Path directory, List<SQLDiagnostic> diagnostics) throws IOException {
+        boolean backslashEscapes = sqlParser.isBackslashEscapes();
+        fallbackParser.setBackslashEscapes(backslashEscapes);
+        if (backslashEscapes != cacheBackslashEscapes) {
+            // Files read in the other dialect may have been split differently
+            cache = new HashMap<>();
+            cacheBackslashEscapes = backslashEscapes;
+        }
+        List<MigrationFile> files = listMigrations(directory);
+        Map<Path, ParsedMigration> nextCache = new HashMap<>();
+        List<MigrationFile> stale = new ArrayList<>();
+
+        for (MigrationFile file : files) {
+            ParsedMigration cached = cache.get(file.path);
+            if (cached != null && cached.size == file.size && cached.lastModified == file.lastModified) {
+                nextCache.put(file.path, cached);
+            } else {
+                stale.add(file);
+            }
+        }
+
+        for (ParsedMigration parsed : parseFiles(stale)) {
+            nextCache.put(parsed.path, parsed);
+        }
+
+        // Files that disappeared drop out of the cache here
+        cache = nextCache;
+        if (sqlParser.getParseCache() != null) {
+            sqlParser.getParseCache().trim();
+        }
+        migrationCount = files.size();
+        parsedCount = stale.size();
+
+        SchemaEvolution schema = new SchemaEvolution(diagnostics);
+        MigrationFile previous = null;
+        for (MigrationFile file : files) {
+            if (previous != null && previous.hasSameVersion(file)) {
+                diagnostics.add(new SQLDiagnostic(file.fileName, 0, null, SQLDiagnostic.Severity.WARNING,
+                        "Migration has the same version as " + previous.fileName));
+            }
+            previous = file;
+
+            ParsedMigration migration = cache.get(file.path);
+            for (int i = 0; i < migration.statements.size(); i++) {
+                schema.apply(migration.statements.get(i), file.fileName, migration.statementIndexes[i]);
+            }
+        }
+
+        ERDiagram diagram = schema.build(sqlParser);
+        diagram.autoLayout();
+        return diagram;
+    }
+
+    private static List<MigrationFile> listMigrations(Path directory) throws IOException {
+        List<MigrationFile> files = new ArrayList<>();
+
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile()) {
+                    MigrationFile migration = MigrationFile.of(
+                            file, attrs.size(), attrs.lastModifiedTime().toMillis());
+                    if (migration != null) {
+                        files.add(migration);
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        Collections.sort(files);
+        return files;
+    }
+
+    private List<ParsedMigration> parseFiles(List<MigrationFile> files) throws IOException {
+        if (files.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        int parallelism = Math.min(sqlParser.getParallelism(), files.size());
+        if (parallelism == 1) {
+            List<ParsedMigration> results = new ArrayList<>(files.size());
+            for (MigrationFile file : files) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Migration parsing was cancelled");
+                }
+                results.add(parseFile(file));
+            }
+            return results;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<Future<ParsedMigration>> pending = new ArrayList<>(files.size());
+            for (MigrationFile file : files) {
+                pending.add(pool.submit(() -> parseFile(file)));
+            }
+
+            List<ParsedMigration> results = new ArrayList<>(files.size());
+            for (Future<ParsedMigration> future : pending) {
+                results.add(await(future));
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private ParsedMigration parseFile(MigrationFile file) throws IOException {
+        ParseCache parseCache = sqlParser.getParseCache();
+        if (parseCache == null) {
+            return readFile(file);
+        }
+        return parseCache.get(sqlParser.cacheKind("migration"), file.path, new MigrationCodec(file), path -> readFile(file));
+    }
+
+    private ParsedMigration readFile(MigrationFile file) throws IOException {
+        List<ParsedTable> statements = new ArrayList<>();
+        List<Integer> indexes = new ArrayList<>();
+
+        try (SQLStatementSource source = sqlParser.configure(SQLStatementSource.fromFile(file.path))) {
+            String statementStr;
+            int statementIndex = 0;
+            while ((statementStr = source.nextStatement()) != null) {
+                statementIndex++;
+                // Only migrations drop tables; a plain script is read as the schema it creates
+                ParsedTable parsed = SQLParser.startsWithKeyword(statementStr, "DROP")
+                        ? fallbackParser.parseDropTable(statementStr)
+                        : sqlParser.parseStatement(statementStr, statementIndex);
+                if (parsed != null) {
+                    statements.add(parsed);
+                    indexes.add(statementIndex);
+                }
+            }
+        }
+
+        int[] statementIndexes = new int[indexes.size()];
+        for (int i = 0; i < statementIndexes.length; i++) {
+            statementIndexes[i] = indexes.get(i);
+        }
+        return new ParsedMigration(file, statements, statementIndexes);
+    }
+
+    private static ParsedMigration await(Future<ParsedMigration> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Migration parsing was interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Migration parsing failed", cause);
+        }
+    }
+
+    /**
+     * @return The number of migrations applied by the last parse
+     */
+    int getMigrationCount() {
+        return migrationCount;
+    }
+
+    /**
+     * @return The number of migrations read from disk by the last parse, the rest came from the cache
+     */
+    int getParsedCount() {
+        return parsedCount;
+    }
+
+    /**
+     * Stores the parse results of one migration in a {@link ParseCache}.
+     */
+    private static class MigrationCodec implements ParseCache.Codec<ParsedMigration> {
+        private final MigrationFile file;
+
+        MigrationCodec(MigrationFile file) {
+            this.file = file;
+        }
+
+        @Override
+        public void write(DataOutput out, ParsedMigration migration) throws IOException {
+            out.writeInt(migration.statements.size());
+            for (int i = 0; i < migration.statements.size(); i++) {
+                out.writeInt(migration.statementIndexes[i]);
+                migration.statements.get(i).writeTo(out);
+            }
+        }
+
+        @Override
+        public ParsedMigration read(DataInput in) throws IOException {
+            int count = in.readInt();
+            List<ParsedTable> statements = new ArrayList<>(count);
+            int[] statementIndexes = new int[count];
+            for (int i = 0; i < count; i++) {
+                statementIndexes[i] = in.readInt();
+                statements.add(ParsedTable.readFrom(in));
+            }
+            return new ParsedMigration(file, statements, statementIndexes);
+        }
+    }
+
+    /**
+     * Parse results of one file, valid while its size and modification time are unchanged.
+     */
+    private static class ParsedMigration {
+        final Path path;
+        final long size;
+        final long lastModified;
+        final List<ParsedTable> statements;
+        final int[] statementIndexes;
+
+        ParsedMigration(MigrationFile file, List<ParsedTable> statements, int[] statementIndexes) {
+            this.path = file.path;
+            this.size = file.size;
+            this.lastModified = file.lastModified;
+            this.statements = statements;
+            this.statementIndexes = statementIndexes;
+        }
+    }
+}
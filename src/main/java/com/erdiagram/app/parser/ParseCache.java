@@ -0,0 +1,317 @@
+package com.erdiagram.app.parser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * On-disk cache of per-file parse results, so reopening a project only parses
+ * the files that changed.
+ *
+ * Each source file has one entry, named after a hash of its path, holding the
+ * file's size, modification time and SHA-256 content hash followed by the
+ * parse result in a compact binary form. An entry is used as is when size and
+ * modification time still match. When only the modification time changed, as
+ * after a checkout, the content hash decides. The cache is bounded in bytes:
+ * {@link #trim()} deletes the least recently used entries, going by the entry
+ * file's modification time, which is refreshed on every hit.
+ *
+ * Lookups are safe from several threads at once, as long as they are for
+ * different files. A cache entry that cannot be read or written is treated as
+ * a miss and never fails the parse.
+ */
+public class ParseCache {
+    public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+    private static final int MAGIC = 0x46535043; // "FSPC"
+    // Bump when the layout of any cached result changes
+    private static final int FORMAT_VERSION = 3;
+    private static final String ENTRY_SUFFIX = ".bin";
+
+    /**
+     * Writes and reads one kind of parse result.
+     */
+    interface Codec<T> {
+        void write(DataOutput out, T value) throws IOException;
+
+        T read(DataInput in) throws IOException;
+    }
+
+    /**
+     * Parses a file on a cache miss.
+     */
+    interface Loader<T> {
+        T load(Path file) throws IOException;
+    }
+
+    private final Path directory;
+    private final long maxBytes;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+    private final AtomicInteger evictions = new AtomicInteger();
+
+    /**
+     * @param directory The directory holding the entries; created when the first entry is written
+     * @param maxBytes The size the cache is trimmed to
+     */
+    public ParseCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return The cache directory under the user's home directory
+     */
+    public static Path defaultDirectory() {
+        return Paths.get(System.getProperty("user.home"), ".flowsnap", "parse-cache");
+    }
+
+    /**
+     * Returns the cached result for a file, or parses it and caches the result.
+     * @param kind Distinguishes results of different parsers for the same file
+     * @throws IOException If the file cannot be parsed
+     */
+    <T> T get(String kind, Path file, Codec<T> codec, Loader<T> loader) throws IOException {
+        Path absolute = file.toAbsolutePath().normalize();
+        BasicFileAttributes attrs = Files.readAttributes(absolute, BasicFileAttributes.class);
+        long size = attrs.size();
+        long lastModified = attrs.lastModifiedTime().toMillis();
+        Path entry = entryPath(kind, absolute);
+
+        byte[] contentHash = null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(entry)))) {
+            if (in.readInt() == MAGIC && in.readInt() == FORMAT_VERSION
+                    && in.readUTF().equals(kind) && in.readUTF().equals(absolute.toString())
+                    && in.readLong() == size) {
+                long cachedModified = in.readLong();
+                byte[] cachedHash = new byte[32];
+                in.readFully(cachedHash);
+
+                if (cachedModified == lastModified) {
+                    T value = codec.read(in);
+                    touch(entry);
+                    hits.incrementAndGet();
+                    return value;
+                }
+
+                // Touched but maybe not changed: compare contents
+                contentHash = hash(absolute);
+                if (Arrays.equals(contentHash, cachedHash)) {
+                    T value = codec.read(in);
+                    write(entry, kind, absolute, size, lastModified, contentHash, codec, value);
+                    hits.incrementAndGet();
+                    return value;
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // Not cached yet
+        } catch (IOException | RuntimeException e) {
+            // Unreadable or outdated entry; it is replaced below
+        }
+
+        misses.incrementAndGet();
+        T value = loader.load(file);
+        if (contentHash == null) {
+            contentHash = hash(absolute);
+        }
+        write(entry, kind, absolute, size, lastModified, contentHash, codec, value);
+        return value;
+    }
+
+    private Path entryPath(String kind, Path absolute) {
+        byte[] digest = sha256().digest((kind + ':' + absolute).getBytes(StandardCharsets.UTF_8));
+        StringBuilder name = new StringBuilder(40);
+        // 20 bytes of the digest are plenty to keep paths apart
+        for (int i = 0; i < 20; i++) {
+            name.append(Character.forDigit((digest[i] >> 4) & 0xF, 16)).append(Character.forDigit(digest[i] & 0xF, 16));
+        }
+        return directory.resolve(name.append(ENTRY_SUFFIX).toString());
+    }
+
+    private <T> void write(Path entry, String kind, Path absolute, long size, long lastModified,
+                           byte[] contentHash, Codec<T> codec, T value) {
+        Path temp = null;
+        try {
+            Files.createDirectories(directory);
+            temp = Files.createTempFile(directory, "entry", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(kind);
+                out.writeUTF(absolute.toString());
+                out.writeLong(size);
+                out.writeLong(lastModified);
+                out.write(contentHash);
+                codec.write(out, value);
+            }
+            try {
+                Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            // The result is still returned; it is just not cached
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // Left for the next trim
+                }
+            }
+        }
+    }
+
+    private static void touch(Path entry) {
+        try {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // Only affects eviction order
+        }
+    }
+
+    private static byte[] hash(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Deletes the least recently used entries until the cache fits its size
+     * limit. Leftover temporary files are removed too.
+     */
+    public void trim() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+
+        List<Path> entries = new ArrayList<>();
+        List<Long> sizes = new ArrayList<>();
+        List<Long> times = new ArrayList<>();
+        long total = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path path : stream) {
+                BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+                if (path.getFileName().toString().endsWith(".tmp")
+                        && attrs.lastModifiedTime().toMillis() < System.currentTimeMillis() - 60 * 60 * 1000) {
+                    Files.deleteIfExists(path);
+                } else if (path.getFileName().toString().endsWith(ENTRY_SUFFIX)) {
+                    entries.add(path);
+                    sizes.add(attrs.size());
+                    times.add(attrs.lastModifiedTime().toMillis());
+                    total += attrs.size();
+                }
+            }
+        } catch (IOException e) {
+            return;
+        }
+
+        if (total <= maxBytes) {
+            return;
+        }
+
+        Integer[] order = new Integer[entries.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(times::get));
+
+        for (int i = 0; i < order.length && total > maxBytes; i++) {
+            try {
+                Files.deleteIfExists(entries.get(order[i]));
+                total -= sizes.get(order[i]);
+                evictions.incrementAndGet();
+            } catch (IOException e) {
+                // Skip entries that are in use
+            }
+        }
+    }
+
+    public int getHitCount() {
+        return hits.get();
+    }
+
+    public int getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return The number of entries {@link #trim()} deleted
+     */
+    public int getEvictionCount() {
+        return evictions.get();
+    }
+
+    public void resetStatistics() {
+        hits.set(0);
+        misses.set(0);
+        evictions.set(0);
+    }
+
+    /**
+     * @return Hit and miss counts for a status line, such as "cache: 120 hits, 3 misses"
+     */
+    public String getStatistics() {
+        String statistics = "cache: " + hits.get() + " hits, " + misses.get() + " misses";
+        if (evictions.get() > 0) {
+            statistics += ", " + evictions.get() + " evicted";
+        }
+        return statistics;
+    }
+
+    static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
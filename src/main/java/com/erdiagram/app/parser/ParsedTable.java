@@ -0,0 +1,196 @@
+package com.erdiagram.app.parser;
+
+import com.erdiagram.app.model.Attribute;
+import com.erdiagram.app.model.Entity;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of parsing one statement: the entity it defines and the foreign keys
+ * it declares, kept apart from the diagram until merge time.
+ *
+ * An ALTER TABLE statement has no entity; it names the table it alters and
+ * carries the keys it adds, which are resolved once all tables are known, and
+ * the structural changes that migrations apply in order. A DROP TABLE statement
+ * only lists the tables it drops.
+ */
+class ParsedTable {
+    /**
+     * Stores the results of a whole script in a {@link ParseCache}.
+     */
+    static final ParseCache.Codec<List<ParsedTable>> LIST_CODEC = new ParseCache.Codec<List<ParsedTable>>() {
+        @Override
+        public void write(DataOutput out, List<ParsedTable> statements) throws IOException {
+            out.writeInt(statements.size());
+            for (ParsedTable statement : statements) {
+                statement.writeTo(out);
+            }
+        }
+
+        @Override
+        public List<ParsedTable> read(DataInput in) throws IOException {
+            int count = in.readInt();
+            List<ParsedTable> statements = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                statements.add(readFrom(in));
+            }
+            return statements;
+        }
+    };
+
+    final Entity entity;
+    final String alteredTable;
+    final List<ForeignKeyInfo> foreignKeys = new ArrayList<>();
+    final List<String> primaryKeyColumns = new ArrayList<>();
+    final List<Attribute> addedColumns = new ArrayList<>();
+    final List<String> droppedColumns = new ArrayList<>();
+    final List<String> droppedConstraints = new ArrayList<>();
+    final Map<String, String> renamedColumns = new LinkedHashMap<>();
+    final List<String> droppedTables = new ArrayList<>();
+    String renamedTo;
+    final List<SQLDiagnostic> diagnostics = new ArrayList<>();
+
+    ParsedTable(Entity entity) {
+        this(entity, null);
+    }
+
+    private ParsedTable(Entity entity, String alteredTable) {
+        this.entity = entity;
+        this.alteredTable = alteredTable;
+    }
+
+    static ParsedTable alteration(String tableName) {
+        return new ParsedTable(null, tableName);
+    }
+
+    /**
+     * @return The table the statement defines or alters, or null if there is none
+     */
+    String getTableName() {
+        return entity != null ? entity.getName() : alteredTable;
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeBoolean(entity != null);
+        if (entity != null) {
+            ParseCache.writeString(out, entity.getName());
+            writeAttributes(out, entity.getAttributes());
+        }
+        ParseCache.writeString(out, alteredTable);
+
+        out.writeInt(foreignKeys.size());
+        for (ForeignKeyInfo fkInfo : foreignKeys) {
+            ParseCache.writeString(out, fkInfo.sourceTable);
+            ParseCache.writeString(out, fkInfo.column);
+            ParseCache.writeString(out, fkInfo.refTable);
+            ParseCache.writeString(out, fkInfo.refColumn);
+            ParseCache.writeString(out, fkInfo.constraintName);
+        }
+        writeStrings(out, primaryKeyColumns);
+        writeAttributes(out, addedColumns);
+        writeStrings(out, droppedColumns);
+        writeStrings(out, droppedConstraints);
+        out.writeInt(renamedColumns.size());
+        for (Map.Entry<String, String> rename : renamedColumns.entrySet()) {
+            ParseCache.writeString(out, rename.getKey());
+            ParseCache.writeString(out, rename.getValue());
+        }
+        writeStrings(out, droppedTables);
+        ParseCache.writeString(out, renamedTo);
+
+        out.writeInt(diagnostics.size());
+        for (SQLDiagnostic diagnostic : diagnostics) {
+            ParseCache.writeString(out, diagnostic.getSource());
+            out.writeInt(diagnostic.getStatementIndex());
+            ParseCache.writeString(out, diagnostic.getTableName());
+            out.writeByte(diagnostic.getSeverity().ordinal());
+            ParseCache.writeString(out, diagnostic.getMessage());
+        }
+    }
+
+    static ParsedTable readFrom(DataInput in) throws IOException {
+        Entity entity = null;
+        if (in.readBoolean()) {
+            entity = new Entity(ParseCache.readString(in));
+            for (Attribute attribute : readAttributes(in)) {
+                entity.addAttribute(attribute);
+            }
+        }
+        ParsedTable result = new ParsedTable(entity, ParseCache.readString(in));
+
+        int foreignKeyCount = in.readInt();
+        for (int i = 0; i < foreignKeyCount; i++) {
+            result.foreignKeys.add(new ForeignKeyInfo(ParseCache.readString(in), ParseCache.readString(in),
+                    ParseCache.readString(in), ParseCache.readString(in), ParseCache.readString(in)));
+        }
+        readStrings(in, result.primaryKeyColumns);
+        result.addedColumns.addAll(readAttributes(in));
+        readStrings(in, result.droppedColumns);
+        readStrings(in, result.droppedConstraints);
+        int renameCount = in.readInt();
+        for (int i = 0; i < renameCount; i++) {
+            result.renamedColumns.put(ParseCache.readString(in), ParseCache.readString(in));
+        }
+        readStrings(in, result.droppedTables);
+        result.renamedTo = ParseCache.readString(in);
+
+        int diagnosticCount = in.readInt();
+        for (int i = 0; i < diagnosticCount; i++) {
+            String source = ParseCache.readString(in);
+            int statementIndex = in.readInt();
+            String tableName = ParseCache.readString(in);
+            SQLDiagnostic.Severity severity = SQLDiagnostic.Severity.values()[in.readByte()];
+            result.diagnostics.add(new SQLDiagnostic(source, statementIndex, tableName, severity,
+                    ParseCache.readString(in)));
+        }
+        return result;
+    }
+
+    private static void writeAttributes(DataOutput out, List<Attribute> attributes) throws IOException {
+        out.writeInt(attributes.size());
+        for (Attribute attribute : attributes) {
+            ParseCache.writeString(out, attribute.getName());
+            ParseCache.writeString(out, attribute.getDataType());
+            out.writeBoolean(attribute.isPrimaryKey());
+            out.writeBoolean(attribute.isForeignKey());
+            out.writeBoolean(attribute.isNullable());
+            ParseCache.writeString(out, attribute.getReferencedTable());
+            ParseCache.writeString(out, attribute.getReferencedColumn());
+        }
+    }
+
+    private static List<Attribute> readAttributes(DataInput in) throws IOException {
+        int count = in.readInt();
+        List<Attribute> attributes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Attribute attribute = new Attribute(ParseCache.readString(in), ParseCache.readString(in));
+            attribute.setPrimaryKey(in.readBoolean());
+            attribute.setForeignKey(in.readBoolean());
+            attribute.setNullable(in.readBoolean());
+            attribute.setReferencedTable(ParseCache.readString(in));
+            attribute.setReferencedColumn(ParseCache.readString(in));
+            attributes.add(attribute);
+        }
+        return attributes;
+    }
+
+    private static void writeStrings(DataOutput out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            ParseCache.writeString(out, value);
+        }
+    }
+
+    private static void readStrings(DataInput in, List<String> values) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            values.add(ParseCache.readString(in));
+        }
+    }
+}
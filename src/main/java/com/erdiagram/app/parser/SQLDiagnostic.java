@@ -0,0 +1,79 @@
+package com.erdiagram.app.parser;
+
+/**
+ * Describes a problem found while parsing a single SQL statement.
+ */
+public class SQLDiagnostic {
+    public enum Severity {
+        INFO,
+        WARNING,
+        ERROR
+    }
+
+    private final String source;
+    private final int statementIndex;
+    private final String tableName;
+    private final Severity severity;
+    private final String message;
+
+    public SQLDiagnostic(int statementIndex, String tableName, Severity severity, String message) {
+        this(null, statementIndex, tableName, severity, message);
+    }
+
+    public SQLDiagnostic(String source, int statementIndex, String tableName, Severity severity, String message) {
+        this.source = source;
+        this.statementIndex = statementIndex;
+        this.tableName = tableName;
+        this.severity = severity;
+        this.message = message;
+    }
+
+    /**
+     * @return The file the statement was read from, or null for a single script
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return The 1-based position of the statement in the script
+     */
+    public int getStatementIndex() {
+        return statementIndex;
+    }
+
+    /**
+     * @return The table the statement defines, or null if it could not be determined
+     */
+    public String getTableName() {
+        return tableName;
+    }
+
+    public Severity getSeverity() {
+        return severity;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(severity);
+
+        if (source != null) {
+            sb.append(' ').append(source);
+        }
+
+        sb.append(" statement ").append(statementIndex);
+
+        if (tableName != null) {
+            sb.append(" (").append(tableName).append(")");
+        }
+
+        sb.append(": ").append(message);
+
+        return sb.toString();
+    }
+}
@@ -11,15 +11,40 @@ import net.sf.jsqlparser.statement.create.table.ForeignKeyIndex;
 import net.sf.jsqlparser.statement.create.table.Index;
 import net.sf.jsqlparser.statement.create.table.NamedConstraint;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Parses SQL statements to extract table structure and relationships for ER diagrams.
  */
 public class SQLParser {
+    private static final int PARALLEL_BATCH_SIZE = 512;
+    private static final int PROGRESS_INTERVAL = 256;
+    
     private ERDiagram erDiagram;
+    private int parallelism = 1;
+    // Also read by skeleton column loaders, which run on their own thread
+    private volatile boolean backslashEscapes;
+    private final DDLFallbackParser fallbackParser = new DDLFallbackParser();
+    private final MigrationParser migrationParser = new MigrationParser(this);
+    private List<SQLDiagnostic> diagnostics = new ArrayList<>();
+    private IntConsumer progressListener;
+    private ParseCache parseCache;
     
     public SQLParser() {
         erDiagram = new ERDiagram("ER Diagram");
@@ -29,39 +54,214 @@ public class SQLParser {
      * Parses SQL CREATE TABLE statements and builds an ERDiagram model.
      * @param sqlText The SQL statements to parse
      * @return The constructed ERDiagram
-     * @throws JSQLParserException If SQL parsing fails
      */
-    public ERDiagram parseSQL(String sqlText) throws JSQLParserException {
+    public ERDiagram parseSQL(String sqlText) {
+        try (SQLStatementSource source = configure(SQLStatementSource.fromString(sqlText))) {
+            return parseSQL(source);
+        } catch (IOException e) {
+            // In-memory sources never perform I/O
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * Parses a SQL script directly from disk without loading it into memory.
+     * Gzip-compressed scripts and zip archives are decompressed while parsing.
+     * With a {@link ParseCache} set, the statements of an unchanged file are
+     * read from the cache instead.
+     * @param path The SQL script, {@code .sql.gz} or {@code .zip} file to parse
+     * @return The constructed ERDiagram
+     * @throws IOException If the file cannot be read
+     */
+    public ERDiagram parseSQLFile(Path path) throws IOException {
+        if (parseCache == null) {
+            try (SQLStatementSource source = configure(SQLStatementSource.open(path))) {
+                return parseSQL(source);
+            }
+        }
+        
+        List<ParsedTable> statements = parseCache.get(cacheKind("sql"), path, ParsedTable.LIST_CODEC, file -> {
+            List<ParsedTable> parsed = new ArrayList<>();
+            try (SQLStatementSource source = configure(SQLStatementSource.open(file))) {
+                parseStatements(source, parsedTable -> {
+                    if (parsedTable != null) {
+                        parsed.add(parsedTable);
+                    }
+                });
+            }
+            return parsed;
+        });
+        parseCache.trim();
+        
         erDiagram = new ERDiagram("ER Diagram");
+        diagnostics = new ArrayList<>();
+        DeferredConstraints constraints = new DeferredConstraints();
+        for (ParsedTable parsedTable : statements) {
+            mergeParsedTable(parsedTable, constraints);
+        }
+        resolveConstraints(erDiagram, constraints);
+        erDiagram.autoLayout();
         
-        // Split the input into separate SQL statements
-        String[] statements = sqlText.split(";");
+        return erDiagram;
+    }
+    
+    /**
+     * Parses only the table names and key constraints of a SQL script, for a
+     * quick first look at a large schema. Each entity starts out with just its
+     * key columns and remembers the byte range of its CREATE TABLE statement;
+     * its full column list is parsed from disk by {@link Entity#loadAttributes()}.
+     * Compressed dumps cannot be read at an offset and are parsed fully.
+     * @param path The SQL script to parse
+     * @return The constructed ERDiagram
+     * @throws IOException If the file cannot be read, or
+     *         {@link InterruptedIOException} if the calling thread is interrupted
+     */
+    public ERDiagram parseSQLFileSkeleton(Path path) throws IOException {
+        if (SQLStatementSource.isCompressed(path)) {
+            return parseSQLFile(path);
+        }
         
-        // First pass: Extract all entities
-        Map<String, List<ForeignKeyInfo>> foreignKeys = new HashMap<>();
+        erDiagram = new ERDiagram("ER Diagram");
+        diagnostics = new ArrayList<>();
+        DeferredConstraints constraints = new DeferredConstraints();
         
-        for (String statementStr : statements) {
-            if (statementStr.trim().isEmpty()) {
-                continue;
+        try (SQLStatementSource source = configure(SQLStatementSource.fromFile(path))) {
+            String statementStr;
+            int statementIndex = 0;
+            while ((statementStr = source.nextStatement()) != null) {
+                statementIndex++;
+                ParsedTable parsed;
+                if (startsWithKeyword(statementStr, "CREATE")) {
+                    parsed = fallbackParser.parseSkeleton(statementStr, statementIndex);
+                    if (parsed != null && parsed.entity != null) {
+                        parsed.entity.setAttributeLoader(attributeLoader(path,
+                                source.getStatementStart(), source.getStatementEnd(), statementIndex));
+                    }
+                } else if (startsWithKeyword(statementStr, "ALTER")) {
+                    parsed = parseStatement(statementStr, statementIndex);
+                } else {
+                    // Only tables and their keys make up the skeleton
+                    parsed = null;
+                }
+                mergeParsedTable(parsed, constraints);
+                
+                if (statementIndex % PROGRESS_INTERVAL == 0) {
+                    checkpoint(statementIndex);
+                }
             }
-            
+        }
+        
+        addKeyColumns(erDiagram, constraints);
+        resolveConstraints(erDiagram, constraints);
+        erDiagram.autoLayout();
+        
+        return erDiagram;
+    }
+    
+    /**
+     * Reads one CREATE TABLE statement back from the script and parses it fully.
+     */
+    private Supplier<List<Attribute>> attributeLoader(Path path, long start, long end, int statementIndex) {
+        return () -> {
             try {
-                Statement statement = CCJSqlParserUtil.parse(statementStr.trim() + ";");
-                
-                if (statement instanceof CreateTable) {
-                    CreateTable createTable = (CreateTable) statement;
-                    processCreateTable(createTable, foreignKeys);
+                String statementStr = readStatement(path, start, end);
+                ParsedTable parsed = statementStr == null ? null : parseStatement(statementStr, statementIndex);
+                return parsed != null && parsed.entity != null
+                        ? parsed.entity.getAttributes() : Collections.emptyList();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+    
+    private String readStatement(Path path, long start, long end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining() && channel.read(buffer, start + buffer.position()) >= 0) {
+                // Keep reading until the range is filled
+            }
+        }
+        
+        // Scan the range again so comments are stripped exactly as before
+        try (SQLStatementSource source = configure(SQLStatementSource.fromString(
+                new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8)))) {
+            return source.nextStatement();
+        }
+    }
+    
+    /**
+     * Adds key columns that ALTER TABLE statements name to skeleton entities,
+     * so that the keys can be marked and relationships attached to them.
+     */
+    private static void addKeyColumns(ERDiagram diagram, DeferredConstraints constraints) {
+        for (Map.Entry<String, List<String>> entry : constraints.primaryKeys.entrySet()) {
+            Entity entity = diagram.getEntityByName(entry.getKey());
+            if (entity != null && entity.hasUnloadedAttributes()) {
+                for (String columnName : entry.getValue()) {
+                    if (entity.getAttribute(columnName) == null) {
+                        entity.addAttribute(new Attribute(columnName, ""));
+                    }
                 }
-            } catch (JSQLParserException e) {
-                // Try to handle some common syntax variations that JSQLParser doesn't support
-                if (statementStr.toUpperCase().contains("CREATE TABLE")) {
-                    processRawCreateTable(statementStr, foreignKeys);
+            }
+        }
+        for (Map.Entry<String, List<ForeignKeyInfo>> entry : constraints.foreignKeys.entrySet()) {
+            Entity entity = diagram.getEntityByName(entry.getKey());
+            if (entity != null && entity.hasUnloadedAttributes()) {
+                for (ForeignKeyInfo fkInfo : entry.getValue()) {
+                    if (entity.getAttribute(fkInfo.column) == null) {
+                        entity.addAttribute(new Attribute(fkInfo.column, ""));
+                    }
                 }
             }
         }
+    }
+    
+    /**
+     * Builds a diagram from a directory of Flyway-style migrations such as
+     * {@code V1__init.sql} and {@code V2__add_orders.sql}. CREATE, ALTER and DROP
+     * TABLE statements are applied in version order; files unchanged since the
+     * previous call are not read again.
+     * @param directory The directory to scan, including subdirectories
+     * @return The diagram of the schema after the last migration
+     * @throws IOException If the directory or a migration cannot be read
+     */
+    public ERDiagram parseMigrations(Path directory) throws IOException {
+        diagnostics = new ArrayList<>();
+        erDiagram = migrationParser.parse(directory, diagnostics);
+        return erDiagram;
+    }
+    
+    /**
+     * @return The number of migrations applied by the last {@link #parseMigrations(Path)}
+     */
+    public int getMigrationCount() {
+        return migrationParser.getMigrationCount();
+    }
+    
+    /**
+     * @return The number of migrations the last {@link #parseMigrations(Path)} read from disk
+     */
+    public int getParsedMigrationCount() {
+        return migrationParser.getParsedCount();
+    }
+    
+    /**
+     * Parses SQL CREATE TABLE statements from a streaming statement source.
+     * @param source The source yielding one statement at a time
+     * @return The constructed ERDiagram
+     * @throws IOException If reading from the source fails, or
+     *         {@link InterruptedIOException} if the calling thread is interrupted
+     */
+    public ERDiagram parseSQL(SQLStatementSource source) throws IOException {
+        erDiagram = new ERDiagram("ER Diagram");
+        diagnostics = new ArrayList<>();
+        
+        // First pass: Extract all entities, collecting keys to resolve later
+        DeferredConstraints constraints = new DeferredConstraints();
+        parseStatements(source, parsedTable -> mergeParsedTable(parsedTable, constraints));
         
-        // Second pass: Create relationships based on foreign keys
-        processForeignKeys(foreignKeys);
+        // Second pass: Apply ALTER TABLE keys and create relationships based on foreign keys
+        resolveConstraints(erDiagram, constraints);
         
         // Auto-layout the diagram
         erDiagram.autoLayout();
@@ -69,15 +269,258 @@ public class SQLParser {
         return erDiagram;
     }
     
-    private void processCreateTable(CreateTable createTable, Map<String, List<ForeignKeyInfo>> foreignKeys) {
-        String tableName = createTable.getTable().getName();
+    /**
+     * Parses every statement of a source and hands the results to the sink in
+     * statement order. Results may be null for statements that define no table.
+     */
+    private void parseStatements(SQLStatementSource source, Consumer<ParsedTable> sink) throws IOException {
+        if (parallelism > 1) {
+            parseParallel(source, sink);
+            return;
+        }
+        
+        String statementStr;
+        int statementIndex = 0;
+        while ((statementStr = source.nextStatement()) != null) {
+            sink.accept(parseStatement(statementStr, ++statementIndex));
+            if (statementIndex % PROGRESS_INTERVAL == 0) {
+                checkpoint(statementIndex);
+            }
+        }
+    }
+    
+    /**
+     * Sets a cache for the results of {@link #parseSQLFile(Path)} and of each
+     * migration read by {@link #parseMigrations(Path)}.
+     * @param parseCache The cache, or null to always parse
+     */
+    public void setParseCache(ParseCache parseCache) {
+        this.parseCache = parseCache;
+    }
+    
+    public ParseCache getParseCache() {
+        return parseCache;
+    }
+    
+    /**
+     * Sets the number of worker threads used to parse statements.
+     * A value of 1 parses serially on the calling thread.
+     * @param parallelism The number of parse workers, at least 1
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+    
+    public int getParallelism() {
+        return parallelism;
+    }
+    
+    /**
+     * Sets whether backslashes escape characters in single-quoted strings, as in
+     * MySQL's default SQL mode. Off by default, so that {@code 'C:\'} ends at its
+     * second quote as in standard SQL and PostgreSQL.
+     * @param backslashEscapes true to read MySQL-style backslash escapes
+     * @see SQLStatementSource#setBackslashEscapes(boolean)
+     */
+    public void setBackslashEscapes(boolean backslashEscapes) {
+        this.backslashEscapes = backslashEscapes;
+        fallbackParser.setBackslashEscapes(backslashEscapes);
+    }
+    
+    public boolean isBackslashEscapes() {
+        return backslashEscapes;
+    }
+    
+    /**
+     * Applies the dialect settings of this parser to a statement source.
+     * @return The same source
+     */
+    SQLStatementSource configure(SQLStatementSource source) {
+        source.setBackslashEscapes(backslashEscapes);
+        return source;
+    }
+    
+    /**
+     * @return The cache kind for results of the given kind, distinct per dialect setting
+     */
+    String cacheKind(String kind) {
+        return backslashEscapes ? kind + "-mysql" : kind;
+    }
+    
+    /**
+     * Sets a listener that receives the number of statements parsed so far.
+     * It is called on the parsing thread every few hundred statements.
+     * @param progressListener The listener, or null for none
+     */
+    public void setProgressListener(IntConsumer progressListener) {
+        this.progressListener = progressListener;
+    }
+    
+    /**
+     * Reports progress and stops the parse if the calling thread was interrupted.
+     */
+    private void checkpoint(int statementsParsed) throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("SQL parsing was cancelled");
+        }
+        if (progressListener != null) {
+            progressListener.accept(statementsParsed);
+        }
+    }
+    
+    /**
+     * Parses statements in batches on a ForkJoinPool. The next batch is read from
+     * the source while the previous one is being parsed, and results are merged
+     * in statement order so the diagram matches the serial path exactly.
+     */
+    private void parseParallel(SQLStatementSource source, Consumer<ParsedTable> sink) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            int batchStart = 1;
+            List<String> batch = readBatch(source);
+            while (!batch.isEmpty()) {
+                List<String> statements = batch;
+                int firstIndex = batchStart;
+                Future<List<ParsedTable>> pending = pool.submit(() -> IntStream.range(0, statements.size())
+                        .parallel()
+                        .mapToObj(i -> parseStatement(statements.get(i), firstIndex + i))
+                        .collect(Collectors.toList()));
+                
+                batchStart += batch.size();
+                batch = readBatch(source);
+                
+                for (ParsedTable parsedTable : awaitBatch(pending)) {
+                    sink.accept(parsedTable);
+                }
+                checkpoint(batchStart - 1);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+    
+    private List<String> readBatch(SQLStatementSource source) throws IOException {
+        List<String> batch = new ArrayList<>(PARALLEL_BATCH_SIZE);
+        String statementStr;
+        while (batch.size() < PARALLEL_BATCH_SIZE && (statementStr = source.nextStatement()) != null) {
+            batch.add(statementStr);
+        }
+        return batch;
+    }
+    
+    private List<ParsedTable> awaitBatch(Future<List<ParsedTable>> pending) throws IOException {
+        try {
+            return pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("SQL parsing was interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("SQL parsing failed", cause);
+        }
+    }
+    
+    /**
+     * Parses a single statement without touching any shared state, so it can run
+     * on any thread.
+     * @param statementStr The statement text without its terminating semicolon
+     * @param statementIndex The 1-based position of the statement in the script
+     * @return The parse result, or null if the statement does not define a table
+     */
+    ParsedTable parseStatement(String statementStr, int statementIndex) {
+        // pg_dump and migration tools emit keys as ALTER TABLE statements; the
+        // hand-written parser reads them directly, including ONLY and NOT VALID
+        if (startsWithKeyword(statementStr, "ALTER")) {
+            return fallbackParser.parseAlterTable(statementStr, statementIndex);
+        }
+        
+        try {
+            Statement statement = CCJSqlParserUtil.parse(statementStr + ";");
+            
+            if (statement instanceof CreateTable) {
+                return processCreateTable((CreateTable) statement);
+            }
+        } catch (JSQLParserException e) {
+            // Try to handle some common syntax variations that JSQLParser doesn't support
+            ParsedTable result = fallbackParser.parse(statementStr, statementIndex);
+            if (result != null) {
+                String tableName = result.entity != null ? result.entity.getName() : null;
+                result.diagnostics.add(0, new SQLDiagnostic(statementIndex, tableName, SQLDiagnostic.Severity.INFO,
+                        "Parsed with the fallback DDL parser: " + firstLine(e.getMessage())));
+            }
+            return result;
+        }
+        return null;
+    }
+    
+    static boolean startsWithKeyword(String statementStr, String keyword) {
+        int length = keyword.length();
+        return statementStr.regionMatches(true, 0, keyword, 0, length)
+                && (statementStr.length() == length || !Character.isLetterOrDigit(statementStr.charAt(length)));
+    }
+    
+    /**
+     * Strips the double quotes, backticks or brackets around an identifier, so
+     * names read by JSqlParser match the ones the fallback parser reads for the
+     * same table, e.g. in a later ALTER TABLE.
+     */
+    static String unquote(String identifier) {
+        if (identifier == null || identifier.length() < 2) {
+            return identifier;
+        }
+        char first = identifier.charAt(0);
+        char last = identifier.charAt(identifier.length() - 1);
+        if ((first == '"' || first == '`') && last == first || first == '[' && last == ']') {
+            return identifier.substring(1, identifier.length() - 1);
+        }
+        return identifier;
+    }
+    
+    private static String firstLine(String message) {
+        if (message == null) {
+            return "statement not supported by JSqlParser";
+        }
+        int newline = message.indexOf('\n');
+        return newline < 0 ? message : message.substring(0, newline).trim();
+    }
+    
+    private void mergeParsedTable(ParsedTable parsedTable, DeferredConstraints constraints) {
+        if (parsedTable == null) {
+            return;
+        }
+        
+        diagnostics.addAll(parsedTable.diagnostics);
+        
+        if (parsedTable.entity != null) {
+            erDiagram.addEntity(parsedTable.entity);
+        }
+        constraints.add(parsedTable);
+    }
+    
+    /**
+     * Returns the problems reported for the most recent parse, in statement order.
+     * @return The diagnostics of the last parse
+     */
+    public List<SQLDiagnostic> getDiagnostics() {
+        return diagnostics;
+    }
+    
+    private ParsedTable processCreateTable(CreateTable createTable) {
+        String tableName = unquote(createTable.getTable().getName());
         Entity entity = new Entity(tableName);
+        ParsedTable result = new ParsedTable(entity);
         
         // Process column definitions
         List<ColumnDefinition> columnDefinitions = createTable.getColumnDefinitions();
         if (columnDefinitions != null) {
             for (ColumnDefinition columnDef : columnDefinitions) {
-                String columnName = columnDef.getColumnName();
+                String columnName = unquote(columnDef.getColumnName());
                 ColDataType dataType = columnDef.getColDataType();
                 String dataTypeString = dataType.getDataType();
                 
@@ -87,13 +530,9 @@ public class SQLParser {
                 
                 Attribute attribute = new Attribute(columnName, dataTypeString);
                 
-                // Check for NOT NULL constraint
+                // Check for inline NOT NULL, PRIMARY KEY and REFERENCES constraints
                 if (columnDef.getColumnSpecs() != null) {
-                    for (String spec : columnDef.getColumnSpecs()) {
-                        if (spec.equalsIgnoreCase("NOT NULL")) {
-                            attribute.setNullable(false);
-                        }
-                    }
+                    applyColumnSpecs(attribute, columnDef.getColumnSpecs(), result);
                 }
                 
                 entity.addAttribute(attribute);
@@ -107,156 +546,115 @@ public class SQLParser {
                 if (index.getType().equalsIgnoreCase("PRIMARY KEY")) {
                     // Mark primary key attributes
                     for (String columnName : getColumnNames(index)) {
-                        for (Attribute attr : entity.getAttributes()) {
-                            if (attr.getName().equalsIgnoreCase(columnName)) {
-                                attr.setPrimaryKey(true);
-                                attr.setNullable(false);
-                            }
+                        Attribute attr = entity.getAttribute(columnName);
+                        if (attr != null) {
+                            attr.setPrimaryKey(true);
+                            attr.setNullable(false);
                         }
                     }
                 } else if (index instanceof ForeignKeyIndex) {
                     ForeignKeyIndex fkIndex = (ForeignKeyIndex) index;
-                    String refTable = fkIndex.getTable().getName();
+                    String refTable = unquote(fkIndex.getTable().getName());
                     
                     List<String> columns = getColumnNames(fkIndex);
                     List<String> refColumns = new ArrayList<>();
                     
                     if (fkIndex.getReferencedColumnNames() != null) {
                         for (String col : fkIndex.getReferencedColumnNames()) {
-                            refColumns.add(col);
+                            refColumns.add(unquote(col));
                         }
                     }
                     
-                    // Create foreign key info for later processing
-                    if (!foreignKeys.containsKey(tableName)) {
-                        foreignKeys.put(tableName, new ArrayList<>());
-                    }
-                    
                     for (int i = 0; i < columns.size(); i++) {
                         String column = columns.get(i);
                         String refColumn = (i < refColumns.size()) ? refColumns.get(i) : null;
                         
-                        ForeignKeyInfo fkInfo = new ForeignKeyInfo(tableName, column, refTable, refColumn);
-                        foreignKeys.get(tableName).add(fkInfo);
+                        ForeignKeyInfo fkInfo = new ForeignKeyInfo(tableName, column, refTable, refColumn, fkIndex.getName());
+                        result.foreignKeys.add(fkInfo);
                         
                         // Mark the attribute as a foreign key
-                        for (Attribute attr : entity.getAttributes()) {
-                            if (attr.getName().equalsIgnoreCase(column)) {
-                                attr.setForeignKey(true);
-                                attr.setReferencedTable(refTable);
-                                attr.setReferencedColumn(refColumn);
-                            }
+                        Attribute attr = entity.getAttribute(column);
+                        if (attr != null) {
+                            attr.setForeignKey(true);
+                            attr.setReferencedTable(refTable);
+                            attr.setReferencedColumn(refColumn);
                         }
                     }
                 }
             }
         }
         
-        erDiagram.addEntity(entity);
+        return result;
     }
     
-    private void processRawCreateTable(String createTableSql, Map<String, List<ForeignKeyInfo>> foreignKeys) {
-        // Extract table name using regex
-        Pattern tablePattern = Pattern.compile("CREATE\\s+TABLE\\s+(?:`|\")?([\\w_]+)(?:`|\")?", Pattern.CASE_INSENSITIVE);
-        Matcher tableMatcher = tablePattern.matcher(createTableSql);
-        
-        if (!tableMatcher.find()) {
-            return;
-        }
-        
-        String tableName = tableMatcher.group(1);
-        Entity entity = new Entity(tableName);
-        
-        // Extract column definitions
-        Pattern columnPattern = Pattern.compile("([\\w_]+)\\s+([\\w\\s()\\d,]+)(?:\\s+(?:NOT\\s+NULL|PRIMARY\\s+KEY))*", 
-                Pattern.CASE_INSENSITIVE);
-        Matcher columnMatcher = columnPattern.matcher(createTableSql);
-        
-        while (columnMatcher.find()) {
-            String columnName = columnMatcher.group(1);
-            String dataType = columnMatcher.group(2);
-            
-            Attribute attribute = new Attribute(columnName, dataType.trim());
+    /**
+     * Reads column constraints, which JSqlParser reports one word per entry,
+     * e.g. {@code [NOT, NULL, REFERENCES, users, (id)]}.
+     */
+    private void applyColumnSpecs(Attribute attribute, List<String> specs, ParsedTable result) {
+        for (int i = 0; i < specs.size(); i++) {
+            String spec = specs.get(i);
+            String nextSpec = i + 1 < specs.size() ? specs.get(i + 1) : "";
             
-            // Check for constraints
-            if (columnMatcher.group().toUpperCase().contains("NOT NULL")) {
+            if (spec.equalsIgnoreCase("NOT") && nextSpec.equalsIgnoreCase("NULL")) {
                 attribute.setNullable(false);
-            }
-            
-            if (columnMatcher.group().toUpperCase().contains("PRIMARY KEY")) {
+                i++;
+            } else if (spec.equalsIgnoreCase("PRIMARY") && nextSpec.equalsIgnoreCase("KEY")) {
                 attribute.setPrimaryKey(true);
                 attribute.setNullable(false);
-            }
-            
-            entity.addAttribute(attribute);
-        }
-        
-        // Extract primary key constraints
-        Pattern primaryKeyPattern = Pattern.compile("PRIMARY\\s+KEY\\s+\\(([^)]+)\\)", Pattern.CASE_INSENSITIVE);
-        Matcher primaryKeyMatcher = primaryKeyPattern.matcher(createTableSql);
-        
-        if (primaryKeyMatcher.find()) {
-            String[] primaryKeys = primaryKeyMatcher.group(1).split(",");
-            for (String primaryKey : primaryKeys) {
-                String pkColumn = primaryKey.trim().replaceAll("[`\"\']", "");
-                
-                for (Attribute attr : entity.getAttributes()) {
-                    if (attr.getName().equalsIgnoreCase(pkColumn)) {
-                        attr.setPrimaryKey(true);
-                        attr.setNullable(false);
-                    }
+                i++;
+            } else if (spec.equalsIgnoreCase("REFERENCES") && !nextSpec.isEmpty()) {
+                String refTable = unquote(nextSpec.substring(nextSpec.lastIndexOf('.') + 1));
+                String refColumn = null;
+                if (i + 2 < specs.size() && specs.get(i + 2).startsWith("(")) {
+                    String columns = specs.get(i + 2);
+                    int end = columns.indexOf(',') > 0 ? columns.indexOf(',') : columns.length() - 1;
+                    refColumn = unquote(columns.substring(1, Math.max(1, end)).trim());
+                    i++;
                 }
+                
+                attribute.setForeignKey(true);
+                attribute.setReferencedTable(refTable);
+                attribute.setReferencedColumn(refColumn);
+                result.foreignKeys.add(new ForeignKeyInfo(
+                        result.entity.getName(), attribute.getName(), refTable, refColumn));
+                i++;
             }
         }
-        
-        // Extract foreign key constraints
-        Pattern foreignKeyPattern = Pattern.compile(
-                "FOREIGN\\s+KEY\\s+\\(([^)]+)\\)\\s+REFERENCES\\s+([\\w_]+)\\s*(?:\\(([^)]+)\\))?", 
-                Pattern.CASE_INSENSITIVE);
-        Matcher foreignKeyMatcher = foreignKeyPattern.matcher(createTableSql);
-        
-        while (foreignKeyMatcher.find()) {
-            String[] fkColumns = foreignKeyMatcher.group(1).split(",");
-            String refTable = foreignKeyMatcher.group(2).trim().replaceAll("[`\"\']", "");
-            String[] refColumns = foreignKeyMatcher.group(3) != null ? 
-                    foreignKeyMatcher.group(3).split(",") : new String[0];
-            
-            if (!foreignKeys.containsKey(tableName)) {
-                foreignKeys.put(tableName, new ArrayList<>());
+    }
+    
+    /**
+     * Applies the collected primary keys and creates the relationships for the
+     * collected foreign keys in one pass over the constraints. Each table is looked
+     * up in the diagram's name index once per group; constraints whose tables are
+     * missing or not in the diagram are ignored.
+     */
+    void resolveConstraints(ERDiagram erDiagram, DeferredConstraints constraints) {
+        // Primary keys first, so relationship types see them
+        for (Map.Entry<String, List<String>> entry : constraints.primaryKeys.entrySet()) {
+            Entity entity = findEntity(erDiagram, entry.getKey());
+            if (entity == null) {
+                continue;
             }
             
-            for (int i = 0; i < fkColumns.length; i++) {
-                String fkColumn = fkColumns[i].trim().replaceAll("[`\"\']", "");
-                String refColumn = (i < refColumns.length) ? 
-                        refColumns[i].trim().replaceAll("[`\"\']", "") : null;
-                
-                ForeignKeyInfo fkInfo = new ForeignKeyInfo(tableName, fkColumn, refTable, refColumn);
-                foreignKeys.get(tableName).add(fkInfo);
-                
-                // Mark the attribute as a foreign key
-                for (Attribute attr : entity.getAttributes()) {
-                    if (attr.getName().equalsIgnoreCase(fkColumn)) {
-                        attr.setForeignKey(true);
-                        attr.setReferencedTable(refTable);
-                        attr.setReferencedColumn(refColumn);
-                    }
+            for (String columnName : entry.getValue()) {
+                Attribute attr = entity.getAttribute(columnName);
+                if (attr != null) {
+                    attr.setPrimaryKey(true);
+                    attr.setNullable(false);
                 }
             }
         }
         
-        erDiagram.addEntity(entity);
-    }
-    
-    private void processForeignKeys(Map<String, List<ForeignKeyInfo>> foreignKeys) {
-        for (String tableName : foreignKeys.keySet()) {
-            Entity sourceEntity = erDiagram.getEntityByName(tableName);
+        for (Map.Entry<String, List<ForeignKeyInfo>> entry : constraints.foreignKeys.entrySet()) {
+            Entity sourceEntity = findEntity(erDiagram, entry.getKey());
             
             if (sourceEntity == null) {
                 continue;
             }
             
-            for (ForeignKeyInfo fkInfo : foreignKeys.get(tableName)) {
-                Entity targetEntity = erDiagram.getEntityByName(fkInfo.refTable);
+            for (ForeignKeyInfo fkInfo : entry.getValue()) {
+                Entity targetEntity = findEntity(erDiagram, fkInfo.refTable);
                 
                 if (targetEntity == null) {
                     continue;
@@ -272,6 +670,13 @@ public class SQLParser {
                 Attribute sourceAttr = findAttributeByName(sourceEntity, fkInfo.column);
                 Attribute targetAttr = findAttributeByName(targetEntity, fkInfo.refColumn);
                 
+                // Keys declared by ALTER TABLE were not marked when the table was parsed
+                if (sourceAttr != null && !sourceAttr.isForeignKey()) {
+                    sourceAttr.setForeignKey(true);
+                    sourceAttr.setReferencedTable(fkInfo.refTable);
+                    sourceAttr.setReferencedColumn(fkInfo.refColumn);
+                }
+                
                 relationship.setSourceAttribute(sourceAttr);
                 relationship.setTargetAttribute(targetAttr);
                 
@@ -280,6 +685,10 @@ public class SQLParser {
         }
     }
     
+    private static Entity findEntity(ERDiagram erDiagram, String tableName) {
+        return tableName == null ? null : erDiagram.getEntityByName(tableName);
+    }
+    
     private Relationship.RelationshipType determineRelationshipType(
             Entity sourceEntity, String sourceColumn, Entity targetEntity, String targetColumn) {
         
@@ -298,25 +707,12 @@ public class SQLParser {
     }
     
     private boolean isColumnPrimaryKey(Entity entity, String columnName) {
-        for (Attribute attr : entity.getAttributes()) {
-            if (attr.getName().equalsIgnoreCase(columnName) && attr.isPrimaryKey()) {
-                return true;
-            }
-        }
-        return false;
+        Attribute attr = entity.getAttribute(columnName);
+        return attr != null && attr.isPrimaryKey();
     }
     
     private Attribute findAttributeByName(Entity entity, String columnName) {
-        if (columnName == null) {
-            return null;
-        }
-        
-        for (Attribute attr : entity.getAttributes()) {
-            if (attr.getName().equalsIgnoreCase(columnName)) {
-                return attr;
-            }
-        }
-        return null;
+        return entity.getAttribute(columnName);
     }
     
     private List<String> getColumnNames(Index index) {
@@ -325,31 +721,14 @@ public class SQLParser {
         if (index instanceof NamedConstraint) {
             NamedConstraint namedConstraint = (NamedConstraint) index;
             for (String columnName : namedConstraint.getColumnsNames()) {
-                columns.add(columnName);
+                columns.add(unquote(columnName));
             }
         } else if (index.getColumnsNames() != null) {
             for (String columnName : index.getColumnsNames()) {
-                columns.add(columnName);
+                columns.add(unquote(columnName));
             }
         }
         
         return columns;
     }
-    
-    /**
-     * Helper class to store foreign key information for relationship creation.
-     */
-    private static class ForeignKeyInfo {
-        String sourceTable;
-        String column;
-        String refTable;
-        String refColumn;
-        
-        public ForeignKeyInfo(String sourceTable, String column, String refTable, String refColumn) {
-            this.sourceTable = sourceTable;
-            this.column = column;
-            this.refTable = refTable;
-            this.refColumn = refColumn;
-        }
-    }
-} 
\ No newline at end of file
+}
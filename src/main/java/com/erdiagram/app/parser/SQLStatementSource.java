@@ -0,0 +1,1049 @@
+package com.erdiagram.app.parser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Streams SQL statements out of a script one at a time.
+ *
+ * The scanner works on raw UTF-8 bytes and only splits on semicolons that are
+ * outside of string literals, quoted identifiers, comments and PostgreSQL
+ * dollar-quoted bodies. Backslashes only escape quotes inside PostgreSQL
+ * {@code E'...'} strings, or in every single-quoted string once MySQL-style
+ * escapes are enabled with {@link #setBackslashEscapes(boolean)}. Files are
+ * read through memory-mapped windows, so the
+ * memory held at any time is bounded by the largest single statement rather
+ * than by the size of the script.
+ *
+ * Data statements ({@code INSERT}, {@code REPLACE} and {@code COPY ... FROM stdin}
+ * blocks) are recognised from their leading keyword and skipped at byte level
+ * without being decoded, which makes a full data dump about as cheap to scan
+ * as a schema-only dump.
+ *
+ * Compressed dumps ({@code .sql.gz} and {@code .zip}) are decompressed on a
+ * separate thread into a small ring of reused buffers, so inflating the next
+ * chunk overlaps with scanning the current one and the uncompressed script is
+ * never held in memory or written to disk.
+ */
+public class SQLStatementSource implements Closeable {
+    private static final int MAP_WINDOW_SIZE = 64 * 1024 * 1024;
+    private static final int READ_CHUNK_SIZE = 64 * 1024;
+    private static final int READ_AHEAD_CHUNK_SIZE = 256 * 1024;
+    private static final int READ_AHEAD_CHUNKS = 4;
+    private static final int INITIAL_STATEMENT_CAPACITY = 4096;
+
+    // Scanner states
+    private static final int NORMAL = 0;
+    private static final int SINGLE_QUOTE = 1;
+    private static final int DOUBLE_QUOTE = 2;
+    private static final int BACKTICK = 3;
+    private static final int LINE_COMMENT = 4;
+    private static final int BLOCK_COMMENT = 5;
+    private static final int DOLLAR_QUOTE = 6;
+    
+    // Line states while skipping COPY data
+    private static final int COPY_LINE_START = 0;
+    private static final int COPY_BACKSLASH = 1;
+    private static final int COPY_TERMINATOR = 2;
+    private static final int COPY_MID_LINE = 3;
+    
+    private static final byte[] INSERT_KEYWORD = {'I', 'N', 'S', 'E', 'R', 'T'};
+    private static final byte[] REPLACE_KEYWORD = {'R', 'E', 'P', 'L', 'A', 'C', 'E'};
+    private static final byte[] COPY_KEYWORD = {'C', 'O', 'P', 'Y'};
+    private static final byte[] FROM_KEYWORD = {'F', 'R', 'O', 'M'};
+    private static final byte[] STDIN_KEYWORD = {'S', 'T', 'D', 'I', 'N'};
+
+    private final ChunkReader reader;
+    private ByteBuffer chunk;
+    // Offset of the current chunk's first byte within the input
+    private long chunkOffset;
+    private boolean exhausted;
+
+    private byte[] statement = new byte[INITIAL_STATEMENT_CAPACITY];
+    private int length;
+    private int state = NORMAL;
+    private boolean escapeNext;
+    private boolean backslashEscapes;
+    // Whether backslashes escape in the string being scanned
+    private boolean escapedString;
+    private byte[] dollarTag;
+    private int dollarBodyStart;
+    // While skipping data: how much of the closing dollar-quote tag has been seen,
+    // and the last two bytes outside quotes and comments
+    private int dollarMatch;
+    private byte previousByte;
+    private byte earlierByte;
+    private int statementCount;
+    private int skippedCount;
+    
+    private boolean skipDataStatements = true;
+    private boolean classified;
+    private boolean copyStatement;
+    private boolean skippingData;
+    private boolean skippingCopyData;
+    private int copyLineState;
+
+    // Where the statement being scanned began, and the range of the last one returned
+    private long pendingStart;
+    private long statementStart;
+    private long statementEnd;
+
+    private SQLStatementSource(ChunkReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Opens a statement source over a file using memory-mapped windows.
+     *
+     * @param path The SQL script to read
+     * @return A statement source positioned at the start of the file
+     * @throws IOException If the file cannot be opened
+     */
+    public static SQLStatementSource fromFile(Path path) throws IOException {
+        return new SQLStatementSource(new MappedFileReader(FileChannel.open(path, StandardOpenOption.READ)));
+    }
+
+    /**
+     * Opens a statement source over a file, decompressing {@code .gz} files and
+     * the {@code .sql} entries of {@code .zip} archives on the fly. Other files
+     * are read like {@link #fromFile(Path)}.
+     *
+     * @param path The SQL script or compressed dump to read
+     * @return A statement source positioned at the start of the script
+     * @throws IOException If the file cannot be opened
+     */
+    public static SQLStatementSource open(Path path) throws IOException {
+        String fileName = path.getFileName().toString();
+
+        if (hasExtension(fileName, ".gz")) {
+            InputStream in = Files.newInputStream(path);
+            try {
+                return new SQLStatementSource(new ReadAheadReader(new GZIPInputStream(in, READ_CHUNK_SIZE)));
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+        }
+        if (hasExtension(fileName, ".zip")) {
+            return new SQLStatementSource(new ReadAheadReader(new ZipEntriesStream(
+                    new ZipInputStream(Files.newInputStream(path)))));
+        }
+        return fromFile(path);
+    }
+
+    /**
+     * @return true if the file name is a compressed dump that {@link #open(Path)} decompresses
+     */
+    public static boolean isCompressed(Path path) {
+        String fileName = path.getFileName().toString();
+        return hasExtension(fileName, ".gz") || hasExtension(fileName, ".zip");
+    }
+
+    private static boolean hasExtension(String fileName, String extension) {
+        return fileName.regionMatches(true, fileName.length() - extension.length(),
+                extension, 0, extension.length());
+    }
+
+    /**
+     * Creates a statement source over SQL text that is already in memory.
+     *
+     * @param sqlText The SQL statements to split
+     * @return A statement source over the text
+     */
+    public static SQLStatementSource fromString(String sqlText) {
+        ByteBuffer buffer = ByteBuffer.wrap(sqlText.getBytes(StandardCharsets.UTF_8));
+        return new SQLStatementSource(new ChunkReader() {
+            private boolean consumed;
+
+            @Override
+            public ByteBuffer next() {
+                if (consumed) {
+                    return null;
+                }
+                consumed = true;
+                return buffer;
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+    }
+
+    /**
+     * Creates a statement source that reads from an arbitrary byte stream.
+     *
+     * @param in The stream to read; closed together with this source
+     * @return A statement source over the stream
+     */
+    public static SQLStatementSource fromStream(InputStream in) {
+        return new SQLStatementSource(new StreamReader(in));
+    }
+
+    /**
+     * Returns the next non-empty statement without its terminating semicolon.
+     * Comments are replaced by a single space.
+     *
+     * @return The trimmed statement text, or null when the input is exhausted
+     * @throws IOException If reading the underlying input fails
+     */
+    public String nextStatement() throws IOException {
+        while (true) {
+            if (!scanToDelimiter()) {
+                // End of input: flush whatever is left as a final statement
+                String last = takeStatement();
+                state = NORMAL;
+                markStatementRange(position());
+                return last;
+            }
+
+            String text = takeStatement();
+            if (text != null) {
+                // The range ends before the semicolon
+                markStatementRange(position() - 1);
+                return text;
+            }
+            pendingStart = position();
+        }
+    }
+
+    /**
+     * Returns where the statement last returned by {@link #nextStatement()} begins
+     * in the uncompressed input. The range includes any whitespace and comments
+     * before it, so scanning the bytes of the range again yields the same statement.
+     *
+     * @return The byte offset of the start of the statement's range
+     */
+    public long getStatementStart() {
+        return statementStart;
+    }
+
+    /**
+     * @return The byte offset just past the last statement, before its semicolon
+     */
+    public long getStatementEnd() {
+        return statementEnd;
+    }
+
+    private void markStatementRange(long end) {
+        statementStart = pendingStart;
+        statementEnd = end;
+        pendingStart = position();
+    }
+
+    private long position() {
+        return chunk == null ? chunkOffset : chunkOffset + chunk.position();
+    }
+
+    /**
+     * @return The number of statements returned so far
+     */
+    public int getStatementCount() {
+        return statementCount;
+    }
+    
+    /**
+     * @return The number of data statements skipped so far
+     */
+    public int getSkippedStatementCount() {
+        return skippedCount;
+    }
+    
+    /**
+     * Controls whether INSERT, REPLACE and COPY statements are skipped. Enabled by default.
+     *
+     * @param skipDataStatements true to skip data statements, false to return them
+     */
+    public void setSkipDataStatements(boolean skipDataStatements) {
+        this.skipDataStatements = skipDataStatements;
+    }
+
+    /**
+     * Controls whether backslashes escape the next character in single-quoted
+     * strings, as in MySQL's default SQL mode. Disabled by default, following
+     * standard SQL, where {@code 'C:\'} is a complete string. Double-quoted and
+     * backtick-quoted identifiers never use backslash escapes.
+     *
+     * @param backslashEscapes true to read MySQL-style backslash escapes
+     */
+    public void setBackslashEscapes(boolean backslashEscapes) {
+        this.backslashEscapes = backslashEscapes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        chunk = null;
+        reader.close();
+    }
+
+    /**
+     * Scans bytes into the statement buffer until a top-level semicolon.
+     *
+     * @return true if a delimiter was found, false at end of input
+     */
+    private boolean scanToDelimiter() throws IOException {
+        while (true) {
+            if (chunk == null || !chunk.hasRemaining()) {
+                if (exhausted) {
+                    return false;
+                }
+                if (chunk != null) {
+                    // Chunks start at index 0 and are consumed completely
+                    chunkOffset += chunk.limit();
+                }
+                chunk = reader.next();
+                if (chunk == null) {
+                    exhausted = true;
+                    return false;
+                }
+                continue;
+            }
+
+            if (skippingData) {
+                if (skipDataStatement()) {
+                    finishSkippedStatement();
+                }
+                continue;
+            }
+            
+            if (skippingCopyData) {
+                if (skipCopyData()) {
+                    finishSkippedStatement();
+                }
+                continue;
+            }
+
+            byte b = chunk.get();
+
+            switch (state) {
+                case NORMAL:
+                    if (b == ';') {
+                        if (!copyStatement) {
+                            return true;
+                        }
+                        beginCopyDataSkip();
+                        break;
+                    }
+                    scanNormal(b);
+                    if (!classified && state == NORMAL) {
+                        classifyLeadingKeyword();
+                    }
+                    break;
+
+                case SINGLE_QUOTE:
+                case DOUBLE_QUOTE:
+                case BACKTICK:
+                    append(b);
+                    if (escapeNext) {
+                        escapeNext = false;
+                    } else if (b == '\\' && escapedString) {
+                        escapeNext = true;
+                    } else if (b == closingQuote(state)) {
+                        state = NORMAL;
+                    }
+                    break;
+
+                case LINE_COMMENT:
+                    if (b == '\n') {
+                        append(b);
+                        state = NORMAL;
+                    }
+                    break;
+
+                case BLOCK_COMMENT:
+                    if (b == '*') {
+                        // Remember the star so the closing slash can be recognised
+                        escapeNext = true;
+                    } else if (b == '/' && escapeNext) {
+                        escapeNext = false;
+                        state = NORMAL;
+                    } else {
+                        escapeNext = false;
+                    }
+                    break;
+
+                case DOLLAR_QUOTE:
+                    append(b);
+                    if (b == '$' && endsWithDollarTag(dollarTag)) {
+                        dollarTag = null;
+                        state = NORMAL;
+                    }
+                    break;
+
+                default:
+                    throw new IllegalStateException("Unknown scanner state " + state);
+            }
+        }
+    }
+
+    /**
+     * Looks at the first word of the statement once it is complete and switches
+     * to skip mode for data statements.
+     */
+    private void classifyLeadingKeyword() {
+        if (!skipDataStatements) {
+            classified = true;
+            return;
+        }
+        
+        int start = 0;
+        while (start < length && isWhitespace(statement[start])) {
+            start++;
+        }
+        if (start == length) {
+            return;
+        }
+        
+        int end = start;
+        while (end < length && isLetter(statement[end])) {
+            end++;
+        }
+        if (end == start) {
+            // Not a keyword, unless a comment may be starting
+            if (start == length - 1 && (statement[start] == '-' || statement[start] == '/')) {
+                return;
+            }
+        } else if (end == length) {
+            // The keyword is still being read
+            return;
+        }
+        
+        classified = true;
+        
+        if (keywordEquals(start, end, INSERT_KEYWORD) || keywordEquals(start, end, REPLACE_KEYWORD)) {
+            // The byte after the keyword may start a comment
+            previousByte = statement[end];
+            earlierByte = statement[end - 1];
+            length = 0;
+            escapeNext = false;
+            skippingData = true;
+        } else if (keywordEquals(start, end, COPY_KEYWORD)) {
+            copyStatement = true;
+        }
+    }
+    
+    private boolean keywordEquals(int start, int end, byte[] keyword) {
+        if (end - start != keyword.length) {
+            return false;
+        }
+        for (int i = 0; i < keyword.length; i++) {
+            if ((statement[start + i] & 0xDF) != keyword[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Skips the rest of an INSERT or REPLACE statement. Quotes, comments and
+     * dollar-quoted bodies are tracked as in a normal statement, but nothing is
+     * copied except a dollar-quote tag while it is being read.
+     *
+     * @return true once the terminating semicolon has been consumed
+     */
+    private boolean skipDataStatement() {
+        ByteBuffer buffer = chunk;
+        while (buffer.hasRemaining()) {
+            byte b = buffer.get();
+            if (state == NORMAL) {
+                if (b == ';') {
+                    return true;
+                }
+                if (b == '\'' || b == '"' || b == '`' || b == '-' || b == '*' || b == '$' || length > 0) {
+                    skipNormal(b);
+                }
+                earlierByte = previousByte;
+                previousByte = b;
+            } else if (state <= BACKTICK) {
+                // Inside a string or quoted identifier, whose text is not needed
+                if (escapeNext) {
+                    escapeNext = false;
+                } else if (b == '\\' && escapedString) {
+                    escapeNext = true;
+                } else if (b == closingQuote(state)) {
+                    state = NORMAL;
+                    previousByte = b;
+                }
+            } else {
+                skipCommentOrDollarQuote(b);
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Handles a byte of a skipped statement inside a comment or dollar-quoted body.
+     */
+    private void skipCommentOrDollarQuote(byte b) {
+        switch (state) {
+            case LINE_COMMENT:
+                if (b == '\n') {
+                    state = NORMAL;
+                    previousByte = b;
+                }
+                break;
+            
+            case BLOCK_COMMENT:
+                if (b == '/' && escapeNext) {
+                    // A comment separates like whitespace
+                    state = NORMAL;
+                    previousByte = ' ';
+                }
+                escapeNext = b == '*';
+                break;
+            
+            case DOLLAR_QUOTE:
+                // A tag only has dollar signs at its ends, so a failed match restarts at most at this byte
+                if (b == dollarTag[dollarMatch]) {
+                    dollarMatch++;
+                } else {
+                    dollarMatch = b == '$' ? 1 : 0;
+                }
+                if (dollarMatch == dollarTag.length) {
+                    dollarTag = null;
+                    state = NORMAL;
+                    previousByte = b;
+                }
+                break;
+            
+            default:
+                throw new IllegalStateException("Unknown scanner state " + state);
+        }
+    }
+    
+    /**
+     * Handles a byte of a skipped statement outside quotes and comments that
+     * may start one. The statement buffer holds the dollar-quote tag being read, if any.
+     */
+    private void skipNormal(byte b) {
+        if (length > 0) {
+            // Reading a possible dollar-quote tag
+            if (b == '$') {
+                append(b);
+                dollarTag = Arrays.copyOf(statement, length);
+                dollarMatch = 0;
+                length = 0;
+                state = DOLLAR_QUOTE;
+                return;
+            }
+            if (isTagChar(b) && !(length == 1 && b >= '0' && b <= '9')) {
+                append(b);
+                return;
+            }
+            length = 0;
+        }
+        
+        switch (b) {
+            case '\'':
+                escapedString = backslashEscapes
+                        || ((previousByte == 'E' || previousByte == 'e') && !isTagChar(earlierByte));
+                escapeNext = false;
+                state = SINGLE_QUOTE;
+                break;
+            case '"':
+                escapedString = false;
+                escapeNext = false;
+                state = DOUBLE_QUOTE;
+                break;
+            case '`':
+                escapedString = false;
+                escapeNext = false;
+                state = BACKTICK;
+                break;
+            case '-':
+                if (previousByte == '-') {
+                    state = LINE_COMMENT;
+                }
+                break;
+            case '*':
+                if (previousByte == '/') {
+                    escapeNext = false;
+                    state = BLOCK_COMMENT;
+                }
+                break;
+            case '$':
+                // "a$b$" is an identifier and "$$$" holds no tag
+                if (!isTagChar(previousByte) && previousByte != '$') {
+                    append(b);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+    
+    private void beginCopyDataSkip() {
+        boolean fromStdin = isCopyFromStdin();
+        length = 0;
+        escapeNext = false;
+        if (fromStdin) {
+            // The rest of the header line is not data
+            copyLineState = COPY_MID_LINE;
+            skippingCopyData = true;
+        } else {
+            finishSkippedStatement();
+        }
+    }
+    
+    /**
+     * Skips inline COPY data up to the terminating backslash-period line.
+     *
+     * @return true once the terminator line has been consumed
+     */
+    private boolean skipCopyData() {
+        ByteBuffer buffer = chunk;
+        while (buffer.hasRemaining()) {
+            byte b = buffer.get();
+            if (b == '\n') {
+                if (copyLineState == COPY_TERMINATOR) {
+                    return true;
+                }
+                copyLineState = COPY_LINE_START;
+            } else if (b == '\\' && copyLineState == COPY_LINE_START) {
+                copyLineState = COPY_BACKSLASH;
+            } else if (b == '.' && copyLineState == COPY_BACKSLASH) {
+                copyLineState = COPY_TERMINATOR;
+            } else if (b != '\r' || copyLineState != COPY_TERMINATOR) {
+                copyLineState = COPY_MID_LINE;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Checks whether the COPY statement in the buffer has the words {@code FROM STDIN}
+     * outside of quotes.
+     */
+    private boolean isCopyFromStdin() {
+        boolean afterFrom = false;
+        int i = 0;
+        while (i < length) {
+            byte b = statement[i];
+            if (isTagChar(b)) {
+                int start = i;
+                while (i < length && isTagChar(statement[i])) {
+                    i++;
+                }
+                if (afterFrom && keywordEquals(start, i, STDIN_KEYWORD)) {
+                    return true;
+                }
+                afterFrom = keywordEquals(start, i, FROM_KEYWORD);
+                continue;
+            }
+            
+            if (b == '\'' || b == '"' || b == '`') {
+                // Skip the quoted text; doubled quotes simply start a new quoted part
+                i++;
+                while (i < length && statement[i] != b) {
+                    i++;
+                }
+                afterFrom = false;
+            } else if (!isWhitespace(b)) {
+                afterFrom = false;
+            }
+            i++;
+        }
+        return false;
+    }
+    
+    private void finishSkippedStatement() {
+        pendingStart = position();
+        skippedCount++;
+        length = 0;
+        state = NORMAL;
+        escapeNext = false;
+        dollarTag = null;
+        classified = false;
+        copyStatement = false;
+        skippingData = false;
+        skippingCopyData = false;
+    }
+
+    private void scanNormal(byte b) {
+        switch (b) {
+            case '\'':
+                append(b);
+                escapedString = backslashEscapes || followsEscapeStringPrefix();
+                state = SINGLE_QUOTE;
+                break;
+            case '"':
+                append(b);
+                escapedString = false;
+                state = DOUBLE_QUOTE;
+                break;
+            case '`':
+                append(b);
+                escapedString = false;
+                state = BACKTICK;
+                break;
+            case '-':
+                if (length > 0 && statement[length - 1] == '-') {
+                    // Drop the first dash and replace the comment with whitespace
+                    statement[length - 1] = ' ';
+                    state = LINE_COMMENT;
+                } else {
+                    append(b);
+                }
+                break;
+            case '*':
+                if (length > 0 && statement[length - 1] == '/') {
+                    statement[length - 1] = ' ';
+                    escapeNext = false;
+                    state = BLOCK_COMMENT;
+                } else {
+                    append(b);
+                }
+                break;
+            case '$':
+                append(b);
+                byte[] tag = openingDollarTag();
+                if (tag != null) {
+                    dollarTag = tag;
+                    dollarBodyStart = length;
+                    state = DOLLAR_QUOTE;
+                }
+                break;
+            default:
+                append(b);
+                break;
+        }
+    }
+
+    /**
+     * Checks whether the quote just appended opens a PostgreSQL {@code E'...'} string.
+     */
+    private boolean followsEscapeStringPrefix() {
+        int prefix = length - 2;
+        return prefix >= 0 && (statement[prefix] == 'E' || statement[prefix] == 'e')
+                && (prefix == 0 || !isTagChar(statement[prefix - 1]));
+    }
+
+    private static byte closingQuote(int quoteState) {
+        switch (quoteState) {
+            case SINGLE_QUOTE:
+                return '\'';
+            case DOUBLE_QUOTE:
+                return '"';
+            default:
+                return '`';
+        }
+    }
+
+    /**
+     * Checks whether the buffer now ends with an opening dollar-quote tag such
+     * as {@code $$} or {@code $body$}, and returns the tag bytes if so.
+     */
+    private byte[] openingDollarTag() {
+        int end = length - 1;
+        int start = end - 1;
+        while (start >= 0 && isTagChar(statement[start])) {
+            start--;
+        }
+        if (start < 0 || statement[start] != '$') {
+            return null;
+        }
+        // A tag cannot start with a digit ($1 is a positional parameter)
+        if (start + 1 < end && Character.isDigit(statement[start + 1])) {
+            return null;
+        }
+        // "a$b$" is an identifier, not a dollar quote
+        if (start > 0 && (isTagChar(statement[start - 1]) || statement[start - 1] == '$')) {
+            return null;
+        }
+        return Arrays.copyOfRange(statement, start, length);
+    }
+
+    private boolean endsWithDollarTag(byte[] tag) {
+        // The closing tag cannot overlap the opening one, as in "$$$"
+        int offset = length - tag.length;
+        if (offset < dollarBodyStart) {
+            return false;
+        }
+        for (int i = 0; i < tag.length; i++) {
+            if (statement[offset + i] != tag[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isLetter(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z');
+    }
+
+    private static boolean isTagChar(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '_';
+    }
+
+    private void append(byte b) {
+        if (length == statement.length) {
+            statement = Arrays.copyOf(statement, statement.length * 2);
+        }
+        statement[length++] = b;
+    }
+
+    /**
+     * Decodes and clears the statement buffer.
+     *
+     * @return The trimmed statement, or null if it only contained whitespace
+     */
+    private String takeStatement() {
+        int start = 0;
+        int end = length;
+        while (start < end && isWhitespace(statement[start])) {
+            start++;
+        }
+        while (end > start && isWhitespace(statement[end - 1])) {
+            end--;
+        }
+
+        length = 0;
+        escapeNext = false;
+        classified = false;
+        copyStatement = false;
+
+        if (start == end) {
+            return null;
+        }
+
+        statementCount++;
+        return new String(statement, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f';
+    }
+
+    /**
+     * Supplies the input as a sequence of byte buffers.
+     */
+    private interface ChunkReader extends Closeable {
+        /**
+         * @return The next chunk of input, or null at end of input
+         */
+        ByteBuffer next() throws IOException;
+    }
+
+    /**
+     * Maps a file window by window so that files larger than the heap can be scanned.
+     */
+    private static class MappedFileReader implements ChunkReader {
+        private final FileChannel channel;
+        private final long size;
+        private long position;
+
+        MappedFileReader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+        }
+
+        @Override
+        public ByteBuffer next() throws IOException {
+            if (position >= size) {
+                return null;
+            }
+            long windowSize = Math.min(MAP_WINDOW_SIZE, size - position);
+            ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+            position += windowSize;
+            return window;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Reads a stream in fixed-size chunks through a reused buffer.
+     */
+    private static class StreamReader implements ChunkReader {
+        private final InputStream in;
+        private final byte[] buffer = new byte[READ_CHUNK_SIZE];
+
+        StreamReader(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public ByteBuffer next() throws IOException {
+            int read = in.read(buffer);
+            while (read == 0) {
+                read = in.read(buffer);
+            }
+            if (read < 0) {
+                return null;
+            }
+            return ByteBuffer.wrap(buffer, 0, read);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Reads a stream on a background thread, a few chunks ahead of the scanner.
+     * Buffers circulate between a free queue and a filled queue, so steady-state
+     * reading does not allocate.
+     */
+    private static class ReadAheadReader implements ChunkReader {
+        private static final ByteBuffer END_OF_INPUT = ByteBuffer.allocate(0);
+
+        private final BlockingQueue<ByteBuffer> filled = new ArrayBlockingQueue<>(READ_AHEAD_CHUNKS);
+        private final BlockingQueue<byte[]> free = new ArrayBlockingQueue<>(READ_AHEAD_CHUNKS + 2);
+        private final Thread worker;
+        private volatile IOException failure;
+        private ByteBuffer current;
+        private boolean finished;
+
+        ReadAheadReader(InputStream in) {
+            // One buffer being filled, the queued ones, and one being scanned
+            for (int i = 0; i < READ_AHEAD_CHUNKS + 2; i++) {
+                free.add(new byte[READ_AHEAD_CHUNK_SIZE]);
+            }
+            worker = new Thread(() -> pump(in), "sql-decompress");
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        private void pump(InputStream in) {
+            try (InputStream input = in) {
+                while (true) {
+                    byte[] buffer = free.take();
+                    int length = 0;
+                    int read = 0;
+                    while (length < buffer.length && (read = input.read(buffer, length, buffer.length - length)) >= 0) {
+                        length += read;
+                    }
+                    if (length > 0) {
+                        filled.put(ByteBuffer.wrap(buffer, 0, length));
+                    }
+                    if (read < 0) {
+                        break;
+                    }
+                }
+            } catch (IOException e) {
+                failure = e;
+            } catch (InterruptedException e) {
+                // Closed by the consumer
+                return;
+            }
+
+            try {
+                filled.put(END_OF_INPUT);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public ByteBuffer next() throws IOException {
+            if (current != null) {
+                free.add(current.array());
+                current = null;
+            }
+            if (finished) {
+                return null;
+            }
+
+            ByteBuffer chunk;
+            try {
+                chunk = filled.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Decompression was interrupted");
+            }
+
+            if (chunk == END_OF_INPUT) {
+                finished = true;
+                if (failure != null) {
+                    throw failure;
+                }
+                return null;
+            }
+            current = chunk;
+            return chunk;
+        }
+
+        @Override
+        public void close() {
+            worker.interrupt();
+        }
+    }
+
+    /**
+     * Concatenates the {@code .sql} entries of a zip archive, ending each one
+     * with a statement delimiter so that a missing final semicolon does not join
+     * the last statement of one entry to the first statement of the next.
+     */
+    private static class ZipEntriesStream extends InputStream {
+        private static final byte[] ENTRY_SEPARATOR = {'\n', ';', '\n'};
+
+        private final ZipInputStream zip;
+        private boolean inEntry;
+        private int separatorPosition = ENTRY_SEPARATOR.length;
+
+        ZipEntriesStream(ZipInputStream zip) {
+            this.zip = zip;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+
+            while (true) {
+                if (separatorPosition < ENTRY_SEPARATOR.length) {
+                    int count = Math.min(len, ENTRY_SEPARATOR.length - separatorPosition);
+                    System.arraycopy(ENTRY_SEPARATOR, separatorPosition, b, off, count);
+                    separatorPosition += count;
+                    return count;
+                }
+
+                if (inEntry) {
+                    int read = zip.read(b, off, len);
+                    if (read >= 0) {
+                        return read;
+                    }
+                    inEntry = false;
+                    separatorPosition = 0;
+                    continue;
+                }
+
+                ZipEntry entry = zip.getNextEntry();
+                if (entry == null) {
+                    return -1;
+                }
+                inEntry = !entry.isDirectory() && hasExtension(entry.getName(), ".sql");
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            zip.close();
+        }
+    }
+}
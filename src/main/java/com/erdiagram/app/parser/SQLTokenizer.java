@@ -0,0 +1,215 @@
+package com.erdiagram.app.parser;
+
+/**
+ * Minimal hand-written SQL tokenizer used by the fallback DDL parser.
+ *
+ * The tokenizer walks the statement text once and never throws: malformed
+ * input such as an unterminated string simply ends at the end of the text.
+ * Token text is only materialised when {@link #text()} is called, so keyword
+ * checks do not allocate. Backslashes follow the same rule as in
+ * {@link SQLStatementSource}: they only escape inside {@code E'...'} strings,
+ * or in every string when MySQL-style escapes are enabled.
+ */
+class SQLTokenizer {
+    static final int EOF = 0;
+    static final int WORD = 1;
+    static final int QUOTED = 2;
+    static final int STRING = 3;
+    static final int NUMBER = 4;
+    static final int SYMBOL = 5;
+
+    private final String sql;
+    private final boolean backslashEscapes;
+    private int pos;
+
+    private int type = EOF;
+    private int start;
+    private int end;
+    private int tokenStart;
+
+    SQLTokenizer(String sql) {
+        this(sql, false);
+    }
+
+    /**
+     * @param backslashEscapes true to read backslashes as escapes in every string, as in MySQL
+     */
+    SQLTokenizer(String sql, boolean backslashEscapes) {
+        this.sql = sql;
+        this.backslashEscapes = backslashEscapes;
+    }
+
+    /**
+     * Advances to the next token.
+     * @return false once the end of the text has been reached
+     */
+    boolean next() {
+        skipWhitespaceAndComments();
+        tokenStart = pos;
+
+        if (pos >= sql.length()) {
+            type = EOF;
+            start = end = pos;
+            return false;
+        }
+
+        char c = sql.charAt(pos);
+
+        if (c == '`' || c == '"' || c == '[') {
+            char close = c == '[' ? ']' : c;
+            type = QUOTED;
+            start = ++pos;
+            while (pos < sql.length() && sql.charAt(pos) != close) {
+                pos++;
+            }
+            end = pos;
+            if (pos < sql.length()) {
+                pos++;
+            }
+        } else if (c == '\'') {
+            readString(backslashEscapes);
+        } else if ((c == 'E' || c == 'e') && pos + 1 < sql.length() && sql.charAt(pos + 1) == '\'') {
+            // PostgreSQL escape string
+            pos++;
+            readString(true);
+        } else if (isWordStart(c)) {
+            type = WORD;
+            start = pos;
+            while (pos < sql.length() && isWordPart(sql.charAt(pos))) {
+                pos++;
+            }
+            end = pos;
+        } else if (Character.isDigit(c)) {
+            type = NUMBER;
+            start = pos;
+            while (pos < sql.length() && (Character.isDigit(sql.charAt(pos)) || sql.charAt(pos) == '.')) {
+                pos++;
+            }
+            end = pos;
+        } else {
+            type = SYMBOL;
+            start = pos;
+            end = ++pos;
+        }
+        return true;
+    }
+
+    /**
+     * Reads a string literal, starting at its opening quote.
+     */
+    private void readString(boolean escapes) {
+        type = STRING;
+        start = ++pos;
+        while (pos < sql.length()) {
+            char ch = sql.charAt(pos);
+            if (ch == '\\' && escapes) {
+                pos += 2;
+            } else if (ch == '\'') {
+                if (pos + 1 < sql.length() && sql.charAt(pos + 1) == '\'') {
+                    pos += 2;
+                } else {
+                    break;
+                }
+            } else {
+                pos++;
+            }
+        }
+        end = Math.min(pos, sql.length());
+        if (pos < sql.length()) {
+            pos++;
+        }
+    }
+
+    private void skipWhitespaceAndComments() {
+        while (pos < sql.length()) {
+            char c = sql.charAt(pos);
+            if (Character.isWhitespace(c)) {
+                pos++;
+            } else if (c == '-' && pos + 1 < sql.length() && sql.charAt(pos + 1) == '-') {
+                while (pos < sql.length() && sql.charAt(pos) != '\n') {
+                    pos++;
+                }
+            } else if (c == '/' && pos + 1 < sql.length() && sql.charAt(pos + 1) == '*') {
+                int close = sql.indexOf("*/", pos + 2);
+                pos = close < 0 ? sql.length() : close + 2;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static boolean isWordStart(char c) {
+        return Character.isLetter(c) || c == '_';
+    }
+
+    private static boolean isWordPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
+    int type() {
+        return type;
+    }
+
+    boolean isEOF() {
+        return type == EOF;
+    }
+
+    /**
+     * @return true if the current token is an unquoted word equal to the keyword, ignoring case
+     */
+    boolean isWord(String keyword) {
+        return type == WORD && end - start == keyword.length()
+                && sql.regionMatches(true, start, keyword, 0, keyword.length());
+    }
+
+    /**
+     * @return true if the current token is an unquoted word matching any of the keywords
+     */
+    boolean isAnyWord(String[] keywords) {
+        if (type != WORD) {
+            return false;
+        }
+        for (String keyword : keywords) {
+            if (isWord(keyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean isSymbol(char symbol) {
+        return type == SYMBOL && sql.charAt(start) == symbol;
+    }
+
+    /**
+     * @return true if the current token can name a table or column
+     */
+    boolean isIdentifier() {
+        return type == WORD || type == QUOTED;
+    }
+
+    /**
+     * @return The token text, without surrounding quotes for quoted identifiers and strings
+     */
+    String text() {
+        return sql.substring(start, end);
+    }
+
+    /**
+     * @return The offset of the first character of the current token, including any quote
+     */
+    int tokenStart() {
+        return tokenStart;
+    }
+
+    /**
+     * @return The offset just past the current token, including any closing quote
+     */
+    int tokenEnd() {
+        return pos;
+    }
+
+    String source() {
+        return sql;
+    }
+}
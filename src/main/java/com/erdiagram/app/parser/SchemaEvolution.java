@@ -0,0 +1,253 @@
+package com.erdiagram.app.parser;
+
+import com.erdiagram.app.model.Attribute;
+import com.erdiagram.app.model.ERDiagram;
+import com.erdiagram.app.model.Entity;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A schema that evolves as CREATE, ALTER and DROP TABLE statements are applied
+ * to it in order.
+ *
+ * Parse results are never modified: every table keeps its own copies of the
+ * columns, so the same cached results can be applied again on the next run.
+ * Foreign keys stay unresolved until {@link #build(SQLParser)}, when the final
+ * set of tables is known.
+ */
+class SchemaEvolution {
+    private final Map<String, TableState> tables = new LinkedHashMap<>();
+    private final List<SQLDiagnostic> diagnostics;
+
+    SchemaEvolution(List<SQLDiagnostic> diagnostics) {
+        this.diagnostics = diagnostics;
+    }
+
+    /**
+     * Applies the effect of one statement.
+     *
+     * @param parsed The parse result of the statement
+     * @param source The file the statement was read from
+     * @param statementIndex The 1-based position of the statement in that file
+     */
+    void apply(ParsedTable parsed, String source, int statementIndex) {
+        for (SQLDiagnostic diagnostic : parsed.diagnostics) {
+            diagnostics.add(new SQLDiagnostic(source, statementIndex, diagnostic.getTableName(),
+                    diagnostic.getSeverity(), diagnostic.getMessage()));
+        }
+
+        if (parsed.entity != null) {
+            create(parsed);
+        } else if (parsed.alteredTable != null) {
+            TableState table = tables.get(parsed.alteredTable.toLowerCase());
+            if (table == null) {
+                diagnostics.add(new SQLDiagnostic(source, statementIndex, parsed.alteredTable,
+                        SQLDiagnostic.Severity.WARNING, "ALTER TABLE refers to a table that does not exist"));
+            } else {
+                alter(table, parsed, source, statementIndex);
+            }
+        }
+
+        for (String tableName : parsed.droppedTables) {
+            dropTable(tableName);
+        }
+    }
+
+    private void create(ParsedTable parsed) {
+        TableState table = new TableState(parsed.entity.getName());
+        for (Attribute attribute : parsed.entity.getAttributes()) {
+            table.columns.put(attribute.getName().toLowerCase(), copy(attribute, attribute.getName()));
+        }
+        table.foreignKeys.addAll(parsed.foreignKeys);
+        tables.put(table.name.toLowerCase(), table);
+    }
+
+    private void alter(TableState table, ParsedTable parsed, String source, int statementIndex) {
+        for (String constraintName : parsed.droppedConstraints) {
+            Iterator<ForeignKeyInfo> it = table.foreignKeys.iterator();
+            while (it.hasNext()) {
+                ForeignKeyInfo fkInfo = it.next();
+                if (constraintName.equalsIgnoreCase(fkInfo.constraintName)) {
+                    it.remove();
+                    unmarkForeignKey(table, fkInfo.column);
+                }
+            }
+        }
+
+        for (String columnName : parsed.droppedColumns) {
+            table.columns.remove(columnName.toLowerCase());
+            table.foreignKeys.removeIf(fkInfo -> columnName.equalsIgnoreCase(fkInfo.column));
+        }
+
+        if (!parsed.renamedColumns.isEmpty()) {
+            renameColumns(table, parsed.renamedColumns);
+        }
+
+        for (Attribute attribute : parsed.addedColumns) {
+            table.columns.put(attribute.getName().toLowerCase(), copy(attribute, attribute.getName()));
+        }
+
+        for (String columnName : parsed.primaryKeyColumns) {
+            Attribute attr = table.columns.get(columnName.toLowerCase());
+            if (attr == null) {
+                diagnostics.add(new SQLDiagnostic(source, statementIndex, table.name,
+                        SQLDiagnostic.Severity.WARNING, "PRIMARY KEY refers to unknown column " + columnName));
+            } else {
+                attr.setPrimaryKey(true);
+                attr.setNullable(false);
+            }
+        }
+
+        for (ForeignKeyInfo fkInfo : parsed.foreignKeys) {
+            Attribute attr = table.columns.get(fkInfo.column.toLowerCase());
+            if (attr == null) {
+                diagnostics.add(new SQLDiagnostic(source, statementIndex, table.name,
+                        SQLDiagnostic.Severity.WARNING, "FOREIGN KEY refers to unknown column " + fkInfo.column));
+                continue;
+            }
+            attr.setForeignKey(true);
+            attr.setReferencedTable(fkInfo.refTable);
+            attr.setReferencedColumn(fkInfo.refColumn);
+            table.foreignKeys.add(fkInfo);
+        }
+
+        if (parsed.renamedTo != null) {
+            renameTable(table, parsed.renamedTo);
+        }
+    }
+
+    private void renameColumns(TableState table, Map<String, String> renames) {
+        Map<String, Attribute> columns = new LinkedHashMap<>();
+        for (Attribute attribute : table.columns.values()) {
+            String newName = renamedTo(renames, attribute.getName());
+            Attribute renamed = newName == null ? attribute : copy(attribute, newName);
+            columns.put(renamed.getName().toLowerCase(), renamed);
+        }
+        table.columns.clear();
+        table.columns.putAll(columns);
+
+        List<ForeignKeyInfo> foreignKeys = new ArrayList<>(table.foreignKeys.size());
+        for (ForeignKeyInfo fkInfo : table.foreignKeys) {
+            String newName = renamedTo(renames, fkInfo.column);
+            foreignKeys.add(newName == null ? fkInfo : new ForeignKeyInfo(
+                    table.name, newName, fkInfo.refTable, fkInfo.refColumn, fkInfo.constraintName));
+        }
+        table.foreignKeys.clear();
+        table.foreignKeys.addAll(foreignKeys);
+    }
+
+    private static String renamedTo(Map<String, String> renames, String columnName) {
+        for (Map.Entry<String, String> rename : renames.entrySet()) {
+            if (rename.getKey().equalsIgnoreCase(columnName)) {
+                return rename.getValue();
+            }
+        }
+        return null;
+    }
+
+    private void renameTable(TableState table, String newName) {
+        String oldName = table.name;
+        tables.remove(oldName.toLowerCase());
+        table.name = newName;
+        tables.put(newName.toLowerCase(), table);
+
+        // Keys that point at the table follow it, as they do in the database
+        for (TableState other : tables.values()) {
+            for (int i = 0; i < other.foreignKeys.size(); i++) {
+                ForeignKeyInfo fkInfo = other.foreignKeys.get(i);
+                if (oldName.equalsIgnoreCase(fkInfo.refTable)) {
+                    other.foreignKeys.set(i, new ForeignKeyInfo(
+                            other.name, fkInfo.column, newName, fkInfo.refColumn, fkInfo.constraintName));
+                    Attribute attr = other.columns.get(fkInfo.column.toLowerCase());
+                    if (attr != null) {
+                        attr.setReferencedTable(newName);
+                    }
+                }
+            }
+        }
+    }
+
+    private void dropTable(String tableName) {
+        if (tables.remove(tableName.toLowerCase()) == null) {
+            return;
+        }
+
+        // Keys that point at the table go with it, as with DROP TABLE ... CASCADE
+        for (TableState other : tables.values()) {
+            Iterator<ForeignKeyInfo> it = other.foreignKeys.iterator();
+            while (it.hasNext()) {
+                ForeignKeyInfo fkInfo = it.next();
+                if (tableName.equalsIgnoreCase(fkInfo.refTable)) {
+                    it.remove();
+                    unmarkForeignKey(other, fkInfo.column);
+                }
+            }
+        }
+    }
+
+    private static void unmarkForeignKey(TableState table, String columnName) {
+        for (ForeignKeyInfo fkInfo : table.foreignKeys) {
+            if (columnName.equalsIgnoreCase(fkInfo.column)) {
+                return;
+            }
+        }
+
+        Attribute attr = table.columns.get(columnName.toLowerCase());
+        if (attr != null) {
+            attr.setForeignKey(false);
+            attr.setReferencedTable(null);
+            attr.setReferencedColumn(null);
+        }
+    }
+
+    private static Attribute copy(Attribute attribute, String name) {
+        Attribute copy = new Attribute(name, attribute.getDataType());
+        copy.setPrimaryKey(attribute.isPrimaryKey());
+        copy.setForeignKey(attribute.isForeignKey());
+        copy.setReferencedTable(attribute.getReferencedTable());
+        copy.setReferencedColumn(attribute.getReferencedColumn());
+        copy.setNullable(attribute.isNullable());
+        return copy;
+    }
+
+    /**
+     * Creates the diagram for the current state of the schema and resolves the
+     * remaining foreign keys against it.
+     */
+    ERDiagram build(SQLParser sqlParser) {
+        ERDiagram diagram = new ERDiagram("ER Diagram");
+        DeferredConstraints constraints = new DeferredConstraints();
+
+        for (TableState table : tables.values()) {
+            Entity entity = new Entity(table.name);
+            for (Attribute attribute : table.columns.values()) {
+                entity.addAttribute(attribute);
+            }
+            diagram.addEntity(entity);
+
+            if (!table.foreignKeys.isEmpty()) {
+                constraints.foreignKeys.put(table.name, table.foreignKeys);
+            }
+        }
+
+        sqlParser.resolveConstraints(diagram, constraints);
+        return diagram;
+    }
+
+    /**
+     * The current definition of one table.
+     */
+    private static class TableState {
+        String name;
+        final Map<String, Attribute> columns = new LinkedHashMap<>();
+        final List<ForeignKeyInfo> foreignKeys = new ArrayList<>();
+
+        TableState(String name) {
+            this.name = name;
+        }
+    }
+}
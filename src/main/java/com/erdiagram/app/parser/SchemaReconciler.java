@@ -0,0 +1,192 @@
+package com.erdiagram.app.parser;
+
+import com.erdiagram.app.model.Attribute;
+import com.erdiagram.app.model.ERDiagram;
+import com.erdiagram.app.model.Entity;
+import com.erdiagram.app.model.Relationship;
+import com.erdiagram.app.model.Replacement;
+import com.erdiagram.app.model.SchemaDelta;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns a series of diagrams, each parsed from scratch, into successive
+ * versions that share what did not change.
+ *
+ * This is for inputs that are always rebuilt as a whole, such as a folder of
+ * migrations replayed in order. Each {@link #update(ERDiagram)} compares the
+ * new diagram with the previous one table by table: tables defined exactly as
+ * before are swapped back to their previous instances, so the view can keep
+ * their nodes, and changed tables keep their position. Skeleton entities,
+ * whose columns are not loaded, always count as changed.
+ *
+ * Like {@link IncrementalSQLSession}, an update never modifies the diagram
+ * returned by the previous one.
+ */
+public class SchemaReconciler {
+    private ERDiagram diagram;
+    private Map<String, Relationship> relationshipsByKey = new HashMap<>();
+
+    /**
+     * Reconciles a freshly parsed diagram with the previous version.
+     *
+     * @param parsed The new diagram; its unchanged entities and relationships are replaced in place
+     * @return What changed from the previous diagram to the one now returned by {@link #getDiagram()}
+     */
+    public SchemaDelta update(ERDiagram parsed) {
+        SchemaDelta delta = new SchemaDelta();
+        Map<String, Entity> previousByName = new HashMap<>();
+        if (diagram != null) {
+            for (Entity entity : diagram.getEntities()) {
+                previousByName.put(entity.getName().toLowerCase(), entity);
+            }
+        }
+
+        ERDiagram nextDiagram = new ERDiagram(parsed.getName());
+        Map<Entity, Entity> reused = new IdentityHashMap<>();
+        for (Entity entity : parsed.getEntities()) {
+            Entity previous = previousByName.remove(entity.getName().toLowerCase());
+            if (previous == null) {
+                delta.getAddedEntities().add(entity);
+            } else if (isSameDefinition(previous, entity)) {
+                reused.put(entity, previous);
+                entity = previous;
+            } else {
+                // Same table, new definition: keep it where the user left it
+                entity.setX(previous.getX());
+                entity.setY(previous.getY());
+                delta.getChangedEntities().add(new Replacement<>(previous, entity));
+            }
+            nextDiagram.addEntity(entity);
+        }
+        delta.getRemovedEntities().addAll(previousByName.values());
+
+        if (diagram != null) {
+            nextDiagram.layoutBelow(delta.getAddedEntities());
+        }
+
+        for (Relationship relationship : parsed.getRelationships()) {
+            nextDiagram.addRelationship(remap(relationship, reused));
+        }
+        Map<String, Relationship> nextRelationships = reconcileRelationships(nextDiagram, relationshipsByKey, delta);
+
+        // Commit
+        diagram = nextDiagram;
+        relationshipsByKey = nextRelationships;
+        return delta;
+    }
+
+    private static boolean isSameDefinition(Entity a, Entity b) {
+        if (a.hasUnloadedAttributes() || b.hasUnloadedAttributes()
+                || !a.getName().equals(b.getName()) || a.getAttributes().size() != b.getAttributes().size()) {
+            return false;
+        }
+        for (int i = 0; i < a.getAttributes().size(); i++) {
+            Attribute x = a.getAttributes().get(i);
+            Attribute y = b.getAttributes().get(i);
+            if (!x.getName().equals(y.getName()) || !String.valueOf(x.getDataType()).equals(String.valueOf(y.getDataType()))
+                    || x.isPrimaryKey() != y.isPrimaryKey() || x.isForeignKey() != y.isForeignKey()
+                    || x.isNullable() != y.isNullable()
+                    || !String.valueOf(x.getReferencedTable()).equals(String.valueOf(y.getReferencedTable()))
+                    || !String.valueOf(x.getReferencedColumn()).equals(String.valueOf(y.getReferencedColumn()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The relationship itself, or a copy pointing at the reused entities and their columns
+     */
+    private static Relationship remap(Relationship relationship, Map<Entity, Entity> reused) {
+        Entity source = reused.get(relationship.getSourceEntity());
+        Entity target = reused.get(relationship.getTargetEntity());
+        if (source == null && target == null) {
+            return relationship;
+        }
+
+        if (source == null) {
+            source = relationship.getSourceEntity();
+        }
+        if (target == null) {
+            target = relationship.getTargetEntity();
+        }
+        Relationship copy = new Relationship(source, target, relationship.getType());
+        copy.setName(relationship.getName());
+        if (relationship.getSourceAttribute() != null) {
+            copy.setSourceAttribute(source.getAttribute(relationship.getSourceAttribute().getName()));
+        }
+        if (relationship.getTargetAttribute() != null) {
+            copy.setTargetAttribute(target.getAttribute(relationship.getTargetAttribute().getName()));
+        }
+        return copy;
+    }
+
+    /**
+     * Swaps unchanged relationships back to their previous instances and records
+     * the rest in the delta. Shared with {@link IncrementalSQLSession}.
+     *
+     * @param nextDiagram The new diagram, whose relationship list is updated in place
+     * @param previousByKey The relationships of the previous diagram by key; not modified
+     * @return The relationships of the new diagram by key
+     */
+    static Map<String, Relationship> reconcileRelationships(ERDiagram nextDiagram,
+                                                            Map<String, Relationship> previousByKey,
+                                                            SchemaDelta delta) {
+        Map<String, Relationship> remaining = new HashMap<>(previousByKey);
+        Map<String, Relationship> currentByKey = new HashMap<>();
+        List<Relationship> relationships = nextDiagram.getRelationships();
+
+        for (int i = 0; i < relationships.size(); i++) {
+            Relationship relationship = relationships.get(i);
+            String key = relationshipKey(relationship, currentByKey);
+            Relationship previous = remaining.remove(key);
+
+            if (previous == null) {
+                delta.getAddedRelationships().add(relationship);
+            } else if (previous.getSourceEntity() == relationship.getSourceEntity()
+                    && previous.getTargetEntity() == relationship.getTargetEntity()
+                    && previous.getType() == relationship.getType()) {
+                relationship = previous;
+                relationships.set(i, previous);
+            } else {
+                delta.getChangedRelationships().add(new Replacement<>(previous, relationship));
+            }
+
+            currentByKey.put(key, relationship);
+        }
+
+        delta.getRemovedRelationships().addAll(remaining.values());
+        return currentByKey;
+    }
+
+    private static String relationshipKey(Relationship relationship, Map<String, Relationship> taken) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(relationship.getSourceEntity().getName().toLowerCase()).append('.');
+        if (relationship.getSourceAttribute() != null) {
+            sb.append(relationship.getSourceAttribute().getName().toLowerCase());
+        }
+        sb.append("->").append(relationship.getTargetEntity().getName().toLowerCase()).append('.');
+        if (relationship.getTargetAttribute() != null) {
+            sb.append(relationship.getTargetAttribute().getName().toLowerCase());
+        }
+
+        // Disambiguate identical foreign keys declared more than once
+        String base = sb.toString();
+        String key = base;
+        for (int n = 2; taken.containsKey(key); n++) {
+            key = base + "#" + n;
+        }
+        return key;
+    }
+
+    /**
+     * @return The diagram of the most recent update, or null before the first one
+     */
+    public ERDiagram getDiagram() {
+        return diagram;
+    }
+}
@@ -0,0 +1,132 @@
+package com.erdiagram.app.ui;
+
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.concurrent.Task;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Runs parse jobs on a single worker thread, away from the JavaFX application thread.
+ *
+ * Only the latest job counts: submitting a job cancels the one that is still
+ * running, and a cancelled job never publishes its result. Results and errors
+ * are handed to the callbacks on the FX thread in one call, so the caller can
+ * swap them in at once. Progress messages are coalesced by the task, so a job
+ * may report as often as it likes without flooding the FX thread.
+ */
+public class BackgroundJobRunner {
+    /**
+     * Work to run in the background. Implementations should stop promptly,
+     * for example by throwing, once the worker thread is interrupted.
+     */
+    public interface Job<T> {
+        T run(Consumer<String> progress) throws Exception;
+    }
+
+    private final ExecutorService executor;
+    private final ReadOnlyBooleanWrapper running = new ReadOnlyBooleanWrapper(false);
+    private final ReadOnlyStringWrapper message = new ReadOnlyStringWrapper("");
+    private Task<?> currentTask;
+
+    public BackgroundJobRunner(String threadName) {
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Cancels the running job, if any, and queues a new one. Must be called on the FX thread.
+     *
+     * @param job The work to run on the worker thread
+     * @param onSuccess Receives the result on the FX thread
+     * @param onFailure Receives the error on the FX thread; not called for cancelled jobs
+     */
+    public <T> void submit(Job<T> job, Consumer<T> onSuccess, Consumer<Throwable> onFailure) {
+        stop();
+
+        Task<T> task = new Task<T>() {
+            @Override
+            protected T call() throws Exception {
+                return job.run(this::updateMessage);
+            }
+        };
+
+        task.setOnSucceeded(e -> {
+            if (finish(task)) {
+                onSuccess.accept(task.getValue());
+            }
+        });
+        task.setOnFailed(e -> {
+            if (finish(task)) {
+                onFailure.accept(task.getException());
+            }
+        });
+        task.setOnCancelled(e -> finish(task));
+
+        currentTask = task;
+        message.bind(task.messageProperty());
+        running.set(true);
+        executor.execute(task);
+    }
+
+    /**
+     * Cancels the running job. Its result, if it still completes, is discarded.
+     */
+    public void cancel() {
+        if (stop()) {
+            message.set("Cancelled");
+            running.set(false);
+        }
+    }
+
+    /**
+     * Interrupts the running job and detaches it from this runner.
+     * @return true if there was a job to stop
+     */
+    private boolean stop() {
+        if (currentTask == null) {
+            return false;
+        }
+        Task<?> task = currentTask;
+        currentTask = null;
+        message.unbind();
+        task.cancel(true);
+        return true;
+    }
+
+    /**
+     * @return true if the task is still the latest one and its outcome should be published
+     */
+    private boolean finish(Task<?> task) {
+        if (task != currentTask) {
+            return false;
+        }
+        currentTask = null;
+        message.unbind();
+        running.set(false);
+        return true;
+    }
+
+    /**
+     * Cancels the running job and stops the worker thread. Must be called on the FX thread.
+     */
+    public void shutdown() {
+        cancel();
+        executor.shutdownNow();
+    }
+
+    public ReadOnlyBooleanProperty runningProperty() {
+        return running.getReadOnlyProperty();
+    }
+
+    public ReadOnlyStringProperty messageProperty() {
+        return message.getReadOnlyProperty();
+    }
+}
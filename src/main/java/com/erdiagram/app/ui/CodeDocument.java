@@ -0,0 +1,221 @@
+package com.erdiagram.app.ui;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The text behind a {@link CodeEditor}: a list of lines and the lexer state at
+ * the start of each one.
+ *
+ * An edit replaces a range of text and touches only the lines in that range.
+ * Lexer states are then brought up to date from the first edited line until a
+ * line ends in the same state as before, which for ordinary typing is the
+ * edited line itself. Opening a block comment changes the state of every line
+ * below it, so re-lexing also stops at a given line, usually the last one in
+ * view; the rest is lexed when it is first needed.
+ */
+class CodeDocument {
+
+    /**
+     * A place in the text, between two characters.
+     */
+    static final class Position {
+        final int line;
+        final int column;
+
+        Position(int line, int column) {
+            this.line = line;
+            this.column = column;
+        }
+    }
+
+    private final SyntaxHighlighter highlighter;
+    private final ArrayList<String> lines = new ArrayList<>();
+    private int[] states = new int[16];
+    // states[0..statesValidThrough] are up to date
+    private int statesValidThrough;
+    // Longest line seen; it does not shrink when that line gets shorter
+    private int maxLineLength;
+
+    CodeDocument(SyntaxHighlighter highlighter) {
+        this.highlighter = highlighter;
+        lines.add("");
+    }
+
+    SyntaxHighlighter getHighlighter() {
+        return highlighter;
+    }
+
+    void setText(String text) {
+        List<String> split = splitLines(text);
+        lines.clear();
+        lines.ensureCapacity(split.size());
+        lines.addAll(split);
+
+        states = new int[Math.max(16, lines.size())];
+        statesValidThrough = 0;
+        maxLineLength = 0;
+        for (String line : lines) {
+            maxLineLength = Math.max(maxLineLength, line.length());
+        }
+    }
+
+    String getText() {
+        long length = lines.size();
+        for (String line : lines) {
+            length += line.length();
+        }
+        StringBuilder sb = new StringBuilder((int) Math.min(Integer.MAX_VALUE - 8, length));
+        for (int i = 0; i < lines.size(); i++) {
+            if (i > 0) {
+                sb.append('\n');
+            }
+            sb.append(lines.get(i));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return The text between two positions, with lines joined by {@code \n}
+     */
+    String getText(Position start, Position end) {
+        if (start.line == end.line) {
+            return lines.get(start.line).substring(start.column, end.column);
+        }
+        StringBuilder sb = new StringBuilder(lines.get(start.line).substring(start.column));
+        for (int i = start.line + 1; i < end.line; i++) {
+            sb.append('\n').append(lines.get(i));
+        }
+        return sb.append('\n').append(lines.get(end.line), 0, end.column).toString();
+    }
+
+    int getLineCount() {
+        return lines.size();
+    }
+
+    String getLine(int index) {
+        return lines.get(index);
+    }
+
+    int getMaxLineLength() {
+        return maxLineLength;
+    }
+
+    /**
+     * @return The lexer state at the start of a line, lexing the lines above it if needed
+     */
+    int getState(int line) {
+        while (statesValidThrough < line) {
+            int next = statesValidThrough + 1;
+            states[next] = highlighter.lex(lines.get(statesValidThrough), states[statesValidThrough], null);
+            statesValidThrough = next;
+        }
+        return states[line];
+    }
+
+    /**
+     * Replaces the text between two positions.
+     *
+     * @param lexLimit The line beyond which lexer states are left to be computed lazily
+     * @return The position just after the inserted text
+     */
+    Position replace(Position start, Position end, String text, int lexLimit) {
+        String prefix = lines.get(start.line).substring(0, start.column);
+        String suffix = lines.get(end.line).substring(end.column);
+        List<String> inserted = splitLines(text);
+        int count = inserted.size();
+
+        String[] replacement = new String[count];
+        for (int i = 0; i < count; i++) {
+            replacement[i] = inserted.get(i);
+        }
+        replacement[0] = prefix + replacement[0];
+        int endColumn = replacement[count - 1].length();
+        replacement[count - 1] = replacement[count - 1] + suffix;
+
+        int removedLines = end.line - start.line + 1;
+        if (removedLines == count) {
+            for (int i = 0; i < count; i++) {
+                lines.set(start.line + i, replacement[i]);
+            }
+        } else {
+            lines.subList(start.line, end.line + 1).clear();
+            lines.addAll(start.line, Arrays.asList(replacement));
+        }
+        for (String line : replacement) {
+            maxLineLength = Math.max(maxLineLength, line.length());
+        }
+
+        // States of the lines below move along with them
+        int delta = count - removedLines;
+        shiftStates(end.line + 1, delta);
+        int validBefore;
+        if (statesValidThrough > end.line) {
+            validBefore = statesValidThrough + delta;
+        } else {
+            validBefore = Math.min(statesValidThrough, start.line);
+        }
+        statesValidThrough = Math.min(validBefore, start.line);
+        relex(start.line, start.line + count - 1, validBefore, lexLimit);
+
+        return new Position(start.line + count - 1, endColumn);
+    }
+
+    private void shiftStates(int from, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        int oldSize = lines.size() - delta;
+        if (lines.size() > states.length) {
+            states = Arrays.copyOf(states, Math.max(lines.size(), states.length * 2));
+        }
+        if (from < oldSize) {
+            System.arraycopy(states, from, states, from + delta, oldSize - from);
+        }
+    }
+
+    /**
+     * Re-lexes from the first edited line until the states converge with the
+     * ones from before the edit, or the limit is passed.
+     */
+    private void relex(int from, int lastEdited, int validBefore, int lexLimit) {
+        if (from > statesValidThrough) {
+            // Not lexed yet; done lazily once the lines are needed
+            return;
+        }
+        for (int i = from; i < lines.size() - 1; i++) {
+            int end = highlighter.lex(lines.get(i), states[i], null);
+            if (i >= lastEdited && i + 1 <= validBefore && states[i + 1] == end) {
+                statesValidThrough = validBefore;
+                return;
+            }
+            states[i + 1] = end;
+            statesValidThrough = i + 1;
+            if (i >= lastEdited && i + 1 > lexLimit) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Splits text into lines, accepting {@code \n}, {@code \r\n} and {@code \r} line breaks.
+     */
+    static List<String> splitLines(String text) {
+        List<String> result = new ArrayList<>();
+        int start = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '\n' || c == '\r') {
+                result.add(text.substring(start, i));
+                if (c == '\r' && i + 1 < length && text.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                start = i + 1;
+            }
+        }
+        result.add(text.substring(start));
+        return result;
+    }
+}
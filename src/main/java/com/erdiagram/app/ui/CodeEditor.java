@@ -0,0 +1,874 @@
+package com.erdiagram.app.ui;
+
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.geometry.Insets;
+import javafx.geometry.Orientation;
+import javafx.geometry.VPos;
+import javafx.scene.Cursor;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.input.Clipboard;
+import javafx.scene.input.ClipboardContent;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundFill;
+import javafx.scene.layout.Border;
+import javafx.scene.layout.BorderStroke;
+import javafx.scene.layout.BorderStrokeStyle;
+import javafx.scene.layout.BorderWidths;
+import javafx.scene.layout.CornerRadii;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.Text;
+import javafx.util.Duration;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Plain-text code editor with syntax highlighting for SQL or Java.
+ *
+ * Unlike a {@link javafx.scene.control.TextArea}, which lays out the whole
+ * text, the editor draws only the lines in view onto a canvas, so scrolling
+ * and typing cost the same in a 200,000-line script as in a short one. Lines
+ * are not wrapped. Highlighting uses {@link SyntaxHighlighter}; after an edit
+ * only the edited lines are re-lexed, plus the lines below them whose state
+ * changed, such as after opening a block comment.
+ */
+public class CodeEditor extends Region {
+    public enum Language {
+        SQL, JAVA
+    }
+
+    private static final int TAB_SIZE = 4;
+    private static final int MAX_UNDO = 500;
+    private static final double FONT_SIZE = 14;
+    private static final double TEXT_PADDING = 6;
+    private static final Color BACKGROUND = Color.WHITE;
+    private static final Color GUTTER_BACKGROUND = Color.rgb(245, 247, 250);
+    private static final Color GUTTER_TEXT = Color.rgb(160, 165, 175);
+    private static final Color CURRENT_LINE = Color.rgb(240, 246, 255);
+    private static final Color SELECTION = Color.rgb(179, 215, 255);
+    private static final Color PROMPT_TEXT = Color.rgb(150, 150, 150);
+    private static final Color BORDER = Color.rgb(204, 204, 204);
+    private static final Color FOCUS_BORDER = Color.rgb(52, 152, 219);
+    private static final Map<SyntaxHighlighter.Style, Color> STYLE_COLORS = new EnumMap<>(SyntaxHighlighter.Style.class);
+
+    static {
+        STYLE_COLORS.put(SyntaxHighlighter.Style.PLAIN, Color.rgb(44, 62, 80));
+        STYLE_COLORS.put(SyntaxHighlighter.Style.KEYWORD, Color.rgb(0, 51, 179));
+        STYLE_COLORS.put(SyntaxHighlighter.Style.STRING, Color.rgb(6, 125, 23));
+        STYLE_COLORS.put(SyntaxHighlighter.Style.COMMENT, Color.rgb(140, 140, 140));
+        STYLE_COLORS.put(SyntaxHighlighter.Style.NUMBER, Color.rgb(23, 80, 235));
+    }
+
+    private final CodeDocument document;
+    private final Canvas canvas = new Canvas();
+    private final ScrollBar verticalBar = new ScrollBar();
+    private final ScrollBar horizontalBar = new ScrollBar();
+    private final Font font;
+    private final Font boldFont;
+    private final double charWidth;
+    private final double lineHeight;
+    private double gutterWidth;
+
+    private int caretLine;
+    private int caretColumn;
+    private int anchorLine;
+    private int anchorColumn;
+    // Column the caret tries to keep when moving up and down, in screen columns
+    private int preferredColumn = -1;
+    private boolean caretVisible = true;
+    private final Timeline caretBlink;
+
+    private final Deque<Edit> undoStack = new ArrayDeque<>();
+    private final Deque<Edit> redoStack = new ArrayDeque<>();
+    // Set while consecutive typed characters can join the last undo step
+    private boolean typing;
+
+    private final ReadOnlyIntegerWrapper caretLineProperty = new ReadOnlyIntegerWrapper(this, "caretLine");
+    private final ReadOnlyIntegerWrapper revision = new ReadOnlyIntegerWrapper(this, "revision");
+    private String promptText;
+
+    /**
+     * One undoable replacement of {@code removed} by {@code inserted} at {@code start}.
+     */
+    private static final class Edit {
+        final CodeDocument.Position start;
+        final String removed;
+        String inserted;
+
+        Edit(CodeDocument.Position start, String removed, String inserted) {
+            this.start = start;
+            this.removed = removed;
+            this.inserted = inserted;
+        }
+    }
+
+    public CodeEditor(Language language) {
+        document = new CodeDocument(new SyntaxHighlighter(language));
+        font = monospacedFont(false);
+        boldFont = monospacedFont(true);
+
+        Text sample = new Text("MMMMMMMMMM");
+        sample.setFont(font);
+        charWidth = sample.getLayoutBounds().getWidth() / 10;
+        lineHeight = Math.ceil(sample.getLayoutBounds().getHeight()) + 1;
+
+        getStyleClass().add("code-editor");
+        setFocusTraversable(true);
+        setCursor(Cursor.TEXT);
+        setMinSize(100, 60);
+        setPrefSize(400, 400);
+        setBackground(new Background(new BackgroundFill(BACKGROUND, CornerRadii.EMPTY, Insets.EMPTY)));
+        updateBorder();
+
+        verticalBar.setOrientation(Orientation.VERTICAL);
+        verticalBar.setUnitIncrement(lineHeight);
+        horizontalBar.setUnitIncrement(charWidth * 4);
+        verticalBar.valueProperty().addListener((obs, oldValue, newValue) -> redraw());
+        horizontalBar.valueProperty().addListener((obs, oldValue, newValue) -> redraw());
+        verticalBar.setFocusTraversable(false);
+        horizontalBar.setFocusTraversable(false);
+        getChildren().addAll(canvas, verticalBar, horizontalBar);
+
+        caretBlink = new Timeline(new KeyFrame(Duration.millis(530), e -> {
+            caretVisible = !caretVisible;
+            redraw();
+        }));
+        caretBlink.setCycleCount(Timeline.INDEFINITE);
+
+        focusedProperty().addListener((obs, wasFocused, isFocused) -> {
+            updateBorder();
+            if (isFocused) {
+                restartCaretBlink();
+            } else {
+                caretBlink.stop();
+                redraw();
+            }
+        });
+
+        canvas.addEventHandler(MouseEvent.MOUSE_PRESSED, this::mousePressed);
+        canvas.addEventHandler(MouseEvent.MOUSE_DRAGGED, this::mouseDragged);
+        addEventHandler(ScrollEvent.SCROLL, this::scrolled);
+        addEventHandler(KeyEvent.KEY_PRESSED, this::keyPressed);
+        addEventHandler(KeyEvent.KEY_TYPED, this::keyTyped);
+    }
+
+    private static Font monospacedFont(boolean bold) {
+        for (String family : new String[] {"Consolas", "Courier New"}) {
+            if (Font.getFamilies().contains(family)) {
+                return bold ? Font.font(family, FontWeight.BOLD, FONT_SIZE) : Font.font(family, FONT_SIZE);
+            }
+        }
+        return bold ? Font.font("Monospaced", FontWeight.BOLD, FONT_SIZE) : Font.font("Monospaced", FONT_SIZE);
+    }
+
+    /**
+     * @return The whole text, with lines separated by {@code \n}
+     */
+    public String getText() {
+        return document.getText();
+    }
+
+    /**
+     * Replaces the whole text, moves the caret to the start and clears the undo history.
+     */
+    public void setText(String text) {
+        document.setText(text == null ? "" : text);
+        undoStack.clear();
+        redoStack.clear();
+        typing = false;
+        verticalBar.setValue(0);
+        horizontalBar.setValue(0);
+        moveCaret(0, 0, false);
+        revision.set(revision.get() + 1);
+        requestLayout();
+        redraw();
+    }
+
+    public void clear() {
+        setText("");
+    }
+
+    public int getLineCount() {
+        return document.getLineCount();
+    }
+
+    public String getLine(int index) {
+        return document.getLine(index);
+    }
+
+    public void setPromptText(String promptText) {
+        this.promptText = promptText;
+        redraw();
+    }
+
+    /**
+     * @return A counter that goes up with every change to the text
+     */
+    public ReadOnlyIntegerProperty revisionProperty() {
+        return revision.getReadOnlyProperty();
+    }
+
+    /**
+     * @return The zero-based line the caret is on
+     */
+    public ReadOnlyIntegerProperty caretLineProperty() {
+        return caretLineProperty.getReadOnlyProperty();
+    }
+
+    public int getCaretLine() {
+        return caretLine;
+    }
+
+    /**
+     * Moves the caret to the start of a line and scrolls it into view.
+     */
+    public void positionCaret(int line) {
+        typing = false;
+        moveCaret(Math.max(0, Math.min(line, document.getLineCount() - 1)), 0, false);
+    }
+
+    @Override
+    protected void layoutChildren() {
+        Insets insets = getInsets();
+        double x = insets.getLeft();
+        double y = insets.getTop();
+        double width = getWidth() - insets.getLeft() - insets.getRight();
+        double height = getHeight() - insets.getTop() - insets.getBottom();
+        double barWidth = verticalBar.prefWidth(-1);
+        double barHeight = horizontalBar.prefHeight(-1);
+
+        gutterWidth = Math.max(3, String.valueOf(document.getLineCount()).length()) * charWidth + 2 * TEXT_PADDING;
+        double contentWidth = document.getMaxLineLength() * charWidth + 2 * TEXT_PADDING;
+        boolean horizontal = contentWidth > width - barWidth - gutterWidth;
+        double viewportWidth = Math.max(0, width - barWidth);
+        double viewportHeight = Math.max(0, height - (horizontal ? barHeight : 0));
+
+        canvas.setWidth(viewportWidth);
+        canvas.setHeight(viewportHeight);
+        canvas.relocate(x, y);
+        verticalBar.resizeRelocate(x + viewportWidth, y, barWidth, viewportHeight);
+        horizontalBar.setVisible(horizontal);
+        if (horizontal) {
+            horizontalBar.resizeRelocate(x, y + viewportHeight, viewportWidth, barHeight);
+        }
+
+        updateScrollBars();
+        redraw();
+    }
+
+    private void updateScrollBars() {
+        double viewportHeight = canvas.getHeight();
+        double textWidth = canvas.getWidth() - gutterWidth;
+        double verticalMax = Math.max(0, document.getLineCount() * lineHeight - viewportHeight + lineHeight);
+        verticalBar.setMax(verticalMax);
+        verticalBar.setVisibleAmount(verticalMax * viewportHeight / Math.max(1, verticalMax + viewportHeight));
+        verticalBar.setBlockIncrement(Math.max(lineHeight, viewportHeight - lineHeight));
+        verticalBar.setValue(Math.min(verticalBar.getValue(), verticalMax));
+
+        double horizontalMax = Math.max(0, document.getMaxLineLength() * charWidth + 2 * TEXT_PADDING - textWidth);
+        horizontalBar.setMax(horizontalMax);
+        horizontalBar.setVisibleAmount(horizontalMax * textWidth / Math.max(1, horizontalMax + textWidth));
+        horizontalBar.setBlockIncrement(Math.max(charWidth, textWidth - charWidth));
+        horizontalBar.setValue(Math.min(horizontalBar.getValue(), horizontalMax));
+    }
+
+    private void redraw() {
+        double width = canvas.getWidth();
+        double height = canvas.getHeight();
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.setFill(BACKGROUND);
+        gc.fillRect(0, 0, width, height);
+        gc.setTextBaseline(VPos.TOP);
+
+        double scrollY = verticalBar.getValue();
+        double scrollX = horizontalBar.getValue();
+        int first = (int) (scrollY / lineHeight);
+        int last = Math.min(document.getLineCount() - 1, (int) ((scrollY + height) / lineHeight));
+        double textLeft = gutterWidth + TEXT_PADDING - scrollX;
+        int firstColumn = (int) Math.max(0, scrollX / charWidth - 1);
+        int lastColumn = (int) ((scrollX + width - gutterWidth) / charWidth) + 1;
+
+        boolean hasSelection = hasSelection();
+        CodeDocument.Position selectionStart = selectionStart();
+        CodeDocument.Position selectionEnd = selectionEnd();
+
+        for (int i = first; i <= last; i++) {
+            double y = i * lineHeight - scrollY;
+            String line = document.getLine(i);
+
+            if (i == caretLine && !hasSelection) {
+                gc.setFill(CURRENT_LINE);
+                gc.fillRect(gutterWidth, y, width - gutterWidth, lineHeight);
+            }
+            if (hasSelection && i >= selectionStart.line && i <= selectionEnd.line) {
+                int from = i == selectionStart.line ? screenColumn(line, selectionStart.column) : 0;
+                int to = i == selectionEnd.line ? screenColumn(line, selectionEnd.column) : screenColumn(line, line.length()) + 1;
+                gc.setFill(SELECTION);
+                gc.fillRect(textLeft + from * charWidth, y, (to - from) * charWidth, lineHeight);
+            }
+
+            drawLine(gc, line, document.getState(i), textLeft, y, firstColumn, lastColumn);
+        }
+
+        if (document.getLineCount() == 1 && document.getLine(0).isEmpty() && promptText != null && !isFocused()) {
+            gc.setFont(font);
+            gc.setFill(PROMPT_TEXT);
+            gc.fillText(promptText, gutterWidth + TEXT_PADDING, -scrollY);
+        }
+
+        if (isFocused() && caretVisible && caretLine >= first && caretLine <= last) {
+            double caretX = textLeft + screenColumn(document.getLine(caretLine), caretColumn) * charWidth;
+            if (caretX >= gutterWidth) {
+                gc.setFill(Color.BLACK);
+                gc.fillRect(Math.round(caretX), caretLine * lineHeight - scrollY, 1.5, lineHeight);
+            }
+        }
+
+        // Gutter last, so text scrolled to the left disappears under it
+        gc.setFill(GUTTER_BACKGROUND);
+        gc.fillRect(0, 0, gutterWidth, height);
+        gc.setFont(font);
+        gc.setFill(GUTTER_TEXT);
+        for (int i = first; i <= last; i++) {
+            String number = String.valueOf(i + 1);
+            gc.fillText(number, gutterWidth - TEXT_PADDING - number.length() * charWidth, i * lineHeight - scrollY);
+        }
+    }
+
+    /**
+     * Draws the part of a line between two screen columns, token by token.
+     */
+    private void drawLine(GraphicsContext gc, String line, int state, double textLeft, double y,
+                          int firstColumn, int lastColumn) {
+        int[] column = {0};
+        int[] index = {0};
+        document.getHighlighter().lex(line, state, (start, end, style) -> {
+            // Tokens arrive in order, so screen columns are tracked as they go
+            while (index[0] < start) {
+                column[0] = advance(column[0], line.charAt(index[0]++));
+            }
+            int tokenColumn = column[0];
+            StringBuilder text = new StringBuilder();
+            for (; index[0] < end && column[0] <= lastColumn; index[0]++) {
+                char c = line.charAt(index[0]);
+                int next = advance(column[0], c);
+                if (next > firstColumn) {
+                    if (text.length() == 0) {
+                        tokenColumn = column[0];
+                    }
+                    if (c == '\t') {
+                        for (int k = column[0]; k < next; k++) {
+                            text.append(' ');
+                        }
+                    } else {
+                        text.append(c);
+                    }
+                }
+                column[0] = next;
+            }
+            if (text.length() > 0) {
+                gc.setFont(style == SyntaxHighlighter.Style.KEYWORD ? boldFont : font);
+                gc.setFill(STYLE_COLORS.get(style));
+                gc.fillText(text.toString(), textLeft + tokenColumn * charWidth, y);
+            }
+        });
+    }
+
+    private static int advance(int column, char c) {
+        return c == '\t' ? (column / TAB_SIZE + 1) * TAB_SIZE : column + 1;
+    }
+
+    /**
+     * @return The screen column of a character index, with tabs expanded
+     */
+    private static int screenColumn(String line, int index) {
+        int column = 0;
+        for (int i = 0; i < index && i < line.length(); i++) {
+            column = advance(column, line.charAt(i));
+        }
+        return column;
+    }
+
+    /**
+     * @return The character index closest to a screen column
+     */
+    private static int indexAtColumn(String line, int targetColumn) {
+        int column = 0;
+        for (int i = 0; i < line.length(); i++) {
+            int next = advance(column, line.charAt(i));
+            if (targetColumn < next) {
+                return targetColumn - column <= next - targetColumn ? i : i + 1;
+            }
+            column = next;
+        }
+        return line.length();
+    }
+
+    private void updateBorder() {
+        setBorder(new Border(new BorderStroke(isFocused() ? FOCUS_BORDER : BORDER, BorderStrokeStyle.SOLID,
+                new CornerRadii(3), new BorderWidths(1))));
+    }
+
+    private void restartCaretBlink() {
+        caretVisible = true;
+        if (isFocused()) {
+            caretBlink.playFromStart();
+        }
+    }
+
+    private boolean hasSelection() {
+        return caretLine != anchorLine || caretColumn != anchorColumn;
+    }
+
+    private CodeDocument.Position selectionStart() {
+        return caretLine < anchorLine || (caretLine == anchorLine && caretColumn < anchorColumn)
+                ? new CodeDocument.Position(caretLine, caretColumn)
+                : new CodeDocument.Position(anchorLine, anchorColumn);
+    }
+
+    private CodeDocument.Position selectionEnd() {
+        return caretLine < anchorLine || (caretLine == anchorLine && caretColumn < anchorColumn)
+                ? new CodeDocument.Position(anchorLine, anchorColumn)
+                : new CodeDocument.Position(caretLine, caretColumn);
+    }
+
+    /**
+     * Moves the caret, optionally extending the selection, and scrolls it into view.
+     */
+    private void moveCaret(int line, int column, boolean extendSelection) {
+        caretLine = line;
+        caretColumn = Math.max(0, Math.min(column, document.getLine(line).length()));
+        if (!extendSelection) {
+            anchorLine = caretLine;
+            anchorColumn = caretColumn;
+        }
+        caretLineProperty.set(caretLine);
+        scrollToCaret();
+        restartCaretBlink();
+        redraw();
+    }
+
+    private void moveCaretVertically(int lines, boolean extendSelection) {
+        String current = document.getLine(caretLine);
+        if (preferredColumn < 0) {
+            preferredColumn = screenColumn(current, caretColumn);
+        }
+        int column = preferredColumn;
+        int line = Math.max(0, Math.min(document.getLineCount() - 1, caretLine + lines));
+        moveCaret(line, indexAtColumn(document.getLine(line), column), extendSelection);
+        preferredColumn = column;
+    }
+
+    private void scrollToCaret() {
+        double viewportHeight = canvas.getHeight();
+        if (viewportHeight <= 0) {
+            return;
+        }
+        double top = caretLine * lineHeight;
+        if (top < verticalBar.getValue()) {
+            verticalBar.setValue(top);
+        } else if (top + lineHeight > verticalBar.getValue() + viewportHeight) {
+            verticalBar.setMax(Math.max(verticalBar.getMax(), top + lineHeight - viewportHeight));
+            verticalBar.setValue(top + lineHeight - viewportHeight);
+        }
+
+        double textWidth = canvas.getWidth() - gutterWidth - 2 * TEXT_PADDING;
+        double x = screenColumn(document.getLine(caretLine), caretColumn) * charWidth;
+        if (x < horizontalBar.getValue()) {
+            horizontalBar.setValue(Math.max(0, x - textWidth / 3));
+        } else if (x > horizontalBar.getValue() + textWidth) {
+            horizontalBar.setMax(Math.max(horizontalBar.getMax(), x - textWidth + textWidth / 3));
+            horizontalBar.setValue(x - textWidth + textWidth / 3);
+        }
+    }
+
+    private CodeDocument.Position positionAt(double x, double y) {
+        int line = (int) ((y + verticalBar.getValue()) / lineHeight);
+        line = Math.max(0, Math.min(document.getLineCount() - 1, line));
+        double textX = x - gutterWidth - TEXT_PADDING + horizontalBar.getValue();
+        int column = (int) Math.round(Math.max(0, textX) / charWidth);
+        return new CodeDocument.Position(line, indexAtColumn(document.getLine(line), column));
+    }
+
+    private void mousePressed(MouseEvent event) {
+        if (event.getButton() != MouseButton.PRIMARY) {
+            return;
+        }
+        requestFocus();
+        typing = false;
+        preferredColumn = -1;
+        CodeDocument.Position position = positionAt(event.getX(), event.getY());
+        if (event.getClickCount() == 2) {
+            selectWord(position);
+        } else if (event.getClickCount() >= 3) {
+            anchorLine = position.line;
+            anchorColumn = 0;
+            moveCaret(position.line, document.getLine(position.line).length(), true);
+        } else {
+            moveCaret(position.line, position.column, event.isShiftDown());
+        }
+        event.consume();
+    }
+
+    private void mouseDragged(MouseEvent event) {
+        if (!event.isPrimaryButtonDown()) {
+            return;
+        }
+        CodeDocument.Position position = positionAt(event.getX(), event.getY());
+        moveCaret(position.line, position.column, true);
+        event.consume();
+    }
+
+    private void selectWord(CodeDocument.Position position) {
+        String line = document.getLine(position.line);
+        int start = position.column;
+        int end = position.column;
+        while (start > 0 && isWordChar(line.charAt(start - 1))) {
+            start--;
+        }
+        while (end < line.length() && isWordChar(line.charAt(end))) {
+            end++;
+        }
+        anchorLine = position.line;
+        anchorColumn = start;
+        moveCaret(position.line, end, true);
+    }
+
+    private void scrolled(ScrollEvent event) {
+        verticalBar.setValue(clamp(verticalBar.getValue() - event.getDeltaY(), verticalBar.getMax()));
+        horizontalBar.setValue(clamp(horizontalBar.getValue() - event.getDeltaX(), horizontalBar.getMax()));
+        event.consume();
+    }
+
+    private static double clamp(double value, double max) {
+        return Math.max(0, Math.min(value, max));
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    private void keyPressed(KeyEvent event) {
+        boolean shift = event.isShiftDown();
+        boolean shortcut = event.isShortcutDown();
+        KeyCode code = event.getCode();
+        boolean vertical = code == KeyCode.UP || code == KeyCode.DOWN
+                || code == KeyCode.PAGE_UP || code == KeyCode.PAGE_DOWN;
+        if (!vertical) {
+            preferredColumn = -1;
+        }
+
+        int pageLines = Math.max(1, (int) (canvas.getHeight() / lineHeight) - 1);
+        String line = document.getLine(caretLine);
+        switch (code) {
+            case LEFT:
+                if (hasSelection() && !shift) {
+                    CodeDocument.Position start = selectionStart();
+                    moveCaret(start.line, start.column, false);
+                } else if (caretColumn > 0) {
+                    moveCaret(caretLine, shortcut ? previousWord(line, caretColumn) : caretColumn - 1, shift);
+                } else if (caretLine > 0) {
+                    moveCaret(caretLine - 1, document.getLine(caretLine - 1).length(), shift);
+                }
+                break;
+            case RIGHT:
+                if (hasSelection() && !shift) {
+                    CodeDocument.Position end = selectionEnd();
+                    moveCaret(end.line, end.column, false);
+                } else if (caretColumn < line.length()) {
+                    moveCaret(caretLine, shortcut ? nextWord(line, caretColumn) : caretColumn + 1, shift);
+                } else if (caretLine < document.getLineCount() - 1) {
+                    moveCaret(caretLine + 1, 0, shift);
+                }
+                break;
+            case UP:
+                moveCaretVertically(-1, shift);
+                break;
+            case DOWN:
+                moveCaretVertically(1, shift);
+                break;
+            case PAGE_UP:
+                moveCaretVertically(-pageLines, shift);
+                break;
+            case PAGE_DOWN:
+                moveCaretVertically(pageLines, shift);
+                break;
+            case HOME:
+                if (shortcut) {
+                    moveCaret(0, 0, shift);
+                } else {
+                    // Toggle between the first non-blank character and the start of the line
+                    int indent = indentOf(line).length();
+                    moveCaret(caretLine, caretColumn == indent ? 0 : indent, shift);
+                }
+                break;
+            case END:
+                if (shortcut) {
+                    int lastLine = document.getLineCount() - 1;
+                    moveCaret(lastLine, document.getLine(lastLine).length(), shift);
+                } else {
+                    moveCaret(caretLine, line.length(), shift);
+                }
+                break;
+            case BACK_SPACE:
+                if (hasSelection()) {
+                    replaceSelection("", false);
+                } else if (caretColumn > 0) {
+                    int from = shortcut ? previousWord(line, caretColumn) : caretColumn - 1;
+                    replace(new CodeDocument.Position(caretLine, from), caretPosition(), "", false);
+                } else if (caretLine > 0) {
+                    CodeDocument.Position previousEnd = new CodeDocument.Position(caretLine - 1,
+                            document.getLine(caretLine - 1).length());
+                    replace(previousEnd, caretPosition(), "", false);
+                }
+                break;
+            case DELETE:
+                if (hasSelection()) {
+                    replaceSelection("", false);
+                } else if (caretColumn < line.length()) {
+                    int to = shortcut ? nextWord(line, caretColumn) : caretColumn + 1;
+                    replace(caretPosition(), new CodeDocument.Position(caretLine, to), "", false);
+                } else if (caretLine < document.getLineCount() - 1) {
+                    replace(caretPosition(), new CodeDocument.Position(caretLine + 1, 0), "", false);
+                }
+                break;
+            case ENTER:
+                // Keep the indentation of the current line
+                replaceSelection("\n" + indentOf(line.substring(0, Math.min(caretColumn, line.length()))), false);
+                break;
+            case TAB:
+                if (shortcut) {
+                    // Leave Ctrl+Tab for focus traversal
+                    return;
+                }
+                int column = screenColumn(line, caretColumn);
+                replaceSelection(" ".repeat(TAB_SIZE - column % TAB_SIZE), true);
+                break;
+            case A:
+                if (!shortcut) {
+                    return;
+                }
+                anchorLine = 0;
+                anchorColumn = 0;
+                int lastLine = document.getLineCount() - 1;
+                moveCaret(lastLine, document.getLine(lastLine).length(), true);
+                break;
+            case C:
+            case INSERT:
+                if (!shortcut) {
+                    return;
+                }
+                copy();
+                break;
+            case X:
+                if (!shortcut) {
+                    return;
+                }
+                copy();
+                replaceSelection("", false);
+                break;
+            case V:
+                if (!shortcut) {
+                    return;
+                }
+                paste();
+                break;
+            case Z:
+                if (!shortcut) {
+                    return;
+                }
+                if (shift) {
+                    redo();
+                } else {
+                    undo();
+                }
+                break;
+            case Y:
+                if (!shortcut) {
+                    return;
+                }
+                redo();
+                break;
+            default:
+                return;
+        }
+        event.consume();
+    }
+
+    private void keyTyped(KeyEvent event) {
+        String character = event.getCharacter();
+        // Ctrl and Alt together is AltGr on Windows, which types characters
+        if (character.isEmpty() || event.isMetaDown() || event.isControlDown() != event.isAltDown()) {
+            return;
+        }
+        char c = character.charAt(0);
+        if (Character.isISOControl(c)) {
+            // Enter, Tab and Backspace are handled as key presses
+            return;
+        }
+        replaceSelection(character, true);
+        event.consume();
+    }
+
+    private static String indentOf(String line) {
+        int i = 0;
+        while (i < line.length() && (line.charAt(i) == ' ' || line.charAt(i) == '\t')) {
+            i++;
+        }
+        return line.substring(0, i);
+    }
+
+    private static int previousWord(String line, int column) {
+        int i = column;
+        while (i > 0 && Character.isWhitespace(line.charAt(i - 1))) {
+            i--;
+        }
+        if (i > 0 && isWordChar(line.charAt(i - 1))) {
+            while (i > 0 && isWordChar(line.charAt(i - 1))) {
+                i--;
+            }
+        } else if (i > 0) {
+            i--;
+        }
+        return i;
+    }
+
+    private static int nextWord(String line, int column) {
+        int i = column;
+        if (i < line.length() && isWordChar(line.charAt(i))) {
+            while (i < line.length() && isWordChar(line.charAt(i))) {
+                i++;
+            }
+        } else if (i < line.length() && !Character.isWhitespace(line.charAt(i))) {
+            i++;
+        }
+        while (i < line.length() && Character.isWhitespace(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private CodeDocument.Position caretPosition() {
+        return new CodeDocument.Position(caretLine, caretColumn);
+    }
+
+    private void replaceSelection(String text, boolean typed) {
+        replace(selectionStart(), selectionEnd(), text, typed);
+    }
+
+    /**
+     * Replaces a range of text and records the change for undo.
+     *
+     * @param typed true for typed characters, which join the previous undo step while typing goes on
+     */
+    private void replace(CodeDocument.Position start, CodeDocument.Position end, String text, boolean typed) {
+        String removed = document.getText(start, end);
+        if (removed.isEmpty() && text.isEmpty()) {
+            return;
+        }
+
+        Edit last = undoStack.peek();
+        boolean join = typed && typing && removed.isEmpty() && last != null && !text.contains("\n")
+                && last.start.line == start.line
+                && last.start.column + last.inserted.length() == start.column
+                && !last.inserted.contains("\n");
+        if (join) {
+            last.inserted += text;
+        } else {
+            undoStack.push(new Edit(start, removed, text));
+            if (undoStack.size() > MAX_UNDO) {
+                undoStack.removeLast();
+            }
+        }
+        redoStack.clear();
+        typing = typed;
+
+        apply(start, end, text);
+    }
+
+    private void apply(CodeDocument.Position start, CodeDocument.Position end, String text) {
+        int lastVisible = (int) ((verticalBar.getValue() + canvas.getHeight()) / lineHeight) + 1;
+        int lineCount = document.getLineCount();
+        CodeDocument.Position caret = document.replace(start, end, text, Math.max(lastVisible, start.line + 1));
+        revision.set(revision.get() + 1);
+
+        if (document.getLineCount() != lineCount || horizontalBar.getMax() < document.getMaxLineLength() * charWidth) {
+            // Line count or width changed; this also redraws
+            requestLayout();
+        }
+        preferredColumn = -1;
+        moveCaret(caret.line, caret.column, false);
+    }
+
+    private void undo() {
+        Edit edit = undoStack.poll();
+        if (edit == null) {
+            return;
+        }
+        redoStack.push(edit);
+        typing = false;
+        apply(edit.start, endOf(edit.start, edit.inserted), edit.removed);
+    }
+
+    private void redo() {
+        Edit edit = redoStack.poll();
+        if (edit == null) {
+            return;
+        }
+        undoStack.push(edit);
+        typing = false;
+        apply(edit.start, endOf(edit.start, edit.removed), edit.inserted);
+    }
+
+    /**
+     * @return The position just after {@code text} if it were inserted at {@code start}
+     */
+    private static CodeDocument.Position endOf(CodeDocument.Position start, String text) {
+        int lastBreak = text.lastIndexOf('\n');
+        if (lastBreak < 0) {
+            return new CodeDocument.Position(start.line, start.column + text.length());
+        }
+        int lines = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                lines++;
+            }
+        }
+        return new CodeDocument.Position(start.line + lines, text.length() - lastBreak - 1);
+    }
+
+    private void copy() {
+        if (hasSelection()) {
+            ClipboardContent content = new ClipboardContent();
+            content.putString(document.getText(selectionStart(), selectionEnd()));
+            Clipboard.getSystemClipboard().setContent(content);
+        }
+    }
+
+    private void paste() {
+        String text = Clipboard.getSystemClipboard().getString();
+        if (text != null) {
+            // Stored with \n only, so undo can find where the text ends
+            replaceSelection(String.join("\n", CodeDocument.splitLines(text)), false);
+        }
+    }
+}
@@ -0,0 +1,450 @@
+package com.erdiagram.app.ui;
+
+import com.erdiagram.app.model.Attribute;
+import com.erdiagram.app.model.Entity;
+import com.erdiagram.app.model.Relationship;
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
+import javafx.geometry.VPos;
+import javafx.scene.Group;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.StrokeLineCap;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontPosture;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.Text;
+import javafx.scene.text.TextAlignment;
+import javafx.scene.transform.Scale;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Paints an ER diagram onto canvas tiles, for the canvas mode of {@link DiagramView}.
+ *
+ * Tiles are painted at screen resolution: each covers a fixed square of the
+ * screen at the current zoom, so an overview of thousands of tables costs as
+ * many pixels as the viewport rather than the diagram. Painted tiles are kept
+ * while they stay in view, so scrolling only paints the tiles that come into
+ * view, and a change such as a dragged entity repaints only the tiles it
+ * touches. Zooming repaints every tile in view.
+ *
+ * Entities and lines are looked up in the view's spatial indexes and drawn
+ * with the bounds the view uses for them, so both modes hit-test, cull and
+ * place lines the same way.
+ */
+class DiagramCanvas extends Group {
+    static final int TILE_SIZE = 512;
+    private static final int MAX_POOLED_TILES = 32;
+    // Labels and markers reach this far from the line they belong to
+    private static final double LINE_MARGIN = 160;
+
+    private static final double PADDING = 12;
+    // Attribute rows start this far below the top of an entity
+    private static final double HEADER_HEIGHT = 58;
+    private static final double SEPARATOR_Y = 44;
+
+    private static final Color ENTITY_FILL = Color.web("#eaf4ff");
+    private static final Color ENTITY_BORDER = Color.web("#4682b4");
+    private static final Color HIGHLIGHT_BORDER = Color.web("#e67e22");
+    private static final Color SELECTED_BORDER = Color.DARKBLUE;
+    private static final Color TITLE_COLOR = Color.web("#1a365d");
+    private static final Color ATTRIBUTE_COLOR = Color.web("#2c3e50");
+    private static final Color DATA_TYPE_COLOR = Color.web("#7f8c8d");
+    private static final Color PRIMARY_KEY_COLOR = Color.web("#c0392b");
+    private static final Color FOREIGN_KEY_COLOR = Color.web("#3498db");
+    private static final Color PRIMARY_KEY_FILL = Color.rgb(231, 76, 60, 0.1);
+    private static final Color FOREIGN_KEY_FILL = Color.rgb(52, 152, 219, 0.1);
+    private static final Color LABEL_FILL = Color.rgb(255, 255, 255, 0.95);
+
+    private static final Font TITLE_FONT = Font.font("Arial", FontWeight.BOLD, 18);
+    private static final Font OUTLINE_TITLE_FONT = Font.font("Arial", FontWeight.BOLD, 30);
+    private static final Font KEY_FONT = Font.font("Arial", FontWeight.BOLD, 10);
+    private static final Font ATTRIBUTE_FONT = Font.font("Arial", 14);
+    private static final Font PRIMARY_KEY_FONT = Font.font("Arial", FontWeight.BOLD, 14);
+    private static final Font FOREIGN_KEY_FONT = Font.font("Arial", FontWeight.NORMAL, FontPosture.ITALIC, 14);
+    private static final Font DATA_TYPE_FONT = Font.font("Arial", FontWeight.NORMAL, FontPosture.ITALIC, 12);
+    private static final Font LABEL_FONT = Font.font("Arial", FontWeight.BOLD, 20);
+    private static final Font LABEL_DETAILS_FONT = Font.font("Arial", FontWeight.SEMI_BOLD, 12);
+
+    private final DiagramView view;
+    private final Map<Long, Canvas> tiles = new HashMap<>();
+    private final Set<Long> dirtyTiles = new HashSet<>();
+    private final Deque<Canvas> tilePool = new ArrayDeque<>();
+    // The zoom the tiles are painted at
+    private double scale = 1;
+    // Measures text widths for layout
+    private final Text measure = new Text();
+
+    DiagramCanvas(DiagramView view) {
+        this.view = view;
+        setManaged(false);
+    }
+
+    /**
+     * Paints the tiles covering the visible area that are new or out of date,
+     * and takes back the tiles that left it.
+     *
+     * @param visibleArea The visible part of the view, in its local coordinates
+     * @param scale The zoom of the view
+     */
+    void update(Bounds visibleArea, double scale) {
+        if (scale != this.scale) {
+            clear();
+            this.scale = scale;
+        }
+
+        int fromX = tile(visibleArea.getMinX());
+        int fromY = tile(visibleArea.getMinY());
+        int toX = tile(visibleArea.getMaxX());
+        int toY = tile(visibleArea.getMaxY());
+
+        Iterator<Map.Entry<Long, Canvas>> iterator = tiles.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, Canvas> entry = iterator.next();
+            int x = (int) (entry.getKey() >> 32);
+            int y = (int) (long) entry.getKey();
+            if (x < fromX || x > toX || y < fromY || y > toY) {
+                releaseTile(entry.getValue());
+                iterator.remove();
+            }
+        }
+
+        for (int x = fromX; x <= toX; x++) {
+            for (int y = fromY; y <= toY; y++) {
+                long key = key(x, y);
+                Canvas tile = tiles.get(key);
+                if (tile == null) {
+                    tile = acquireTile(x, y);
+                    tiles.put(key, tile);
+                    paint(tile, x, y);
+                } else if (dirtyTiles.contains(key)) {
+                    paint(tile, x, y);
+                }
+            }
+        }
+        dirtyTiles.clear();
+    }
+
+    /**
+     * Marks the tiles near an area to be repainted on the next update. The
+     * area is widened to take in the markers and labels of lines ending there.
+     */
+    void invalidate(Bounds area) {
+        int fromX = tile(area.getMinX() - LINE_MARGIN);
+        int fromY = tile(area.getMinY() - LINE_MARGIN);
+        int toX = tile(area.getMaxX() + LINE_MARGIN);
+        int toY = tile(area.getMaxY() + LINE_MARGIN);
+        if ((long) (toX - fromX + 1) * (toY - fromY + 1) > tiles.size()) {
+            invalidateAll();
+            return;
+        }
+        for (int x = fromX; x <= toX; x++) {
+            for (int y = fromY; y <= toY; y++) {
+                long key = key(x, y);
+                if (tiles.containsKey(key)) {
+                    dirtyTiles.add(key);
+                }
+            }
+        }
+    }
+
+    void invalidateAll() {
+        dirtyTiles.addAll(tiles.keySet());
+    }
+
+    /**
+     * Takes back every tile.
+     */
+    void clear() {
+        for (Canvas tile : tiles.values()) {
+            releaseTile(tile);
+        }
+        tiles.clear();
+        dirtyTiles.clear();
+    }
+
+    private Canvas acquireTile(int x, int y) {
+        Canvas tile = tilePool.poll();
+        if (tile == null) {
+            tile = new Canvas(TILE_SIZE, TILE_SIZE);
+        }
+        // Painted in screen pixels, then scaled back into the zoomed view
+        tile.getTransforms().setAll(new Scale(1 / scale, 1 / scale));
+        tile.relocate(x * TILE_SIZE / scale, y * TILE_SIZE / scale);
+        getChildren().add(tile);
+        return tile;
+    }
+
+    private void releaseTile(Canvas tile) {
+        getChildren().remove(tile);
+        if (tilePool.size() < MAX_POOLED_TILES) {
+            tilePool.push(tile);
+        }
+    }
+
+    private void paint(Canvas tile, int x, int y) {
+        GraphicsContext gc = tile.getGraphicsContext2D();
+        gc.clearRect(0, 0, TILE_SIZE, TILE_SIZE);
+
+        double size = TILE_SIZE / scale;
+        double minX = x * size;
+        double minY = y * size;
+        Bounds area = new BoundingBox(minX, minY, size, size);
+        Bounds lineArea = new BoundingBox(minX - LINE_MARGIN, minY - LINE_MARGIN,
+                size + 2 * LINE_MARGIN, size + 2 * LINE_MARGIN);
+
+        gc.save();
+        gc.scale(scale, scale);
+        gc.translate(-minX, -minY);
+
+        // Lines first, so entities cover the parts inside them
+        for (Relationship relationship : view.relationshipsIn(lineArea)) {
+            paintRelationship(gc, relationship);
+        }
+        List<Entity> entities = new ArrayList<>(view.entitiesIn(area));
+        entities.sort(view.paintOrder());
+        for (Entity entity : entities) {
+            paintEntity(gc, entity);
+        }
+
+        gc.restore();
+    }
+
+    private void paintEntity(GraphicsContext gc, Entity entity) {
+        Bounds bounds = view.entityBounds(entity);
+        double minX = bounds.getMinX();
+        double minY = bounds.getMinY();
+        double width = bounds.getWidth();
+        double height = bounds.getHeight();
+        boolean outline = view.getDetail() == EntityNode.Detail.OUTLINE;
+
+        gc.setFill(ENTITY_FILL);
+        gc.fillRoundRect(minX, minY, width, height, 16, 16);
+        if (entity == view.getHighlightedEntity()) {
+            gc.setStroke(HIGHLIGHT_BORDER);
+            gc.setLineWidth(3);
+        } else if (entity == view.getSelectedEntity()) {
+            gc.setStroke(SELECTED_BORDER);
+            gc.setLineWidth(3);
+        } else {
+            gc.setStroke(ENTITY_BORDER);
+            gc.setLineWidth(2);
+        }
+        gc.setLineDashes();
+        gc.strokeRoundRect(minX, minY, width, height, 16, 16);
+
+        // Keep long names and types inside the box
+        gc.save();
+        gc.beginPath();
+        gc.rect(minX, minY, width, height);
+        gc.clip();
+
+        gc.setFill(TITLE_COLOR);
+        gc.setTextAlign(TextAlignment.CENTER);
+        gc.setTextBaseline(VPos.CENTER);
+        if (outline) {
+            gc.setFont(OUTLINE_TITLE_FONT);
+            gc.fillText(entity.getName(), minX + width / 2, minY + height / 2);
+            gc.restore();
+            return;
+        }
+        gc.setFont(TITLE_FONT);
+        String title = entity.hasUnloadedAttributes() ? "▸ " + entity.getName() : entity.getName();
+        gc.fillText(title, minX + width / 2, minY + PADDING + 12);
+
+        gc.setStroke(ENTITY_BORDER);
+        gc.setLineWidth(1.5);
+        gc.strokeLine(minX + PADDING, minY + SEPARATOR_Y, minX + width - PADDING, minY + SEPARATOR_Y);
+
+        List<Attribute> shown = new ArrayList<>();
+        if (!entity.hasUnloadedAttributes()) {
+            for (Attribute attribute : entity.getAttributes()) {
+                if (view.getDetail() == EntityNode.Detail.FULL || attribute.isPrimaryKey() || attribute.isForeignKey()) {
+                    shown.add(attribute);
+                }
+            }
+        }
+        if (!shown.isEmpty()) {
+            // Rows share the height the view gives the entity, measured or estimated
+            double rowHeight = (height - HEADER_HEIGHT - PADDING) / shown.size();
+            gc.setTextAlign(TextAlignment.LEFT);
+            for (int i = 0; i < shown.size(); i++) {
+                paintAttributeRow(gc, shown.get(i), minX + PADDING, minY + HEADER_HEIGHT + i * rowHeight,
+                        width - 2 * PADDING, rowHeight);
+            }
+        }
+        gc.restore();
+    }
+
+    private void paintAttributeRow(GraphicsContext gc, Attribute attribute, double x, double y,
+            double width, double height) {
+        if (attribute.isPrimaryKey() || attribute.isForeignKey()) {
+            gc.setFill(attribute.isPrimaryKey() ? PRIMARY_KEY_FILL : FOREIGN_KEY_FILL);
+            gc.fillRoundRect(x, y + 2, width, height - 4, 8, 8);
+        }
+
+        double textX = x + 8;
+        double textY = y + height / 2;
+        String key = attribute.isPrimaryKey() && attribute.isForeignKey() ? "PK FK "
+                : attribute.isPrimaryKey() ? "PK " : attribute.isForeignKey() ? "FK " : "";
+        if (!key.isEmpty()) {
+            gc.setFill(attribute.isPrimaryKey() ? PRIMARY_KEY_COLOR : FOREIGN_KEY_COLOR);
+            textX = fillText(gc, key, KEY_FONT, textX, textY);
+        }
+
+        Font nameFont = attribute.isPrimaryKey() ? PRIMARY_KEY_FONT
+                : attribute.isForeignKey() ? FOREIGN_KEY_FONT : ATTRIBUTE_FONT;
+        gc.setFill(ATTRIBUTE_COLOR);
+        textX = fillText(gc, attribute.getName(), nameFont, textX, textY);
+
+        gc.setFill(DATA_TYPE_COLOR);
+        textX = fillText(gc, " : " + attribute.getDataType(), DATA_TYPE_FONT, textX, textY);
+
+        if (!attribute.isNullable()) {
+            gc.setFill(PRIMARY_KEY_COLOR);
+            fillText(gc, " *", ATTRIBUTE_FONT, textX, textY);
+        }
+    }
+
+    /**
+     * @return The x coordinate just after the text
+     */
+    private double fillText(GraphicsContext gc, String text, Font font, double x, double y) {
+        gc.setFont(font);
+        gc.fillText(text, x, y);
+        return x + textWidth(text, font);
+    }
+
+    private double textWidth(String text, Font font) {
+        measure.setFont(font);
+        measure.setText(text);
+        return measure.getLayoutBounds().getWidth();
+    }
+
+    private void paintRelationship(GraphicsContext gc, Relationship relationship) {
+        Bounds source = view.entityBounds(relationship.getSourceEntity());
+        Bounds target = view.entityBounds(relationship.getTargetEntity());
+        double sourceX = source.getMinX() + source.getWidth() / 2;
+        double sourceY = source.getMinY() + source.getHeight() / 2;
+        double targetX = target.getMinX() + target.getWidth() / 2;
+        double targetY = target.getMinY() + target.getHeight() / 2;
+        Relationship.RelationshipType type = relationship.getType();
+        Color color = colorOf(type);
+
+        gc.setStroke(color);
+        gc.setLineWidth(2.5);
+        gc.setLineCap(StrokeLineCap.ROUND);
+        if (type == Relationship.RelationshipType.MANY_TO_MANY) {
+            gc.setLineDashes(10, 5);
+        }
+        gc.strokeLine(sourceX, sourceY, targetX, targetY);
+        gc.setLineDashes();
+
+        // Markers sit where the line leaves each entity, as the part inside is covered
+        double angle = Math.atan2(targetY - sourceY, targetX - sourceX);
+        boolean manyAtSource = type == Relationship.RelationshipType.MANY_TO_ONE
+                || type == Relationship.RelationshipType.MANY_TO_MANY;
+        boolean manyAtTarget = type == Relationship.RelationshipType.ONE_TO_MANY
+                || type == Relationship.RelationshipType.MANY_TO_MANY;
+        paintMarker(gc, source, angle, manyAtSource);
+        paintMarker(gc, target, angle + Math.PI, manyAtTarget);
+
+        if (view.getDetail() == EntityNode.Detail.FULL) {
+            paintLabel(gc, relationship, color, (sourceX + targetX) / 2, (sourceY + targetY) / 2);
+        }
+    }
+
+    /**
+     * Paints a cardinality marker on the border of an entity.
+     *
+     * @param angle The direction of the line leaving the entity, in radians
+     */
+    private void paintMarker(GraphicsContext gc, Bounds entity, double angle, boolean many) {
+        double dx = Math.cos(angle);
+        double dy = Math.sin(angle);
+        double toSide = dx == 0 ? Double.POSITIVE_INFINITY : entity.getWidth() / 2 / Math.abs(dx);
+        double toTopOrBottom = dy == 0 ? Double.POSITIVE_INFINITY : entity.getHeight() / 2 / Math.abs(dy);
+        double distance = Math.min(toSide, toTopOrBottom);
+
+        gc.save();
+        gc.translate(entity.getMinX() + entity.getWidth() / 2 + dx * distance,
+                entity.getMinY() + entity.getHeight() / 2 + dy * distance);
+        gc.rotate(Math.toDegrees(angle));
+        if (many) {
+            // Crow's foot
+            gc.strokeLine(0, -10, 15, 0);
+            gc.strokeLine(0, 0, 15, 0);
+            gc.strokeLine(0, 10, 15, 0);
+        } else {
+            gc.strokeLine(8, -10, 8, 10);
+        }
+        gc.restore();
+    }
+
+    private void paintLabel(GraphicsContext gc, Relationship relationship, Color color, double x, double y) {
+        String type = relationship.getType().name().replace('_', '-');
+        String details = null;
+        if (relationship.getSourceAttribute() != null && relationship.getTargetAttribute() != null) {
+            details = relationship.getSourceEntity().getName() + "." + relationship.getSourceAttribute().getName()
+                    + " → " + relationship.getTargetEntity().getName() + "." + relationship.getTargetAttribute().getName();
+        }
+
+        double width = textWidth(type, LABEL_FONT);
+        double height = 24;
+        if (details != null) {
+            width = Math.max(width, textWidth(details, LABEL_DETAILS_FONT));
+            height += 16;
+        }
+        width += 24;
+        height += 16;
+
+        gc.setFill(LABEL_FILL);
+        gc.fillRoundRect(x - width / 2, y - height / 2, width, height, 12, 12);
+        gc.setStroke(color);
+        gc.setLineWidth(2.5);
+        gc.strokeRoundRect(x - width / 2, y - height / 2, width, height, 12, 12);
+
+        gc.setTextAlign(TextAlignment.CENTER);
+        gc.setTextBaseline(VPos.TOP);
+        gc.setFont(LABEL_FONT);
+        gc.setFill(color);
+        gc.fillText(type, x, y - height / 2 + 8);
+        if (details != null) {
+            gc.setFont(LABEL_DETAILS_FONT);
+            gc.setFill(Color.DARKSLATEGRAY);
+            gc.fillText(details, x, y - height / 2 + 34);
+        }
+    }
+
+    private static Color colorOf(Relationship.RelationshipType type) {
+        switch (type) {
+            case ONE_TO_ONE:
+                return Color.web("#27ae60");
+            case ONE_TO_MANY:
+            case MANY_TO_ONE:
+                return Color.web("#e67e22");
+            case MANY_TO_MANY:
+                return Color.web("#8e44ad");
+            default:
+                return Color.BLACK;
+        }
+    }
+
+    private int tile(double coordinate) {
+        return (int) Math.floor(coordinate * scale / TILE_SIZE);
+    }
+
+    private static long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+}
@@ -1,21 +1,61 @@
 package com.erdiagram.app.ui;
 
+import com.erdiagram.app.model.Attribute;
 import com.erdiagram.app.model.ERDiagram;
 import com.erdiagram.app.model.Entity;
 import com.erdiagram.app.model.Relationship;
+import com.erdiagram.app.model.Replacement;
+import com.erdiagram.app.model.SchemaDelta;
+import javafx.application.Platform;
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
+import javafx.geometry.Dimension2D;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
 import javafx.scene.transform.Scale;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
 
 /**
  * JavaFX component for displaying the complete ER diagram.
+ *
+ * Only the entities and relationship lines near the visible area have nodes.
+ * Entities and relationships are kept in spatial indexes, and whenever the
+ * visible area changes, nodes are created for what came into range and taken
+ * back for what left it. Taken-back nodes are pooled and reused for other
+ * entities, so scrolling across a schema of thousands of tables creates few
+ * new nodes, and the scene graph stays the size of the viewport.
+ * 
+ * In {@link RenderMode#CANVAS} there are no nodes at all: a {@link DiagramCanvas}
+ * paints the same entities and lines onto canvas tiles, and the view does its
+ * own hit-testing to select and drag entities.
  */
 public class DiagramView extends Pane {
+    /**
+     * How the diagram is drawn.
+     */
+    public enum RenderMode {
+        /** A node for each entity and relationship line in view, as the default */
+        NODES,
+        /** Painted onto canvas tiles, for overviews of very large schemas */
+        CANVAS
+    }
+    
     private ERDiagram diagram;
     private Map<Entity, EntityNode> entityNodes;
     private Map<Relationship, RelationshipLine> relationshipLines;
@@ -24,6 +64,57 @@ public class DiagramView extends Pane {
     private final int GRID_SIZE = 20;
     private final Color GRID_COLOR = Color.rgb(200, 200, 200, 0.3);
     private final Color GRID_BACKGROUND = Color.rgb(245, 247, 250);
+    private static final double MIN_EXPAND_SCALE = 0.6;
+    private static final int MAX_EXPANDED_PER_PASS = 32;
+    private static final int MAX_COLUMN_LOADS_PER_JOB = 32;
+    // Zoom levels from which entities show their key columns, and then all columns
+    private static final double KEYS_DETAIL_SCALE = 0.5;
+    private static final double FULL_DETAIL_SCALE = 0.8;
+    // Nodes are created this far beyond the visible area, so they are ready when scrolled to
+    private static final double VISIBLE_MARGIN = 400;
+    private static final double INDEX_CELL_SIZE = 500;
+    private static final int MAX_POOLED_NODES = 256;
+    // Assumed entity size until the entity has been shown once
+    private static final double ESTIMATED_WIDTH = 240;
+    private static final double ESTIMATED_HEADER_HEIGHT = 70;
+    private static final double ESTIMATED_ROW_HEIGHT = 34;
+    // Larger canvases may not fit in a texture
+    private static final double MAX_GRID_CANVAS_SIZE = 8192;
+    private static final double MIN_WIDTH = 2000;
+    private static final double MIN_HEIGHT = 1500;
+    
+    private final SpatialIndex<Entity> entityIndex = new SpatialIndex<>(INDEX_CELL_SIZE);
+    private final SpatialIndex<Relationship> relationshipIndex = new SpatialIndex<>(INDEX_CELL_SIZE);
+    private final Map<Entity, List<Relationship>> relationshipsByEntity = new IdentityHashMap<>();
+    // Entities by lower-case table name without schema and quotes, for highlighting
+    private final Map<String, Entity> entitiesByBareName = new HashMap<>();
+    // Sizes of entities that have been shown
+    private final Map<Entity, Dimension2D> measuredSizes = new IdentityHashMap<>();
+    private final Deque<EntityNode> entityNodePool = new ArrayDeque<>();
+    private final Deque<RelationshipLine> relationshipLinePool = new ArrayDeque<>();
+    // Reads the columns of expanded skeleton entities, apart from the parse jobs so neither cancels the other
+    private final BackgroundJobRunner columnLoader = new BackgroundJobRunner("column-loader");
+    // Expanded skeleton entities waiting for their columns, in the order they were expanded
+    private final Set<Entity> pendingColumnLoads = new LinkedHashSet<>();
+    private boolean columnLoadScheduled;
+    // Why the columns of an entity could not be loaded, shown again when it gets another node
+    private final Map<Entity, String> columnLoadErrors = new IdentityHashMap<>();
+    private Bounds visibleArea = new BoundingBox(0, 0, MIN_WIDTH, MIN_HEIGHT);
+    private boolean visibleNodesInvalid;
+    private boolean updatingVisibleNodes;
+    // Lines whose entities moved or changed size since the last layout pass
+    private final Set<RelationshipLine> dirtyLines = Collections.newSetFromMap(new IdentityHashMap<>());
+    private EntityNode.Detail detail = EntityNode.Detail.FULL;
+    // Table highlighted for the editor, kept across refreshes
+    private String highlightedName;
+    private Entity highlightedEntity;
+    private RenderMode renderMode = RenderMode.NODES;
+    // Only set in canvas mode
+    private DiagramCanvas canvas;
+    private Entity selectedEntity;
+    private Entity draggedEntity;
+    private double dragAnchorX;
+    private double dragAnchorY;
     
     public DiagramView() {
         getStyleClass().add("workspace");
@@ -40,13 +131,18 @@ public class DiagramView extends Pane {
             event.consume();
         });
         
+        // In node mode the entity nodes handle the mouse themselves
+        addEventHandler(MouseEvent.MOUSE_PRESSED, this::canvasMousePressed);
+        addEventHandler(MouseEvent.MOUSE_DRAGGED, this::canvasMouseDragged);
+        addEventHandler(MouseEvent.MOUSE_RELEASED, event -> draggedEntity = null);
+        
         // Set minimum size
-        setMinSize(2000, 1500);
-        setPrefSize(2000, 1500);
+        setMinSize(MIN_WIDTH, MIN_HEIGHT);
+        setPrefSize(MIN_WIDTH, MIN_HEIGHT);
     }
     
     private void initializeGridCanvas() {
-        gridCanvas = new Canvas(2000, 1500);
+        gridCanvas = new Canvas(MIN_WIDTH, MIN_HEIGHT);
         getChildren().add(gridCanvas);
         drawGrid();
     }
@@ -88,6 +184,29 @@ public class DiagramView extends Pane {
         }
     }
     
+    /**
+     * Moves the grid canvas under the visible area. It starts on a major grid
+     * line, so the pattern lines up wherever it is drawn.
+     */
+    private void updateGrid() {
+        double step = GRID_SIZE * 5;
+        double x = Math.max(0, Math.floor((visibleArea.getMinX() - VISIBLE_MARGIN) / step) * step);
+        double y = Math.max(0, Math.floor((visibleArea.getMinY() - VISIBLE_MARGIN) / step) * step);
+        double width = Math.min(MAX_GRID_CANVAS_SIZE, Math.ceil((visibleArea.getMaxX() + VISIBLE_MARGIN - x) / step) * step);
+        double height = Math.min(MAX_GRID_CANVAS_SIZE, Math.ceil((visibleArea.getMaxY() + VISIBLE_MARGIN - y) / step) * step);
+        
+        if (x == gridCanvas.getLayoutX() && y == gridCanvas.getLayoutY()
+                && width == gridCanvas.getWidth() && height == gridCanvas.getHeight()) {
+            return;
+        }
+        gridCanvas.relocate(x, y);
+        if (width != gridCanvas.getWidth() || height != gridCanvas.getHeight()) {
+            gridCanvas.setWidth(width);
+            gridCanvas.setHeight(height);
+            drawGrid();
+        }
+    }
+    
     /**
      * Sets the ER diagram model to display.
      * 
@@ -95,6 +214,10 @@ public class DiagramView extends Pane {
      */
     public void setDiagram(ERDiagram diagram) {
         this.diagram = diagram;
+        measuredSizes.clear();
+        columnLoader.cancel();
+        pendingColumnLoads.clear();
+        columnLoadErrors.clear();
         refresh();
     }
     
@@ -102,52 +225,573 @@ public class DiagramView extends Pane {
      * Refreshes the diagram view based on the current ER diagram model.
      */
     public void refresh() {
-        // Remove existing nodes except gridCanvas
-        getChildren().clear();
-        getChildren().add(gridCanvas);
+        // Take back every node; the ones in view are handed out again on the next layout
+        releaseAllNodes();
+        if (canvas != null) {
+            canvas.invalidateAll();
+        }
         
-        entityNodes.clear();
-        relationshipLines.clear();
+        entityIndex.clear();
+        relationshipIndex.clear();
+        relationshipsByEntity.clear();
+        entitiesByBareName.clear();
+        setMinSize(MIN_WIDTH, MIN_HEIGHT);
+        setPrefSize(MIN_WIDTH, MIN_HEIGHT);
         
-        if (diagram == null) {
-            return;
+        if (diagram != null) {
+            for (Entity entity : diagram.getEntities()) {
+                addEntity(entity);
+            }
+            for (Relationship relationship : diagram.getRelationships()) {
+                addRelationship(relationship);
+            }
+        }
+        
+        updateHighlight();
+        invalidateVisibleNodes();
+    }
+    
+    /**
+     * Switches to the next version of the shown diagram and patches the view
+     * with the delta between the two instead of rebuilding every node.
+     * 
+     * @param nextDiagram The diagram the delta leads to
+     * @param delta The changes from the diagram currently shown to {@code nextDiagram}
+     */
+    public void applyDelta(ERDiagram nextDiagram, SchemaDelta delta) {
+        this.diagram = nextDiagram;
+        
+        for (Relationship relationship : delta.getRemovedRelationships()) {
+            removeRelationship(relationship);
+        }
+        for (Replacement<Relationship> replacement : delta.getChangedRelationships()) {
+            removeRelationship(replacement.getPrevious());
+        }
+        
+        for (Entity entity : delta.getRemovedEntities()) {
+            removeEntity(entity);
+        }
+        for (Replacement<Entity> replacement : delta.getChangedEntities()) {
+            removeEntity(replacement.getPrevious());
+        }
+        
+        for (Entity entity : delta.getAddedEntities()) {
+            addEntity(entity);
+        }
+        for (Replacement<Entity> replacement : delta.getChangedEntities()) {
+            addEntity(replacement.getCurrent());
+        }
+        
+        for (Relationship relationship : delta.getAddedRelationships()) {
+            addRelationship(relationship);
+        }
+        for (Replacement<Relationship> replacement : delta.getChangedRelationships()) {
+            addRelationship(replacement.getCurrent());
+        }
+        
+        // Ends at entities without nodes follow estimated sizes, which may have changed
+        dirtyLines.addAll(relationshipLines.values());
+        if (canvas != null) {
+            canvas.invalidateAll();
+        }
+        updateHighlight();
+        invalidateVisibleNodes();
+    }
+    
+    private void addRelationship(Relationship relationship) {
+        relationshipsByEntity.computeIfAbsent(relationship.getSourceEntity(), e -> new ArrayList<>()).add(relationship);
+        if (relationship.getTargetEntity() != relationship.getSourceEntity()) {
+            relationshipsByEntity.computeIfAbsent(relationship.getTargetEntity(), e -> new ArrayList<>()).add(relationship);
+        }
+        indexRelationship(relationship);
+    }
+    
+    private void removeRelationship(Relationship relationship) {
+        for (Entity entity : new Entity[] {relationship.getSourceEntity(), relationship.getTargetEntity()}) {
+            List<Relationship> relationships = relationshipsByEntity.get(entity);
+            if (relationships != null) {
+                relationships.remove(relationship);
+            }
+        }
+        relationshipIndex.remove(relationship);
+        releaseRelationshipLine(relationship);
+    }
+    
+    private void addEntity(Entity entity) {
+        entitiesByBareName.putIfAbsent(bareName(entity.getName()), entity);
+        indexEntity(entity);
+    }
+    
+    private void removeEntity(Entity entity) {
+        entitiesByBareName.remove(bareName(entity.getName()), entity);
+        entityIndex.remove(entity);
+        releaseEntityNode(entity);
+        measuredSizes.remove(entity);
+        relationshipsByEntity.remove(entity);
+        columnLoadErrors.remove(entity);
+    }
+    
+    private void indexEntity(Entity entity) {
+        Bounds bounds = entityBounds(entity);
+        entityIndex.put(entity, bounds.getMinX(), bounds.getMinY(), bounds.getMaxX(), bounds.getMaxY());
+        
+        // Grow the view so every entity can be scrolled to
+        if (bounds.getMaxX() + VISIBLE_MARGIN > getPrefWidth() || bounds.getMaxY() + VISIBLE_MARGIN > getPrefHeight()) {
+            double width = Math.max(getPrefWidth(), bounds.getMaxX() + VISIBLE_MARGIN);
+            double height = Math.max(getPrefHeight(), bounds.getMaxY() + VISIBLE_MARGIN);
+            setMinSize(width, height);
+            setPrefSize(width, height);
+        }
+    }
+    
+    private void indexRelationship(Relationship relationship) {
+        Bounds source = entityBounds(relationship.getSourceEntity());
+        Bounds target = entityBounds(relationship.getTargetEntity());
+        // Lines run between the entity centers
+        relationshipIndex.putSegment(relationship,
+                (source.getMinX() + source.getMaxX()) / 2, (source.getMinY() + source.getMaxY()) / 2,
+                (target.getMinX() + target.getMaxX()) / 2, (target.getMinY() + target.getMaxY()) / 2);
+    }
+    
+    /**
+     * @return The bounds of an entity in this view, measured if it has been shown and estimated otherwise
+     */
+    Bounds entityBounds(Entity entity) {
+        EntityNode node = entityNodes.get(entity);
+        double width;
+        double height;
+        if (node != null && node.getWidth() > 0) {
+            width = node.getWidth();
+            height = node.getHeight();
+        } else {
+            Dimension2D size = measuredSizes.get(entity);
+            if (size != null) {
+                width = size.getWidth();
+                height = size.getHeight();
+            } else {
+                width = ESTIMATED_WIDTH;
+                height = ESTIMATED_HEADER_HEIGHT + estimatedRowCount(entity) * ESTIMATED_ROW_HEIGHT;
+            }
+        }
+        return new BoundingBox(entity.getX(), entity.getY(), width, height);
+    }
+    
+    /**
+     * @return The number of attribute rows an entity shows at the current level of detail
+     */
+    private int estimatedRowCount(Entity entity) {
+        if (detail == EntityNode.Detail.OUTLINE || entity.hasUnloadedAttributes()) {
+            return 0;
+        }
+        if (detail == EntityNode.Detail.FULL) {
+            return entity.getAttributes().size();
+        }
+        int keys = 0;
+        for (Attribute attribute : entity.getAttributes()) {
+            if (attribute.isPrimaryKey() || attribute.isForeignKey()) {
+                keys++;
+            }
+        }
+        return keys;
+    }
+    
+    /**
+     * Sets the part of the view the user can see. Nodes are created for the
+     * entities and relationship lines in and near it, and taken back for the
+     * rest, on the next layout pass.
+     * 
+     * @param visibleArea The visible part of the view, in its local coordinates
+     */
+    public void setVisibleArea(Bounds visibleArea) {
+        this.visibleArea = visibleArea;
+        invalidateVisibleNodes();
+    }
+    
+    private void invalidateVisibleNodes() {
+        if (!updatingVisibleNodes) {
+            visibleNodesInvalid = true;
+            requestLayout();
+        }
+    }
+    
+    @Override
+    protected void layoutChildren() {
+        super.layoutChildren();
+        if (visibleNodesInvalid) {
+            updateVisibleNodes();
         }
         
-        // Create relationship lines first so they appear below entities
-        for (Relationship relationship : diagram.getRelationships()) {
-            EntityNode sourceNode = createEntityNodeIfNeeded(relationship.getSourceEntity());
-            EntityNode targetNode = createEntityNodeIfNeeded(relationship.getTargetEntity());
+        // Each line is recomputed at most once per pulse, however often its entities moved
+        for (RelationshipLine line : dirtyLines) {
+            line.updatePosition();
+        }
+        dirtyLines.clear();
+    }
+    
+    private void updateVisibleNodes() {
+        visibleNodesInvalid = false;
+        updatingVisibleNodes = true;
+        try {
+            updateGrid();
+            
+            if (renderMode == RenderMode.CANVAS) {
+                canvas.update(visibleArea, scaleFactor);
+                return;
+            }
+            
+            Bounds range = new BoundingBox(visibleArea.getMinX() - VISIBLE_MARGIN, visibleArea.getMinY() - VISIBLE_MARGIN,
+                    visibleArea.getWidth() + 2 * VISIBLE_MARGIN, visibleArea.getHeight() + 2 * VISIBLE_MARGIN);
+            Set<Entity> entities = entitiesIn(range);
+            Set<Relationship> relationships = relationshipsIn(range);
+            
+            // Take back the nodes that left the range, except one being dragged
+            Iterator<Map.Entry<Entity, EntityNode>> nodes = entityNodes.entrySet().iterator();
+            List<Entity> leaving = new ArrayList<>();
+            while (nodes.hasNext()) {
+                Map.Entry<Entity, EntityNode> entry = nodes.next();
+                if (!entities.contains(entry.getKey()) && !entry.getValue().isDragging()) {
+                    leaving.add(entry.getKey());
+                }
+            }
+            for (Entity entity : leaving) {
+                releaseEntityNode(entity);
+            }
+            List<Relationship> leavingLines = new ArrayList<>();
+            for (Relationship relationship : relationshipLines.keySet()) {
+                if (!relationships.contains(relationship)) {
+                    leavingLines.add(relationship);
+                }
+            }
+            for (Relationship relationship : leavingLines) {
+                releaseRelationshipLine(relationship);
+            }
             
-            if (sourceNode != null && targetNode != null) {
-                RelationshipLine line = new RelationshipLine(relationship, sourceNode, targetNode);
-                relationshipLines.put(relationship, line);
-                getChildren().add(line);
+            // Hand out nodes for what came into range
+            for (Entity entity : entities) {
+                if (!entityNodes.containsKey(entity)) {
+                    acquireEntityNode(entity);
+                }
             }
+            for (Relationship relationship : relationships) {
+                if (!relationshipLines.containsKey(relationship)) {
+                    acquireRelationshipLine(relationship);
+                }
+            }
+        } finally {
+            updatingVisibleNodes = false;
         }
         
-        // Create remaining entity nodes if any
-        for (Entity entity : diagram.getEntities()) {
-            createEntityNodeIfNeeded(entity);
+        expandVisibleEntities(visibleArea);
+    }
+    
+    /**
+     * @return The entities whose bounds intersect the area
+     */
+    Set<Entity> entitiesIn(Bounds area) {
+        Set<Entity> entities = Collections.newSetFromMap(new IdentityHashMap<>());
+        entityIndex.query(area.getMinX(), area.getMinY(), area.getMaxX(), area.getMaxY(), entities);
+        entities.removeIf(entity -> !entityBounds(entity).intersects(area));
+        return entities;
+    }
+    
+    /**
+     * @return The relationships whose lines cross the area
+     */
+    Set<Relationship> relationshipsIn(Bounds area) {
+        Set<Relationship> relationships = Collections.newSetFromMap(new IdentityHashMap<>());
+        relationshipIndex.query(area.getMinX(), area.getMinY(), area.getMaxX(), area.getMaxY(), relationships);
+        relationships.removeIf(relationship -> !crosses(relationship, area));
+        return relationships;
+    }
+    
+    /**
+     * @return true if the line between the centers of the two entities crosses the area
+     */
+    private boolean crosses(Relationship relationship, Bounds area) {
+        Bounds source = entityBounds(relationship.getSourceEntity());
+        Bounds target = entityBounds(relationship.getTargetEntity());
+        double x = (source.getMinX() + source.getMaxX()) / 2;
+        double y = (source.getMinY() + source.getMaxY()) / 2;
+        double dx = (target.getMinX() + target.getMaxX()) / 2 - x;
+        double dy = (target.getMinY() + target.getMaxY()) / 2 - y;
+        
+        // Clip the segment against each side of the area (Liang-Barsky)
+        double[] p = {-dx, dx, -dy, dy};
+        double[] q = {x - area.getMinX(), area.getMaxX() - x, y - area.getMinY(), area.getMaxY() - y};
+        double from = 0;
+        double to = 1;
+        for (int i = 0; i < 4; i++) {
+            if (p[i] == 0) {
+                if (q[i] < 0) {
+                    return false;
+                }
+            } else {
+                double t = q[i] / p[i];
+                if (p[i] < 0) {
+                    from = Math.max(from, t);
+                } else {
+                    to = Math.min(to, t);
+                }
+                if (from > to) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    private void releaseAllNodes() {
+        for (Entity entity : new ArrayList<>(entityNodes.keySet())) {
+            releaseEntityNode(entity);
+        }
+        for (Relationship relationship : new ArrayList<>(relationshipLines.keySet())) {
+            releaseRelationshipLine(relationship);
+        }
+    }
+    
+    private void acquireEntityNode(Entity entity) {
+        EntityNode node = entityNodePool.poll();
+        if (node == null) {
+            EntityNode created = new EntityNode(entity, detail);
+            created.layoutXProperty().addListener((obs, oldValue, newValue) -> entityNodeChanged(created));
+            created.layoutYProperty().addListener((obs, oldValue, newValue) -> entityNodeChanged(created));
+            created.widthProperty().addListener((obs, oldValue, newValue) -> entityNodeChanged(created));
+            created.heightProperty().addListener((obs, oldValue, newValue) -> entityNodeChanged(created));
+            created.setColumnLoader(this::requestColumns);
+            node = created;
+        } else {
+            node.setDetail(detail);
+            node.setEntity(entity);
         }
+        String loadError = columnLoadErrors.get(entity);
+        if (loadError != null) {
+            node.columnsLoaded(loadError);
+        }
+        node.setHighlighted(entity == highlightedEntity);
         
-        // Make sure entities are on top of relationship lines
-        for (EntityNode node : entityNodes.values()) {
-            node.toFront();
+        entityNodes.put(entity, node);
+        getChildren().add(node);
+        
+        // Size it now, so lines and the index use its real bounds
+        node.applyCss();
+        node.autosize();
+        entityNodeChanged(node);
+    }
+    
+    private void releaseEntityNode(Entity entity) {
+        EntityNode node = entityNodes.remove(entity);
+        if (node == null) {
+            return;
+        }
+        if (node.getWidth() > 0) {
+            measuredSizes.put(entity, new Dimension2D(node.getWidth(), node.getHeight()));
+        }
+        getChildren().remove(node);
+        // A node still being dragged keeps its mouse handlers busy with the old entity
+        if (!node.isDragging() && entityNodePool.size() < MAX_POOLED_NODES) {
+            entityNodePool.push(node);
         }
     }
     
-    private EntityNode createEntityNodeIfNeeded(Entity entity) {
-        if (!entityNodes.containsKey(entity)) {
-            EntityNode entityNode = new EntityNode(entity);
-            entityNodes.put(entity, entityNode);
-            getChildren().add(entityNode);
-            return entityNode;
+    /**
+     * Re-indexes an entity whose node moved or changed size, such as while it is dragged.
+     */
+    private void entityNodeChanged(EntityNode node) {
+        Entity entity = node.getEntity();
+        if (entityNodes.get(entity) != node) {
+            // Being handed out to another entity
+            return;
+        }
+        
+        indexEntity(entity);
+        for (Relationship relationship : relationshipsByEntity.getOrDefault(entity, Collections.emptyList())) {
+            indexRelationship(relationship);
+            RelationshipLine line = relationshipLines.get(relationship);
+            if (line != null) {
+                dirtyLines.add(line);
+            }
+        }
+        invalidateVisibleNodes();
+    }
+    
+    private void acquireRelationshipLine(Relationship relationship) {
+        RelationshipLine line = relationshipLinePool.poll();
+        if (line == null) {
+            line = new RelationshipLine(relationship, this::entityBounds);
+        } else {
+            line.setRelationship(relationship);
+        }
+        relationshipLines.put(relationship, line);
+        // Keep lines above the grid but below every entity
+        getChildren().add(1, line);
+    }
+    
+    private void releaseRelationshipLine(Relationship relationship) {
+        RelationshipLine line = relationshipLines.remove(relationship);
+        if (line == null) {
+            return;
+        }
+        getChildren().remove(line);
+        dirtyLines.remove(line);
+        if (relationshipLinePool.size() < MAX_POOLED_NODES) {
+            relationshipLinePool.push(line);
         }
-        return entityNodes.get(entity);
     }
     
     /**
-     * Updates the positions of all relationship lines based on entity positions.
+     * Highlights the entity of a table, such as the one being edited. The
+     * highlight moves to the new node when the diagram is updated.
+     * 
+     * @param tableName The table name, possibly quoted or schema-qualified, or null for no highlight
+     * @return The bounds of the highlighted entity in this view, or null if the diagram has no such table
+     */
+    public Bounds highlightEntity(String tableName) {
+        highlightedName = tableName == null ? null : bareName(tableName);
+        return updateHighlight();
+    }
+    
+    private Bounds updateHighlight() {
+        Entity entity = highlightedName == null ? null : entitiesByBareName.get(highlightedName);
+        
+        if (entity != highlightedEntity) {
+            EntityNode previousNode = entityNodes.get(highlightedEntity);
+            if (previousNode != null) {
+                previousNode.setHighlighted(false);
+            }
+            EntityNode node = entityNodes.get(entity);
+            if (node != null) {
+                node.setHighlighted(true);
+            }
+            repaintEntity(highlightedEntity);
+            repaintEntity(entity);
+            highlightedEntity = entity;
+        }
+        return entity == null ? null : entityBounds(entity);
+    }
+    
+    /**
+     * @return The lower-case table name without schema and quotes
+     */
+    private static String bareName(String name) {
+        StringBuilder table = new StringBuilder(name.length());
+        for (int i = name.lastIndexOf('.') + 1; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c != '`' && c != '"' && c != '[' && c != ']') {
+                table.append(Character.toLowerCase(c));
+            }
+        }
+        return table.toString();
+    }
+    
+    /**
+     * Expands the collapsed skeleton entities inside the given area, so their
+     * columns are loaded as they scroll into view. The columns are read on a
+     * worker thread, and the entities show a placeholder until then. Nothing
+     * is loaded while the diagram is zoomed out too far to read, and at most a
+     * few entities are expanded per call to keep scrolling responsive.
+     * 
+     * @param visibleArea The visible part of the view, in its local coordinates
+     */
+    public void expandVisibleEntities(Bounds visibleArea) {
+        if (scaleFactor < MIN_EXPAND_SCALE) {
+            return;
+        }
+        
+        int expanded = 0;
+        for (EntityNode node : new ArrayList<>(entityNodes.values())) {
+            if (expanded >= MAX_EXPANDED_PER_PASS) {
+                break;
+            }
+            if (node.getEntity().hasUnloadedAttributes() && !node.isExpanded()
+                    && node.getBoundsInParent().intersects(visibleArea)) {
+                node.setExpanded(true);
+                expanded++;
+            }
+        }
+    }
+    
+    /**
+     * Queues the columns of an expanded skeleton entity to be loaded. Requests
+     * made during one layout pass are read together by a single job.
+     */
+    private void requestColumns(Entity entity) {
+        pendingColumnLoads.add(entity);
+        if (!columnLoadScheduled) {
+            columnLoadScheduled = true;
+            Platform.runLater(() -> {
+                columnLoadScheduled = false;
+                loadPendingColumns();
+            });
+        }
+    }
+    
+    /**
+     * Starts a job reading the columns of the next waiting entities, unless
+     * one is still running; it starts the next one when it is done.
+     */
+    private void loadPendingColumns() {
+        if (columnLoader.runningProperty().get()) {
+            return;
+        }
+        
+        // Entities scrolled out of view since are asked for again when they get a node
+        List<Entity> batch = new ArrayList<>();
+        List<Supplier<List<Attribute>>> loaders = new ArrayList<>();
+        Iterator<Entity> pending = pendingColumnLoads.iterator();
+        while (pending.hasNext() && batch.size() < MAX_COLUMN_LOADS_PER_JOB) {
+            Entity entity = pending.next();
+            pending.remove();
+            EntityNode node = entityNodes.get(entity);
+            if (node != null && node.isExpanded() && entity.hasUnloadedAttributes()) {
+                batch.add(entity);
+                loaders.add(entity.getAttributeLoader());
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        
+        columnLoader.submit(progress -> {
+            LoadedColumns result = new LoadedColumns();
+            for (int i = 0; i < batch.size(); i++) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException();
+                }
+                try {
+                    result.columns.put(batch.get(i), loaders.get(i).get());
+                } catch (RuntimeException e) {
+                    result.errors.put(batch.get(i), e.getMessage());
+                }
+            }
+            return result;
+        }, result -> {
+            for (Map.Entry<Entity, List<Attribute>> loaded : result.columns.entrySet()) {
+                loaded.getKey().setLoadedAttributes(loaded.getValue());
+            }
+            columnLoadErrors.putAll(result.errors);
+            columnsLoaded(batch);
+        }, error -> {
+            for (Entity entity : batch) {
+                columnLoadErrors.put(entity, error.getMessage());
+            }
+            columnsLoaded(batch);
+        });
+    }
+    
+    private void columnsLoaded(List<Entity> batch) {
+        for (Entity entity : batch) {
+            EntityNode node = entityNodes.get(entity);
+            if (node != null) {
+                node.columnsLoaded(columnLoadErrors.get(entity));
+            }
+        }
+        loadPendingColumns();
+    }
+    
+    /**
+     * Updates the positions of all relationship lines that have nodes based on
+     * entity positions. Lines follow moved and resized entity nodes on their
+     * own; this is only needed after entities are moved in the model.
      */
     public void updateRelationshipLines() {
         for (RelationshipLine line : relationshipLines.values()) {
@@ -186,6 +830,8 @@ public class DiagramView extends Pane {
         scale.setY(scaleFactor);
         getTransforms().clear();
         getTransforms().add(scale);
+        
+        updateDetail();
     }
     
     /**
@@ -194,9 +840,178 @@ public class DiagramView extends Pane {
     public void resetZoom() {
         scaleFactor = 1.0;
         getTransforms().clear();
+        
+        updateDetail();
+    }
+    
+    /**
+     * Picks the level of detail for the zoom level. Zoomed out, entities show
+     * only their names, or their key columns, so an overview of a large schema
+     * lays out few rows.
+     */
+    private void updateDetail() {
+        EntityNode.Detail newDetail;
+        if (scaleFactor >= FULL_DETAIL_SCALE) {
+            newDetail = EntityNode.Detail.FULL;
+        } else if (scaleFactor >= KEYS_DETAIL_SCALE) {
+            newDetail = EntityNode.Detail.KEYS;
+        } else {
+            newDetail = EntityNode.Detail.OUTLINE;
+        }
+        if (newDetail == detail) {
+            return;
+        }
+        detail = newDetail;
+        
+        for (EntityNode node : entityNodes.values()) {
+            node.setDetail(detail);
+        }
+        
+        // Entities are smaller or larger now, so sizes measured at the old level no longer apply
+        measuredSizes.clear();
+        if (diagram != null) {
+            for (Entity entity : diagram.getEntities()) {
+                indexEntity(entity);
+            }
+            for (Relationship relationship : diagram.getRelationships()) {
+                indexRelationship(relationship);
+            }
+        }
+        dirtyLines.addAll(relationshipLines.values());
+        if (canvas != null) {
+            canvas.invalidateAll();
+        }
+        invalidateVisibleNodes();
+    }
+    
+    /**
+     * Switches between drawing the diagram with nodes and painting it onto a canvas.
+     */
+    public void setRenderMode(RenderMode renderMode) {
+        if (this.renderMode == renderMode) {
+            return;
+        }
+        this.renderMode = renderMode;
+        
+        if (renderMode == RenderMode.CANVAS) {
+            releaseAllNodes();
+            canvas = new DiagramCanvas(this);
+            // Above the grid, where the relationship lines go in node mode
+            getChildren().add(1, canvas);
+        } else {
+            canvas.clear();
+            getChildren().remove(canvas);
+            canvas = null;
+            selectedEntity = null;
+            draggedEntity = null;
+        }
+        invalidateVisibleNodes();
+    }
+    
+    public RenderMode getRenderMode() {
+        return renderMode;
+    }
+    
+    EntityNode.Detail getDetail() {
+        return detail;
+    }
+    
+    Entity getHighlightedEntity() {
+        return highlightedEntity;
+    }
+    
+    Entity getSelectedEntity() {
+        return selectedEntity;
+    }
+    
+    /**
+     * @return The order entities are painted in on the canvas: by position, with the selected one on top
+     */
+    Comparator<Entity> paintOrder() {
+        Comparator<Entity> byPosition = Comparator.comparingDouble(Entity::getY).thenComparingDouble(Entity::getX);
+        return Comparator.comparing((Entity entity) -> entity == selectedEntity).thenComparing(byPosition);
+    }
+    
+    /**
+     * @return The topmost entity painted at a point, or null
+     */
+    private Entity entityAt(double x, double y) {
+        Entity top = null;
+        Comparator<Entity> order = paintOrder();
+        for (Entity entity : entitiesIn(new BoundingBox(x, y, 0, 0))) {
+            if (entityBounds(entity).contains(x, y) && (top == null || order.compare(entity, top) > 0)) {
+                top = entity;
+            }
+        }
+        return top;
+    }
+    
+    private void canvasMousePressed(MouseEvent event) {
+        if (renderMode != RenderMode.CANVAS) {
+            return;
+        }
+        Entity entity = entityAt(event.getX(), event.getY());
+        if (entity != selectedEntity) {
+            repaintEntity(selectedEntity);
+            repaintEntity(entity);
+            selectedEntity = entity;
+            invalidateVisibleNodes();
+        }
+        if (entity != null) {
+            draggedEntity = entity;
+            dragAnchorX = event.getX();
+            dragAnchorY = event.getY();
+            event.consume();
+        }
+    }
+    
+    private void canvasMouseDragged(MouseEvent event) {
+        if (renderMode != RenderMode.CANVAS || draggedEntity == null) {
+            return;
+        }
+        // Local coordinates already account for the zoom
+        repaintEntity(draggedEntity);
+        draggedEntity.setX(draggedEntity.getX() + event.getX() - dragAnchorX);
+        draggedEntity.setY(draggedEntity.getY() + event.getY() - dragAnchorY);
+        dragAnchorX = event.getX();
+        dragAnchorY = event.getY();
+        
+        indexEntity(draggedEntity);
+        for (Relationship relationship : relationshipsByEntity.getOrDefault(draggedEntity, Collections.emptyList())) {
+            indexRelationship(relationship);
+        }
+        repaintEntity(draggedEntity);
+        invalidateVisibleNodes();
+        event.consume();
+    }
+    
+    /**
+     * Marks the canvas tiles under an entity and its relationship lines for repainting.
+     */
+    private void repaintEntity(Entity entity) {
+        if (canvas == null || entity == null) {
+            return;
+        }
+        canvas.invalidate(entityBounds(entity));
+        for (Relationship relationship : relationshipsByEntity.getOrDefault(entity, Collections.emptyList())) {
+            Bounds source = entityBounds(relationship.getSourceEntity());
+            Bounds target = entityBounds(relationship.getTargetEntity());
+            double minX = Math.min(source.getMinX(), target.getMinX());
+            double minY = Math.min(source.getMinY(), target.getMinY());
+            canvas.invalidate(new BoundingBox(minX, minY,
+                    Math.max(source.getMaxX(), target.getMaxX()) - minX, Math.max(source.getMaxY(), target.getMaxY()) - minY));
+        }
     }
     
     public ERDiagram getDiagram() {
         return diagram;
     }
-} 
\ No newline at end of file
+    
+    /**
+     * The columns read by a background job, and why the others could not be read.
+     */
+    private static final class LoadedColumns {
+        final Map<Entity, List<Attribute>> columns = new IdentityHashMap<>();
+        final Map<Entity, String> errors = new IdentityHashMap<>();
+    }
+}
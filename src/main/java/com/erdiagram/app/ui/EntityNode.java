@@ -2,8 +2,10 @@ package com.erdiagram.app.ui;
 
 import com.erdiagram.app.model.Attribute;
 import com.erdiagram.app.model.Entity;
+import javafx.css.PseudoClass;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
 import javafx.scene.control.Label;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
@@ -15,17 +17,58 @@ import javafx.scene.text.Text;
 import javafx.scene.text.TextFlow;
 import javafx.scene.effect.DropShadow;
 
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
 /**
  * JavaFX component for rendering an entity in the ER diagram.
+ * 
+ * How many columns are shown depends on the {@link Detail} set by the diagram
+ * view for its zoom level. Attribute rows are built the first time they are
+ * shown and kept, so switching between levels only adds and removes rows.
  */
 public class EntityNode extends VBox {
+    private static final PseudoClass HIGHLIGHTED = PseudoClass.getPseudoClass("highlighted");
+    private static final PseudoClass OUTLINE = PseudoClass.getPseudoClass("outline");
+    
+    /**
+     * How much of an entity is drawn.
+     */
+    public enum Detail {
+        /** Only the name, for overviews too small to read the columns */
+        OUTLINE,
+        /** The name and the primary and foreign key columns */
+        KEYS,
+        /** Every column */
+        FULL
+    }
+    
     private Entity entity;
     private double mouseAnchorX;
     private double mouseAnchorY;
+    private boolean dragging;
+    private Text title;
+    private HBox headerBox;
+    private Line separator;
+    // Skeleton entities start collapsed and load their columns when first expanded
+    private Text expandToggle;
+    private boolean expanded;
+    // Loads the columns of an expanded skeleton entity in the background; null to load them in place
+    private Consumer<Entity> columnLoader;
+    private String loadError;
+    private int attributeRowsStart;
+    private Detail detail;
+    // Rows built for the current entity, kept while it is shown at other levels of detail
+    private final Map<Attribute, HBox> attributeRows = new IdentityHashMap<>();
     
     public EntityNode(Entity entity) {
-        this.entity = entity;
-        
+        this(entity, Detail.FULL);
+    }
+    
+    public EntityNode(Entity entity, Detail detail) {
         getStyleClass().add("entity-table");
         setPadding(new Insets(12));
         setSpacing(8);
@@ -35,35 +78,88 @@ public class EntityNode extends VBox {
         createHeader();
         
         // Add separator
-        Line separator = new Line(0, 0, getMinWidth() - 24, 0);
+        separator = new Line(0, 0, getMinWidth() - 24, 0);
         separator.getStyleClass().add("entity-separator");
         getChildren().add(separator);
         
-        // Add all attributes
-        for (Attribute attribute : entity.getAttributes()) {
-            createAttributeRow(attribute);
+        attributeRowsStart = getChildren().size();
+        
+        // Set up dragging
+        setUpDragging();
+        
+        applyDetail(detail);
+        setEntity(entity);
+    }
+    
+    /**
+     * Shows another entity in this node, so the diagram view can reuse nodes
+     * instead of creating one per entity.
+     */
+    public void setEntity(Entity entity) {
+        this.entity = entity;
+        title.setText(entity.getName());
+        setHighlighted(false);
+        
+        headerBox.getChildren().remove(expandToggle);
+        attributeRows.clear();
+        loadError = null;
+        expanded = !entity.hasUnloadedAttributes();
+        if (!expanded) {
+            expandToggle.setText("▸");
+            headerBox.getChildren().add(0, expandToggle);
         }
+        showAttributes();
         
         // Position the node
         relocate(entity.getX(), entity.getY());
-        
-        // Set up dragging
-        setUpDragging();
     }
     
     private void createHeader() {
-        Text title = new Text(entity.getName());
+        title = new Text();
         title.getStyleClass().add("entity-title");
         title.setFont(Font.font("Arial", FontWeight.BOLD, 18));
         
-        HBox headerBox = new HBox();
+        headerBox = new HBox(6);
         headerBox.setAlignment(Pos.CENTER);
+        
+        // Only shown for skeleton entities
+        expandToggle = new Text("▸");
+        expandToggle.setFont(Font.font("Arial", FontWeight.BOLD, 16));
+        expandToggle.setOnMouseClicked(event -> {
+            setExpanded(!expanded);
+            event.consume();
+        });
         headerBox.getChildren().add(title);
         
         getChildren().add(headerBox);
     }
     
-    private void createAttributeRow(Attribute attribute) {
+    /**
+     * Sets how much of the entity is drawn. The model is not touched; rows
+     * already built are reused.
+     */
+    public void setDetail(Detail detail) {
+        if (this.detail != detail) {
+            applyDetail(detail);
+            showAttributes();
+        }
+    }
+    
+    public Detail getDetail() {
+        return detail;
+    }
+    
+    private void applyDetail(Detail detail) {
+        this.detail = detail;
+        boolean outline = detail == Detail.OUTLINE;
+        pseudoClassStateChanged(OUTLINE, outline);
+        separator.setVisible(!outline);
+        separator.setManaged(!outline);
+        expandToggle.setVisible(!outline);
+        expandToggle.setManaged(!outline);
+    }
+    
+    private HBox createAttributeRow(Attribute attribute) {
         HBox row = new HBox(10);
         row.setPadding(new Insets(2, 4, 2, 4));
         row.getStyleClass().add("attribute-box");
@@ -110,19 +206,116 @@ public class EntityNode extends VBox {
         }
         
         row.getChildren().add(attributeText);
-        getChildren().add(row);
+        return row;
     }
     
     public Entity getEntity() {
         return entity;
     }
     
+    /**
+     * Has the columns of expanded skeleton entities loaded elsewhere, such as
+     * on a worker thread, instead of being read on the FX thread. The node
+     * shows a placeholder until {@link #columnsLoaded(String)} is called.
+     * 
+     * @param columnLoader Called with the entity whose columns are needed
+     */
+    public void setColumnLoader(Consumer<Entity> columnLoader) {
+        this.columnLoader = columnLoader;
+    }
+    
+    /**
+     * Shows the columns of the entity once they were loaded, or why they could not be.
+     * 
+     * @param error The reason loading failed, or null if the columns were loaded
+     */
+    public void columnsLoaded(String error) {
+        loadError = error;
+        showAttributes();
+    }
+    
+    /**
+     * Shows or hides the attribute rows of a skeleton entity, loading its
+     * columns the first time it is expanded.
+     */
+    public void setExpanded(boolean expanded) {
+        if (expandToggle.getParent() == null || this.expanded == expanded) {
+            return;
+        }
+        this.expanded = expanded;
+        expandToggle.setText(expanded ? "▾" : "▸");
+        
+        showAttributes();
+    }
+    
+    public boolean isExpanded() {
+        return expanded;
+    }
+    
+    /**
+     * @return true while the user drags the node, which must then not be reused for another entity
+     */
+    public boolean isDragging() {
+        return dragging;
+    }
+    
+    /**
+     * Marks the entity as the one being edited, styled by {@code .entity-table:highlighted}.
+     */
+    public void setHighlighted(boolean highlighted) {
+        pseudoClassStateChanged(HIGHLIGHTED, highlighted);
+    }
+    
+    /**
+     * Shows the attribute rows for the current level of detail, loading the
+     * columns of an expanded skeleton entity if needed.
+     */
+    private void showAttributes() {
+        getChildren().remove(attributeRowsStart, getChildren().size());
+        if (!expanded || detail == Detail.OUTLINE) {
+            return;
+        }
+        
+        if (entity.hasUnloadedAttributes() && loadError == null) {
+            if (columnLoader != null) {
+                showMessage("Loading columns…");
+                columnLoader.accept(entity);
+                return;
+            }
+            try {
+                entity.loadAttributes();
+            } catch (RuntimeException e) {
+                loadError = e.getMessage();
+            }
+        }
+        if (loadError != null) {
+            showMessage("Columns could not be loaded: " + loadError);
+            return;
+        }
+        
+        List<Node> rows = new ArrayList<>();
+        for (Attribute attribute : entity.getAttributes()) {
+            if (detail == Detail.FULL || attribute.isPrimaryKey() || attribute.isForeignKey()) {
+                rows.add(attributeRows.computeIfAbsent(attribute, this::createAttributeRow));
+            }
+        }
+        getChildren().addAll(rows);
+    }
+    
+    private void showMessage(String message) {
+        Text text = new Text(message);
+        text.getStyleClass().add("data-type");
+        getChildren().add(text);
+    }
+    
     private void setUpDragging() {
         setOnMousePressed(event -> {
             // Save the initial mouse position
             mouseAnchorX = event.getSceneX();
             mouseAnchorY = event.getSceneY();
             
+            dragging = true;
+            
             // Bring to front
             toFront();
             
@@ -155,6 +348,8 @@ public class EntityNode extends VBox {
         });
         
         setOnMouseReleased(event -> {
+            dragging = false;
+            
             // Reset to normal shadow effect
             DropShadow shadow = new DropShadow();
             shadow.setRadius(12);
@@ -0,0 +1,231 @@
+package com.erdiagram.app.ui;
+
+import javafx.application.Platform;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Watches a file, or every file under a folder, and reports changes made by
+ * other programs, such as an editor saving or a git checkout.
+ *
+ * Events are collected on a daemon thread until none has arrived for a short
+ * quiet period, so a burst touching hundreds of files is reported once, as one
+ * set of paths. A steady stream of events is still reported at least every
+ * {@link #MAX_DELAY_MILLIS}. Changes are handed to the listener on the FX thread.
+ *
+ * Folders created under a watched folder are watched as well, and reported
+ * themselves, since files may have been written into them before they were
+ * watched. Deleted files and folders are reported with their old path. If the
+ * platform drops events, the watched folder itself is reported, meaning that
+ * anything under it may have changed. Hidden files and folders are ignored.
+ */
+public class FileChangeWatcher {
+    public static final long QUIET_MILLIS = 300;
+    public static final long MAX_DELAY_MILLIS = 2000;
+
+    private final String threadName;
+    private final Consumer<Set<Path>> listener;
+    private Watch current;
+
+    /**
+     * @param listener Receives the changed paths on the FX thread
+     */
+    public FileChangeWatcher(String threadName, Consumer<Set<Path>> listener) {
+        this.threadName = threadName;
+        this.listener = listener;
+    }
+
+    /**
+     * Stops watching what was watched before and watches a file or a folder.
+     * Must be called on the FX thread.
+     *
+     * @param path A file, or a folder to watch with all its subfolders
+     * @param filter Selects the files worth reporting, such as {@code .java} files
+     * @throws IOException If the path cannot be watched
+     */
+    public void watch(Path path, Predicate<Path> filter) throws IOException {
+        stop();
+
+        Path absolute = path.toAbsolutePath().normalize();
+        Watch watch;
+        if (Files.isDirectory(absolute)) {
+            watch = new Watch(absolute, filter);
+            watch.registerTree(absolute);
+        } else {
+            // Editors often save by replacing the file, so its folder is watched
+            watch = new Watch(absolute, file -> file.equals(absolute) && filter.test(file));
+            watch.register(absolute.getParent());
+        }
+
+        current = watch;
+        Thread thread = new Thread(watch::run, threadName);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Watches a single file.
+     */
+    public void watch(Path file) throws IOException {
+        watch(file, path -> true);
+    }
+
+    /**
+     * Stops watching. Changes that were not reported yet are dropped. Must be called on the FX thread.
+     */
+    public void stop() {
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+    }
+
+    /**
+     * @return true if a file or folder is being watched
+     */
+    public boolean isWatching() {
+        return current != null;
+    }
+
+    private class Watch {
+        private final Path root;
+        private final Predicate<Path> filter;
+        private final WatchService service;
+        // Only touched by the watch thread once it has started
+        private final Map<WatchKey, Path> directories = new HashMap<>();
+        // Kept after a folder's key is cancelled, so that its deletion is still recognized
+        private final Set<Path> directoryPaths = new HashSet<>();
+
+        Watch(Path root, Predicate<Path> filter) throws IOException {
+            this.root = root;
+            this.filter = filter;
+            this.service = root.getFileSystem().newWatchService();
+        }
+
+        void register(Path directory) throws IOException {
+            WatchKey key = directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+            directories.put(key, directory);
+            directoryPaths.add(directory);
+        }
+
+        void registerTree(Path directory) throws IOException {
+            Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    if (!dir.equals(directory) && isHidden(dir)) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    register(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    // Unreadable folders are simply not watched
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+
+        void run() {
+            Set<Path> pending = new LinkedHashSet<>();
+            long firstEvent = 0;
+            try {
+                while (true) {
+                    WatchKey key;
+                    if (pending.isEmpty()) {
+                        key = service.take();
+                        firstEvent = System.currentTimeMillis();
+                    } else {
+                        long remaining = firstEvent + MAX_DELAY_MILLIS - System.currentTimeMillis();
+                        key = remaining > 0 ? service.poll(Math.min(QUIET_MILLIS, remaining), TimeUnit.MILLISECONDS) : null;
+                    }
+
+                    if (key == null) {
+                        publish(pending);
+                        pending = new LinkedHashSet<>();
+                        continue;
+                    }
+
+                    collect(key, pending);
+                    if (!key.reset()) {
+                        // The folder is gone; its deletion is reported by its parent
+                        directories.remove(key);
+                    }
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                // Stopped
+            }
+        }
+
+        private void collect(WatchKey key, Set<Path> pending) {
+            Path directory = directories.get(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW || directory == null) {
+                    pending.add(root);
+                    continue;
+                }
+
+                Path path = directory.resolve((Path) event.context());
+                if (isHidden(path)) {
+                    continue;
+                }
+
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)
+                        && Files.isDirectory(root)) {
+                    try {
+                        registerTree(path);
+                    } catch (IOException e) {
+                        // Reported anyway, so whatever is in it now is read
+                    }
+                    pending.add(path);
+                } else if (filter.test(path)) {
+                    pending.add(path);
+                } else if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE && directoryPaths.remove(path)) {
+                    pending.add(path);
+                }
+            }
+        }
+
+        private void publish(Set<Path> changes) {
+            Platform.runLater(() -> {
+                // A watch that was stopped or replaced reports nothing
+                if (current == this) {
+                    listener.accept(changes);
+                }
+            });
+        }
+
+        void close() {
+            try {
+                service.close();
+            } catch (IOException e) {
+                // The watch thread stops either way
+            }
+        }
+    }
+
+    private static boolean isHidden(Path path) {
+        Path name = path.getFileName();
+        return name != null && name.toString().startsWith(".");
+    }
+}
@@ -0,0 +1,199 @@
+package com.erdiagram.app.ui;
+
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.TextArea;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.Region;
+import javafx.scene.layout.VBox;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only view of a large text file that shows one page at a time.
+ *
+ * Pages are fixed byte ranges of the file, moved forward to the next line
+ * start, so a line always belongs to exactly one page. A line that runs far
+ * past the end of its page, such as a long INSERT, is instead cut at page
+ * boundaries and continued on the following pages. Only the current page is
+ * read from disk and held by the text control.
+ */
+public class PagedFileView extends VBox {
+    private static final int PAGE_SIZE = 128 * 1024;
+    // How far past the page end a line may run before it is cut
+    private static final int MAX_LINE_OVERHANG = 16 * 1024;
+
+    private final Path path;
+    private final long fileSize;
+    private final int pageCount;
+    private final TextArea pageArea;
+    private final Label pageLabel;
+    private final Button previousButton;
+    private final Button nextButton;
+    private final Button closeButton;
+    private int page;
+
+    /**
+     * @param path The file to show
+     * @param displayable false for files that cannot be paged, such as compressed dumps
+     * @throws IOException If the file size cannot be read
+     */
+    public PagedFileView(Path path, boolean displayable) throws IOException {
+        super(5);
+        this.path = path;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            this.fileSize = channel.size();
+        }
+        this.pageCount = displayable ? (int) Math.max(1, (fileSize + PAGE_SIZE - 1) / PAGE_SIZE) : 0;
+
+        Label fileLabel = new Label(path.getFileName() + " (" + formatSize(fileSize) + ", read-only)");
+        fileLabel.setStyle("-fx-font-weight: bold;");
+
+        previousButton = new Button("◀");
+        previousButton.setOnAction(e -> showPage(page - 1));
+        nextButton = new Button("▶");
+        nextButton.setOnAction(e -> showPage(page + 1));
+        pageLabel = new Label();
+        closeButton = new Button("Close File");
+
+        Region spacer = new Region();
+        HBox.setHgrow(spacer, Priority.ALWAYS);
+
+        HBox header = new HBox(8, fileLabel, spacer, previousButton, pageLabel, nextButton, closeButton);
+        header.setAlignment(Pos.CENTER_LEFT);
+        header.setPadding(new Insets(0, 0, 5, 0));
+
+        pageArea = new TextArea();
+        pageArea.setEditable(false);
+        pageArea.setWrapText(false);
+        pageArea.setPrefHeight(400);
+        pageArea.setStyle("-fx-font-family: 'Consolas', 'Courier New', monospace; -fx-font-size: 14px;");
+        VBox.setVgrow(pageArea, Priority.ALWAYS);
+
+        getChildren().addAll(header, pageArea);
+
+        if (displayable) {
+            showPage(0);
+        } else {
+            pageArea.setText("-- The file is compressed and is parsed without being displayed.");
+            previousButton.setDisable(true);
+            nextButton.setDisable(true);
+        }
+    }
+
+    /**
+     * Sets the action run when the user closes the file.
+     */
+    public void setOnClose(Runnable onClose) {
+        closeButton.setOnAction(e -> onClose.run());
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    private void showPage(int newPage) {
+        if (newPage < 0 || newPage >= pageCount) {
+            return;
+        }
+
+        try {
+            pageArea.setText(readPage(newPage));
+            pageArea.positionCaret(0);
+            page = newPage;
+        } catch (IOException e) {
+            pageArea.setText("-- Failed to read page " + (newPage + 1) + ": " + e.getMessage());
+        }
+
+        pageLabel.setText("Page " + (page + 1) + " of " + pageCount);
+        previousButton.setDisable(page == 0);
+        nextButton.setDisable(page >= pageCount - 1);
+    }
+
+    private String readPage(int pageIndex) throws IOException {
+        long start = (long) pageIndex * PAGE_SIZE;
+        long end = Math.min(fileSize, start + PAGE_SIZE);
+
+        // Read one byte before the page to see whether it starts a line
+        long readStart = Math.max(0, start - 1);
+        long readEnd = Math.min(fileSize, end + MAX_LINE_OVERHANG);
+        ByteBuffer buffer = ByteBuffer.allocate((int) (readEnd - readStart));
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining() && channel.read(buffer, readStart + buffer.position()) >= 0) {
+                // Keep reading until the range is filled
+            }
+        }
+        byte[] bytes = buffer.array();
+        int limit = buffer.position();
+        int pageStart = (int) (start - readStart);
+        int pageEnd = (int) (end - readStart);
+        StringBuilder text = new StringBuilder();
+
+        // The previous page cut the line it ended in if the line ran on too far
+        int from = lineStartAtOrAfter(bytes, pageStart, limit);
+        if (pageStart > 0 && bytes[pageStart - 1] != '\n' && from - pageStart > MAX_LINE_OVERHANG) {
+            text.append("-- Continued from page ").append(pageIndex).append('\n');
+            from = pageStart;
+        }
+
+        if (from >= pageEnd) {
+            return text.toString();
+        }
+        if (end >= fileSize) {
+            appendBytes(text, bytes, from, limit, limit);
+            return text.toString();
+        }
+        int to = lineStartAtOrAfter(bytes, pageEnd, limit);
+        // Reaching the limit only means the line ends there if a newline or the file end does
+        if (to < limit || bytes[to - 1] == '\n' || readEnd >= fileSize) {
+            appendBytes(text, bytes, from, to, limit);
+            return text.toString();
+        }
+        appendBytes(text, bytes, from, pageEnd, limit);
+        return text.append("\n-- Continued on page ").append(pageIndex + 2).toString();
+    }
+
+    /**
+     * Appends the UTF-8 text between two offsets, each moved forward to the
+     * start of a character, so that cuts inside a line never split one.
+     */
+    private static void appendBytes(StringBuilder text, byte[] bytes, int from, int to, int limit) {
+        from = characterStartAtOrAfter(bytes, from, limit);
+        to = characterStartAtOrAfter(bytes, to, limit);
+        text.append(new String(bytes, from, Math.max(0, to - from), StandardCharsets.UTF_8));
+    }
+
+    private static int characterStartAtOrAfter(byte[] bytes, int offset, int limit) {
+        int pos = offset;
+        // UTF-8 continuation bytes look like 10xxxxxx
+        while (pos < limit && (bytes[pos] & 0xC0) == 0x80) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int lineStartAtOrAfter(byte[] bytes, int offset, int limit) {
+        int pos = offset;
+        while (pos > 0 && pos < limit && bytes[pos - 1] != '\n') {
+            pos++;
+        }
+        return Math.min(pos, limit);
+    }
+
+    private static String formatSize(long bytes) {
+        if (bytes >= 1024 * 1024) {
+            return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+        }
+        return String.format("%.1f KB", bytes / 1024.0);
+    }
+}
@@ -1,6 +1,8 @@
 package com.erdiagram.app.ui;
 
+import com.erdiagram.app.model.Entity;
 import com.erdiagram.app.model.Relationship;
+import javafx.geometry.Bounds;
 import javafx.scene.Group;
 import javafx.scene.effect.DropShadow;
 import javafx.scene.paint.Color;
@@ -13,28 +15,44 @@ import javafx.scene.text.Text;
 import javafx.scene.text.TextFlow;
 import javafx.scene.transform.Rotate;
 
+import java.util.function.Function;
+
 /**
  * JavaFX component for rendering a relationship line in the ER diagram.
+ *
+ * The line connects the centers of its two entities, whose bounds come from
+ * the diagram view, so it can be drawn while one of the entities has no node.
  */
 public class RelationshipLine extends Group {
     private Relationship relationship;
-    private EntityNode sourceNode;
-    private EntityNode targetNode;
+    private final Function<Entity, Bounds> entityBounds;
     private Line line;
     private Group sourceMarker;
     private Group targetMarker;
     private Group labelGroup;
     
-    public RelationshipLine(Relationship relationship, EntityNode sourceNode, EntityNode targetNode) {
+    /**
+     * @param entityBounds Gives the bounds of an entity in the diagram, whether or not it has a node
+     */
+    public RelationshipLine(Relationship relationship, Function<Entity, Bounds> entityBounds) {
+        this.entityBounds = entityBounds;
+        setRelationship(relationship);
+    }
+    
+    /**
+     * Shows another relationship with this line, so the diagram view can reuse
+     * lines instead of creating one per relationship.
+     */
+    public void setRelationship(Relationship relationship) {
+        Relationship previous = this.relationship;
         this.relationship = relationship;
-        this.sourceNode = sourceNode;
-        this.targetNode = targetNode;
         
-        initializeLine();
-        initializeMarkers();
+        if (previous == null || previous.getType() != relationship.getType()) {
+            initializeLine();
+            initializeMarkers();
+        }
         initializeLabel();
-        
-        getChildren().addAll(line, sourceMarker, targetMarker, labelGroup);
+        getChildren().setAll(line, sourceMarker, targetMarker, labelGroup);
         
         updatePosition();
     }
@@ -279,11 +297,13 @@ public class RelationshipLine extends Group {
      * Updates the position of the line and markers based on the positions of the entities.
      */
     public void updatePosition() {
-        // Get the centers of the nodes
-        double sourceX = sourceNode.getLayoutX() + sourceNode.getWidth() / 2;
-        double sourceY = sourceNode.getLayoutY() + sourceNode.getHeight() / 2;
-        double targetX = targetNode.getLayoutX() + targetNode.getWidth() / 2;
-        double targetY = targetNode.getLayoutY() + targetNode.getHeight() / 2;
+        // Get the centers of the entities
+        Bounds source = entityBounds.apply(relationship.getSourceEntity());
+        Bounds target = entityBounds.apply(relationship.getTargetEntity());
+        double sourceX = source.getMinX() + source.getWidth() / 2;
+        double sourceY = source.getMinY() + source.getHeight() / 2;
+        double targetX = target.getMinX() + target.getWidth() / 2;
+        double targetY = target.getMinY() + target.getHeight() / 2;
         
         // Update the line
         line.setStartX(sourceX);
@@ -0,0 +1,164 @@
+package com.erdiagram.app.ui;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds the items that may intersect an area, using a uniform grid.
+ *
+ * Each item is listed in every cell it touches, so a query only looks at the
+ * cells under the area. Boxes are listed in all the cells they overlap, and
+ * line segments only in the cells along the line, so a relationship line
+ * across the whole diagram costs a few dozen cells rather than the area it
+ * spans. Boxes covering more than {@link #MAX_CELLS_PER_BOX} cells are kept in
+ * a separate list that every query returns.
+ */
+class SpatialIndex<T> {
+    static final int MAX_CELLS_PER_BOX = 64;
+
+    private final double cellSize;
+    private final Map<Long, List<T>> cells = new HashMap<>();
+    // The cells of each indexed item; empty for oversized boxes
+    private final Map<T, long[]> itemCells = new IdentityHashMap<>();
+    private final List<T> oversized = new ArrayList<>();
+
+    SpatialIndex(double cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * Adds a box, or moves it if it is already indexed.
+     */
+    void put(T item, double minX, double minY, double maxX, double maxY) {
+        remove(item);
+
+        int fromX = cell(minX);
+        int fromY = cell(minY);
+        int toX = cell(maxX);
+        int toY = cell(maxY);
+        long cellCount = (long) (toX - fromX + 1) * (toY - fromY + 1);
+        if (cellCount > MAX_CELLS_PER_BOX) {
+            oversized.add(item);
+            itemCells.put(item, new long[0]);
+            return;
+        }
+
+        long[] keys = new long[(int) cellCount];
+        int i = 0;
+        for (int x = fromX; x <= toX; x++) {
+            for (int y = fromY; y <= toY; y++) {
+                keys[i++] = key(x, y);
+            }
+        }
+        add(item, keys);
+    }
+
+    /**
+     * Adds a line segment, or moves it if it is already indexed.
+     */
+    void putSegment(T item, double x1, double y1, double x2, double y2) {
+        remove(item);
+
+        // Walk the cells the segment passes through, crossing one cell border per step
+        int x = cell(x1);
+        int y = cell(y1);
+        int endX = cell(x2);
+        int endY = cell(y2);
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+        int stepX = dx > 0 ? 1 : -1;
+        int stepY = dy > 0 ? 1 : -1;
+        double nextX = dx == 0 ? Double.POSITIVE_INFINITY : ((x + (stepX > 0 ? 1 : 0)) * cellSize - x1) / dx;
+        double nextY = dy == 0 ? Double.POSITIVE_INFINITY : ((y + (stepY > 0 ? 1 : 0)) * cellSize - y1) / dy;
+        double deltaX = dx == 0 ? Double.POSITIVE_INFINITY : cellSize / Math.abs(dx);
+        double deltaY = dy == 0 ? Double.POSITIVE_INFINITY : cellSize / Math.abs(dy);
+
+        int steps = Math.abs(endX - x) + Math.abs(endY - y);
+        long[] keys = new long[steps + 1];
+        keys[0] = key(x, y);
+        for (int i = 1; i <= steps; i++) {
+            if (x != endX && (nextX < nextY || y == endY)) {
+                x += stepX;
+                nextX += deltaX;
+            } else {
+                y += stepY;
+                nextY += deltaY;
+            }
+            keys[i] = key(x, y);
+        }
+        add(item, keys);
+    }
+
+    private void add(T item, long[] keys) {
+        for (long key : keys) {
+            cells.computeIfAbsent(key, k -> new ArrayList<>(4)).add(item);
+        }
+        itemCells.put(item, keys);
+    }
+
+    void remove(T item) {
+        long[] keys = itemCells.remove(item);
+        if (keys == null) {
+            return;
+        }
+        if (keys.length == 0) {
+            oversized.remove(item);
+            return;
+        }
+
+        for (long key : keys) {
+            List<T> items = cells.get(key);
+            if (items != null) {
+                items.remove(item);
+                if (items.isEmpty()) {
+                    cells.remove(key);
+                }
+            }
+        }
+    }
+
+    void clear() {
+        cells.clear();
+        itemCells.clear();
+        oversized.clear();
+    }
+
+    /**
+     * Adds to {@code result} every item that may intersect the area, and some that do not.
+     */
+    void query(double minX, double minY, double maxX, double maxY, Set<T> result) {
+        int fromX = cell(minX);
+        int fromY = cell(minY);
+        int toX = cell(maxX);
+        int toY = cell(maxY);
+
+        if ((long) (toX - fromX + 1) * (toY - fromY + 1) > cells.size()) {
+            // The area covers more cells than are in use
+            for (List<T> items : cells.values()) {
+                result.addAll(items);
+            }
+        } else {
+            for (int x = fromX; x <= toX; x++) {
+                for (int y = fromY; y <= toY; y++) {
+                    List<T> items = cells.get(key(x, y));
+                    if (items != null) {
+                        result.addAll(items);
+                    }
+                }
+            }
+        }
+        result.addAll(oversized);
+    }
+
+    private int cell(double coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    private static long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+}
@@ -0,0 +1,236 @@
+package com.erdiagram.app.ui;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Splits one line of SQL or Java into styled tokens.
+ *
+ * Lines are lexed one at a time. The only thing carried from one line to the
+ * next is a small integer state, such as "inside a block comment", so an
+ * editor can re-lex a single line given the state at its start and tell from
+ * the state at its end whether the following lines are affected.
+ */
+class SyntaxHighlighter {
+    enum Style {
+        PLAIN, KEYWORD, STRING, COMMENT, NUMBER
+    }
+
+    /**
+     * Receives the tokens of a line in order. Together they cover the whole line.
+     */
+    interface TokenSink {
+        void token(int start, int end, Style style);
+    }
+
+    static final int NORMAL = 0;
+    static final int BLOCK_COMMENT = 1;
+    // A SQL string literal that runs past the end of the line
+    static final int STRING = 2;
+    // A Java text block
+    static final int TEXT_BLOCK = 3;
+
+    private static final Set<String> SQL_KEYWORDS = new HashSet<>(Arrays.asList(
+            "ADD", "ALTER", "AND", "AS", "ASC", "AUTO_INCREMENT", "AUTOINCREMENT", "BEGIN", "BETWEEN", "BY",
+            "CASCADE", "CASE", "CHECK", "COLUMN", "COMMENT", "COMMIT", "CONSTRAINT", "CREATE", "CROSS",
+            "DATABASE", "DEFAULT", "DELETE", "DESC", "DISTINCT", "DROP", "ELSE", "END", "ENGINE", "ENUM",
+            "EXISTS", "FOREIGN", "FROM", "FULL", "GENERATED", "GRANT", "GROUP", "HAVING", "IDENTITY", "IF",
+            "IN", "INDEX", "INNER", "INSERT", "INTO", "IS", "JOIN", "KEY", "LEFT", "LIKE", "LIMIT", "MODIFY",
+            "NOT", "NULL", "ON", "OR", "ORDER", "OUTER", "PRIMARY", "REFERENCES", "RENAME", "REPLACE",
+            "RESTRICT", "RIGHT", "ROLLBACK", "SCHEMA", "SELECT", "SEQUENCE", "SET", "TABLE", "THEN", "TO",
+            "TRIGGER", "TRUNCATE", "UNION", "UNIQUE", "UNSIGNED", "UPDATE", "USE", "USING", "VALUES", "VIEW",
+            "WHEN", "WHERE", "WITH",
+            "BIGINT", "BINARY", "BIT", "BLOB", "BOOLEAN", "BOOL", "CHAR", "CLOB", "DATE", "DATETIME",
+            "DECIMAL", "DOUBLE", "FLOAT", "INT", "INTEGER", "JSON", "JSONB", "LONGTEXT", "MEDIUMINT",
+            "MEDIUMTEXT", "NUMERIC", "NVARCHAR", "REAL", "SERIAL", "BIGSERIAL", "SMALLINT", "TEXT", "TIME",
+            "TIMESTAMP", "TINYINT", "UUID", "VARBINARY", "VARCHAR"));
+
+    private static final Set<String> JAVA_KEYWORDS = new HashSet<>(Arrays.asList(
+            "abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const",
+            "continue", "default", "do", "double", "else", "enum", "extends", "final", "finally", "float",
+            "for", "goto", "if", "implements", "import", "instanceof", "int", "interface", "long", "native",
+            "new", "package", "private", "protected", "public", "return", "short", "static", "strictfp",
+            "super", "switch", "synchronized", "this", "throw", "throws", "transient", "try", "void",
+            "volatile", "while", "true", "false", "null", "var", "record", "sealed", "permits", "yield"));
+
+    private final CodeEditor.Language language;
+
+    SyntaxHighlighter(CodeEditor.Language language) {
+        this.language = language;
+    }
+
+    /**
+     * Lexes one line.
+     *
+     * @param line The line, without its line break
+     * @param state The state at the start of the line
+     * @param sink Receives the tokens, or null if only the end state is needed
+     * @return The state at the start of the next line
+     */
+    int lex(String line, int state, TokenSink sink) {
+        boolean sql = language == CodeEditor.Language.SQL;
+        int length = line.length();
+        int pos = 0;
+        int plainStart = 0;
+
+        // Finish what the previous line left open
+        if (state != NORMAL) {
+            int end = closeOf(line, 0, state);
+            if (end < 0) {
+                emit(sink, 0, length, state == BLOCK_COMMENT ? Style.COMMENT : Style.STRING);
+                return state;
+            }
+            emit(sink, 0, end, state == BLOCK_COMMENT ? Style.COMMENT : Style.STRING);
+            pos = end;
+            plainStart = end;
+        }
+
+        while (pos < length) {
+            char c = line.charAt(pos);
+            int start = pos;
+            Style style = null;
+            int nextState = NORMAL;
+
+            if (c == '/' && pos + 1 < length && line.charAt(pos + 1) == '*') {
+                int end = closeOf(line, pos + 2, BLOCK_COMMENT);
+                style = Style.COMMENT;
+                if (end < 0) {
+                    pos = length;
+                    nextState = BLOCK_COMMENT;
+                } else {
+                    pos = end;
+                }
+            } else if (sql ? c == '-' && pos + 1 < length && line.charAt(pos + 1) == '-'
+                    : c == '/' && pos + 1 < length && line.charAt(pos + 1) == '/') {
+                style = Style.COMMENT;
+                pos = length;
+            } else if (!sql && c == '"' && line.startsWith("\"\"\"", pos)) {
+                int end = closeOf(line, pos + 3, TEXT_BLOCK);
+                style = Style.STRING;
+                if (end < 0) {
+                    pos = length;
+                    nextState = TEXT_BLOCK;
+                } else {
+                    pos = end;
+                }
+            } else if (c == '\'' && sql) {
+                int end = closeOf(line, pos + 1, STRING);
+                style = Style.STRING;
+                if (end < 0) {
+                    pos = length;
+                    nextState = STRING;
+                } else {
+                    pos = end;
+                }
+            } else if ((c == '"' || c == '\'') && !sql) {
+                pos = skipQuoted(line, pos + 1, c, true);
+                style = Style.STRING;
+            } else if ((c == '"' || c == '`') && sql) {
+                // Quoted identifiers
+                pos = skipQuoted(line, pos + 1, c, false);
+            } else if (Character.isDigit(c)) {
+                pos++;
+                while (pos < length && (Character.isLetterOrDigit(line.charAt(pos)) || line.charAt(pos) == '.'
+                        || line.charAt(pos) == '_')) {
+                    pos++;
+                }
+                style = Style.NUMBER;
+            } else if (Character.isJavaIdentifierStart(c) || (!sql && c == '@')) {
+                pos++;
+                while (pos < length && Character.isJavaIdentifierPart(line.charAt(pos))) {
+                    pos++;
+                }
+                if (sink != null && isKeyword(line, start, pos, c == '@')) {
+                    style = Style.KEYWORD;
+                }
+            } else {
+                pos++;
+            }
+
+            if (style != null) {
+                if (plainStart < start) {
+                    emit(sink, plainStart, start, Style.PLAIN);
+                }
+                emit(sink, start, pos, style);
+                plainStart = pos;
+            }
+            if (nextState != NORMAL) {
+                return nextState;
+            }
+        }
+
+        if (plainStart < length) {
+            emit(sink, plainStart, length, Style.PLAIN);
+        }
+        return NORMAL;
+    }
+
+    private boolean isKeyword(String line, int start, int end, boolean annotation) {
+        if (annotation) {
+            return true;
+        }
+        String word = line.substring(start, end);
+        return language == CodeEditor.Language.SQL
+                ? SQL_KEYWORDS.contains(word.toUpperCase())
+                : JAVA_KEYWORDS.contains(word);
+    }
+
+    /**
+     * @return The index just past the end of the open comment or literal, or -1 if it runs past the line
+     */
+    private static int closeOf(String line, int from, int state) {
+        switch (state) {
+            case BLOCK_COMMENT: {
+                int end = line.indexOf("*/", from);
+                return end < 0 ? -1 : end + 2;
+            }
+            case TEXT_BLOCK: {
+                for (int i = from; i < line.length(); i++) {
+                    if (line.charAt(i) == '\\') {
+                        i++;
+                    } else if (line.startsWith("\"\"\"", i)) {
+                        return i + 3;
+                    }
+                }
+                return -1;
+            }
+            case STRING: {
+                for (int i = from; i < line.length(); i++) {
+                    if (line.charAt(i) == '\'') {
+                        // '' is an escaped quote
+                        if (i + 1 < line.length() && line.charAt(i + 1) == '\'') {
+                            i++;
+                        } else {
+                            return i + 1;
+                        }
+                    }
+                }
+                return -1;
+            }
+            default:
+                return from;
+        }
+    }
+
+    /**
+     * Skips a literal that cannot span lines; an unclosed one ends with the line.
+     */
+    private static int skipQuoted(String line, int from, char quote, boolean backslashEscapes) {
+        for (int i = from; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (backslashEscapes && c == '\\') {
+                i++;
+            } else if (c == quote) {
+                return i + 1;
+            }
+        }
+        return line.length();
+    }
+
+    private static void emit(TokenSink sink, int start, int end, Style style) {
+        if (sink != null && start < end) {
+            sink.token(start, end, style);
+        }
+    }
+}
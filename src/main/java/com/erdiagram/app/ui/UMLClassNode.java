@@ -5,6 +5,7 @@ import com.erdiagram.app.model.UMLClass;
 import com.erdiagram.app.model.UMLMethod;
 import javafx.geometry.Insets;
 import javafx.scene.control.ContextMenu;
+import javafx.scene.effect.DropShadow;
 import javafx.scene.control.MenuItem;
 import javafx.scene.control.Separator;
 import javafx.scene.layout.VBox;
@@ -172,6 +173,20 @@ public class UMLClassNode extends VBox {
         return umlClass;
     }
     
+    /**
+     * Marks the class as the one being edited
+     */
+    public void setHighlighted(boolean highlighted) {
+        if (highlighted) {
+            DropShadow highlight = new DropShadow();
+            highlight.setColor(Color.DODGERBLUE);
+            highlight.setRadius(16);
+            setEffect(highlight);
+        } else {
+            setEffect(null);
+        }
+    }
+    
     public void update() {
         // Update type and name
         typeText.setText(getClassTypePrefix() + " " + umlClass.getName());
@@ -1,25 +1,45 @@
 package com.erdiagram.app.ui;
 
+import com.erdiagram.app.model.Replacement;
 import com.erdiagram.app.model.UMLClass;
 import com.erdiagram.app.model.UMLDiagram;
+import com.erdiagram.app.model.UMLDiagramDelta;
 import com.erdiagram.app.model.UMLRelationship;
+import javafx.geometry.Bounds;
 import javafx.scene.layout.Pane;
 import javafx.scene.transform.Scale;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Visual component that displays the UML diagram.
+ * 
+ * Relationship lines follow their class nodes: moving or resizing a node marks
+ * the lines touching it, and those lines are recomputed once in the next layout
+ * pass. Nothing is recomputed while nothing moves.
  */
 public class UMLDiagramView extends Pane {
     
     private UMLDiagram diagram;
     private Map<UMLClass, UMLClassNode> classNodeMap;
     private Map<UMLRelationship, UMLRelationshipLine> relationshipLineMap;
+    // Class nodes by simple class name, for highlighting
+    private final Map<String, UMLClassNode> classNodesByName = new HashMap<>();
     
     private double zoomFactor = 1.0;
+    // Class highlighted for the editor, kept across refreshes
+    private String highlightedName;
+    private UMLClassNode highlightedNode;
+    private final Map<UMLClassNode, List<UMLRelationshipLine>> linesByNode = new IdentityHashMap<>();
+    // Lines whose class nodes moved or changed size since the last layout pass
+    private final Set<UMLRelationshipLine> dirtyLines = Collections.newSetFromMap(new IdentityHashMap<>());
     
     public UMLDiagramView() {
         this.classNodeMap = new HashMap<>();
@@ -46,24 +66,159 @@ public class UMLDiagramView extends Pane {
         // Clear existing nodes
         getChildren().clear();
         classNodeMap.clear();
+        classNodesByName.clear();
         relationshipLineMap.clear();
+        linesByNode.clear();
+        dirtyLines.clear();
         
         // Create class nodes first
         for (UMLClass umlClass : diagram.getClasses()) {
-            UMLClassNode classNode = new UMLClassNode(umlClass);
-            classNodeMap.put(umlClass, classNode);
-            getChildren().add(classNode);
+            addClassNode(umlClass);
         }
         
         // Create relationship lines
         for (UMLRelationship relationship : diagram.getRelationships()) {
-            UMLClassNode sourceNode = classNodeMap.get(relationship.getSource());
-            UMLClassNode targetNode = classNodeMap.get(relationship.getTarget());
-            
-            if (sourceNode != null && targetNode != null) {
-                UMLRelationshipLine relationshipLine = new UMLRelationshipLine(sourceNode, targetNode, relationship);
-                relationshipLineMap.put(relationship, relationshipLine);
-                getChildren().add(0, relationshipLine); // Add at index 0 to put it below nodes
+            addRelationshipLine(relationship);
+        }
+        
+        highlightedNode = null;
+        updateHighlight();
+    }
+    
+    /**
+     * Switch to the next version of the shown diagram and patch the view with
+     * the delta between the two instead of rebuilding every node
+     * 
+     * @param nextDiagram The diagram the delta leads to
+     * @param delta The changes from the diagram currently shown to {@code nextDiagram}
+     */
+    public void applyDelta(UMLDiagram nextDiagram, UMLDiagramDelta delta) {
+        this.diagram = nextDiagram;
+        
+        for (UMLRelationship relationship : delta.getRemovedRelationships()) {
+            removeRelationshipLine(relationship);
+        }
+        for (Replacement<UMLRelationship> replacement : delta.getChangedRelationships()) {
+            removeRelationshipLine(replacement.getPrevious());
+        }
+        
+        for (UMLClass umlClass : delta.getRemovedClasses()) {
+            removeClassNode(umlClass);
+        }
+        for (Replacement<UMLClass> replacement : delta.getChangedClasses()) {
+            removeClassNode(replacement.getPrevious());
+        }
+        
+        for (UMLClass umlClass : delta.getAddedClasses()) {
+            addClassNode(umlClass);
+        }
+        for (Replacement<UMLClass> replacement : delta.getChangedClasses()) {
+            addClassNode(replacement.getCurrent());
+        }
+        
+        for (UMLRelationship relationship : delta.getAddedRelationships()) {
+            addRelationshipLine(relationship);
+        }
+        for (Replacement<UMLRelationship> replacement : delta.getChangedRelationships()) {
+            addRelationshipLine(replacement.getCurrent());
+        }
+        
+        updateHighlight();
+    }
+    
+    /**
+     * Highlight the class being edited. The highlight moves to the new node
+     * when the diagram is updated
+     * 
+     * @param className The simple class name, or null for no highlight
+     * @return The bounds of the highlighted class in this view, or null if it is not shown
+     */
+    public Bounds highlightClass(String className) {
+        highlightedName = className;
+        return updateHighlight();
+    }
+    
+    private Bounds updateHighlight() {
+        UMLClassNode node = highlightedName == null ? null : classNodesByName.get(highlightedName);
+        
+        if (node != highlightedNode) {
+            if (highlightedNode != null) {
+                highlightedNode.setHighlighted(false);
+            }
+            if (node != null) {
+                node.setHighlighted(true);
+            }
+            highlightedNode = node;
+        }
+        return node == null ? null : node.getBoundsInParent();
+    }
+    
+    private void addClassNode(UMLClass umlClass) {
+        UMLClassNode classNode = new UMLClassNode(umlClass);
+        classNodeMap.put(umlClass, classNode);
+        classNodesByName.put(umlClass.getName(), classNode);
+        getChildren().add(classNode);
+        
+        // Dragging, updates and the first layout all move or resize the node
+        classNode.layoutXProperty().addListener((obs, oldValue, newValue) -> classNodeChanged(classNode));
+        classNode.layoutYProperty().addListener((obs, oldValue, newValue) -> classNodeChanged(classNode));
+        classNode.widthProperty().addListener((obs, oldValue, newValue) -> classNodeChanged(classNode));
+        classNode.heightProperty().addListener((obs, oldValue, newValue) -> classNodeChanged(classNode));
+    }
+    
+    private void removeClassNode(UMLClass umlClass) {
+        UMLClassNode classNode = classNodeMap.remove(umlClass);
+        if (classNode != null) {
+            classNodesByName.remove(umlClass.getName(), classNode);
+            getChildren().remove(classNode);
+            linesByNode.remove(classNode);
+        }
+    }
+    
+    private void classNodeChanged(UMLClassNode classNode) {
+        List<UMLRelationshipLine> lines = linesByNode.get(classNode);
+        if (lines != null && !lines.isEmpty()) {
+            dirtyLines.addAll(lines);
+            requestLayout();
+        }
+    }
+    
+    @Override
+    protected void layoutChildren() {
+        super.layoutChildren();
+        
+        // Each line is recomputed at most once per pulse, however often its nodes moved
+        for (UMLRelationshipLine line : dirtyLines) {
+            line.update();
+        }
+        dirtyLines.clear();
+    }
+    
+    private void addRelationshipLine(UMLRelationship relationship) {
+        UMLClassNode sourceNode = classNodeMap.get(relationship.getSource());
+        UMLClassNode targetNode = classNodeMap.get(relationship.getTarget());
+        
+        if (sourceNode != null && targetNode != null) {
+            UMLRelationshipLine relationshipLine = new UMLRelationshipLine(sourceNode, targetNode, relationship);
+            relationshipLineMap.put(relationship, relationshipLine);
+            getChildren().add(0, relationshipLine); // Below all nodes
+            linesByNode.computeIfAbsent(sourceNode, node -> new ArrayList<>()).add(relationshipLine);
+            if (targetNode != sourceNode) {
+                linesByNode.computeIfAbsent(targetNode, node -> new ArrayList<>()).add(relationshipLine);
+            }
+        }
+    }
+    
+    private void removeRelationshipLine(UMLRelationship relationship) {
+        UMLRelationshipLine line = relationshipLineMap.remove(relationship);
+        if (line != null) {
+            getChildren().remove(line);
+            dirtyLines.remove(line);
+            for (UMLClassNode node : new UMLClassNode[] {line.getSourceNode(), line.getTargetNode()}) {
+                List<UMLRelationshipLine> lines = linesByNode.get(node);
+                if (lines != null) {
+                    lines.remove(line);
+                }
             }
         }
     }
@@ -117,7 +272,8 @@ public class UMLDiagramView extends Pane {
     }
     
     /**
-     * Update all relationship lines' positions based on connected nodes
+     * Update all relationship lines' positions based on connected nodes. Lines
+     * follow moved and resized nodes on their own, so this is rarely needed
      */
     public void updateRelationshipLines() {
         for (UMLRelationshipLine line : relationshipLineMap.values()) {
@@ -133,16 +289,11 @@ public class UMLDiagramView extends Pane {
         if (classNode == null) return;
         
         // Remove node
-        getChildren().remove(classNode);
-        classNodeMap.remove(umlClass);
+        removeClassNode(umlClass);
         
         // Remove associated relationship lines
         for (UMLRelationship relationship : diagram.getRelationshipsForClass(umlClass)) {
-            UMLRelationshipLine line = relationshipLineMap.get(relationship);
-            if (line != null) {
-                getChildren().remove(line);
-                relationshipLineMap.remove(relationship);
-            }
+            removeRelationshipLine(relationship);
         }
         
         // Remove from model
@@ -0,0 +1,155 @@
+package com.erdiagram.app.parser;
+
+import com.erdiagram.app.model.UMLAttribute;
+import com.erdiagram.app.model.UMLClass;
+import com.erdiagram.app.model.UMLDiagram;
+import com.erdiagram.app.model.UMLRelationship;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BytecodeDiagramReaderTest {
+    @TempDir
+    Path directory;
+
+    private Path classes;
+
+    @BeforeEach
+    void compileSources() throws IOException {
+        write("shop/Order.java", "package shop;\n"
+                + "import java.util.List;\n"
+                + "public class Order extends Base implements Comparable<Order> {\n"
+                + "    private List<Line> lines;\n"
+                + "    protected static int count;\n"
+                + "    public Customer customer;\n"
+                + "    public int compareTo(Order other) { return 0; }\n"
+                + "    void save() { }\n"
+                + "    static class Line { String sku; }\n"
+                + "}\n");
+        write("shop/Base.java", "package shop;\npublic abstract class Base { abstract void save(); }\n");
+        write("shop/Customer.java", "package shop;\npublic interface Customer { String name(); }\n");
+
+        classes = Files.createDirectories(directory.resolve("classes"));
+        List<String> arguments = new ArrayList<>(List.of("-d", classes.toString()));
+        try (Stream<Path> sources = Files.walk(directory.resolve("src"))) {
+            arguments.addAll(sources.filter(Files::isRegularFile).map(Path::toString).collect(Collectors.toList()));
+        }
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertEquals(0, compiler.run(null, null, null, arguments.toArray(new String[0])));
+    }
+
+    @Test
+    void readsClassDirectory() throws IOException {
+        BytecodeDiagramReader reader = new BytecodeDiagramReader();
+        assertDiagram(reader.read(classes));
+        assertEquals(4, reader.getClassFileCount());
+    }
+
+    @Test
+    void readsSingleClassFile() throws IOException {
+        UMLDiagram diagram = new BytecodeDiagramReader().read(classes.resolve("shop/Customer.class"));
+
+        UMLClass customer = diagram.findClassByName("Customer");
+        assertNotNull(customer);
+        assertEquals("interface", customer.getType());
+        assertEquals("name", customer.getMethods().get(0).getName());
+    }
+
+    @Test
+    void readsStoredAndDeflatedJarEntries() throws IOException {
+        Path jar = directory.resolve("shop.jar");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+            addEntry(out, "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\n".getBytes(StandardCharsets.UTF_8), false);
+            boolean stored = false;
+            for (String name : List.of("Order", "Order$Line", "Base", "Customer")) {
+                byte[] bytes = Files.readAllBytes(classes.resolve("shop/" + name + ".class"));
+                addEntry(out, "shop/" + name + ".class", bytes, stored);
+                stored = !stored;
+            }
+            // Multi-release variants are skipped
+            addEntry(out, "META-INF/versions/11/shop/Base.class",
+                    Files.readAllBytes(classes.resolve("shop/Base.class")), false);
+        }
+
+        BytecodeDiagramReader reader = new BytecodeDiagramReader();
+        reader.setParallelism(2);
+        assertDiagram(reader.read(jar));
+        assertEquals(4, reader.getClassFileCount());
+        assertEquals(0, reader.getDuplicateCount());
+    }
+
+    private static void assertDiagram(UMLDiagram diagram) {
+        UMLClass order = diagram.findClassByName("Order");
+        assertNotNull(order);
+        assertEquals("shop", order.getPackageName());
+        assertEquals("abstract class", diagram.findClassByName("Base").getType());
+        assertNotNull(diagram.findClassByName("Line"));
+
+        UMLAttribute count = attribute(order, "count");
+        assertEquals("int", count.getType());
+        assertTrue(count.isStatic());
+        assertEquals("protected", count.getVisibility());
+        assertEquals("List<Order.Line>", attribute(order, "lines").getType());
+
+        assertTrue(hasRelationship(diagram, "Order", "Base", "inheritance"));
+        assertTrue(hasRelationship(diagram, "Order", "Comparable", "implementation"));
+        assertTrue(hasRelationship(diagram, "Order", "Customer", "composition"));
+    }
+
+    private static UMLAttribute attribute(UMLClass umlClass, String name) {
+        for (UMLAttribute attribute : umlClass.getAttributes()) {
+            if (attribute.getName().equals(name)) {
+                return attribute;
+            }
+        }
+        throw new AssertionError("No attribute " + name + " in " + umlClass.getName());
+    }
+
+    private static boolean hasRelationship(UMLDiagram diagram, String source, String target, String type) {
+        for (UMLRelationship relationship : diagram.getRelationships()) {
+            if (relationship.getSource().getName().equals(source) && relationship.getTarget().getName().equals(target)
+                    && relationship.getType().equals(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void addEntry(ZipOutputStream out, String name, byte[] bytes, boolean stored) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        if (stored) {
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(bytes.length);
+            entry.setCrc(crc.getValue());
+        }
+        out.putNextEntry(entry);
+        out.write(bytes);
+        out.closeEntry();
+    }
+
+    private void write(String name, String content) throws IOException {
+        Path file = directory.resolve("src").resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,158 @@
+package com.erdiagram.app.parser;
+
+import com.erdiagram.app.model.Attribute;
+import com.erdiagram.app.model.Entity;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DDLFallbackParserTest {
+    private final DDLFallbackParser parser = new DDLFallbackParser();
+
+    @Test
+    void parsesMySqlTableWithOptions() {
+        ParsedTable parsed = parser.parse("CREATE TABLE IF NOT EXISTS `shop`.`orders` (\n"
+                + "  id BIGINT UNSIGNED NOT NULL AUTO_INCREMENT,\n"
+                + "  customer_id INT NOT NULL,\n"
+                + "  note VARCHAR(255) CHARACTER SET utf8mb4 DEFAULT NULL,\n"
+                + "  total DECIMAL(10, 2),\n"
+                + "  PRIMARY KEY (id),\n"
+                + "  KEY idx_customer (customer_id),\n"
+                + "  CONSTRAINT fk_customer FOREIGN KEY (customer_id) REFERENCES customers (id) ON DELETE CASCADE\n"
+                + ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4", 1);
+
+        Entity entity = parsed.entity;
+        assertEquals("orders", entity.getName());
+        assertEquals(4, entity.getAttributes().size());
+        assertEquals("BIGINT UNSIGNED", entity.getAttribute("id").getDataType());
+        assertTrue(entity.getAttribute("id").isPrimaryKey());
+        assertFalse(entity.getAttribute("id").isNullable());
+        assertEquals("VARCHAR(255)", entity.getAttribute("note").getDataType());
+        assertEquals("DECIMAL(10,2)", entity.getAttribute("total").getDataType());
+
+        Attribute customerId = entity.getAttribute("customer_id");
+        assertTrue(customerId.isForeignKey());
+        assertEquals("customers", customerId.getReferencedTable());
+        assertEquals("id", customerId.getReferencedColumn());
+        assertEquals(1, parsed.foreignKeys.size());
+        assertEquals("fk_customer", parsed.foreignKeys.get(0).constraintName);
+        assertTrue(parsed.diagnostics.isEmpty());
+    }
+
+    @Test
+    void parsesPostgresTableWithInlineConstraints() {
+        ParsedTable parsed = parser.parse("CREATE UNLOGGED TABLE public.items (id serial PRIMARY KEY, "
+                + "order_id bigint REFERENCES orders(id), name character varying(40) NOT NULL, tags text[], "
+                + "total numeric GENERATED ALWAYS AS (1) STORED) PARTITION BY RANGE (id)", 2);
+
+        Entity entity = parsed.entity;
+        assertEquals("items", entity.getName());
+        assertEquals(5, entity.getAttributes().size());
+        assertTrue(entity.getAttribute("id").isPrimaryKey());
+        assertEquals("character varying(40)", entity.getAttribute("name").getDataType());
+        assertEquals("text[]", entity.getAttribute("tags").getDataType());
+        assertEquals("orders", entity.getAttribute("order_id").getReferencedTable());
+        assertEquals(1, parsed.foreignKeys.size());
+    }
+
+    @Test
+    void warnsAboutForeignKeysWithoutReferencedTable() {
+        ParsedTable parsed = parser.parse("CREATE TABLE t (a int, FOREIGN KEY (a) REFERENCES)", 3);
+
+        assertFalse(parsed.entity.getAttribute("a").isForeignKey());
+        assertTrue(parsed.foreignKeys.isEmpty());
+        assertEquals(1, parsed.diagnostics.size());
+        assertEquals(SQLDiagnostic.Severity.WARNING, parsed.diagnostics.get(0).getSeverity());
+    }
+
+    @Test
+    void readsBackslashesLiterallyInStandardStrings() {
+        ParsedTable parsed = parser.parse("CREATE TABLE files (path VARCHAR(20) DEFAULT 'C:\\', name TEXT) "
+                + "WITH (fillfactor = 70)", 1);
+
+        assertEquals(2, parsed.entity.getAttributes().size());
+        assertEquals("TEXT", parsed.entity.getAttribute("name").getDataType());
+    }
+
+    @Test
+    void readsBackslashEscapesInEscapeStrings() {
+        ParsedTable parsed = parser.parse("CREATE TABLE notes (body TEXT DEFAULT E'it\\'s', id INT) "
+                + "WITH (fillfactor = 70)", 1);
+
+        assertEquals(2, parsed.entity.getAttributes().size());
+        assertEquals("INT", parsed.entity.getAttribute("id").getDataType());
+    }
+
+    @Test
+    void readsBackslashEscapesInMySqlMode() {
+        DDLFallbackParser mysqlParser = new DDLFallbackParser();
+        mysqlParser.setBackslashEscapes(true);
+        ParsedTable parsed = mysqlParser.parse("CREATE TABLE notes (body VARCHAR(20) DEFAULT 'it\\'s', "
+                + "id INT) ENGINE=InnoDB", 1);
+
+        assertEquals(2, parsed.entity.getAttributes().size());
+        assertEquals("INT", parsed.entity.getAttribute("id").getDataType());
+    }
+
+    @Test
+    void ignoresOtherStatements() {
+        assertNull(parser.parse("SELECT 1", 1));
+        assertNull(parser.parseAlterTable("CREATE TABLE t (id int)", 1));
+        assertNull(parser.parseDropTable("DROP VIEW v"));
+    }
+
+    @Test
+    void parsesOnlyKeyColumnsOfSkeleton() {
+        ParsedTable parsed = parser.parseSkeleton("CREATE TABLE t (id int PRIMARY KEY, name text, "
+                + "parent_id int REFERENCES t(id), CONSTRAINT uq_name UNIQUE (name))", 1);
+
+        assertEquals(Arrays.asList("id", "parent_id"), names(parsed.entity));
+        assertTrue(parsed.entity.getAttribute("id").isPrimaryKey());
+        assertTrue(parsed.entity.getAttribute("parent_id").isForeignKey());
+        assertEquals(1, parsed.foreignKeys.size());
+    }
+
+    @Test
+    void collectsAlterTableActions() {
+        ParsedTable parsed = parser.parseAlterTable("ALTER TABLE ONLY public.orders "
+                + "ADD COLUMN status varchar(10) NOT NULL, DROP COLUMN note, RENAME COLUMN total TO amount, "
+                + "ADD CONSTRAINT fk_status FOREIGN KEY (status) REFERENCES statuses (code), "
+                + "DROP CONSTRAINT fk_customer, ADD PRIMARY KEY (id)", 1);
+
+        assertNull(parsed.entity);
+        assertEquals("orders", parsed.getTableName());
+        assertEquals(1, parsed.addedColumns.size());
+        assertEquals("status", parsed.addedColumns.get(0).getName());
+        assertEquals("varchar(10)", parsed.addedColumns.get(0).getDataType());
+        assertFalse(parsed.addedColumns.get(0).isNullable());
+        assertEquals(Collections.singletonList("note"), parsed.droppedColumns);
+        assertEquals(Collections.singletonMap("total", "amount"), parsed.renamedColumns);
+        assertEquals(Collections.singletonList("fk_customer"), parsed.droppedConstraints);
+        assertEquals(Collections.singletonList("id"), parsed.primaryKeyColumns);
+        assertEquals(1, parsed.foreignKeys.size());
+        assertEquals("statuses", parsed.foreignKeys.get(0).refTable);
+    }
+
+    @Test
+    void collectsTableRenamesAndDrops() {
+        assertEquals("purchases", parser.parseAlterTable("ALTER TABLE orders RENAME TO purchases", 1).renamedTo);
+        assertEquals(Arrays.asList("a", "b"),
+                parser.parseDropTable("DROP TABLE IF EXISTS a, public.b CASCADE").droppedTables);
+    }
+
+    private static List<String> names(Entity entity) {
+        List<String> names = new ArrayList<>();
+        for (Attribute attribute : entity.getAttributes()) {
+            names.add(attribute.getName());
+        }
+        return names;
+    }
+}
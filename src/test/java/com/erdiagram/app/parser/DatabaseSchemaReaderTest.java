@@ -0,0 +1,284 @@
+package com.erdiagram.app.parser;
+
+import com.erdiagram.app.model.ERDiagram;
+import com.erdiagram.app.model.Entity;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DatabaseSchemaReaderTest {
+    private static final int TABLES_PER_SCHEMA = 150;
+    private static final String[] SCHEMAS = {"app", "audit"};
+
+    @Test
+    void readsKeysTableByTable() throws Exception {
+        FakeDatabase database = new FakeDatabase("H2");
+        ERDiagram diagram = new DatabaseSchemaReader(database::open).read();
+
+        assertDiagram(diagram);
+        // Two key queries per table, plus the table types, tables, two column queries, product name and escape
+        assertEquals(606, database.metadataCalls());
+        assertEquals(TABLES_PER_SCHEMA * SCHEMAS.length, database.calls("getPrimaryKeys"));
+        assertTrue(database.allClosed());
+    }
+
+    @Test
+    void readsKeysPerSchemaWhenDriverSupportsIt() throws Exception {
+        FakeDatabase database = new FakeDatabase("PostgreSQL");
+        ERDiagram diagram = new DatabaseSchemaReader(database::open).read();
+
+        assertDiagram(diagram);
+        assertEquals(10, database.metadataCalls());
+        assertEquals(SCHEMAS.length, database.calls("getPrimaryKeys"));
+        assertTrue(database.allClosed());
+    }
+
+    @Test
+    void warnsAboutKeysToTablesNotRead() throws Exception {
+        FakeDatabase database = new FakeDatabase("PostgreSQL");
+        DatabaseSchemaReader reader = new DatabaseSchemaReader(database::open);
+        ERDiagram diagram = reader.read(null, "audit");
+
+        // A single schema is not qualified
+        assertEquals(TABLES_PER_SCHEMA, diagram.getEntities().size());
+        assertNotNull(diagram.getEntityByName("t_0"));
+        assertEquals(TABLES_PER_SCHEMA - 1, diagram.getRelationships().size());
+        assertEquals(1, reader.getDiagnostics().size());
+        assertEquals(SQLDiagnostic.Severity.WARNING, reader.getDiagnostics().get(0).getSeverity());
+    }
+
+    @Test
+    void readsEmbeddedDatabase() throws Exception {
+        String url = "jdbc:h2:mem:reader;DB_CLOSE_DELAY=-1";
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE customers (id BIGINT PRIMARY KEY, name VARCHAR(40) NOT NULL)");
+            statement.execute("CREATE TABLE orders (id BIGINT PRIMARY KEY, customer_id BIGINT, note VARCHAR(200), "
+                    + "CONSTRAINT fk_customer FOREIGN KEY (customer_id) REFERENCES customers (id))");
+            statement.execute("CREATE VIEW order_notes AS SELECT id, note FROM orders");
+
+            DatabaseSchemaReader reader = new DatabaseSchemaReader(url, "", "");
+            ERDiagram diagram = reader.read();
+
+            // Only the PUBLIC schema: no INFORMATION_SCHEMA tables and no views
+            assertEquals(2, diagram.getEntities().size());
+            assertNull(diagram.getEntityByName("ORDER_NOTES"));
+            Entity orders = diagram.getEntityByName("ORDERS");
+            assertNotNull(orders);
+            assertEquals(3, orders.getAttributes().size());
+            assertTrue(orders.getAttribute("ID").isPrimaryKey());
+            assertTrue(orders.getAttribute("CUSTOMER_ID").isForeignKey());
+            assertEquals("CUSTOMERS", orders.getAttribute("CUSTOMER_ID").getReferencedTable());
+            assertFalse(diagram.getEntityByName("CUSTOMERS").getAttribute("NAME").isNullable());
+            assertEquals(1, diagram.getRelationships().size());
+            assertTrue(reader.getDiagnostics().isEmpty());
+
+            // System schemas are still read when asked for by name
+            assertFalse(reader.read(null, "INFORMATION_SCHEMA").getEntities().isEmpty());
+
+            statement.execute("DROP ALL OBJECTS");
+        }
+    }
+
+    private static void assertDiagram(ERDiagram diagram) {
+        assertEquals(TABLES_PER_SCHEMA * SCHEMAS.length, diagram.getEntities().size());
+        // A chain in each schema, and audit.t_0 referring to app.t_0
+        assertEquals(2 * (TABLES_PER_SCHEMA - 1) + 1, diagram.getRelationships().size());
+
+        Entity entity = diagram.getEntityByName("app.t_1");
+        assertNotNull(entity);
+        assertEquals(3, entity.getAttributes().size());
+        assertTrue(entity.getAttribute("id").isPrimaryKey());
+        assertFalse(entity.getAttribute("id").isNullable());
+        assertEquals("VARCHAR(40)", entity.getAttribute("name").getDataType());
+        assertTrue(entity.getAttribute("parent_id").isForeignKey());
+        assertEquals("app.t_0", entity.getAttribute("parent_id").getReferencedTable());
+    }
+
+    /**
+     * Two schemas of tables with an id, a name and a parent_id referring to the
+     * previous table, served through proxies that count the metadata calls.
+     */
+    private static class FakeDatabase {
+        private final String productName;
+        private final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+        private final AtomicInteger opened = new AtomicInteger();
+        private final AtomicInteger closed = new AtomicInteger();
+
+        FakeDatabase(String productName) {
+            this.productName = productName;
+        }
+
+        int metadataCalls() {
+            int total = 0;
+            for (AtomicInteger count : calls.values()) {
+                total += count.get();
+            }
+            return total;
+        }
+
+        int calls(String method) {
+            AtomicInteger count = calls.get(method);
+            return count == null ? 0 : count.get();
+        }
+
+        boolean allClosed() {
+            return opened.get() > 0 && opened.get() == closed.get();
+        }
+
+        Connection open() {
+            opened.incrementAndGet();
+            DatabaseMetaData meta = proxy(DatabaseMetaData.class, (method, args) -> {
+                calls.computeIfAbsent(method, k -> new AtomicInteger()).incrementAndGet();
+                return metadata(method, args);
+            });
+            return proxy(Connection.class, (method, args) -> {
+                switch (method) {
+                    case "getMetaData":
+                        return meta;
+                    case "close":
+                        closed.incrementAndGet();
+                        return null;
+                    default:
+                        throw new UnsupportedOperationException(method);
+                }
+            });
+        }
+
+        private Object metadata(String method, Object[] args) {
+            switch (method) {
+                case "getDatabaseProductName":
+                    return productName;
+                case "getSearchStringEscape":
+                    return "\\";
+                case "getTableTypes":
+                    return resultSet(List.of(row("TABLE_TYPE", "TABLE"), row("TABLE_TYPE", "VIEW")));
+                case "getTables":
+                case "getColumns":
+                case "getPrimaryKeys":
+                case "getImportedKeys":
+                    return resultSet(rows(method, (String) args[1], (String) args[2]));
+                default:
+                    throw new UnsupportedOperationException(method);
+            }
+        }
+
+        private static List<Map<String, Object>> rows(String method, String schemaPattern, String tableName) {
+            List<Map<String, Object>> rows = new ArrayList<>();
+            for (String schema : SCHEMAS) {
+                if (schemaPattern != null && !schemaPattern.equals(schema)) {
+                    continue;
+                }
+                for (int i = 0; i < TABLES_PER_SCHEMA; i++) {
+                    String table = "t_" + i;
+                    // Table name patterns are always "%", and a null table name means every table
+                    if (tableName != null && !tableName.equals("%") && !tableName.equals(table)) {
+                        continue;
+                    }
+                    addRows(rows, method, schema, table, i);
+                }
+            }
+            return rows;
+        }
+
+        private static void addRows(List<Map<String, Object>> rows, String method, String schema, String table, int i) {
+            switch (method) {
+                case "getTables":
+                    rows.add(row("TABLE_CAT", null, "TABLE_SCHEM", schema, "TABLE_NAME", table));
+                    break;
+                case "getColumns":
+                    rows.add(column(table, "id", Types.BIGINT, "BIGINT", 19, DatabaseMetaData.columnNoNulls));
+                    rows.add(column(table, "name", Types.VARCHAR, "VARCHAR", 40, DatabaseMetaData.columnNullable));
+                    rows.add(column(table, "parent_id", Types.BIGINT, "BIGINT", 19, DatabaseMetaData.columnNullable));
+                    break;
+                case "getPrimaryKeys":
+                    rows.add(row("TABLE_NAME", table, "COLUMN_NAME", "id", "KEY_SEQ", 1));
+                    break;
+                case "getImportedKeys":
+                    if (i > 0) {
+                        rows.add(importedKey(table, schema, "t_" + (i - 1)));
+                    } else if (schema.equals("audit")) {
+                        rows.add(importedKey(table, "app", "t_0"));
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException(method);
+            }
+        }
+
+        private static Map<String, Object> column(String table, String name, int type, String typeName,
+                                                  int size, int nullable) {
+            return row("TABLE_NAME", table, "COLUMN_NAME", name, "DATA_TYPE", type, "TYPE_NAME", typeName,
+                    "COLUMN_SIZE", size, "DECIMAL_DIGITS", 0, "NULLABLE", nullable);
+        }
+
+        private static Map<String, Object> importedKey(String table, String refSchema, String refTable) {
+            return row("FKTABLE_NAME", table, "FKCOLUMN_NAME", "parent_id", "PKTABLE_CAT", null,
+                    "PKTABLE_SCHEM", refSchema, "PKTABLE_NAME", refTable, "PKCOLUMN_NAME", "id",
+                    "FK_NAME", "fk_" + table);
+        }
+    }
+
+    private interface Handler {
+        Object invoke(String method, Object[] args);
+    }
+
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> handler.invoke(method.getName(), args)));
+    }
+
+    private static Map<String, Object> row(Object... namesAndValues) {
+        Map<String, Object> row = new HashMap<>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            row.put((String) namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return row;
+    }
+
+    /**
+     * A forward-only result set over the given rows.
+     */
+    private static ResultSet resultSet(List<Map<String, Object>> rows) {
+        int[] index = {-1};
+        Object[] last = {null};
+        return proxy(ResultSet.class, (method, args) -> {
+            switch (method) {
+                case "next":
+                    return ++index[0] < rows.size();
+                case "getString":
+                    last[0] = rows.get(index[0]).get(args[0]);
+                    return (String) last[0];
+                case "getInt":
+                case "getShort":
+                    last[0] = rows.get(index[0]).get(args[0]);
+                    int value = last[0] == null ? 0 : (Integer) last[0];
+                    return method.equals("getInt") ? (Object) value : (Object) (short) value;
+                case "wasNull":
+                    return last[0] == null;
+                case "close":
+                    return null;
+                default:
+                    throw new UnsupportedOperationException(method);
+            }
+        });
+    }
+}
@@ -0,0 +1,130 @@
+package com.erdiagram.app.parser;
+
+import com.erdiagram.app.model.ERDiagram;
+import com.erdiagram.app.model.Entity;
+import com.erdiagram.app.model.SchemaDelta;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IncrementalSQLSessionTest {
+    private static final String CUSTOMERS = "CREATE TABLE customers (id INT PRIMARY KEY, name VARCHAR(40));\n";
+    private static final String ORDERS = "CREATE TABLE orders (id INT PRIMARY KEY, customer_id INT, "
+            + "FOREIGN KEY (customer_id) REFERENCES customers(id));\n";
+
+    @Test
+    void firstUpdateAddsEverything() {
+        IncrementalSQLSession session = new IncrementalSQLSession();
+        SchemaDelta delta = session.update(CUSTOMERS + ORDERS);
+
+        assertEquals(2, delta.getAddedEntities().size());
+        assertEquals(1, delta.getAddedRelationships().size());
+        assertEquals(2, session.getReparsedCount());
+        assertEquals(2, session.getDiagram().getEntities().size());
+    }
+
+    @Test
+    void unchangedScriptParsesNothing() {
+        IncrementalSQLSession session = new IncrementalSQLSession();
+        session.update(CUSTOMERS + ORDERS);
+        ERDiagram previous = session.getDiagram();
+        Entity orders = previous.getEntityByName("orders");
+
+        SchemaDelta delta = session.update(CUSTOMERS + "\n-- reformatted\n" + ORDERS);
+
+        assertTrue(delta.isEmpty());
+        assertEquals(0, session.getReparsedCount());
+        assertSame(orders, session.getDiagram().getEntityByName("orders"));
+        assertSame(previous.getRelationships().get(0), session.getDiagram().getRelationships().get(0));
+    }
+
+    @Test
+    void changedDialectParsesEverythingAgain() {
+        SQLParser parser = new SQLParser();
+        IncrementalSQLSession session = new IncrementalSQLSession(parser);
+        session.update(CUSTOMERS + ORDERS);
+
+        parser.setBackslashEscapes(true);
+        session.update(CUSTOMERS + ORDERS);
+        assertEquals(2, session.getReparsedCount());
+
+        session.update(CUSTOMERS + ORDERS);
+        assertEquals(0, session.getReparsedCount());
+    }
+
+    @Test
+    void changedTableIsReparsedInPlace() {
+        IncrementalSQLSession session = new IncrementalSQLSession();
+        session.update(CUSTOMERS + ORDERS);
+        Entity customers = session.getDiagram().getEntityByName("customers");
+        customers.setX(500);
+        customers.setY(300);
+        Entity orders = session.getDiagram().getEntityByName("orders");
+
+        SchemaDelta delta = session.update(CUSTOMERS.replace("name VARCHAR(40)", "name VARCHAR(80)") + ORDERS);
+
+        assertEquals(1, session.getReparsedCount());
+        assertEquals(1, delta.getChangedEntities().size());
+        assertSame(customers, delta.getChangedEntities().get(0).getPrevious());
+        Entity changed = session.getDiagram().getEntityByName("customers");
+        assertEquals("VARCHAR(80)", changed.getAttribute("name").getDataType());
+        assertEquals(500, changed.getX());
+        assertEquals(300, changed.getY());
+        assertSame(orders, session.getDiagram().getEntityByName("orders"));
+        // The relationship now points at the new customers entity
+        assertSame(changed, session.getDiagram().getRelationships().get(0).getTargetEntity());
+    }
+
+    @Test
+    void removedTableTakesItsRelationshipsAlong() {
+        IncrementalSQLSession session = new IncrementalSQLSession();
+        session.update(CUSTOMERS + ORDERS);
+
+        SchemaDelta delta = session.update(CUSTOMERS);
+
+        assertEquals(1, delta.getRemovedEntities().size());
+        assertEquals("orders", delta.getRemovedEntities().get(0).getName());
+        assertEquals(1, delta.getRemovedRelationships().size());
+        assertTrue(session.getDiagram().getRelationships().isEmpty());
+    }
+
+    @Test
+    void removedAlterTableKeysDoNotLinger() {
+        String orders = "CREATE TABLE orders (id INT PRIMARY KEY, customer_id INT);\n";
+        String alter = "ALTER TABLE orders ADD CONSTRAINT fk_customer FOREIGN KEY (customer_id) "
+                + "REFERENCES customers(id);\n";
+        IncrementalSQLSession session = new IncrementalSQLSession();
+
+        session.update(CUSTOMERS + orders + alter);
+        assertEquals(1, session.getDiagram().getRelationships().size());
+        assertTrue(session.getDiagram().getEntityByName("orders").getAttribute("customer_id").isForeignKey());
+
+        SchemaDelta delta = session.update(CUSTOMERS + orders);
+        assertEquals(1, delta.getRemovedRelationships().size());
+        assertTrue(session.getDiagram().getRelationships().isEmpty());
+        assertFalse(session.getDiagram().getEntityByName("orders").getAttribute("customer_id").isForeignKey());
+    }
+
+    @Test
+    void interruptedUpdateLeavesSessionUnchanged() {
+        IncrementalSQLSession session = new IncrementalSQLSession();
+        session.update(CUSTOMERS);
+        ERDiagram previous = session.getDiagram();
+
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(CancellationException.class, () -> session.update(CUSTOMERS + ORDERS));
+        } finally {
+            Thread.interrupted();
+        }
+
+        assertSame(previous, session.getDiagram());
+        assertEquals(1, session.update(CUSTOMERS + ORDERS).getAddedEntities().size());
+    }
+}
@@ -0,0 +1,117 @@
+package com.erdiagram.app.parser;
+
+import com.erdiagram.app.model.UMLAttribute;
+import com.erdiagram.app.model.UMLClass;
+import com.erdiagram.app.model.UMLDiagram;
+import com.erdiagram.app.model.UMLRelationship;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JavaParserTest {
+    private final JavaParser parser = new JavaParser();
+
+    @Test
+    void readsNestedClassesAndTheirMembers() {
+        UMLDiagram diagram = parser.parseJavaCode("package shop;\n"
+                + "public class Order extends Base {\n"
+                + "    private String id;\n"
+                + "    static class Line { String sku; int quantity; }\n"
+                + "    public Line firstLine() { return new Line() { }; }\n"
+                + "}\n"
+                + "abstract class Base { protected abstract void save(); }\n");
+
+        UMLClass order = diagram.findClassByName("Order");
+        assertNotNull(order);
+        assertEquals("shop", order.getPackageName());
+        assertEquals(Arrays.asList("id"), names(order));
+        assertEquals(1, order.getMethods().size());
+        assertEquals("Line", order.getMethods().get(0).getReturnType());
+
+        UMLClass line = diagram.findClassByName("Line");
+        assertNotNull(line);
+        assertEquals(Arrays.asList("sku", "quantity"), names(line));
+        assertEquals("abstract class", diagram.findClassByName("Base").getType());
+        assertTrue(hasRelationship(diagram, "Order", "Base", "inheritance"));
+    }
+
+    @Test
+    void readsGenericTypes() {
+        UMLDiagram diagram = parser.parseJavaCode("class Catalog implements Comparable<Catalog> {\n"
+                + "    private Map<String, List<Integer>> stock = new HashMap<String, List<Integer>>(), "
+                + "reserved = Map.<String, List<Integer>>of();\n"
+                + "    public <T extends Comparable<T>> T max(List<? extends T> items, int limit) { return null; }\n"
+                + "}\n");
+
+        UMLClass catalog = diagram.findClassByName("Catalog");
+        assertEquals(Arrays.asList("stock", "reserved"), names(catalog));
+        assertEquals("Map<String, List<Integer>>", catalog.getAttributes().get(1).getType());
+        assertEquals("T", catalog.getMethods().get(0).getReturnType());
+        assertEquals(2, catalog.getMethods().get(0).getParameters().size());
+        assertTrue(hasRelationship(diagram, "Catalog", "Comparable", "implementation"));
+    }
+
+    @Test
+    void readsRecordsAndEnums() {
+        UMLDiagram diagram = parser.parseJavaCode("record Point(int x, int y) implements Shape {\n"
+                + "    static Point ORIGIN = new Point(0, 0);\n"
+                + "    public double length() { return Math.sqrt(x * x + y * y); }\n"
+                + "}\n"
+                + "interface Shape { double length(); }\n"
+                + "enum Status {\n"
+                + "    NEW, PAID(1) { @Override int code() { return 2; } }, SHIPPED;\n"
+                + "    private int code;\n"
+                + "    Status() { }\n"
+                + "    Status(int code) { this.code = code; }\n"
+                + "    int code() { return code; }\n"
+                + "}\n");
+
+        UMLClass point = diagram.findClassByName("Point");
+        assertEquals(Arrays.asList("x", "y", "ORIGIN"), names(point));
+        assertTrue(point.getAttributes().get(2).isStatic());
+        assertEquals(1, point.getMethods().size());
+        assertTrue(hasRelationship(diagram, "Point", "Shape", "implementation"));
+        assertEquals("interface", diagram.findClassByName("Shape").getType());
+
+        UMLClass status = diagram.findClassByName("Status");
+        assertEquals("enum", status.getType());
+        assertEquals(Arrays.asList("code"), names(status));
+    }
+
+    @Test
+    void readsEveryDeclaratorAfterComparisons() {
+        UMLDiagram diagram = parser.parseJavaCode("class Limits {\n"
+                + "    int x = a < b ? 1 : 2, y;\n"
+                + "    boolean small = MAX < LIMIT, empty;\n"
+                + "    boolean ordered = first.size() < second.size() && count > 0, sorted;\n"
+                + "    List<String> names = new ArrayList<>(), aliases;\n"
+                + "}\n");
+
+        assertEquals(Arrays.asList("x", "y", "small", "empty", "ordered", "sorted", "names", "aliases"),
+                names(diagram.findClassByName("Limits")));
+    }
+
+    private static List<String> names(UMLClass umlClass) {
+        List<String> names = new ArrayList<>();
+        for (UMLAttribute attribute : umlClass.getAttributes()) {
+            names.add(attribute.getName());
+        }
+        return names;
+    }
+
+    private static boolean hasRelationship(UMLDiagram diagram, String source, String target, String type) {
+        for (UMLRelationship relationship : diagram.getRelationships()) {
+            if (relationship.getSource().getName().equals(source) && relationship.getTarget().getName().equals(target)
+                    && relationship.getType().equals(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,101 @@
+package com.erdiagram.app.parser;
+
+import com.erdiagram.app.model.UMLClass;
+import com.erdiagram.app.model.UMLDiagram;
+import com.erdiagram.app.model.UMLDiagramDelta;
+import com.erdiagram.app.model.UMLRelationship;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JavaSourceTreeParserTest {
+    @TempDir
+    Path root;
+
+    @Test
+    void resolvesRelationshipsAcrossFiles() throws IOException {
+        write("shop/Order.java", "package shop;\npublic class Order extends Base { private Customer customer; }\n");
+        write("shop/Base.java", "package shop;\npublic abstract class Base { }\n");
+        write("shop/Customer.java", "package shop;\npublic class Customer { }\n");
+        write("shop/notes.txt", "class NotJava { }\n");
+
+        JavaSourceTreeParser parser = new JavaSourceTreeParser();
+        parser.setParallelism(2);
+        UMLDiagram diagram = parser.parse(root);
+
+        assertEquals(3, parser.getFileCount());
+        assertEquals(3, diagram.getClasses().size());
+        assertNull(diagram.findClassByName("NotJava"));
+        assertTrue(hasRelationship(diagram, "Order", "Base", "inheritance"));
+        assertTrue(hasRelationship(diagram, "Order", "Customer", "composition"));
+    }
+
+    @Test
+    void keepsFirstOfDuplicateClasses() throws IOException {
+        write("a/shop/Order.java", "package shop;\npublic class Order { int id; }\n");
+        write("b/shop/Order.java", "package shop;\npublic class Order { int id; String note; }\n");
+
+        JavaSourceTreeParser parser = new JavaSourceTreeParser();
+        UMLDiagram diagram = parser.parse(root);
+
+        assertEquals(1, diagram.getClasses().size());
+        assertEquals(1, diagram.getClasses().get(0).getAttributes().size());
+        assertEquals(1, parser.getDuplicateCount());
+    }
+
+    @Test
+    void updateParsesOnlyChangedFiles() throws IOException {
+        write("shop/Order.java", "package shop;\npublic class Order { private Customer customer; }\n");
+        write("shop/Customer.java", "package shop;\npublic class Customer { }\n");
+
+        JavaSourceTreeParser parser = new JavaSourceTreeParser();
+        UMLDiagram first = parser.parse(root);
+        UMLClass order = first.findClassByName("Order");
+        UMLClass customer = first.findClassByName("Customer");
+
+        Path changed = write("shop/Customer.java", "package shop;\npublic class Customer { String name; }\n");
+        UMLDiagramDelta delta = parser.update(Collections.singletonList(changed));
+
+        assertEquals(1, parser.getReparsedCount());
+        assertEquals(1, delta.getChangedClasses().size());
+        assertSame(customer, delta.getChangedClasses().get(0).getPrevious());
+        UMLDiagram second = parser.getDiagram();
+        assertSame(order, second.findClassByName("Order"));
+        assertNotSame(customer, second.findClassByName("Customer"));
+        assertTrue(hasRelationship(second, "Order", "Customer", "composition"));
+
+        Files.delete(changed);
+        delta = parser.update(Collections.singletonList(changed));
+        assertEquals(1, delta.getRemovedClasses().size());
+        assertNotNull(parser.getDiagram().findClassByName("Order"));
+        assertEquals(1, parser.getDiagram().getClasses().size());
+    }
+
+    private Path write(String name, String content) throws IOException {
+        Path file = root.resolve(name);
+        Files.createDirectories(file.getParent());
+        return Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static boolean hasRelationship(UMLDiagram diagram, String source, String target, String type) {
+        for (UMLRelationship relationship : diagram.getRelationships()) {
+            if (relationship.getSource().getName().equals(source) && relationship.getTarget().getName().equals(target)
+                    && relationship.getType().equals(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,67 @@
+package com.erdiagram.app.parser;
+
+import com.erdiagram.app.model.UMLClass;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class JavaSymbolTableTest {
+    private final JavaSymbolTable symbols = new JavaSymbolTable();
+
+    private final UMLClass order = new UMLClass("Order");
+    private final UMLClass orderLine = new UMLClass("Line");
+    private final UMLClass shopLine = new UMLClass("Line");
+    private final UMLClass shopItem = new UMLClass("Item");
+    private final UMLClass stockItem = new UMLClass("Item");
+    private final UMLClass stockPrice = new UMLClass("Price");
+    private final UMLClass tax = new UMLClass("Tax");
+
+    JavaSymbolTableTest() {
+        JavaSymbolTable.CompilationUnit orderUnit = unit("shop");
+        orderUnit.singleTypeImports.put("Item", "stock.Item");
+        orderUnit.onDemandImports.add("stock");
+        orderUnit.onDemandImports.add("finance");
+
+        symbols.add(order, "shop.Order", orderUnit);
+        symbols.add(orderLine, "shop.Order.Line", orderUnit);
+        symbols.add(shopLine, "shop.Line", unit("shop"));
+        symbols.add(shopItem, "shop.Item", unit("shop"));
+        symbols.add(stockItem, "stock.Item", unit("stock"));
+        symbols.add(stockPrice, "stock.Price", unit("stock"));
+        symbols.add(tax, "finance.Tax", unit("finance"));
+    }
+
+    @Test
+    void resolvesNamesInCompilerOrder() {
+        // A member type hides a class of the same package
+        assertSame(orderLine, symbols.resolve("Line", order));
+        assertSame(orderLine, symbols.resolve("Line", orderLine));
+        // A single-type import hides a class of the same package
+        assertSame(stockItem, symbols.resolve("Item", order));
+        // On-demand imports come last
+        assertSame(stockPrice, symbols.resolve("Price", order));
+        assertSame(tax, symbols.resolve("Tax", order));
+        assertNull(symbols.resolve("String", order));
+    }
+
+    @Test
+    void resolvesQualifiedAndMemberNames() {
+        assertSame(shopItem, symbols.resolve("shop.Item", order));
+        assertSame(orderLine, symbols.resolve("Order.Line", shopLine));
+        assertNull(symbols.resolve("Order.Missing", shopLine));
+    }
+
+    @Test
+    void keepsFirstClassOfName() {
+        assertFalse(symbols.add(new UMLClass("Item"), "shop.Item", unit("shop")));
+        assertSame(shopItem, symbols.get("shop.Item"));
+    }
+
+    private static JavaSymbolTable.CompilationUnit unit(String packageName) {
+        JavaSymbolTable.CompilationUnit unit = new JavaSymbolTable.CompilationUnit();
+        unit.packageName = packageName;
+        return unit;
+    }
+}
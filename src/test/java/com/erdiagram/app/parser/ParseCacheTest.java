@@ -0,0 +1,191 @@
+package com.erdiagram.app.parser;
+
+import com.erdiagram.app.model.Attribute;
+import com.erdiagram.app.model.ERDiagram;
+import com.erdiagram.app.model.Entity;
+import com.erdiagram.app.model.UMLClass;
+import com.erdiagram.app.model.UMLDiagram;
+import com.erdiagram.app.model.UMLRelationship;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParseCacheTest {
+    private static final String SCHEMA = "CREATE TABLE customers (id INT PRIMARY KEY, name VARCHAR(40) NOT NULL);\n"
+            + "CREATE TABLE orders (id INT PRIMARY KEY, customer_id INT, "
+            + "FOREIGN KEY (customer_id) REFERENCES customers(id));\n";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void parsedTablesSurviveRoundTrip() throws IOException {
+        DDLFallbackParser fallbackParser = new DDLFallbackParser();
+        List<ParsedTable> statements = Arrays.asList(
+                fallbackParser.parse("CREATE TABLE orders (id INT NOT NULL, customer_id INT, "
+                        + "CONSTRAINT fk_customer FOREIGN KEY (customer_id) REFERENCES customers (id), "
+                        + "FOREIGN KEY (id) REFERENCES)", 1),
+                fallbackParser.parseAlterTable("ALTER TABLE orders ADD COLUMN status VARCHAR(10) NOT NULL, "
+                        + "DROP COLUMN note, RENAME COLUMN total TO amount, DROP CONSTRAINT fk_old, "
+                        + "ADD PRIMARY KEY (id)", 2),
+                fallbackParser.parseAlterTable("ALTER TABLE orders RENAME TO purchases", 3),
+                fallbackParser.parseDropTable("DROP TABLE a, b"));
+
+        byte[] bytes = write(ParsedTable.LIST_CODEC, statements);
+        List<ParsedTable> read = read(ParsedTable.LIST_CODEC, bytes);
+        assertArrayEquals(bytes, write(ParsedTable.LIST_CODEC, read));
+        assertEquals(4, read.size());
+
+        ParsedTable created = read.get(0);
+        assertEquals("orders", created.entity.getName());
+        assertNull(created.alteredTable);
+        Attribute customerId = created.entity.getAttribute("customer_id");
+        assertTrue(customerId.isForeignKey());
+        assertEquals("customers", customerId.getReferencedTable());
+        assertFalse(created.entity.getAttribute("id").isNullable());
+        assertEquals("fk_customer", created.foreignKeys.get(0).constraintName);
+        assertEquals(1, created.diagnostics.size());
+        assertEquals(SQLDiagnostic.Severity.WARNING, created.diagnostics.get(0).getSeverity());
+
+        ParsedTable altered = read.get(1);
+        assertNull(altered.entity);
+        assertEquals("orders", altered.alteredTable);
+        assertEquals("VARCHAR(10)", altered.addedColumns.get(0).getDataType());
+        assertEquals(Collections.singletonList("note"), altered.droppedColumns);
+        assertEquals(Collections.singletonMap("total", "amount"), altered.renamedColumns);
+        assertEquals(Collections.singletonList("fk_old"), altered.droppedConstraints);
+        assertEquals(Collections.singletonList("id"), altered.primaryKeyColumns);
+
+        assertEquals("purchases", read.get(2).renamedTo);
+        assertEquals(Arrays.asList("a", "b"), read.get(3).droppedTables);
+    }
+
+    @Test
+    void javaDeclarationsSurviveRoundTrip() throws IOException {
+        JavaParser parser = new JavaParser();
+        parser.readDeclarations("package shop;\n"
+                + "import java.util.List;\n"
+                + "import shop.base.*;\n"
+                + "public class Order extends Entity implements Comparable<Order>, Auditable {\n"
+                + "    private static final long serialVersionUID = 1L;\n"
+                + "    private List<Item> items;\n"
+                + "    public int compareTo(Order other) { return 0; }\n"
+                + "    protected abstract void audit(String user, int level);\n"
+                + "}\n"
+                + "interface Auditable {}\n");
+
+        byte[] bytes = write(JavaParser.CACHE_CODEC, parser);
+        JavaParser read = read(JavaParser.CACHE_CODEC, bytes);
+        assertArrayEquals(bytes, write(JavaParser.CACHE_CODEC, read));
+
+        UMLDiagram diagram = read.resolve();
+        UMLClass order = diagram.findClassByName("Order");
+        assertEquals("shop.Order", read.getQualifiedName(order));
+        assertEquals(2, order.getAttributes().size());
+        assertTrue(order.getAttributes().get(0).isStatic());
+        assertEquals(2, order.getMethods().size());
+        assertEquals(2, order.getMethods().get(1).getParameters().size());
+
+        List<String> relationships = new ArrayList<>();
+        for (UMLRelationship relationship : diagram.getRelationshipsForClass(order)) {
+            relationships.add(relationship.getType() + " " + relationship.getTarget().getName());
+        }
+        assertTrue(relationships.contains(UMLRelationship.INHERITANCE + " Entity"), relationships.toString());
+        assertTrue(relationships.contains(UMLRelationship.IMPLEMENTATION + " Auditable"), relationships.toString());
+    }
+
+    @Test
+    void unchangedScriptIsReadFromCache() throws IOException {
+        Path script = tempDir.resolve("schema.sql");
+        Files.write(script, SCHEMA.getBytes(StandardCharsets.UTF_8));
+        ParseCache cache = new ParseCache(tempDir.resolve("cache"), ParseCache.DEFAULT_MAX_BYTES);
+
+        ERDiagram parsed = parser(cache).parseSQLFile(script);
+        assertEquals(1, cache.getMissCount());
+
+        ERDiagram cached = parser(cache).parseSQLFile(script);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(describe(parsed), describe(cached));
+
+        // Backslash escapes may split the script differently, so they are cached apart
+        SQLParser mysqlParser = parser(cache);
+        mysqlParser.setBackslashEscapes(true);
+        mysqlParser.parseSQLFile(script);
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    void unchangedMigrationsAreReadFromCache() throws IOException {
+        Path migrations = Files.createDirectory(tempDir.resolve("migrations"));
+        Files.write(migrations.resolve("V1__init.sql"), SCHEMA.getBytes(StandardCharsets.UTF_8));
+        Files.write(migrations.resolve("V2__rework.sql"), ("CREATE TABLE notes (id INT);\n"
+                + "ALTER TABLE orders ADD COLUMN total DECIMAL(10,2), RENAME COLUMN customer_id TO buyer_id;\n"
+                + "DROP TABLE notes;\n").getBytes(StandardCharsets.UTF_8));
+        ParseCache cache = new ParseCache(tempDir.resolve("cache"), ParseCache.DEFAULT_MAX_BYTES);
+
+        ERDiagram parsed = parser(cache).parseMigrations(migrations);
+        assertEquals(2, cache.getMissCount());
+
+        cache.resetStatistics();
+        SQLParser cachedParser = parser(cache);
+        ERDiagram cached = cachedParser.parseMigrations(migrations);
+        assertEquals(2, cachedParser.getMigrationCount());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+        assertEquals(describe(parsed), describe(cached));
+        assertEquals(Arrays.asList("customers: id INT, name VARCHAR(40)",
+                "orders: id INT, buyer_id INT, total DECIMAL(10,2)"), describe(cached));
+    }
+
+    private static SQLParser parser(ParseCache cache) {
+        SQLParser parser = new SQLParser();
+        parser.setParseCache(cache);
+        return parser;
+    }
+
+    private static List<String> describe(ERDiagram diagram) {
+        List<String> tables = new ArrayList<>();
+        for (Entity entity : diagram.getEntities()) {
+            StringBuilder table = new StringBuilder(entity.getName()).append(':');
+            String separator = " ";
+            for (Attribute attribute : entity.getAttributes()) {
+                table.append(separator).append(attribute.getName()).append(' ').append(attribute.getDataType());
+                separator = ", ";
+            }
+            tables.add(table.toString());
+        }
+        return tables;
+    }
+
+    private static <T> byte[] write(ParseCache.Codec<T> codec, T value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            codec.write(out, value);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static <T> T read(ParseCache.Codec<T> codec, byte[] bytes) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            return codec.read(in);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.erdiagram.app.parser;
+
+import com.erdiagram.app.model.ERDiagram;
+import com.erdiagram.app.model.Entity;
+import com.erdiagram.app.model.Relationship;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SQLParserTest {
+    private final SQLParser parser = new SQLParser();
+
+    @Test
+    void readsInlineColumnConstraints() {
+        ERDiagram diagram = parser.parseSQL("CREATE TABLE users (id INT PRIMARY KEY, email VARCHAR(80) NOT NULL, "
+                + "nickname VARCHAR(40));\n"
+                + "CREATE TABLE orders (id INT NOT NULL PRIMARY KEY, user_id INT NOT NULL REFERENCES users (id), "
+                + "note TEXT);\n");
+        // Read by JSqlParser, not the fallback parser
+        assertTrue(parser.getDiagnostics().isEmpty());
+
+        Entity users = diagram.getEntityByName("users");
+        assertTrue(users.getAttribute("id").isPrimaryKey());
+        assertFalse(users.getAttribute("id").isNullable());
+        assertFalse(users.getAttribute("email").isNullable());
+        assertTrue(users.getAttribute("nickname").isNullable());
+
+        Entity orders = diagram.getEntityByName("orders");
+        assertFalse(orders.getAttribute("user_id").isNullable());
+        assertTrue(orders.getAttribute("user_id").isForeignKey());
+        assertEquals("users", orders.getAttribute("user_id").getReferencedTable());
+        assertEquals("id", orders.getAttribute("user_id").getReferencedColumn());
+        assertFalse(orders.getAttribute("note").isForeignKey());
+
+        assertEquals(1, diagram.getRelationships().size());
+        Relationship relationship = diagram.getRelationships().get(0);
+        assertSame(orders, relationship.getSourceEntity());
+        assertSame(users, relationship.getTargetEntity());
+        assertEquals(Relationship.RelationshipType.MANY_TO_ONE, relationship.getType());
+    }
+
+    @Test
+    void readsSchemaQualifiedInlineReferences() {
+        ERDiagram diagram = parser.parseSQL("CREATE TABLE users (id INT PRIMARY KEY);\n"
+                + "CREATE TABLE orders (id INT PRIMARY KEY, user_id INT REFERENCES public.users);\n");
+
+        Entity orders = diagram.getEntityByName("orders");
+        assertEquals("users", orders.getAttribute("user_id").getReferencedTable());
+        assertEquals(1, diagram.getRelationships().size());
+    }
+
+    @Test
+    void appliesQuotedPgDumpKeys() {
+        ERDiagram diagram = parser.parseSQL("CREATE TABLE public.\"Users\" (\"Id\" integer NOT NULL, \"Name\" text);\n"
+                + "CREATE TABLE public.\"Orders\" (\"Id\" integer NOT NULL, \"UserId\" integer);\n"
+                + "ALTER TABLE ONLY public.\"Users\" ADD CONSTRAINT \"Users_pkey\" PRIMARY KEY (\"Id\");\n"
+                + "ALTER TABLE ONLY public.\"Orders\" ADD CONSTRAINT \"Orders_UserId_fkey\" "
+                + "FOREIGN KEY (\"UserId\") REFERENCES public.\"Users\"(\"Id\");\n");
+
+        Entity users = diagram.getEntityByName("Users");
+        Entity orders = diagram.getEntityByName("Orders");
+        assertNotNull(users);
+        assertNotNull(orders);
+        assertTrue(users.getAttribute("Id").isPrimaryKey());
+        assertTrue(orders.getAttribute("UserId").isForeignKey());
+        assertEquals("Users", orders.getAttribute("UserId").getReferencedTable());
+
+        assertEquals(1, diagram.getRelationships().size());
+        Relationship relationship = diagram.getRelationships().get(0);
+        assertSame(orders, relationship.getSourceEntity());
+        assertSame(users, relationship.getTargetEntity());
+        assertEquals(Relationship.RelationshipType.MANY_TO_ONE, relationship.getType());
+    }
+
+    @Test
+    void appliesBacktickedMysqldumpKeys() {
+        parser.setBackslashEscapes(true);
+        ERDiagram diagram = parser.parseSQL("CREATE TABLE `a` (\n"
+                + "  `id` int NOT NULL,\n"
+                + "  PRIMARY KEY (`id`)\n"
+                + ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;\n"
+                + "CREATE TABLE `b` (\n"
+                + "  `id` int NOT NULL,\n"
+                + "  `a_id` int DEFAULT NULL,\n"
+                + "  PRIMARY KEY (`id`)\n"
+                + ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;\n"
+                + "ALTER TABLE `b` ADD CONSTRAINT `fk_b_a` FOREIGN KEY (`a_id`) REFERENCES `a` (`id`);\n");
+
+        Entity a = diagram.getEntityByName("a");
+        Entity b = diagram.getEntityByName("b");
+        assertNotNull(a);
+        assertNotNull(b);
+        assertTrue(a.getAttribute("id").isPrimaryKey());
+        assertTrue(b.getAttribute("a_id").isForeignKey());
+
+        assertEquals(1, diagram.getRelationships().size());
+        assertSame(b, diagram.getRelationships().get(0).getSourceEntity());
+        assertSame(a, diagram.getRelationships().get(0).getTargetEntity());
+    }
+}
@@ -0,0 +1,162 @@
+package com.erdiagram.app.parser;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SQLStatementSourceTest {
+    private static final String CREATE = "CREATE TABLE x (id int)";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void splitsOnTopLevelSemicolons() throws IOException {
+        assertEquals(Arrays.asList("CREATE TABLE a (id int)", "CREATE TABLE b (id int)"),
+                statements("CREATE TABLE a (id int);\n\n  CREATE TABLE b (id int)  ;;", false));
+    }
+
+    @Test
+    void keepsSemicolonsInsideQuotesAndComments() throws IOException {
+        assertEquals(Arrays.asList("SELECT 'a;b', \"c;d\", `e;f`", "SELECT 1"),
+                statements("SELECT 'a;b', \"c;d\", `e;f`; SELECT 1;", false));
+        assertEquals(Arrays.asList("SELECT 1", "SELECT 2"),
+                statements("SELECT 1 -- not; the end\n; /* nor; this */ SELECT 2;", false));
+        assertEquals(Arrays.asList("CREATE FUNCTION f() AS $body$ BEGIN; END; $body$", "SELECT 1"),
+                statements("CREATE FUNCTION f() AS $body$ BEGIN; END; $body$; SELECT 1;", false));
+    }
+
+    @Test
+    void closesDollarQuotesOnlyAfterTheirTag() throws IOException {
+        assertEquals(Arrays.asList("SELECT $$;$$", "SELECT 1"), statements("SELECT $$;$$; SELECT 1;", false));
+        assertEquals(Arrays.asList("SELECT $$$;$$", "SELECT 1"), statements("SELECT $$$;$$; SELECT 1;", false));
+    }
+
+    @Test
+    void readsBackslashesLiterallyInStandardStrings() throws IOException {
+        assertEquals(Arrays.asList("INSERT INTO t VALUES ('C:\\')", CREATE),
+                statements("INSERT INTO t VALUES ('C:\\'); " + CREATE + ";", false));
+        assertEquals(Arrays.asList("SELECT \"a\\\"", "SELECT `b\\`", CREATE),
+                statements("SELECT \"a\\\"; SELECT `b\\`; " + CREATE + ";", true));
+    }
+
+    @Test
+    void readsBackslashEscapesInEscapeStrings() throws IOException {
+        assertEquals(Arrays.asList("SELECT E'it\\'s;'", "SELECT e'x\\\\'", "SELECT le'x\\'"),
+                statements("SELECT E'it\\'s;'; SELECT e'x\\\\'; SELECT le'x\\';", false));
+    }
+
+    @Test
+    void readsBackslashEscapesInMySqlMode() throws IOException {
+        assertEquals(Arrays.asList("INSERT INTO t VALUES ('it\\'s;')", CREATE),
+                statements("INSERT INTO t VALUES ('it\\'s;'); " + CREATE + ";", true));
+    }
+
+    @Test
+    void reportsStatementRanges() throws IOException {
+        String sql = "CREATE TABLE a (id int);\n-- b\nCREATE TABLE b (id int);";
+        try (SQLStatementSource source = SQLStatementSource.fromString(sql)) {
+            source.nextStatement();
+            assertEquals(0, source.getStatementStart());
+            assertEquals(sql.indexOf(';'), source.getStatementEnd());
+
+            source.nextStatement();
+            assertEquals(sql.indexOf(';') + 1, source.getStatementStart());
+            assertEquals(sql.lastIndexOf(';'), source.getStatementEnd());
+
+            // Scanning the range again yields the same statement
+            String range = sql.substring((int) source.getStatementStart(), (int) source.getStatementEnd());
+            assertEquals(Arrays.asList("CREATE TABLE b (id int)"), statements(range, false));
+        }
+    }
+
+    @Test
+    void skipsDataStatements() throws IOException {
+        String[] scripts = {
+                "INSERT INTO t VALUES ('C:\\'); ",
+                "INSERT INTO t VALUES (E'it\\'s;'); ",
+                "INSERT INTO t VALUES (1) -- it's; \n; ",
+                "INSERT INTO t VALUES (1) /* it's; */; ",
+                "INSERT INTO t SELECT $$it's;$$; ",
+                "INSERT INTO t SELECT $body$it's;$body$; ",
+                "INSERT INTO t VALUES ($a$ $ $a $$ ;$a$); ",
+                "INSERT INTO t VALUES ($1, a$b$c, 'x'); ",
+                "INSERT--c\n INTO t VALUES ('a;'); ",
+                "INSERT/* x; */INTO t VALUES ('a;'); ",
+                "REPLACE INTO t VALUES ('a;b'); ",
+                "COPY stdin_log FROM '/tmp/x.csv'; ",
+                "COPY t (a) FROM stdin;\n1\tfoo;bar\n\\.\n",
+                "COPY t FROM /* c */ STDIN WITH CSV;\n1;2\n\\.\n",
+        };
+        for (String script : scripts) {
+            try (SQLStatementSource source = SQLStatementSource.fromString(script + CREATE + ";")) {
+                assertEquals(CREATE, source.nextStatement(), script);
+                assertEquals(null, source.nextStatement(), script);
+                assertEquals(1, source.getSkippedStatementCount(), script);
+            }
+        }
+    }
+
+    @Test
+    void skipsInsertsInMySqlMode() throws IOException {
+        assertEquals(Arrays.asList(CREATE), statements("INSERT INTO t VALUES ('it\\'s;'); " + CREATE + ";", true, true));
+    }
+
+    @Test
+    void returnsDataStatementsWhenNotSkipping() throws IOException {
+        assertEquals(Arrays.asList("INSERT INTO t VALUES ('a;b')", CREATE),
+                statements("INSERT INTO t VALUES ('a;b'); " + CREATE + ";", false));
+    }
+
+    @Test
+    void readsFilesAndCompressedDumps() throws IOException {
+        String sql = "CREATE TABLE a (id int);\nINSERT INTO a VALUES (1);\nCREATE TABLE b (id int);\n";
+        Path plain = tempDir.resolve("dump.sql");
+        Files.write(plain, sql.getBytes(StandardCharsets.UTF_8));
+        Path gzip = tempDir.resolve("dump.sql.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gzip))) {
+            out.write(sql.getBytes(StandardCharsets.UTF_8));
+        }
+
+        for (Path path : Arrays.asList(plain, gzip)) {
+            List<String> statements = new ArrayList<>();
+            try (SQLStatementSource source = SQLStatementSource.open(path)) {
+                String statement;
+                while ((statement = source.nextStatement()) != null) {
+                    statements.add(statement);
+                }
+                assertEquals(1, source.getSkippedStatementCount());
+            }
+            assertEquals(Arrays.asList("CREATE TABLE a (id int)", "CREATE TABLE b (id int)"), statements);
+        }
+    }
+
+    private static List<String> statements(String sql, boolean backslashEscapes) throws IOException {
+        return statements(sql, backslashEscapes, false);
+    }
+
+    private static List<String> statements(String sql, boolean backslashEscapes, boolean skipData)
+            throws IOException {
+        List<String> statements = new ArrayList<>();
+        try (SQLStatementSource source = SQLStatementSource.fromString(sql)) {
+            source.setBackslashEscapes(backslashEscapes);
+            source.setSkipDataStatements(skipData);
+            String statement;
+            while ((statement = source.nextStatement()) != null) {
+                statements.add(statement);
+            }
+        }
+        return statements;
+    }
+}
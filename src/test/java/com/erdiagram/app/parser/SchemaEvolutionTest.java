@@ -0,0 +1,48 @@
+package com.erdiagram.app.parser;
+
+import com.erdiagram.app.model.Attribute;
+import com.erdiagram.app.model.ERDiagram;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SchemaEvolutionTest {
+    private final DDLFallbackParser parser = new DDLFallbackParser();
+    private final List<SQLDiagnostic> diagnostics = new ArrayList<>();
+    private final SchemaEvolution schema = new SchemaEvolution(diagnostics);
+
+    @Test
+    void dropsKeysThatReferToDroppedTable() {
+        schema.apply(parser.parse("CREATE TABLE customers (id int PRIMARY KEY)", 1), "V1", 1);
+        schema.apply(parser.parse("CREATE TABLE orders (id int PRIMARY KEY, customer_id int, "
+                + "CONSTRAINT fk_customer FOREIGN KEY (customer_id) REFERENCES customers (id))", 2), "V1", 2);
+        schema.apply(parser.parseDropTable("DROP TABLE customers CASCADE"), "V2", 1);
+
+        ERDiagram diagram = schema.build(new SQLParser());
+        assertEquals(1, diagram.getEntities().size());
+        assertTrue(diagram.getRelationships().isEmpty());
+
+        Attribute customerId = diagram.getEntityByName("orders").getAttribute("customer_id");
+        assertFalse(customerId.isForeignKey());
+        assertNull(customerId.getReferencedTable());
+        assertTrue(diagnostics.isEmpty());
+    }
+
+    @Test
+    void keepsKeysThatFollowRenamedTable() {
+        schema.apply(parser.parse("CREATE TABLE customers (id int PRIMARY KEY)", 1), "V1", 1);
+        schema.apply(parser.parse("CREATE TABLE orders (id int PRIMARY KEY, customer_id int REFERENCES customers(id))",
+                2), "V1", 2);
+        schema.apply(parser.parseAlterTable("ALTER TABLE customers RENAME TO clients", 1), "V2", 1);
+
+        ERDiagram diagram = schema.build(new SQLParser());
+        assertEquals(1, diagram.getRelationships().size());
+        assertEquals("clients", diagram.getEntityByName("orders").getAttribute("customer_id").getReferencedTable());
+    }
+}
@@ -0,0 +1,112 @@
+package com.erdiagram.app.parser;
+
+import com.erdiagram.app.model.Attribute;
+import com.erdiagram.app.model.ERDiagram;
+import com.erdiagram.app.model.Entity;
+import com.erdiagram.app.model.Relationship;
+import com.erdiagram.app.model.SchemaDelta;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SchemaReconcilerTest {
+    private static final String CUSTOMERS = "CREATE TABLE customers (id INT PRIMARY KEY, name VARCHAR(40));\n";
+    private static final String ORDERS = "CREATE TABLE orders (id INT PRIMARY KEY, customer_id INT, "
+            + "FOREIGN KEY (customer_id) REFERENCES customers(id));\n";
+
+    private final SQLParser sqlParser = new SQLParser();
+
+    @Test
+    void firstUpdateAddsEverything() {
+        SchemaReconciler reconciler = new SchemaReconciler();
+        assertNull(reconciler.getDiagram());
+
+        SchemaDelta delta = reconciler.update(sqlParser.parseSQL(CUSTOMERS + ORDERS));
+
+        assertEquals(2, delta.getAddedEntities().size());
+        assertEquals(1, delta.getAddedRelationships().size());
+        assertEquals(2, reconciler.getDiagram().getEntities().size());
+    }
+
+    @Test
+    void reusesUnchangedEntitiesAndRelationships() {
+        SchemaReconciler reconciler = new SchemaReconciler();
+        reconciler.update(sqlParser.parseSQL(CUSTOMERS + ORDERS));
+        ERDiagram previous = reconciler.getDiagram();
+
+        SchemaDelta delta = reconciler.update(sqlParser.parseSQL(CUSTOMERS + ORDERS));
+
+        assertTrue(delta.isEmpty());
+        assertNotSame(previous, reconciler.getDiagram());
+        assertSame(previous.getEntityByName("customers"), reconciler.getDiagram().getEntityByName("customers"));
+        assertSame(previous.getEntityByName("orders"), reconciler.getDiagram().getEntityByName("orders"));
+        assertSame(previous.getRelationships().get(0), reconciler.getDiagram().getRelationships().get(0));
+    }
+
+    @Test
+    void changedEntityKeepsItsPosition() {
+        SchemaReconciler reconciler = new SchemaReconciler();
+        reconciler.update(sqlParser.parseSQL(CUSTOMERS + ORDERS));
+        ERDiagram previous = reconciler.getDiagram();
+        Entity customers = previous.getEntityByName("customers");
+        customers.setX(500);
+        customers.setY(300);
+        Relationship relationship = previous.getRelationships().get(0);
+
+        SchemaDelta delta = reconciler.update(sqlParser.parseSQL(
+                CUSTOMERS.replace("name VARCHAR(40)", "name VARCHAR(80)") + ORDERS));
+
+        assertEquals(1, delta.getChangedEntities().size());
+        Entity changed = delta.getChangedEntities().get(0).getCurrent();
+        assertSame(customers, delta.getChangedEntities().get(0).getPrevious());
+        assertEquals(500, changed.getX());
+        assertEquals(300, changed.getY());
+        assertEquals(1, delta.getChangedRelationships().size());
+        assertSame(relationship, delta.getChangedRelationships().get(0).getPrevious());
+
+        // The previous version is left as it was
+        assertSame(customers, previous.getEntityByName("customers"));
+        assertEquals("VARCHAR(40)", customers.getAttribute("name").getDataType());
+    }
+
+    @Test
+    void reportsRemovedEntitiesAndRelationships() {
+        SchemaReconciler reconciler = new SchemaReconciler();
+        reconciler.update(sqlParser.parseSQL(CUSTOMERS + ORDERS));
+
+        SchemaDelta delta = reconciler.update(sqlParser.parseSQL(CUSTOMERS));
+
+        assertEquals(1, delta.getRemovedEntities().size());
+        assertEquals("orders", delta.getRemovedEntities().get(0).getName());
+        assertEquals(1, delta.getRemovedRelationships().size());
+    }
+
+    @Test
+    void skeletonEntitiesAlwaysCountAsChanged() {
+        SchemaReconciler reconciler = new SchemaReconciler();
+        reconciler.update(skeletonDiagram());
+
+        SchemaDelta delta = reconciler.update(skeletonDiagram());
+
+        assertEquals(1, delta.getChangedEntities().size());
+        assertTrue(delta.getAddedEntities().isEmpty());
+    }
+
+    private static ERDiagram skeletonDiagram() {
+        Entity entity = new Entity("customers");
+        Attribute id = new Attribute("id", null);
+        id.setPrimaryKey(true);
+        entity.addAttribute(id);
+        entity.setAttributeLoader(Collections::emptyList);
+
+        ERDiagram diagram = new ERDiagram("ER Diagram");
+        diagram.addEntity(entity);
+        return diagram;
+    }
+}